@@ -1,7 +1,14 @@
 package com.md2word;
 
+import com.md2word.converter.BatchConverter;
+import com.md2word.converter.BatchReport;
+import com.md2word.converter.DocumentRenderer;
 import com.md2word.generator.WordGenerator;
 import com.md2word.generator.PDFGenerator;
+import com.md2word.generator.PdfMemoryReport;
+import com.md2word.generator.WordFragmentCache;
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
 import com.md2word.parser.MarkdownParser;
 import com.vladsch.flexmark.util.ast.Document;
 
@@ -9,6 +16,11 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Main entry point for the Markdown to Document Converter CLI tool.
@@ -18,7 +30,8 @@ import java.nio.file.Paths;
  *
  * <p><b>Usage:</b></p>
  * <pre>
- * java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main &lt;input.md&gt; &lt;output.docx|.pdf&gt;
+ * java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main [--draft] &lt;input.md&gt; &lt;output.docx|.pdf&gt;
+ * java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main [--draft] --batch &lt;docx|pdf&gt; &lt;output-dir&gt; &lt;input.md&gt;...
  * </pre>
  *
  * <p><b>Arguments:</b></p>
@@ -27,10 +40,20 @@ import java.nio.file.Paths;
  *   <li>output.docx or output.pdf - Path where the output document will be created</li>
  * </ul>
  *
+ * <p>With {@code --batch}, any number of input files are converted into a directory by a
+ * {@link BatchConverter}, which overlaps reading, parsing and rendering of different files
+ * and reports throughput and stage utilization at the end.</p>
+ *
+ * <p>With {@code --draft}, documents are generated as quick previews: images become
+ * placeholders of their size, table columns are not measured, links are not clickable and
+ * the output is not compressed.</p>
+ *
  * <p><b>Examples:</b></p>
  * <pre>
  * java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main README.md output.docx
  * java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main README.md output.pdf
+ * java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main --batch docx out docs/*.md
+ * java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main --draft README.md preview.pdf
  * </pre>
  *
  * <p>The converter supports:</p>
@@ -46,12 +69,32 @@ import java.nio.file.Paths;
  */
 public class Main {
 
+    /** System property that prints the peak heap and scratch file usage of PDF conversions. */
+    private static final String MEMORY_REPORT_PROPERTY = "md2word.pdf.memoryReport";
+
+    /** Option that converts many input files into an output directory. */
+    private static final String BATCH_OPTION = "--batch";
+
+    /** Option that generates draft documents for quick previews. */
+    private static final String DRAFT_OPTION = "--draft";
+
     /**
      * Main entry point for the Markdown to Document Converter.
      *
-     * @param args Command-line arguments: input.md path and output.docx/.pdf path
+     * @param args Command-line arguments: input.md path and output.docx/.pdf path, optionally
+     *             preceded by --draft
      */
     public static void main(String[] args) {
+        boolean draft = args.length > 0 && DRAFT_OPTION.equals(args[0]);
+        if (draft) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+
+        if (args.length > 0 && BATCH_OPTION.equals(args[0])) {
+            convertBatch(args, draft);
+            return;
+        }
+
         // Validate command-line arguments
         if (args.length != 2) {
             printUsage();
@@ -98,15 +141,27 @@ public class Main {
             MarkdownParser parser = new MarkdownParser();
             Document ast = parser.parse(markdownContent);
 
+            // Lower the AST into the IR the generators render from
+            DocumentIr ir = new DocumentIrBuilder().build(ast);
+
             // Generate output document based on format
             if (isPdfOutput) {
                 // Generate PDF document
                 PDFGenerator generator = new PDFGenerator();
-                generator.generate(ast, outputPath);
+                if (draft) {
+                    generator.setDraft(true);
+                }
+                if (Boolean.getBoolean(MEMORY_REPORT_PROPERTY)) {
+                    generator.setMemoryReportListener(Main::printMemoryReport);
+                }
+                generator.generate(ir, outputPath);
             } else {
                 // Generate Word document
                 WordGenerator generator = new WordGenerator();
-                generator.generate(ast, outputPath);
+                if (draft) {
+                    generator.setDraft(true);
+                }
+                generator.generate(ir, outputPath);
             }
 
             // Report success
@@ -123,18 +178,134 @@ public class Main {
         }
     }
 
+    /**
+     * Converts the input files of a {@code --batch} command line and prints the batch report.
+     *
+     * @param args Command-line arguments: --batch, the output format, the output directory and
+     *             the input files
+     * @param draft Whether to generate draft documents
+     */
+    private static void convertBatch(String[] args, boolean draft) {
+        if (args.length < 4) {
+            printUsage();
+            System.exit(1);
+        }
+
+        String format = args[1].toLowerCase(Locale.ROOT);
+        DocumentRenderer renderer;
+        if ("pdf".equals(format)) {
+            boolean memoryReport = Boolean.getBoolean(MEMORY_REPORT_PROPERTY);
+            renderer = (ir, outputPath) -> {
+                PDFGenerator generator = new PDFGenerator();
+                if (draft) {
+                    generator.setDraft(true);
+                }
+                if (memoryReport) {
+                    generator.setMemoryReportListener(Main::printMemoryReport);
+                }
+                generator.generate(ir, outputPath);
+            };
+        } else if ("docx".equals(format)) {
+            renderer = (ir, outputPath) -> {
+                WordGenerator generator = new WordGenerator();
+                if (draft) {
+                    generator.setDraft(true);
+                }
+                generator.generate(ir, outputPath);
+            };
+        } else {
+            System.err.println("Error: Output format must be docx or pdf");
+            System.err.println("  Got: " + args[1]);
+            System.exit(1);
+            return;
+        }
+
+        Path outputDirectory = Paths.get(args[2]);
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            inputs.add(Paths.get(args[i]));
+        }
+
+        try {
+            BatchReport report = new BatchConverter(renderer, format).convert(inputs, outputDirectory);
+            printBatchReport(report);
+            if ("docx".equals(format)) {
+                printFragmentCacheReport(WordFragmentCache.shared());
+            }
+            if (!report.failures().isEmpty()) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("Error: Batch conversion failed - " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: Invalid argument - " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Error: Batch conversion was interrupted");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints the outcome of a batch conversion: failed files to standard error, throughput and
+     * stage utilization to standard output.
+     *
+     * @param report The report of the batch
+     */
+    private static void printBatchReport(BatchReport report) {
+        for (Map.Entry<Path, Exception> failure : report.failures().entrySet()) {
+            System.err.println("Error: Failed to convert " + failure.getKey() + " - " + failure.getValue());
+        }
+        System.out.printf(Locale.ROOT, "Converted %d of %d files in %.2f s: %.1f files/s, %.2f MB/s%n",
+                report.converted(), report.converted() + report.failures().size(), report.elapsedNanos() / 1e9,
+                report.documentsPerSecond(), report.bytesPerSecond() / (1024.0 * 1024.0));
+        for (BatchReport.Stage stage : report.stages()) {
+            System.out.printf(Locale.ROOT, "  %-6s %2d threads, %5.1f%% busy%n",
+                    stage.name(), stage.threads(), report.utilization(stage) * 100);
+        }
+    }
+
+    /**
+     * Prints how many large Word blocks were spliced in from the fragment cache.
+     *
+     * @param cache The fragment cache the Word generators used
+     */
+    private static void printFragmentCacheReport(WordFragmentCache cache) {
+        System.out.printf(Locale.ROOT, "Fragment cache: %d hits, %d misses, %.1f%% hit rate, %.1f MB%n",
+                cache.getHitCount(), cache.getMissCount(), cache.getHitRate() * 100,
+                cache.getCurrentBytes() / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Prints the memory used by a PDF conversion to standard output.
+     *
+     * @param report The memory report of the generated document
+     */
+    private static void printMemoryReport(PdfMemoryReport report) {
+        System.out.printf(Locale.ROOT, "Memory: peak heap %.1f MB, scratch file %.1f MB%n",
+                report.peakHeapBytes() / (1024.0 * 1024.0), report.scratchFileBytes() / (1024.0 * 1024.0));
+    }
+
     /**
      * Prints usage information to standard error.
      */
     private static void printUsage() {
-        System.err.println("Usage: java -cp <jar-file> com.md2word.Main <input.md> <output.docx|output.pdf>");
+        System.err.println("Usage: java -cp <jar-file> com.md2word.Main [--draft] <input.md> <output.docx|output.pdf>");
+        System.err.println("       java -cp <jar-file> com.md2word.Main [--draft] --batch <docx|pdf> <output-dir> <input.md>...");
         System.err.println();
         System.err.println("Arguments:");
         System.err.println("  input.md          Path to the input Markdown file");
         System.err.println("  output.docx/.pdf  Path to the output Word document (.docx) or PDF document (.pdf)");
+        System.err.println("  --batch           Convert all input files to the given format into output-dir");
+        System.err.println("  --draft           Generate quick previews: image placeholders, unmeasured tables,");
+        System.err.println("                    no clickable links, uncompressed output");
         System.err.println();
         System.err.println("Examples:");
         System.err.println("  java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main README.md output.docx");
         System.err.println("  java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main README.md output.pdf");
+        System.err.println("  java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main --batch docx out docs/*.md");
+        System.err.println("  java -cp target/md2word-1.0-SNAPSHOT.jar com.md2word.Main --draft README.md preview.pdf");
     }
 }
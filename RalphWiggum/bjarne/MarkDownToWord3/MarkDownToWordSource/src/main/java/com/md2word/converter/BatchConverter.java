@@ -0,0 +1,385 @@
+package com.md2word.converter;
+
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
+import com.md2word.parser.MarkdownParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * BatchConverter converts many Markdown files in a pipeline of three stages, so that reading
+ * files from disk overlaps with parsing and rendering other documents:
+ *
+ * <ol>
+ *   <li>read: reads the Markdown files, on a few threads since it mostly waits for the disk</li>
+ *   <li>parse: parses the Markdown and lowers it to its IR</li>
+ *   <li>render: renders the IR with a {@link DocumentRenderer}, which writes the output file</li>
+ * </ol>
+ *
+ * <p>The stages are connected by bounded queues. A stage that gets ahead of the next one
+ * blocks until there is room, and a document is only read once the heap it is estimated to
+ * need while in flight fits into the memory budget, so the documents between reading and
+ * the end of rendering never need more than the budget. A document larger than the budget
+ * on its own is converted while no other one is in flight.</p>
+ *
+ * <p>A document that fails does not stop the batch; its error is part of the
+ * {@link BatchReport}, along with the throughput and how busy each stage was. That includes
+ * errors such as the {@link StackOverflowError} of pathologically nested Markdown or the
+ * {@link OutOfMemoryError} of a huge document, which are reported wrapped in an
+ * {@link ExecutionException}. Should a stage's thread still die, the batch is aborted instead
+ * of waiting for it forever.</p>
+ *
+ * <p>Thread counts and the memory budget can be configured through the system properties
+ * {@code md2word.batch.readers}, {@code md2word.batch.parsers}, {@code md2word.batch.renderers}
+ * and {@code md2word.batch.memoryBudget} (in bytes), or through the setters. An instance may
+ * run one batch at a time.</p>
+ */
+public final class BatchConverter {
+
+    private static final String READERS_PROPERTY = "md2word.batch.readers";
+    private static final String PARSERS_PROPERTY = "md2word.batch.parsers";
+    private static final String RENDERERS_PROPERTY = "md2word.batch.renderers";
+    private static final String MEMORY_BUDGET_PROPERTY = "md2word.batch.memoryBudget";
+
+    /** Heap a document in flight is estimated to need per byte of Markdown: text, AST, IR and output model. */
+    public static final int HEAP_BYTES_PER_INPUT_BYTE = 64;
+
+    // Documents waiting in front of a stage, per thread of the stage
+    private static final int QUEUE_CAPACITY_PER_THREAD = 2;
+
+    // The memory budget is counted in permits of this many bytes
+    private static final int PERMIT_BYTES = 1024;
+
+    private final DocumentRenderer renderer;
+    private final String outputExtension;
+    private int readerThreads;
+    private int parserThreads;
+    private int rendererThreads;
+    private long memoryBudget;
+
+    /**
+     * Creates a batch converter. By default it reads on 2 threads, parses on a quarter and
+     * renders on all of the available processors, and keeps documents in flight within half
+     * of the maximum heap.
+     *
+     * @param renderer Renders each document into its output file
+     * @param outputExtension Extension of the output files, such as {@code docx}
+     * @throws IllegalArgumentException if a configured thread count is less than 1 or the
+     *         memory budget is less than 1 byte
+     */
+    public BatchConverter(DocumentRenderer renderer, String outputExtension) {
+        this.renderer = renderer;
+        this.outputExtension = outputExtension;
+        int processors = Runtime.getRuntime().availableProcessors();
+        setReaderThreads(Integer.getInteger(READERS_PROPERTY, 2));
+        setParserThreads(Integer.getInteger(PARSERS_PROPERTY, Math.max(1, processors / 4)));
+        setRendererThreads(Integer.getInteger(RENDERERS_PROPERTY, processors));
+        setMemoryBudget(Long.getLong(MEMORY_BUDGET_PROPERTY, Runtime.getRuntime().maxMemory() / 2));
+    }
+
+    /**
+     * @param threads Number of threads reading Markdown files
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    public void setReaderThreads(int threads) {
+        this.readerThreads = requirePositive(threads, "Reader threads");
+    }
+
+    /**
+     * @param threads Number of threads parsing Markdown
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    public void setParserThreads(int threads) {
+        this.parserThreads = requirePositive(threads, "Parser threads");
+    }
+
+    /**
+     * @param threads Number of threads rendering and writing documents
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    public void setRendererThreads(int threads) {
+        this.rendererThreads = requirePositive(threads, "Renderer threads");
+    }
+
+    /**
+     * Sets the heap that the documents in flight may need together, as estimated from their
+     * size with {@link #HEAP_BYTES_PER_INPUT_BYTE}.
+     *
+     * @param bytes The memory budget in bytes
+     * @throws IllegalArgumentException if bytes is less than 1
+     */
+    public void setMemoryBudget(long bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("Memory budget must be at least 1 byte");
+        }
+        this.memoryBudget = bytes;
+    }
+
+    /**
+     * Converts Markdown files into a directory. Each output file is named after its input,
+     * with the output extension in place of the input's.
+     *
+     * @param inputs The Markdown files to convert
+     * @param outputDirectory The directory to write the output files to, created if needed
+     * @return The outcome of the batch
+     * @throws IOException if the output directory cannot be created, or the batch was aborted
+     *         because a thread of the pipeline died
+     * @throws InterruptedException if the calling thread is interrupted; the pipeline's
+     *         threads are interrupted as well
+     * @throws IllegalArgumentException if two inputs would be converted to the same output file
+     */
+    public BatchReport convert(List<Path> inputs, Path outputDirectory) throws IOException, InterruptedException {
+        Map<Path, Path> outputs = new HashMap<>();
+        for (Path input : inputs) {
+            Path output = outputDirectory.resolve(outputName(input));
+            Path other = outputs.put(output, input);
+            if (other != null) {
+                throw new IllegalArgumentException("Both " + other + " and " + input + " would be written to " + output);
+            }
+        }
+        Files.createDirectories(outputDirectory);
+        return new Run(inputs, outputDirectory).execute();
+    }
+
+    private String outputName(Path input) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + "." + outputExtension;
+    }
+
+    private static int requirePositive(int threads, String what) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(what + " must be at least 1");
+        }
+        return threads;
+    }
+
+    /**
+     * A document on its way through the pipeline.
+     */
+    private static final class Job {
+
+        // Marks the end of a stage's input, one per thread of the stage
+        static final Job END = new Job(null, null, 0);
+
+        final Path input;
+        final Path output;
+        // Permits of the memory budget held until the document leaves the pipeline
+        final int permits;
+        String markdown;
+        DocumentIr ir;
+
+        Job(Path input, Path output, int permits) {
+            this.input = input;
+            this.output = output;
+            this.permits = permits;
+        }
+    }
+
+    /**
+     * The work of a stage on one document, done by one thread of the stage.
+     */
+    @FunctionalInterface
+    private interface Step {
+        void apply(Job job) throws IOException;
+    }
+
+    /**
+     * The state of one batch.
+     */
+    private final class Run {
+
+        private final List<Path> inputs;
+        private final Path outputDirectory;
+        private final int totalPermits;
+        private final Semaphore memory;
+        private final BlockingQueue<Job> parseQueue = new ArrayBlockingQueue<>(parserThreads * QUEUE_CAPACITY_PER_THREAD);
+        private final BlockingQueue<Job> renderQueue = new ArrayBlockingQueue<>(rendererThreads * QUEUE_CAPACITY_PER_THREAD);
+        private final AtomicInteger nextInput = new AtomicInteger();
+        private final AtomicInteger converted = new AtomicInteger();
+        private final AtomicLong inputBytes = new AtomicLong();
+        private final LongAdder readNanos = new LongAdder();
+        private final LongAdder parseNanos = new LongAdder();
+        private final LongAdder renderNanos = new LongAdder();
+        private final Map<Path, Exception> failures = new ConcurrentSkipListMap<>();
+        // Written while stages start and read by a dying thread's handler
+        private final List<Thread> threads = new CopyOnWriteArrayList<>();
+        // Interrupted when a thread of the pipeline dies
+        private final Thread caller = Thread.currentThread();
+        // What killed a thread of the pipeline; null while all are alive
+        private volatile Throwable abortCause;
+
+        Run(List<Path> inputs, Path outputDirectory) {
+            this.inputs = inputs;
+            this.outputDirectory = outputDirectory;
+            this.totalPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, memoryBudget / PERMIT_BYTES));
+            this.memory = new Semaphore(totalPermits);
+        }
+
+        BatchReport execute() throws IOException, InterruptedException {
+            long start = System.nanoTime();
+            List<Thread> readers = start("read", readerThreads, this::read);
+            List<Thread> parsers = start("parse", parserThreads, () -> {
+                MarkdownParser parser = new MarkdownParser();
+                return job -> {
+                    job.ir = new DocumentIrBuilder().build(parser.parse(job.markdown));
+                    job.markdown = null;
+                };
+            }, parseQueue, renderQueue, parseNanos);
+            List<Thread> renderers = start("render", rendererThreads, () -> job -> renderer.render(job.ir, job.output),
+                    renderQueue, null, renderNanos);
+            try {
+                finish(readers, parseQueue, parserThreads);
+                finish(parsers, renderQueue, rendererThreads);
+                finish(renderers, null, 0);
+            } catch (InterruptedException e) {
+                threads.forEach(Thread::interrupt);
+                if (abortCause != null) {
+                    throw new IOException("Batch conversion aborted: " + abortCause, abortCause);
+                }
+                throw e;
+            }
+            return new BatchReport(converted.get(), Collections.unmodifiableMap(failures), inputBytes.get(), System.nanoTime() - start, List.of(
+                    new BatchReport.Stage("read", readerThreads, readNanos.sum()),
+                    new BatchReport.Stage("parse", parserThreads, parseNanos.sum()),
+                    new BatchReport.Stage("render", rendererThreads, renderNanos.sum())));
+        }
+
+        /**
+         * Reads inputs until there are none left, each once its estimated heap fits into the
+         * memory budget.
+         */
+        private void read() {
+            try {
+                for (int i = nextInput.getAndIncrement(); i < inputs.size(); i = nextInput.getAndIncrement()) {
+                    Path input = inputs.get(i);
+                    long size;
+                    try {
+                        size = Files.size(input);
+                    } catch (IOException e) {
+                        failures.put(input, e);
+                        continue;
+                    }
+                    int permits = (int) Math.min(totalPermits,
+                            Math.max(1, size * HEAP_BYTES_PER_INPUT_BYTE / PERMIT_BYTES));
+                    memory.acquire(permits);
+                    Job job = new Job(input, outputDirectory.resolve(outputName(input)), permits);
+                    long readStart = System.nanoTime();
+                    try {
+                        job.markdown = Files.readString(input);
+                        inputBytes.addAndGet(size);
+                    } catch (IOException e) {
+                        fail(job, e);
+                        continue;
+                    } finally {
+                        readNanos.add(System.nanoTime() - readStart);
+                    }
+                    parseQueue.put(job);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Starts the threads of a stage that takes documents from one queue and, unless it is
+         * the last stage, passes them on to the next.
+         */
+        private List<Thread> start(String name, int count, Supplier<Step> steps, BlockingQueue<Job> in,
+                                   BlockingQueue<Job> out, LongAdder busyNanos) {
+            return start(name, count, () -> {
+                Step step = steps.get();
+                try {
+                    for (Job job = in.take(); job != Job.END; job = in.take()) {
+                        long stepStart = System.nanoTime();
+                        boolean done;
+                        try {
+                            step.apply(job);
+                            done = true;
+                        } catch (Exception e) {
+                            fail(job, e);
+                            done = false;
+                        } catch (Error e) {
+                            // Stack overflow or out of memory on this document; the others can go on
+                            fail(job, new ExecutionException(e));
+                            done = false;
+                        } finally {
+                            busyNanos.add(System.nanoTime() - stepStart);
+                        }
+                        if (done && out != null) {
+                            out.put(job);
+                        } else if (done) {
+                            job.ir = null;
+                            memory.release(job.permits);
+                            converted.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        private List<Thread> start(String name, int count, Runnable body) {
+            List<Thread> stage = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Thread thread = new Thread(body, "md2word-batch-" + name + "-" + i);
+                thread.setDaemon(true);
+                thread.setUncaughtExceptionHandler((dead, e) -> abort(e));
+                stage.add(thread);
+                threads.add(thread);
+                thread.start();
+            }
+            return stage;
+        }
+
+        /**
+         * Waits for the threads of a stage and then ends the input of the next stage.
+         */
+        private void finish(List<Thread> stage, BlockingQueue<Job> next, int nextThreads) throws InterruptedException {
+            for (Thread thread : stage) {
+                thread.join();
+            }
+            for (int i = 0; i < nextThreads; i++) {
+                next.put(Job.END);
+            }
+        }
+
+        /**
+         * Stops the batch after a thread of the pipeline died, since the documents it held
+         * would never reach the next stage: interrupts every thread and the caller waiting
+         * for them.
+         */
+        private void abort(Throwable cause) {
+            if (abortCause == null) {
+                abortCause = cause;
+            }
+            threads.forEach(Thread::interrupt);
+            caller.interrupt();
+        }
+
+        private void fail(Job job, Exception e) {
+            failures.put(job.input, e);
+            job.markdown = null;
+            job.ir = null;
+            memory.release(job.permits);
+        }
+    }
+}
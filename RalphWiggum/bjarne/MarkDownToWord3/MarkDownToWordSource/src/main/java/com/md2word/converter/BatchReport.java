@@ -0,0 +1,52 @@
+package com.md2word.converter;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a {@link BatchConverter} run: how many documents were converted, which failed,
+ * and how busy each stage of the pipeline was.
+ *
+ * @param converted Number of documents converted
+ * @param failures The error of each document that could not be converted, by input path
+ * @param inputBytes Total size of the Markdown files read
+ * @param elapsedNanos Wall-clock time of the whole run
+ * @param stages The pipeline's stages, in the order documents pass them
+ */
+public record BatchReport(int converted, Map<Path, Exception> failures, long inputBytes, long elapsedNanos,
+                          List<Stage> stages) {
+
+    /**
+     * @return Documents converted per second
+     */
+    public double documentsPerSecond() {
+        return elapsedNanos > 0 ? converted * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * @return Markdown bytes read per second
+     */
+    public double bytesPerSecond() {
+        return elapsedNanos > 0 ? inputBytes * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * Time one stage of the pipeline spent working on documents.
+     *
+     * @param name The stage's name
+     * @param threads Number of threads of the stage
+     * @param busyNanos Time its threads spent on documents, summed over the threads
+     */
+    public record Stage(String name, int threads, long busyNanos) {
+    }
+
+    /**
+     * @param stage A stage of this run
+     * @return The share of the stage's thread time spent on documents rather than waiting for
+     *         them or for room downstream, between 0 and 1
+     */
+    public double utilization(Stage stage) {
+        return elapsedNanos > 0 ? Math.min(1, stage.busyNanos() / ((double) elapsedNanos * stage.threads())) : 0;
+    }
+}
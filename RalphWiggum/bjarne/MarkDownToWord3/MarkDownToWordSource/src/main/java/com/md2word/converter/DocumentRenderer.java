@@ -0,0 +1,23 @@
+package com.md2word.converter;
+
+import com.md2word.ir.DocumentIr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Renders a document lowered to its IR into an output file, as the last stage of a
+ * {@link BatchConverter}. Renderers are called from several threads at once, so an
+ * implementation creates its generator per call, as in
+ * {@code (ir, output) -> new WordGenerator().generate(ir, output)}.
+ */
+@FunctionalInterface
+public interface DocumentRenderer {
+
+    /**
+     * @param ir The document's IR
+     * @param outputPath The file to write
+     * @throws IOException if the file cannot be written
+     */
+    void render(DocumentIr ir, Path outputPath) throws IOException;
+}
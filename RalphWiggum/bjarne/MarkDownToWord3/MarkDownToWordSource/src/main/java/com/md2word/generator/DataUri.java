@@ -0,0 +1,148 @@
+package com.md2word.generator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * DataUri reads an image that is written into the Markdown source as a
+ * {@code data:image/png;base64,...} URL.
+ *
+ * <p>Such URLs are often several megabytes long. The data is decoded straight from the
+ * document's characters through a streaming Base64 decoder, so neither the URL nor the
+ * encoded data is ever copied into a String; only the decoded image bytes are read.</p>
+ *
+ * <p>Instances are immutable, but the characters they read from must not change.</p>
+ */
+final class DataUri {
+
+    private static final String SCHEME = "data:";
+    private static final String BASE64 = ";base64";
+
+    // A header longer than this is not taken as one, so a URL without a comma is not scanned to its end
+    private static final int MAX_HEADER_LENGTH = 256;
+
+    private final CharSequence url;
+    private final String mediaType;
+    private final boolean base64;
+    // Index in the URL of the first data character, after the comma
+    private final int dataStart;
+
+    private DataUri(CharSequence url, String mediaType, boolean base64, int dataStart) {
+        this.url = url;
+        this.mediaType = mediaType;
+        this.base64 = base64;
+        this.dataStart = dataStart;
+    }
+
+    /**
+     * @param url The URL of an image
+     * @return Whether the URL is a data URI, without reading beyond its scheme
+     */
+    static boolean isDataUri(CharSequence url) {
+        if (url.length() < SCHEME.length()) {
+            return false;
+        }
+        for (int i = 0; i < SCHEME.length(); i++) {
+            if (Character.toLowerCase(url.charAt(i)) != SCHEME.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the header of a data URI.
+     *
+     * @param url The URL of an image
+     * @return The data URI, or null if the URL is not a data URI
+     */
+    static DataUri parse(CharSequence url) {
+        if (!isDataUri(url)) {
+            return null;
+        }
+        int limit = Math.min(url.length(), SCHEME.length() + MAX_HEADER_LENGTH);
+        for (int i = SCHEME.length(); i < limit; i++) {
+            if (url.charAt(i) == ',') {
+                String header = url.subSequence(SCHEME.length(), i).toString().toLowerCase(Locale.ROOT);
+                boolean base64 = header.endsWith(BASE64);
+                if (base64) {
+                    header = header.substring(0, header.length() - BASE64.length());
+                }
+                int parameters = header.indexOf(';');
+                String mediaType = parameters >= 0 ? header.substring(0, parameters) : header;
+                return new DataUri(url, mediaType.isEmpty() ? "text/plain" : mediaType, base64, i + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The media type, such as {@code image/png}, in lower case
+     */
+    String mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return A file name for the image made from its media type, such as {@code image.png}
+     */
+    String fileName() {
+        int slash = mediaType.indexOf('/');
+        return "image." + (slash >= 0 ? mediaType.substring(slash + 1) : mediaType);
+    }
+
+    /**
+     * Opens a stream of the decoded data. Characters outside the Base64 alphabet, such as
+     * line breaks, are skipped.
+     *
+     * @return The decoded data
+     * @throws IOException if the data is not Base64 encoded, which images are in practice
+     */
+    InputStream openStream() throws IOException {
+        if (!base64) {
+            throw new IOException("Only base64 data URIs are supported for images");
+        }
+        return Base64.getMimeDecoder().wrap(new CharsInputStream(url, dataStart));
+    }
+
+    /**
+     * The characters of the URL from an index on, as the ASCII bytes the decoder reads.
+     */
+    private static final class CharsInputStream extends InputStream {
+
+        private final CharSequence chars;
+        private int position;
+
+        CharsInputStream(CharSequence chars, int position) {
+            this.chars = chars;
+            this.position = position;
+        }
+
+        @Override
+        public int read() {
+            return position < chars.length() ? ascii(chars.charAt(position++)) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int count = Math.min(length, chars.length() - position);
+            if (count <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) ascii(chars.charAt(position++));
+            }
+            return count;
+        }
+
+        // Characters beyond ASCII become a space, which the decoder skips like a line break
+        private static int ascii(char c) {
+            return c < 0x80 ? c : ' ';
+        }
+    }
+}
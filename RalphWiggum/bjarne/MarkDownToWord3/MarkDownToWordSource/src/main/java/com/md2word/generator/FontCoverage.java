@@ -0,0 +1,223 @@
+package com.md2word.generator;
+
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDSimpleFont;
+import org.apache.pdfbox.pdmodel.font.encoding.Encoding;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FontCoverage records which Unicode code points a PDF font can encode.
+ *
+ * <p>PDFBox reports an unencodable character by throwing {@link IllegalArgumentException}
+ * from {@code showText} or {@code getStringWidth}. Relying on that means every line containing
+ * a box-drawing or CJK character is encoded twice and pays for the exception. FontCoverage
+ * instead builds a bitmap of encodable code points once per font, so text can be split into
+ * encodable runs and fallback runs up front with a plain bit lookup per character.</p>
+ *
+ * <p>The bitmap for a simple font is derived from its encoding: a code point is encodable when
+ * its glyph name is part of the font's encoding, which is exactly the check PDFBox performs.
+ * For an embedded TrueType font it is derived from the font's Unicode cmap: a code point is
+ * encodable when it maps to a real glyph. Bitmaps of the Standard 14 fonts are shared JVM-wide;
+ * those of TrueType fonts live alongside the parsed font in {@link TrueTypeFontCache}.
+ * Instances are immutable and thread-safe.</p>
+ */
+final class FontCoverage {
+
+    private static final Map<String, FontCoverage> STANDARD_14 = new ConcurrentHashMap<>();
+
+    private final BitSet encodable;
+
+    private FontCoverage(BitSet encodable) {
+        this.encodable = encodable;
+    }
+
+    /**
+     * Returns the coverage of a font, computing it on first use.
+     *
+     * @param font The font to inspect
+     * @return The coverage bitmap for the font
+     * @throws IllegalArgumentException if the font is not a simple font
+     */
+    static FontCoverage of(PDFont font) {
+        if (!(font instanceof PDSimpleFont)) {
+            throw new IllegalArgumentException("Unsupported font type: " + font.getClass().getSimpleName());
+        }
+        PDSimpleFont simpleFont = (PDSimpleFont) font;
+        if (simpleFont.isStandard14()) {
+            return STANDARD_14.computeIfAbsent(font.getName(), name -> fromEncoding(simpleFont));
+        }
+        return fromEncoding(simpleFont);
+    }
+
+    /**
+     * Builds the coverage of a TrueType font from its Unicode cmap.
+     *
+     * @param cmap The font's Unicode cmap
+     * @param numberOfGlyphs Number of glyphs in the font
+     * @return The coverage bitmap for the font
+     */
+    static FontCoverage of(CmapLookup cmap, int numberOfGlyphs) {
+        BitSet encodable = new BitSet(0x10000);
+        // Glyph 0 is .notdef, which PDFBox refuses to encode
+        for (int glyphId = 1; glyphId < numberOfGlyphs; glyphId++) {
+            List<Integer> codePoints = cmap.getCharCodes(glyphId);
+            if (codePoints != null) {
+                for (int codePoint : codePoints) {
+                    encodable.set(codePoint);
+                }
+            }
+        }
+        return new FontCoverage(encodable);
+    }
+
+    /**
+     * Builds the coverage of a simple font from its encoding and glyph list.
+     */
+    private static FontCoverage fromEncoding(PDSimpleFont font) {
+        BitSet encodable = new BitSet(256);
+        Encoding encoding = font.getEncoding();
+        GlyphList glyphList = font.getGlyphList();
+        if (encoding != null) {
+            for (String name : encoding.getCodeToNameMap().values()) {
+                if (".notdef".equals(name)) {
+                    continue;
+                }
+                String unicode = glyphList.toUnicode(name);
+                if (unicode == null || unicode.codePointCount(0, unicode.length()) != 1) {
+                    continue;
+                }
+                int codePoint = unicode.codePointAt(0);
+                // PDFBox encodes through the code point's canonical glyph name, so aliases do not count
+                if (name.equals(glyphList.codePointToName(codePoint))) {
+                    encodable.set(codePoint);
+                }
+            }
+        }
+        return new FontCoverage(encodable);
+    }
+
+    /**
+     * @param codePoint A Unicode code point
+     * @return Whether the font can encode the code point
+     */
+    boolean canEncode(int codePoint) {
+        return encodable.get(codePoint);
+    }
+
+    /**
+     * Checks whether every character of the text can be encoded.
+     *
+     * @param text The text to check
+     * @return true if the text can be shown without any fallback
+     */
+    boolean canEncode(CharSequence text) {
+        return encodableRunEnd(text, 0) == text.length();
+    }
+
+    /**
+     * Checks whether every character of a range of text can be encoded.
+     *
+     * @param text The text to check
+     * @param start Index of the first character of the range
+     * @param end Index just past the range
+     * @return true if the range can be shown without any fallback
+     */
+    boolean canEncode(CharSequence text, int start, int end) {
+        int index = start;
+        while (index < end) {
+            int codePoint = Character.codePointAt(text, index);
+            if (!encodable.get(codePoint)) {
+                return false;
+            }
+            index += Character.charCount(codePoint);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the end of the run of encodable characters starting at {@code start}.
+     *
+     * @param text The text to scan
+     * @param start Index of the first character of the run
+     * @return Index just past the run; equals {@code start} if the first character is not encodable
+     */
+    int encodableRunEnd(CharSequence text, int start) {
+        int index = start;
+        int length = text.length();
+        while (index < length) {
+            int codePoint = Character.codePointAt(text, index);
+            if (!encodable.get(codePoint)) {
+                break;
+            }
+            index += Character.charCount(codePoint);
+        }
+        return index;
+    }
+
+    /**
+     * Finds the end of the run of characters that need a fallback, starting at {@code start}.
+     *
+     * @param text The text to scan
+     * @param start Index of the first character of the run
+     * @return Index just past the run; equals {@code start} if the first character is encodable
+     */
+    int fallbackRunEnd(CharSequence text, int start) {
+        int index = start;
+        int length = text.length();
+        while (index < length) {
+            int codePoint = Character.codePointAt(text, index);
+            if (encodable.get(codePoint)) {
+                break;
+            }
+            index += Character.charCount(codePoint);
+        }
+        return index;
+    }
+
+    /**
+     * Splits text into alternating encodable and fallback runs and passes each run, in order,
+     * to the consumer.
+     *
+     * @param text The text to segment
+     * @param consumer Receives the bounds of every run
+     * @throws IOException if the consumer fails
+     */
+    void forEachRun(CharSequence text, RunConsumer consumer) throws IOException {
+        int index = 0;
+        int length = text.length();
+        while (index < length) {
+            int end = encodableRunEnd(text, index);
+            if (end > index) {
+                consumer.accept(index, end, true);
+                index = end;
+            }
+            end = fallbackRunEnd(text, index);
+            if (end > index) {
+                consumer.accept(index, end, false);
+                index = end;
+            }
+        }
+    }
+
+    /**
+     * Receives the runs produced by {@link #forEachRun(CharSequence, RunConsumer)}.
+     */
+    @FunctionalInterface
+    interface RunConsumer {
+
+        /**
+         * @param start Index of the first character of the run
+         * @param end Index just past the run
+         * @param encodable true for an encodable run, false for a run that needs a fallback
+         * @throws IOException if handling the run fails
+         */
+        void accept(int start, int end, boolean encodable) throws IOException;
+    }
+}
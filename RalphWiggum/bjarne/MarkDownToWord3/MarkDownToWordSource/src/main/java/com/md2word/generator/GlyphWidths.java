@@ -0,0 +1,86 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GlyphWidths caches the advance width of each code point a PDF font draws.
+ *
+ * <p>{@link PDFont#getStringWidth} only accepts a String, which it encodes into a new byte
+ * array before adding up the widths of the codes, one at a time. Measuring every text run
+ * that way forces the run to be copied out of the Markdown source first. Since the width of
+ * a string is the sum of the widths of its code points in order, the widths are instead
+ * looked up once per code point and summed over any {@link CharSequence} range, which gives
+ * the same float result without copying the text.</p>
+ *
+ * <p>Widths of the Basic Multilingual Plane are kept in pages of 256 code points, allocated
+ * as they are first used. Callers only measure text the font can encode. An instance belongs
+ * to one font of one document and is not thread-safe.</p>
+ */
+final class GlyphWidths {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final PDFont font;
+    private final float[][] pages = new float[(Character.MAX_VALUE + 1) >> PAGE_BITS][];
+    private final Map<Integer, Float> supplementary = new HashMap<>();
+
+    GlyphWidths(PDFont font) {
+        this.font = font;
+    }
+
+    /**
+     * Sums the widths of a range of text, exactly as {@link PDFont#getStringWidth} would for
+     * the same characters.
+     *
+     * @param text The text, which the font must be able to encode
+     * @param start Index of the first character of the range
+     * @param end Index just past the range
+     * @return The width in glyph space units (1/1000 of the font size)
+     * @throws IOException if the font cannot measure a character
+     */
+    float sum(CharSequence text, int start, int end) throws IOException {
+        float width = 0;
+        int index = start;
+        while (index < end) {
+            char c = text.charAt(index);
+            if (Character.isHighSurrogate(c) && index + 1 < end && Character.isLowSurrogate(text.charAt(index + 1))) {
+                width += width(Character.toCodePoint(c, text.charAt(index + 1)));
+                index += 2;
+            } else {
+                width += width(c);
+                index++;
+            }
+        }
+        return width;
+    }
+
+    private float width(int codePoint) throws IOException {
+        if (codePoint > Character.MAX_VALUE) {
+            Float width = supplementary.get(codePoint);
+            if (width == null) {
+                width = font.getStringWidth(new String(Character.toChars(codePoint)));
+                supplementary.put(codePoint, width);
+            }
+            return width;
+        }
+
+        float[] page = pages[codePoint >> PAGE_BITS];
+        if (page == null) {
+            page = new float[PAGE_SIZE];
+            Arrays.fill(page, Float.NaN);
+            pages[codePoint >> PAGE_BITS] = page;
+        }
+        float width = page[codePoint & (PAGE_SIZE - 1)];
+        if (Float.isNaN(width)) {
+            width = font.getStringWidth(String.valueOf((char) codePoint));
+            page[codePoint & (PAGE_SIZE - 1)] = width;
+        }
+        return width;
+    }
+}
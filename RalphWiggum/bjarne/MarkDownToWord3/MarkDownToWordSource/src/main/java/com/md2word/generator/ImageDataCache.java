@@ -0,0 +1,149 @@
+package com.md2word.generator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ImageDataCache is a JVM-wide LRU cache of encoded image file contents.
+ *
+ * <p>Entries are keyed by canonical path, last-modified time and file size, so an image that
+ * is edited on disk is re-read instead of served stale. The cache is bounded by the total number
+ * of cached bytes rather than by entry count, because a single screenshot can outweigh hundreds
+ * of icons.</p>
+ *
+ * <p>Long-running processes that convert many documents benefit most: an image referenced by
+ * every document is read from disk once and handed to the generators as an in-memory byte array
+ * afterwards. JPEG data is passed through to the PDF unchanged, so it is never decoded at all.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public final class ImageDataCache {
+
+    /** Default upper bound for cached image bytes (64 MB). */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final ImageDataCache SHARED = new ImageDataCache(
+            Long.getLong("md2word.imageCache.maxBytes", DEFAULT_MAX_BYTES));
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache holding at most {@code maxBytes} bytes of image data.
+     *
+     * @param maxBytes The byte budget; 0 disables caching
+     * @throws IllegalArgumentException if maxBytes is negative
+     */
+    public ImageDataCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache shared by all generators in this JVM.
+     * Its size can be set with the {@code md2word.imageCache.maxBytes} system property.
+     *
+     * @return The shared image cache
+     */
+    public static ImageDataCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the contents of an image file, reading it from disk only if the cached copy is
+     * missing or the file has changed since it was cached.
+     *
+     * @param canonicalPath The canonical (real) path of the image file
+     * @return The encoded image bytes
+     * @throws IOException if the file cannot be read
+     */
+    public byte[] load(Path canonicalPath) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(canonicalPath, BasicFileAttributes.class);
+        Key key = new Key(canonicalPath, attributes.lastModifiedTime().toMillis(), attributes.size());
+
+        synchronized (this) {
+            byte[] cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        // Read outside the lock so slow disks do not serialize unrelated conversions
+        byte[] data = Files.readAllBytes(canonicalPath);
+        put(key, data);
+        return data;
+    }
+
+    /**
+     * Removes all cached entries and resets the statistics.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * @return Number of lookups served from the cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return Number of lookups that had to read the file
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return Total size of the cached image data in bytes
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    private synchronized void put(Key key, byte[] data) {
+        if (data.length > maxBytes) {
+            return; // Larger than the whole budget - never worth caching
+        }
+
+        byte[] previous = entries.put(key, data);
+        if (previous != null) {
+            currentBytes -= previous.length;
+        }
+        currentBytes += data.length;
+
+        // Evict least recently used entries, including older versions of the same file
+        Iterator<Map.Entry<Key, byte[]>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, byte[]> eldest = iterator.next();
+            boolean staleVersion = eldest.getKey().path().equals(key.path()) && !eldest.getKey().equals(key);
+            if (currentBytes <= maxBytes && !staleVersion) {
+                continue;
+            }
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            currentBytes -= eldest.getValue().length;
+            iterator.remove();
+        }
+    }
+
+    private record Key(Path path, long lastModified, long size) {
+    }
+}
@@ -0,0 +1,234 @@
+package com.md2word.generator;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The format and pixel dimensions of an image, read from the first bytes of its data.
+ *
+ * <p>Only the header is read: the signature and, for PNG, GIF, BMP and WebP, a few fixed
+ * fields after it. JPEG stores its dimensions in the frame header, which may follow large
+ * metadata segments; those are skipped rather than read. The image itself is never decoded,
+ * and the file extension is not consulted, so misnamed files are recognized by their
+ * content.</p>
+ *
+ * <p>Headers of files are cached JVM-wide by path, last-modified time and size, so an image
+ * shown by many documents is probed once while it is unchanged. This class is thread-safe.</p>
+ *
+ * @param format The image format
+ * @param width The width in pixels
+ * @param height The height in pixels
+ */
+record ImageHeader(Format format, int width, int height) {
+
+    /** Image formats recognized by their signature. */
+    enum Format {
+        PNG, JPEG, GIF, BMP, WEBP
+    }
+
+    // Probed files kept in the cache; a header is a few dozen bytes
+    private static final int MAX_CACHED_FILES = 4096;
+
+    private static final Map<Key, ImageHeader> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, ImageHeader> eldest) {
+            return size() > MAX_CACHED_FILES;
+        }
+    };
+
+    // Unrecognized files are cached as this, so they are not probed again either
+    private static final ImageHeader UNKNOWN = new ImageHeader(null, 0, 0);
+
+    /**
+     * Reads the header of an image file, or takes it from the cache if the file has not
+     * changed since it was last probed.
+     *
+     * @param imagePath The image file
+     * @return The header, or null if the file is not a recognized image
+     * @throws IOException if the file cannot be read
+     */
+    static ImageHeader probe(Path imagePath) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(imagePath, BasicFileAttributes.class);
+        Key key = new Key(imagePath.toAbsolutePath().normalize(), attributes.lastModifiedTime().toMillis(),
+                attributes.size());
+        ImageHeader header;
+        synchronized (CACHE) {
+            header = CACHE.get(key);
+        }
+        if (header == null) {
+            try (InputStream in = Files.newInputStream(imagePath)) {
+                header = read(in);
+            }
+            synchronized (CACHE) {
+                CACHE.put(key, header != null ? header : UNKNOWN);
+            }
+        }
+        return header != UNKNOWN ? header : null;
+    }
+
+    /**
+     * Reads the header of an image from the start of its data. The stream is left positioned
+     * somewhere after the header.
+     *
+     * @param data The image data
+     * @return The header, or null if the data does not start like a recognized image or its
+     *         header is truncated
+     * @throws IOException if the stream cannot be read
+     */
+    static ImageHeader read(InputStream data) throws IOException {
+        InputStream in = new BufferedInputStream(data, 512);
+        byte[] start = new byte[30];
+        int length = in.readNBytes(start, 0, start.length);
+        try {
+            ImageHeader header;
+            if (length >= 24 && u8(start, 0) == 0x89 && ascii(start, 1, "PNG") && ascii(start, 12, "IHDR")) {
+                header = new ImageHeader(Format.PNG, s32be(start, 16), s32be(start, 20));
+            } else if (length >= 10 && (ascii(start, 0, "GIF87a") || ascii(start, 0, "GIF89a"))) {
+                header = new ImageHeader(Format.GIF, u16le(start, 6), u16le(start, 8));
+            } else if (length >= 26 && ascii(start, 0, "BM")) {
+                header = u32le(start, 14) == 12
+                        ? new ImageHeader(Format.BMP, u16le(start, 18), u16le(start, 20))
+                        : new ImageHeader(Format.BMP, s32le(start, 18), Math.abs(s32le(start, 22)));
+            } else if (length >= 30 && ascii(start, 0, "RIFF") && ascii(start, 8, "WEBP")) {
+                header = webp(start);
+            } else if (length >= 4 && u8(start, 0) == 0xFF && u8(start, 1) == 0xD8) {
+                header = jpeg(start, length, in);
+            } else {
+                header = null;
+            }
+            return header != null && header.width > 0 && header.height > 0 ? header : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static ImageHeader webp(byte[] start) {
+        if (ascii(start, 12, "VP8 ")) {
+            // Lossy: the key frame header follows the start code 9D 01 2A
+            return new ImageHeader(Format.WEBP, u16le(start, 26) & 0x3FFF, u16le(start, 28) & 0x3FFF);
+        } else if (ascii(start, 12, "VP8L")) {
+            // Lossless: 14 bits each of width - 1 and height - 1 after the signature byte
+            long bits = u32le(start, 21);
+            return new ImageHeader(Format.WEBP, (int) (bits & 0x3FFF) + 1, (int) ((bits >> 14) & 0x3FFF) + 1);
+        } else if (ascii(start, 12, "VP8X")) {
+            // Extended: 24 bits each of canvas width - 1 and height - 1
+            return new ImageHeader(Format.WEBP, u24le(start, 24) + 1, u24le(start, 27) + 1);
+        }
+        return null;
+    }
+
+    /**
+     * Walks the JPEG segments up to the first frame header, skipping the others.
+     */
+    private static ImageHeader jpeg(byte[] start, int length, InputStream rest) throws IOException {
+        InputStream in = new PrefixedInputStream(start, 2, length, rest);
+        while (true) {
+            int marker = in.read();
+            if (marker < 0) {
+                return null;
+            } else if (marker != 0xFF) {
+                continue; // Not at a marker; garbage between segments is skipped like decoders do
+            }
+            marker = in.read();
+            while (marker == 0xFF) {
+                marker = in.read(); // Fill bytes
+            }
+            if (marker < 0 || marker == 0xD9 || marker == 0xDA) {
+                return null; // End of image or start of scan before any frame header
+            } else if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue; // Markers without a segment
+            }
+            byte[] fields = in.readNBytes(2);
+            if (fields.length < 2) {
+                return null;
+            }
+            int segmentLength = u16be(fields, 0);
+            boolean frame = marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (frame) {
+                byte[] frameHeader = in.readNBytes(5);
+                if (frameHeader.length < 5) {
+                    return null;
+                }
+                return new ImageHeader(Format.JPEG, u16be(frameHeader, 3), u16be(frameHeader, 1));
+            }
+            in.skipNBytes(segmentLength - 2);
+        }
+    }
+
+    private static boolean ascii(byte[] bytes, int offset, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (bytes[offset + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int u8(byte[] bytes, int offset) {
+        return bytes[offset] & 0xFF;
+    }
+
+    private static int u16le(byte[] bytes, int offset) {
+        return u8(bytes, offset) | u8(bytes, offset + 1) << 8;
+    }
+
+    private static int u16be(byte[] bytes, int offset) {
+        return u8(bytes, offset) << 8 | u8(bytes, offset + 1);
+    }
+
+    private static int u24le(byte[] bytes, int offset) {
+        return u16le(bytes, offset) | u8(bytes, offset + 2) << 16;
+    }
+
+    private static long u32le(byte[] bytes, int offset) {
+        return s32le(bytes, offset) & 0xFFFFFFFFL;
+    }
+
+    private static int s32le(byte[] bytes, int offset) {
+        return u16le(bytes, offset) | u16le(bytes, offset + 2) << 16;
+    }
+
+    private static int s32be(byte[] bytes, int offset) {
+        return u16be(bytes, offset) << 16 | u16be(bytes, offset + 2);
+    }
+
+    private record Key(Path path, long lastModified, long size) {
+    }
+
+    /**
+     * The bytes already read from the start of an image, followed by the rest of its stream.
+     */
+    private static final class PrefixedInputStream extends InputStream {
+
+        private final byte[] head;
+        private final int headEnd;
+        private final InputStream rest;
+        private int position;
+
+        PrefixedInputStream(byte[] head, int position, int headEnd, InputStream rest) {
+            this.head = head;
+            this.position = position;
+            this.headEnd = headEnd;
+            this.rest = rest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return position < headEnd ? head[position++] & 0xFF : rest.read();
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = Math.min(n, headEnd - position);
+            position += (int) skipped;
+            return skipped < n ? skipped + rest.skip(n - skipped) : skipped;
+        }
+    }
+}
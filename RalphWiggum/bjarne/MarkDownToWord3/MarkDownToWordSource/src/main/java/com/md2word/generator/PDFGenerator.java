@@ -1,46 +1,32 @@
 package com.md2word.generator;
 
-import com.vladsch.flexmark.ast.Emphasis;
-import com.vladsch.flexmark.ast.Heading;
-import com.vladsch.flexmark.ast.Link;
-import com.vladsch.flexmark.ast.OrderedList;
-import com.vladsch.flexmark.ast.OrderedListItem;
-import com.vladsch.flexmark.ast.Paragraph;
-import com.vladsch.flexmark.ast.StrongEmphasis;
-import com.vladsch.flexmark.ast.Text;
-import com.vladsch.flexmark.ast.BulletList;
-import com.vladsch.flexmark.ast.BulletListItem;
-import com.vladsch.flexmark.ast.FencedCodeBlock;
-import com.vladsch.flexmark.ast.Code;
-import com.vladsch.flexmark.ast.BlockQuote;
-import com.vladsch.flexmark.ast.Image;
-import com.vladsch.flexmark.ast.ThematicBreak;
-import com.vladsch.flexmark.ext.tables.TableBlock;
-import com.vladsch.flexmark.ext.tables.TableRow;
-import com.vladsch.flexmark.ext.tables.TableCell;
-import com.vladsch.flexmark.ext.tables.TableHead;
-import com.vladsch.flexmark.ext.tables.TableBody;
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
 import com.vladsch.flexmark.util.ast.Document;
-import com.vladsch.flexmark.util.ast.Node;
+import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.font.PDFont;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
-import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * PDFGenerator uses Apache PDFBox to generate PDF documents from a Markdown AST.
  *
- * <p>This class traverses a flexmark Document AST and creates a PDF document with
- * equivalent formatting and structure using Apache PDFBox.</p>
+ * <p>This class renders a Markdown document, lowered to a {@link DocumentIr}, and creates a
+ * PDF document with equivalent formatting and structure using Apache PDFBox.</p>
  *
  * <p>Currently supported elements:</p>
  * <ul>
@@ -53,7 +39,10 @@ import java.nio.file.Path;
  *   <li>Blockquotes with italic text, left border, and light gray background</li>
  *   <li>Tables with borders and header row formatting</li>
  *   <li>Images with aspect ratio preservation</li>
- *   <li>Horizontal rules - TO BE IMPLEMENTED</li>
+ *   <li>Horizontal rules drawn from one shared form XObject</li>
+ *   <li>Optional page header, footer and page numbers on every page</li>
+ *   <li>Optional incremental updates that append only the pages after the first changed block</li>
+ *   <li>Optional draft mode for fast previews</li>
  * </ul>
  *
  * <p>This is a basic implementation that will be expanded in subsequent tasks to support
@@ -65,110 +54,571 @@ public class PDFGenerator {
     private static final float DEFAULT_FONT_SIZE = 12;
     private static final float LIST_INDENT = 20; // Indentation per nesting level for lists
     private static final float CODE_FONT_SIZE = 10; // Font size for code blocks
-    private static final float CODE_BLOCK_PADDING = 5; // Padding around code blocks
-    private static final float CODE_BLOCK_BACKGROUND_GRAY = 0.95f; // Light gray background for code blocks
+    private static final float CODE_BLOCK_SPACING = 5; // Space after code blocks
     private static final float BLOCKQUOTE_INDENT = 20; // Left indentation for blockquotes
     private static final float BLOCKQUOTE_BORDER_WIDTH = 2; // Border line width in points
     private static final float BLOCKQUOTE_BACKGROUND_GRAY = 0.90f; // Light gray background for blockquotes
     private static final float BLOCKQUOTE_PADDING = 5; // Padding around blockquote text
-    private static final float TABLE_CELL_PADDING = 5; // Padding within table cells
-    private static final float TABLE_BORDER_WIDTH = 1; // Border line width for tables
-    private static final float TABLE_ROW_HEIGHT = 20; // Row height for table rows
-    private static final float TABLE_MIN_COLUMN_WIDTH = 50; // Minimum column width
+    private static final float TABLE_SPACING = 4; // Spacing after tables
     private static final float IMAGE_MAX_WIDTH = PDRectangle.A4.getWidth() - (2 * MARGIN); // Maximum image width
     private static final float IMAGE_MAX_HEIGHT = 400; // Maximum image height in points
     private static final float IMAGE_SPACING = 10; // Spacing before/after images
+    private static final float IMAGE_PLACEHOLDER_GRAY = 0.85f; // Fill of draft image placeholders
+    private static final float RULE_RAISE = 4; // Horizontal rule height above the current baseline
+    private static final float RULE_SPACING = 4; // Extra spacing below horizontal rules
+
+    /** System property prefix for TrueType font files, e.g. {@code md2word.pdf.font.fallback}. */
+    private static final String FONT_PROPERTY_PREFIX = "md2word.pdf.font.";
+
+    /** System property selecting the {@link PdfSaveProfile} by name, e.g. {@code smallest}. */
+    private static final String SAVE_PROFILE_PROPERTY = "md2word.pdf.saveProfile";
+
+    /** System property with the heap budget for stream data, e.g. {@code 64m}; unset keeps all on the heap. */
+    private static final String HEAP_BUDGET_PROPERTY = "md2word.pdf.heapBudget";
+
+    /** System property with the directory for scratch files; unset uses {@code java.io.tmpdir}. */
+    private static final String SCRATCH_DIR_PROPERTY = "md2word.pdf.scratchDir";
+
+    /** System property that writes linearized ("fast web view") PDFs when {@code true}. */
+    private static final String LINEARIZE_PROPERTY = "md2word.pdf.linearize";
+
+    /** System property with the text of the page header. */
+    private static final String HEADER_PROPERTY = "md2word.pdf.header";
+
+    /** System property with the text of the page footer. */
+    private static final String FOOTER_PROPERTY = "md2word.pdf.footer";
+
+    /** System property that numbers the pages when {@code true}. */
+    private static final String PAGE_NUMBERS_PROPERTY = "md2word.pdf.pageNumbers";
+
+    /** System property that updates unchanged output files incrementally when {@code true}. */
+    private static final String INCREMENTAL_PROPERTY = "md2word.pdf.incremental";
+
+    /** System property that wraps code lines wider than the page when {@code true}. */
+    private static final String WRAP_CODE_PROPERTY = "md2word.pdf.wrapCode";
+
+    /** System property that generates draft documents when {@code true}. */
+    private static final String DRAFT_PROPERTY = "md2word.pdf.draft";
+
+    // TrueType font files per style; styles without a file use their Standard 14 font
+    private final Map<PdfFontSet.Style, Path> fontFiles = new EnumMap<>(PdfFontSet.Style.class);
+
+    private PdfSaveProfile saveProfile = PdfSaveProfile.BALANCED;
+
+    private boolean linearized;
+
+    private PdfMemoryPolicy memoryPolicy = PdfMemoryPolicy.heapOnly();
+
+    // Receives the memory used by each generated document; null when not measured
+    private Consumer<PdfMemoryReport> memoryReportListener;
+
+    // Page header and footer text; null for none
+    private String pageHeader;
+    private String pageFooter;
+
+    private boolean pageNumbers;
+
+    private boolean incrementalUpdates;
+
+    private boolean wrapCodeLines;
+
+    private boolean draft;
+
+    // Layout of the last file written with incremental updates enabled; null if there is none
+    private PdfRevision revision;
+
+    /**
+     * Creates a PDF generator using the Standard 14 fonts, unless TrueType font files are
+     * configured through the system properties {@code md2word.pdf.font.regular},
+     * {@code .bold}, {@code .italic}, {@code .boldItalic}, {@code .monospace} and {@code .fallback}.
+     * The save profile defaults to {@link PdfSaveProfile#BALANCED} and can be changed with the
+     * system property {@code md2word.pdf.saveProfile} ({@code stored}, {@code fast}, {@code balanced} or
+     * {@code smallest}),
+     * and {@code md2word.pdf.linearize=true} writes linearized files.
+     * Stream data stays on the heap unless a heap budget such as {@code 64m} is set with
+     * {@code md2word.pdf.heapBudget}; scratch files go to {@code md2word.pdf.scratchDir} if set.
+     * Pages get a header, footer or page numbers when {@code md2word.pdf.header},
+     * {@code md2word.pdf.footer} or {@code md2word.pdf.pageNumbers=true} are set, and
+     * {@code md2word.pdf.incremental=true} enables incremental updates.
+     * {@code md2word.pdf.wrapCode=true} wraps code lines wider than the page, and
+     * {@code md2word.pdf.draft=true} generates draft documents.
+     *
+     * @throws IllegalArgumentException if {@code md2word.pdf.saveProfile} names no profile or
+     *         {@code md2word.pdf.heapBudget} is not a valid size
+     */
+    public PDFGenerator() {
+        setFontFile(PdfFontSet.Style.REGULAR, System.getProperty(FONT_PROPERTY_PREFIX + "regular"));
+        setFontFile(PdfFontSet.Style.BOLD, System.getProperty(FONT_PROPERTY_PREFIX + "bold"));
+        setFontFile(PdfFontSet.Style.ITALIC, System.getProperty(FONT_PROPERTY_PREFIX + "italic"));
+        setFontFile(PdfFontSet.Style.BOLD_ITALIC, System.getProperty(FONT_PROPERTY_PREFIX + "boldItalic"));
+        setFontFile(PdfFontSet.Style.MONOSPACE, System.getProperty(FONT_PROPERTY_PREFIX + "monospace"));
+        setFontFile(PdfFontSet.Style.FALLBACK, System.getProperty(FONT_PROPERTY_PREFIX + "fallback"));
+
+        String profileName = System.getProperty(SAVE_PROFILE_PROPERTY);
+        if (profileName != null && !profileName.isEmpty()) {
+            setSaveProfile(PdfSaveProfile.valueOf(profileName.trim().toUpperCase(Locale.ROOT)));
+        }
+        setLinearized(Boolean.getBoolean(LINEARIZE_PROPERTY));
+
+        String heapBudget = System.getProperty(HEAP_BUDGET_PROPERTY);
+        if (heapBudget != null && !heapBudget.isEmpty()) {
+            String scratchDir = System.getProperty(SCRATCH_DIR_PROPERTY);
+            setMemoryPolicy(PdfMemoryPolicy.heapBudget(PdfMemoryPolicy.parseSize(heapBudget))
+                    .withScratchDirectory(scratchDir == null || scratchDir.isEmpty() ? null : Paths.get(scratchDir)));
+        }
+
+        setPageHeader(System.getProperty(HEADER_PROPERTY));
+        setPageFooter(System.getProperty(FOOTER_PROPERTY));
+        setPageNumbers(Boolean.getBoolean(PAGE_NUMBERS_PROPERTY));
+        setIncrementalUpdates(Boolean.getBoolean(INCREMENTAL_PROPERTY));
+        setWrapCodeLines(Boolean.getBoolean(WRAP_CODE_PROPERTY));
+        setDraft(Boolean.getBoolean(DRAFT_PROPERTY));
+    }
+
+    /**
+     * Sets TrueType font files for body text and headings. The fonts are embedded as subsets
+     * containing only the glyphs the document uses. A null path selects the matching
+     * Times Standard 14 font.
+     *
+     * @param regular Font file for regular text
+     * @param bold Font file for bold text
+     * @param italic Font file for italic text
+     * @param boldItalic Font file for bold-italic text
+     */
+    public void setTextFonts(Path regular, Path bold, Path italic, Path boldItalic) {
+        setFontFile(PdfFontSet.Style.REGULAR, regular);
+        setFontFile(PdfFontSet.Style.BOLD, bold);
+        setFontFile(PdfFontSet.Style.ITALIC, italic);
+        setFontFile(PdfFontSet.Style.BOLD_ITALIC, boldItalic);
+    }
+
+    /**
+     * Sets the TrueType font file for inline code and code blocks.
+     *
+     * @param monospace Font file for code, or null for Courier
+     */
+    public void setMonospaceFont(Path monospace) {
+        setFontFile(PdfFontSet.Style.MONOSPACE, monospace);
+    }
+
+    /**
+     * Sets the TrueType font file used for characters the text and code fonts cannot encode,
+     * such as CJK or box-drawing characters. Without a fallback font those characters are skipped.
+     *
+     * @param fallback Font file for unsupported characters, or null to skip them
+     */
+    public void setFallbackFont(Path fallback) {
+        setFontFile(PdfFontSet.Style.FALLBACK, fallback);
+    }
+
+    /**
+     * Sets how much effort is spent on compressing the PDF when it is saved.
+     *
+     * @param saveProfile The save profile
+     * @throws IllegalArgumentException if saveProfile is null
+     */
+    public void setSaveProfile(PdfSaveProfile saveProfile) {
+        if (saveProfile == null) {
+            throw new IllegalArgumentException("Save profile cannot be null");
+        }
+        this.saveProfile = saveProfile;
+    }
+
+    /**
+     * Sets whether PDFs are linearized ("fast web view"). A linearized file starts with
+     * everything needed to display the first page, so viewers reading it through HTTP range
+     * requests show page 1 before the rest of the file has arrived. Linearized files do not
+     * use object streams and take longer to save.
+     *
+     * @param linearized Whether to linearize
+     */
+    public void setLinearized(boolean linearized) {
+        this.linearized = linearized;
+    }
+
+    /**
+     * Sets where stream data is kept while a document is generated.
+     *
+     * @param memoryPolicy The memory policy
+     * @throws IllegalArgumentException if memoryPolicy is null
+     */
+    public void setMemoryPolicy(PdfMemoryPolicy memoryPolicy) {
+        if (memoryPolicy == null) {
+            throw new IllegalArgumentException("Memory policy cannot be null");
+        }
+        this.memoryPolicy = memoryPolicy;
+    }
+
+    /**
+     * Sets a listener that receives the peak heap and scratch file usage of every document
+     * this generator saves. The listener is called on the generating thread.
+     *
+     * @param listener The listener, or null to stop measuring
+     */
+    public void setMemoryReportListener(Consumer<PdfMemoryReport> listener) {
+        this.memoryReportListener = listener;
+    }
+
+    /**
+     * Sets the text shown at the top of every page, above a thin rule.
+     *
+     * @param header The header text, or null or empty for no header
+     */
+    public void setPageHeader(String header) {
+        this.pageHeader = header == null || header.isEmpty() ? null : header;
+    }
+
+    /**
+     * Sets the text shown at the bottom left of every page, below a thin rule.
+     *
+     * @param footer The footer text, or null or empty for no footer
+     */
+    public void setPageFooter(String footer) {
+        this.pageFooter = footer == null || footer.isEmpty() ? null : footer;
+    }
+
+    /**
+     * Sets whether every page shows "Page n of m" at the bottom right.
+     *
+     * @param pageNumbers Whether to number the pages
+     */
+    public void setPageNumbers(boolean pageNumbers) {
+        this.pageNumbers = pageNumbers;
+    }
+
+    /**
+     * Sets whether regenerating a file this generator wrote before appends an incremental
+     * update instead of rewriting it. When the new document starts with the same top-level
+     * blocks as the previous one, the pages before the first changed block are kept and only
+     * the page it starts on and the pages after it are written and appended to the file, as
+     * in an append-only changelog or a watch mode that converts on every save.
+     *
+     * <p>Each top-level block starts a new content stream, so that a later run can drop
+     * everything after it. The file is generated in full when the layout of the previous run
+     * is unknown or the file was changed since, when the generator's settings changed, and
+     * always with page numbers, which change on every page, or linearization, which an
+     * incremental update would undo. The file grows with every update, as the replaced pages
+     * stay in it unused.</p>
+     *
+     * @param incrementalUpdates Whether to update files incrementally
+     */
+    public void setIncrementalUpdates(boolean incrementalUpdates) {
+        this.incrementalUpdates = incrementalUpdates;
+        if (!incrementalUpdates) {
+            revision = null;
+        }
+    }
+
+    /**
+     * Sets whether code block lines wider than the space between the margins are wrapped
+     * onto the next line. Unwrapped lines run past the right margin.
+     *
+     * @param wrapCodeLines Whether to wrap long code lines
+     */
+    public void setWrapCodeLines(boolean wrapCodeLines) {
+        this.wrapCodeLines = wrapCodeLines;
+    }
+
+    /**
+     * Sets whether documents are generated as drafts, for previews that have to be quick
+     * rather than print quality. Images are drawn as gray boxes of their size, which is read
+     * from the image's header instead of decoding the image. Table columns share the page
+     * width equally instead of being measured, links are not clickable, and the file is saved
+     * with {@link PdfSaveProfile#STORED} whatever the save profile is.
+     *
+     * @param draft Whether to generate drafts
+     */
+    public void setDraft(boolean draft) {
+        this.draft = draft;
+    }
+
+    private void setFontFile(PdfFontSet.Style style, String fontFile) {
+        setFontFile(style, fontFile == null || fontFile.isEmpty() ? null : Paths.get(fontFile));
+    }
+
+    private void setFontFile(PdfFontSet.Style style, Path fontFile) {
+        if (fontFile == null) {
+            fontFiles.remove(style);
+        } else {
+            fontFiles.put(style, fontFile);
+        }
+    }
 
     /**
      * Generates a PDF document from a Markdown AST.
      *
      * @param ast The flexmark Document AST to traverse and convert
      * @param outputPath The path where the .pdf file will be created
-     * @throws IOException if the file cannot be written
+     * @throws IOException if the file cannot be written or a configured font cannot be loaded
      * @throws IllegalArgumentException if outputPath is null
      */
     public void generate(Document ast, Path outputPath) throws IOException {
+        generate(new DocumentIrBuilder().build(ast), outputPath);
+    }
+
+    /**
+     * Generates a PDF document from a Markdown document lowered to its IR. A document that is
+     * converted to several formats can be lowered once and rendered by each generator.
+     *
+     * @param ir The document's IR
+     * @param outputPath The path where the .pdf file will be created
+     * @throws IOException if the file cannot be written or a configured font cannot be loaded
+     * @throws IllegalArgumentException if outputPath is null
+     */
+    public void generate(DocumentIr ir, Path outputPath) throws IOException {
         if (outputPath == null) {
             throw new IllegalArgumentException("Output path cannot be null");
         }
 
-        // Create a new PDF document
-        try (PDDocument document = new PDDocument()) {
-            // Add initial page
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
+        // Incremental updates resume after the unchanged leading blocks of the previous run
+        // Page numbers change on every page and an update would undo linearization
+        PdfRevision previous = revision;
+        revision = null;
+        List<String> fingerprints = null;
+        List<Object> settings = null;
+        if (incrementalUpdates && !pageNumbers && !linearized) {
+            fingerprints = PdfRevision.fingerprints(ir);
+            settings = Arrays.asList(new EnumMap<>(fontFiles), saveProfile, pageHeader, pageFooter,
+                    wrapCodeLines, draft);
+            if (previous != null && previous.appliesTo(outputPath, settings)) {
+                try {
+                    if (update(ir, outputPath, previous, fingerprints)) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    // The file does not have the layout the revision describes; generate it in full
+                }
+            }
+        }
+        PdfRevision recording = fingerprints != null ? new PdfRevision(outputPath, settings, fingerprints) : null;
 
-            // Create content stream for the page
-            try (PDPageContentStream content = new PDPageContentStream(
-                    document, page, PDPageContentStream.AppendMode.APPEND, true)) {
+        // Create a new PDF document
+        // Stream data is kept on the heap or spills to a scratch file, as the memory policy says
+        // The scratch space is closed after the document, which deletes the scratch file first
+        Consumer<PdfMemoryReport> reportListener = memoryReportListener;
+        try (PdfScratchSpace scratch = PdfScratchSpace.open(memoryPolicy, reportListener != null);
+             PDDocument document = new PDDocument(scratch.streamCache())) {
+            // Each distinct image file is embedded once and drawn by reference afterwards
+            PdfImageCache imageCache = new PdfImageCache(document, ImageDataCache.shared());
+
+            // Standard 14 fonts, or configured TrueType fonts embedded as subsets on save
+            PdfFontSet fonts = new PdfFontSet(document, fontFiles);
+
+            // Rules, headers and footers are drawn once as form XObjects and placed by reference
+            PdfPageFurniture furniture = new PdfPageFurniture(document, fonts, PDRectangle.A4, MARGIN,
+                    pageHeader, pageFooter, pageNumbers);
+
+            // Pages are added as content needs them; all drawing goes through one content writer
+            // Redundant state changes are elided and adjacent text runs are merged on write
+            // Streams are left uncompressed here and deflated at the save profile's level on save
+            try (PdfPageManager pages = new PdfPageManager(document, PDRectangle.A4, MARGIN)) {
+                pages.links().setEnabled(!draft);
+                PdfContentWriter content = pages.content();
 
                 // Set starting position (top of page with margin)
-                float yPosition = PDRectangle.A4.getHeight() - MARGIN;
-
-                // Load standard fonts - all 4 Times font variants for text formatting support
-                PDFont regularFont = new PDType1Font(Standard14Fonts.FontName.TIMES_ROMAN);
-                PDFont boldFont = new PDType1Font(Standard14Fonts.FontName.TIMES_BOLD);
-                PDFont italicFont = new PDType1Font(Standard14Fonts.FontName.TIMES_ITALIC);
-                PDFont boldItalicFont = new PDType1Font(Standard14Fonts.FontName.TIMES_BOLD_ITALIC);
+                float yPosition = pages.top();
 
                 content.beginText();
-                content.setFont(regularFont, DEFAULT_FONT_SIZE);
+                content.setFont(fonts.regular(), DEFAULT_FONT_SIZE);
                 content.newLineAtOffset(MARGIN, yPosition);
 
-                // Traverse the AST and convert each node
-                if (ast != null) {
-                    for (Node node : ast.getChildren()) {
-                        if (node instanceof Heading) {
-                            yPosition = processHeading((Heading) node, document, page, content, yPosition, regularFont, boldFont, italicFont, boldItalicFont);
-                        } else if (node instanceof Paragraph) {
-                            yPosition = processParagraph((Paragraph) node, document, page, content, yPosition, regularFont, boldFont, italicFont, boldItalicFont);
-                        } else if (node instanceof BulletList) {
-                            yPosition = processBulletList((BulletList) node, document, page, content, yPosition, 0);
-                        } else if (node instanceof OrderedList) {
-                            yPosition = processOrderedList((OrderedList) node, document, page, content, yPosition, 0);
-                        } else if (node instanceof FencedCodeBlock) {
-                            yPosition = processCodeBlock((FencedCodeBlock) node, document, content, yPosition);
-                        } else if (node instanceof BlockQuote) {
-                            yPosition = processBlockQuote((BlockQuote) node, document, page, content, yPosition);
-                        } else if (node instanceof TableBlock) {
-                            yPosition = processTable((TableBlock) node, document, page, content, yPosition);
-                        } else if (node instanceof ThematicBreak) {
-                            // TO BE IMPLEMENTED in subsequent task
-                            yPosition = processThematicBreak((ThematicBreak) node, document, content, yPosition);
-                        } else if (node instanceof Image) {
-                            // TO BE IMPLEMENTED in subsequent task
-                            yPosition = processImage((Image) node, document, content, yPosition);
-                        }
-                    }
+                // Render the document's blocks in order
+                if (ir != null) {
+                    yPosition = processBlocks(ir, blocks(ir), 0, document, pages, imageCache, furniture, yPosition,
+                                              fonts, recording);
                 }
 
                 content.endText();
+                if (recording != null) {
+                    recording.addCheckpoint(endCheckpoint(pages, yPosition, fonts));
+                }
+            }
+
+            // Headers, footers and page numbers need the final page count
+            furniture.finish();
+
+            // Subset fonts, compress streams and save the document to the output file
+            PdfDocumentWriter.save(document, fonts, draft ? PdfSaveProfile.STORED : saveProfile, linearized,
+                    outputPath);
+
+            if (reportListener != null) {
+                reportListener.accept(scratch.report());
+            }
+        }
+
+        if (recording != null) {
+            recording.recordFile();
+            revision = recording;
+        }
+    }
+
+    /**
+     * Updates the file written by the previous run, when the new document starts with blocks
+     * of that run. The file is loaded, the pages and content after the last unchanged block
+     * are dropped, the remaining blocks are rendered from the checkpoint before them, and the
+     * changes are appended to the file as an incremental update.
+     *
+     * @param ir The new document
+     * @param outputPath The file written by the previous run
+     * @param previous The layout of the previous run
+     * @param fingerprints The fingerprints of the new document's top-level blocks
+     * @return Whether the file is up to date; false if it must be generated in full
+     * @throws IOException if the file cannot be loaded or does not match the previous run
+     */
+    private boolean update(DocumentIr ir, Path outputPath, PdfRevision previous, List<String> fingerprints)
+            throws IOException {
+        if (previous.sameBlocks(fingerprints)) {
+            // The file already shows this document
+            revision = previous;
+            return true;
+        }
+        int firstBlock = previous.resumePoint(fingerprints);
+        if (firstBlock == 0) {
+            return false;
+        }
+        PdfRevision.Checkpoint checkpoint = previous.checkpoint(firstBlock);
+        PdfRevision updated = previous.resume(firstBlock, fingerprints);
+
+        Consumer<PdfMemoryReport> reportListener = memoryReportListener;
+        try (PdfScratchSpace scratch = PdfScratchSpace.open(memoryPolicy, reportListener != null);
+             PDDocument document = Loader.loadPDF(outputPath.toFile(), scratch.streamCache())) {
+            // Images, fonts and forms of the earlier pages are not reused; new pages embed their own
+            PdfImageCache imageCache = new PdfImageCache(document, ImageDataCache.shared());
+            PdfFontSet fonts = new PdfFontSet(document, fontFiles);
+            PdfPageFurniture furniture = new PdfPageFurniture(document, fonts, PDRectangle.A4, MARGIN,
+                    pageHeader, pageFooter, pageNumbers);
+
+            PdfRevision.rollBack(document, checkpoint, furniture.hasOverlay() ? 1 : 0);
+
+            // Continue on the checkpoint's page in a new segment, from the checkpoint's text position
+            try (PdfPageManager pages = new PdfPageManager(document, PDRectangle.A4, MARGIN, checkpoint.segment())) {
+                pages.links().setEnabled(!draft);
+                PdfContentWriter content = pages.content();
+                content.continueAt(new PdfContentWriter.TextPosition(checkpoint.lineX(), checkpoint.lineY(),
+                        fonts.font(checkpoint.font()), checkpoint.fontSize()));
+
+                float yPosition = processBlocks(ir, blocks(ir), firstBlock, document, pages, imageCache, furniture,
+                                                checkpoint.yPosition(), fonts, updated);
+
+                content.endText();
+                updated.addCheckpoint(endCheckpoint(pages, yPosition, fonts));
             }
 
-            // Save the document to the output file
-            document.save(outputPath.toFile());
+            // The checkpoint's page keeps its header and footer
+            furniture.finish(checkpoint.page() + 1);
+
+            PdfDocumentWriter.saveIncremental(document, draft ? PdfSaveProfile.STORED : saveProfile,
+                    checkpoint.page(), outputPath);
+
+            if (reportListener != null) {
+                reportListener.accept(scratch.report());
+            }
         }
+
+        updated.recordFile();
+        revision = updated;
+        return true;
+    }
+
+    /**
+     * Renders top-level blocks. When a revision is recorded, each block after the first
+     * starts a new content stream segment where the content allows it, and the state before
+     * it is recorded as a checkpoint.
+     *
+     * @param ir The document
+     * @param blocks The top-level blocks of the document
+     * @param first The index of the first block to render
+     * @param document The PDF document
+     * @param pages The document's pages
+     * @param imageCache Per-document cache of embedded images
+     * @param furniture The document's page furniture
+     * @param yPosition Current Y position on page
+     * @param fonts The document's fonts
+     * @param recording The revision to record checkpoints in, or null
+     * @return New Y position after the last block
+     * @throws IOException if writing fails
+     */
+    private float processBlocks(DocumentIr ir, int[] blocks, int first, PDDocument document, PdfPageManager pages,
+                                PdfImageCache imageCache, PdfPageFurniture furniture, float yPosition,
+                                PdfFontSet fonts, PdfRevision recording) throws IOException {
+        PdfContentWriter content = pages.content();
+        for (int i = first; i < blocks.length; i++) {
+            if (recording != null && i > first) {
+                recording.addCheckpoint(pages.startSegment()
+                        ? checkpoint(pages, pages.segment(), yPosition, fonts) : null);
+            }
+
+            int node = blocks[i];
+            DocumentIr.Kind kind = ir.kind(node);
+            if (kind == DocumentIr.Kind.HEADING) {
+                yPosition = processHeading(ir, node, document, pages.links(), imageCache, content, yPosition, fonts);
+            } else if (kind == DocumentIr.Kind.PARAGRAPH) {
+                yPosition = processParagraph(ir, node, document, pages.links(), imageCache, content, yPosition, fonts);
+            } else if (kind == DocumentIr.Kind.BULLET_LIST || kind == DocumentIr.Kind.ORDERED_LIST) {
+                yPosition = processList(ir, node, document, pages.links(), imageCache, content, yPosition, fonts);
+            } else if (kind == DocumentIr.Kind.CODE_BLOCK) {
+                yPosition = processCodeBlock(ir, node, pages, yPosition, fonts);
+            } else if (kind == DocumentIr.Kind.BLOCK_QUOTE) {
+                yPosition = processBlockQuote(ir, node, document, pages.links(), imageCache, content, yPosition, fonts);
+            } else if (kind == DocumentIr.Kind.TABLE) {
+                yPosition = processTable(ir, node, pages, yPosition, fonts);
+            } else if (kind == DocumentIr.Kind.THEMATIC_BREAK) {
+                yPosition = processThematicBreak(furniture, content, yPosition);
+            } else if (kind == DocumentIr.Kind.IMAGE) {
+                yPosition = processImage(ir, node, imageCache, content, yPosition, fonts);
+            }
+        }
+        return yPosition;
+    }
+
+    private static int[] blocks(DocumentIr ir) {
+        int count = 0;
+        for (int block = ir.firstChild(0); block >= 0; block = ir.nextSibling(block)) {
+            count++;
+        }
+        int[] blocks = new int[count];
+        count = 0;
+        for (int block = ir.firstChild(0); block >= 0; block = ir.nextSibling(block)) {
+            blocks[count++] = block;
+        }
+        return blocks;
+    }
+
+    /**
+     * Records the end of the document, after the last block's content is complete. A later
+     * run that only appends blocks continues in a new segment after the existing ones.
+     */
+    private static PdfRevision.Checkpoint endCheckpoint(PdfPageManager pages, float yPosition, PdfFontSet fonts) {
+        return pages.content().atSegmentBoundary() ? checkpoint(pages, pages.segment() + 1, yPosition, fonts) : null;
+    }
+
+    private static PdfRevision.Checkpoint checkpoint(PdfPageManager pages, int segment, float yPosition,
+                                                     PdfFontSet fonts) {
+        // Links before the checkpoint are attached, so that its annotation count covers them
+        pages.links().attach();
+        PdfContentWriter.TextPosition position = pages.content().textPosition();
+        return new PdfRevision.Checkpoint(pages.pageIndex(), segment, PdfRevision.annotationCount(pages.currentPage()),
+                yPosition, position.lineX(), position.lineY(), fonts.styleOf(position.font()), position.fontSize());
     }
 
     /**
      * Processes a Markdown heading node and adds it to the PDF document.
      *
-     * @param heading The flexmark Heading node to process
+     * @param ir The document
+     * @param heading The heading node to process
      * @param document The PDF document
-     * @param page The PDF page for adding annotations
+     * @param links Collects the link areas of the current page
+     * @param imageCache Per-document cache of embedded images
      * @param content The content stream for writing
      * @param yPosition Current Y position on page
-     * @param regularFont The regular font for text
-     * @param boldFont The bold font for text
-     * @param italicFont The italic font for text
-     * @param boldItalicFont The bold-italic font for text
+     * @param fonts The document's fonts
      * @return New Y position after writing heading
      * @throws IOException if writing fails
      */
-    private float processHeading(Heading heading, PDDocument document, PDPage page,
-                                  PDPageContentStream content, float yPosition,
-                                  PDFont regularFont, PDFont boldFont, PDFont italicFont, PDFont boldItalicFont) throws IOException {
-        int level = heading.getLevel();
+    private float processHeading(DocumentIr ir, int heading, PDDocument document, PdfLinkAnnotations links, PdfImageCache imageCache,
+                                  PdfContentWriter content, float yPosition,
+                                  PdfFontSet fonts) throws IOException {
+        int level = ir.headingLevel(heading);
 
         // Validate heading level
         if (level < 1 || level > 6) {
@@ -180,8 +630,8 @@ public class PDFGenerator {
 
         // Process inline content with formatting (bold, italic, etc.)
         // Note: Word wrapping not implemented - text may overflow if too long
-        yPosition = processInlineContent(heading, document, page, content, MARGIN, yPosition, fontSize,
-                                         regularFont, boldFont, italicFont, boldItalicFont, false, false);
+        yPosition = processInlineContent(ir, heading, document, links, imageCache, content, MARGIN, yPosition, fontSize,
+                                         fonts, false, false);
 
         // Add extra spacing after heading
         yPosition -= 4;
@@ -192,29 +642,22 @@ public class PDFGenerator {
     /**
      * Processes a Markdown paragraph node and adds it to the PDF document.
      *
-     * @param paragraph The flexmark Paragraph node to process
+     * @param ir The document
+     * @param paragraph The paragraph node to process
      * @param document The PDF document
-     * @param page The PDF page for adding annotations
+     * @param links Collects the link areas of the current page
+     * @param imageCache Per-document cache of embedded images
      * @param content The content stream for writing
      * @param yPosition Current Y position on page
-     * @param regularFont The regular font for text
-     * @param boldFont The bold font for text
-     * @param italicFont The italic font for text
-     * @param boldItalicFont The bold-italic font for text
+     * @param fonts The document's fonts
      * @return New Y position after writing paragraph
      * @throws IOException if writing fails
      */
-    private float processParagraph(Paragraph paragraph, PDDocument document, PDPage page,
-                                    PDPageContentStream content, float yPosition,
-                                    PDFont regularFont, PDFont boldFont, PDFont italicFont, PDFont boldItalicFont) throws IOException {
+    private float processParagraph(DocumentIr ir, int paragraph, PDDocument document, PdfLinkAnnotations links, PdfImageCache imageCache,
+                                    PdfContentWriter content, float yPosition,
+                                    PdfFontSet fonts) throws IOException {
         // Check if paragraph has any content
-        boolean hasChildren = false;
-        for (Node child : paragraph.getChildren()) {
-            hasChildren = true;
-            break;
-        }
-
-        if (!hasChildren) {
+        if (ir.firstChild(paragraph) < 0) {
             // Empty paragraph - just add spacing
             yPosition -= DEFAULT_FONT_SIZE + 2;
             return yPosition;
@@ -222,8 +665,8 @@ public class PDFGenerator {
 
         // Process inline content with formatting (bold, italic, etc.)
         // Note: Word wrapping not implemented - text may overflow if too long
-        yPosition = processInlineContent(paragraph, document, page, content, MARGIN, yPosition, DEFAULT_FONT_SIZE,
-                                         regularFont, boldFont, italicFont, boldItalicFont, false, false);
+        yPosition = processInlineContent(ir, paragraph, document, links, imageCache, content, MARGIN, yPosition, DEFAULT_FONT_SIZE,
+                                         fonts, false, false);
 
         // Add spacing after paragraph
         yPosition -= 4;
@@ -236,137 +679,96 @@ public class PDFGenerator {
      * Handles mixed content including plain text, emphasis (italic), strong (bold) formatting,
      * inline code, and clickable hyperlinks.
      *
-     * @param parent The parent node containing inline content
+     * <p>The block's descendants are visited in document order with a loop over their indices,
+     * so arbitrarily deep nesting needs no recursion. Their emphasis comes from the IR's style
+     * bits. A link's area is added once the node after its last descendant is reached, when the
+     * width of its text is known.</p>
+     *
+     * @param ir The document
+     * @param parent The node containing inline content
      * @param document The PDF document
-     * @param page The PDF page for adding link annotations
+     * @param links Collects the link areas of the current page
+     * @param imageCache Per-document cache of embedded images
      * @param content The PDF content stream for writing
      * @param xPosition Current X position on page (for tracking text width)
      * @param yPosition Current Y position on page
      * @param fontSize Font size to use for text
-     * @param regularFont The regular font
-     * @param boldFont The bold font
-     * @param italicFont The italic font
-     * @param boldItalicFont The bold-italic font
+     * @param fonts The document's fonts
      * @param inheritedBold Whether bold formatting is inherited from parent
      * @param inheritedItalic Whether italic formatting is inherited from parent
      * @return New Y position after writing content
      * @throws IOException if writing fails
      */
-    private float processInlineContent(Node parent, PDDocument document, PDPage page,
-                                       PDPageContentStream content, float xPosition, float yPosition, float fontSize,
-                                       PDFont regularFont, PDFont boldFont, PDFont italicFont, PDFont boldItalicFont,
+    private float processInlineContent(DocumentIr ir, int parent, PDDocument document, PdfLinkAnnotations links,
+                                       PdfImageCache imageCache, PdfContentWriter content, float xPosition,
+                                       float yPosition, float fontSize, PdfFontSet fonts,
                                        boolean inheritedBold, boolean inheritedItalic) throws IOException {
-        for (Node child : parent.getChildren()) {
-            if (child instanceof Text) {
+        Deque<OpenLink> openLinks = new ArrayDeque<>();
+        int end = ir.subtreeEnd(parent);
+        int node = parent + 1;
+        while (node < end) {
+            // Links whose text has been drawn are finished, innermost first
+            while (!openLinks.isEmpty() && node >= ir.subtreeEnd(openLinks.peek().link)) {
+                finishLink(ir, openLinks.pop(), links, content, xPosition, yPosition, fontSize);
+            }
+
+            DocumentIr.Kind kind = ir.kind(node);
+            if (kind == DocumentIr.Kind.TEXT) {
                 // Plain text node
-                Text textNode = (Text) child;
-                String text = textNode.getChars().toString();
+                if (ir.textLength(node) > 0) {
+                    CharSequence text = ir.chars(node);
 
-                if (!text.isEmpty()) {
                     // Select font based on inherited formatting state
-                    PDFont currentFont = selectFont(inheritedBold, inheritedItalic,
-                                                     regularFont, boldFont, italicFont, boldItalicFont);
+                    int style = ir.style(node);
+                    PDFont currentFont = fonts.select(inheritedBold || (style & DocumentIr.BOLD) != 0,
+                            inheritedItalic || (style & DocumentIr.ITALIC) != 0);
 
                     content.setFont(currentFont, fontSize);
-                    showTextSafely(text, content);
+                    fonts.showText(text, currentFont, fontSize, content);
 
                     // Update X position by text width
-                    float textWidth = calculateTextWidth(text, currentFont, fontSize);
+                    float textWidth = fonts.textWidth(text, currentFont, fontSize);
                     xPosition += textWidth;
                 }
-            } else if (child instanceof Emphasis) {
-                // Italic text (*text* or _text_)
-                Emphasis emphasis = (Emphasis) child;
-
-                // Check if this Emphasis is within a StrongEmphasis (bold-italic case)
-                boolean parentIsStrong = (child.getParent() instanceof StrongEmphasis);
-
-                if (parentIsStrong) {
-                    // Bold-italic: both inheritedBold and italic should be true
-                    float[] positions = processInlineContentWithX(emphasis, document, page, content, xPosition, yPosition, fontSize,
-                                                                     regularFont, boldFont, italicFont, boldItalicFont, true, true);
-                    xPosition = positions[0];
-                    yPosition = positions[1];
-                } else {
-                    // Just italic
-                    float[] positions = processInlineContentWithX(emphasis, document, page, content, xPosition, yPosition, fontSize,
-                                                                     regularFont, boldFont, italicFont, boldItalicFont, inheritedBold, true);
-                    xPosition = positions[0];
-                    yPosition = positions[1];
-                }
-            } else if (child instanceof StrongEmphasis) {
-                // Bold text (**text** or __text__)
-                StrongEmphasis strong = (StrongEmphasis) child;
-                float[] positions = processInlineContentWithX(strong, document, page, content, xPosition, yPosition, fontSize,
-                                                                 regularFont, boldFont, italicFont, boldItalicFont, true, inheritedItalic);
-                xPosition = positions[0];
-                yPosition = positions[1];
-            } else if (child instanceof Code) {
+                node++;
+            } else if (kind == DocumentIr.Kind.CODE) {
                 // Inline code `code`
-                Code codeNode = (Code) child;
-                String codeText = codeNode.getChars().toString();
+                if (ir.textLength(node) > 0) {
+                    CharSequence codeText = ir.chars(node);
 
-                if (!codeText.isEmpty()) {
                     // Use monospace font for inline code
-                    PDFont courierFont = new PDType1Font(Standard14Fonts.FontName.COURIER);
-                    content.setFont(courierFont, fontSize);
-                    content.showText(codeText);
+                    PDFont monospaceFont = fonts.monospace();
+                    content.setFont(monospaceFont, fontSize);
+                    fonts.showText(codeText, monospaceFont, fontSize, content);
 
                     // Update X position
-                    float textWidth = calculateTextWidth(codeText, courierFont, fontSize);
+                    float textWidth = fonts.textWidth(codeText, monospaceFont, fontSize);
                     xPosition += textWidth;
                 }
-            } else if (child instanceof Link) {
-                // Hyperlink [text](url) - create clickable link
-                Link link = (Link) child;
-                String url = link.getUrl().toString();
-
-                // Extract link text content and calculate starting position
-                float linkStartX = xPosition;
-
-                // Set link color to blue
-                // Note: Link color not set due to PDFBox 3.0 beginText/endText limitations
-
-                // Process link content (which may contain formatting)
-                float[] positions = processInlineContentWithX(link, document, page, content, xPosition, yPosition, fontSize,
-                                                                 regularFont, boldFont, italicFont, boldItalicFont,
-                                                                 inheritedBold, inheritedItalic);
-                float linkEndX = positions[0];
-                yPosition = positions[1];
-                xPosition = linkEndX;
-
-                // Restore text color to black
-
-                // Create clickable link annotation
-                float linkWidth = linkEndX - linkStartX;
-                if (linkWidth > 0 && !url.isEmpty()) {
-                    // Link rectangle: (x, y-fontSize, width, fontSize*1.2)
-                    // Note: Y position is text baseline, so rectangle goes from baseline-fontSize to baseline
-                    PDRectangle linkBounds = new PDRectangle(linkStartX, yPosition - fontSize, linkWidth, fontSize * 1.2f);
-
-                    // Create link annotation
-                    PDAnnotationLink linkAnnotation = new PDAnnotationLink();
-                    linkAnnotation.setRectangle(linkBounds);
-
-                    // Set link action
-                    PDActionURI action = new PDActionURI(); action.setURI(url);
-                    linkAnnotation.setAction(action);
-
-                    // Add annotation to page
-                    page.getAnnotations().add(linkAnnotation);
+                node = ir.subtreeEnd(node);
+            } else if (kind == DocumentIr.Kind.LINK) {
+                // Hyperlink [text](url) - its content may contain formatting
+                // Note: Top-level link color not set due to PDFBox 3.0 beginText/endText limitations;
+                // links within formatted text are drawn in blue
+                boolean colored = ir.parent(node) != parent;
+                if (colored) {
+                    content.setNonStrokingColor(0f, 0f, 1f);
                 }
-            } else if (child instanceof Image) {
-                // Image - skip inline images for now, will be handled by processImage
-                // Images are typically block-level, not inline
+                openLinks.push(new OpenLink(node, xPosition, colored));
+                node++;
+            } else if (kind == DocumentIr.Kind.IMAGE) {
+                // Image ![alt](url) - drawn below the current line, text continues underneath
+                yPosition = processImage(ir, node, imageCache, content, yPosition, fonts);
+                xPosition = MARGIN;
+                node = ir.subtreeEnd(node);
             } else {
-                // Recurse for other node types
-                float[] positions = processInlineContentWithX(child, document, page, content, xPosition, yPosition, fontSize,
-                                                                 regularFont, boldFont, italicFont, boldItalicFont,
-                                                                 inheritedBold, inheritedItalic);
-                xPosition = positions[0];
-                yPosition = positions[1];
+                // Descend into emphasis and other node types
+                node++;
             }
         }
+        while (!openLinks.isEmpty()) {
+            finishLink(ir, openLinks.pop(), links, content, xPosition, yPosition, fontSize);
+        }
 
         // Move to next line after processing all inline content
         content.newLineAtOffset(0, -fontSize - 2);
@@ -376,335 +778,92 @@ public class PDFGenerator {
     }
 
     /**
-     * Processes inline content and returns both X and Y positions.
-     * Helper method to track X position for link annotations.
-     *
-     * @param parent The parent node containing inline content
-     * @param document The PDF document
-     * @param page The PDF page for adding annotations
-     * @param content The PDF content stream
-     * @param xPosition Current X position
-     * @param yPosition Current Y position
-     * @param fontSize Font size
-     * @param regularFont The regular font
-     * @param boldFont The bold font
-     * @param italicFont The italic font
-     * @param boldItalicFont The bold-italic font
-     * @param inheritedBold Inherited bold state
-     * @param inheritedItalic Inherited italic state
-     * @return Array containing [newX, newY] positions
-     * @throws IOException if writing fails
-     */
-    private float[] processInlineContentWithX(Node parent, PDDocument document, PDPage page,
-                                              PDPageContentStream content, float xPosition, float yPosition, float fontSize,
-                                              PDFont regularFont, PDFont boldFont, PDFont italicFont, PDFont boldItalicFont,
-                                              boolean inheritedBold, boolean inheritedItalic) throws IOException {
-        for (Node child : parent.getChildren()) {
-            if (child instanceof Text) {
-                Text textNode = (Text) child;
-                String text = textNode.getChars().toString();
-
-                if (!text.isEmpty()) {
-                    PDFont currentFont = selectFont(inheritedBold, inheritedItalic,
-                                                     regularFont, boldFont, italicFont, boldItalicFont);
-                    content.setFont(currentFont, fontSize);
-                    showTextSafely(text, content);
-
-                    float textWidth = calculateTextWidth(text, currentFont, fontSize);
-                    xPosition += textWidth;
-                }
-            } else if (child instanceof Emphasis) {
-                Emphasis emphasis = (Emphasis) child;
-                boolean parentIsStrong = (child.getParent() instanceof StrongEmphasis);
-
-                if (parentIsStrong) {
-                    float[] positions = processInlineContentWithX(emphasis, document, page, content, xPosition, yPosition, fontSize,
-                                                                     regularFont, boldFont, italicFont, boldItalicFont, true, true);
-                    xPosition = positions[0];
-                    yPosition = positions[1];
-                } else {
-                    float[] positions = processInlineContentWithX(emphasis, document, page, content, xPosition, yPosition, fontSize,
-                                                                     regularFont, boldFont, italicFont, boldItalicFont, inheritedBold, true);
-                    xPosition = positions[0];
-                    yPosition = positions[1];
-                }
-            } else if (child instanceof StrongEmphasis) {
-                StrongEmphasis strong = (StrongEmphasis) child;
-                float[] positions = processInlineContentWithX(strong, document, page, content, xPosition, yPosition, fontSize,
-                                                                 regularFont, boldFont, italicFont, boldItalicFont, true, inheritedItalic);
-                xPosition = positions[0];
-                yPosition = positions[1];
-            } else if (child instanceof Code) {
-                Code codeNode = (Code) child;
-                String codeText = codeNode.getChars().toString();
-
-                if (!codeText.isEmpty()) {
-                    PDFont courierFont = new PDType1Font(Standard14Fonts.FontName.COURIER);
-                    content.setFont(courierFont, fontSize);
-                    content.showText(codeText);
-
-                    float textWidth = calculateTextWidth(codeText, courierFont, fontSize);
-                    xPosition += textWidth;
-                }
-            } else if (child instanceof Link) {
-                // Nested link within formatted text
-                Link link = (Link) child;
-                String url = link.getUrl().toString();
-                float linkStartX = xPosition;
-
-                content.setNonStrokingColor(0f, 0f, 1f);
-
-                float[] positions = processInlineContentWithX(link, document, page, content, xPosition, yPosition, fontSize,
-                                                                 regularFont, boldFont, italicFont, boldItalicFont,
-                                                                 inheritedBold, inheritedItalic);
-                float linkEndX = positions[0];
-                yPosition = positions[1];
-                xPosition = linkEndX;
-
-                content.setNonStrokingColor(0f, 0f, 0f);
-
-                float linkWidth = linkEndX - linkStartX;
-                if (linkWidth > 0 && !url.isEmpty()) {
-                    PDRectangle linkBounds = new PDRectangle(linkStartX, yPosition - fontSize, linkWidth, fontSize * 1.2f);
-                    PDAnnotationLink linkAnnotation = new PDAnnotationLink();
-                    linkAnnotation.setRectangle(linkBounds);
-                    PDActionURI action = new PDActionURI(); action.setURI(url);
-                    linkAnnotation.setAction(action);
-                    page.getAnnotations().add(linkAnnotation);
-                }
-            } else if (child instanceof Image) {
-                // Skip images
-            } else {
-                float[] positions = processInlineContentWithX(child, document, page, content, xPosition, yPosition, fontSize,
-                                                                 regularFont, boldFont, italicFont, boldItalicFont,
-                                                                 inheritedBold, inheritedItalic);
-                xPosition = positions[0];
-                yPosition = positions[1];
-            }
-        }
-
-        return new float[]{xPosition, yPosition};
-    }
-
-    /**
-     * Selects the appropriate font based on bold and italic flags.
-     *
-     * @param isBold Whether text should be bold
-     * @param isItalic Whether text should be italic
-     * @param regularFont The regular font
-     * @param boldFont The bold font
-     * @param italicFont The italic font
-     * @param boldItalicFont The bold-italic font
-     * @return The appropriate font for the given formatting
+     * Ends a link whose text has been drawn: restores black text if the link was drawn in
+     * blue and collects its clickable area.
      */
-    private PDFont selectFont(boolean isBold, boolean isItalic,
-                              PDFont regularFont, PDFont boldFont, PDFont italicFont, PDFont boldItalicFont) {
-        if (isBold && isItalic) {
-            return boldItalicFont;
-        } else if (isBold) {
-            return boldFont;
-        } else if (isItalic) {
-            return italicFont;
-        } else {
-            return regularFont;
+    private static void finishLink(DocumentIr ir, OpenLink link, PdfLinkAnnotations links, PdfContentWriter content,
+                                   float linkEndX, float yPosition, float fontSize) throws IOException {
+        if (link.colored) {
+            content.setNonStrokingColor(0f, 0f, 0f);
         }
-    }
 
-    /**
-     * Calculates the width of text in PDF points.
-     *
-     * @param text The text to measure
-     * @param font The font to use for measurement
-     * @param fontSize The font size
-     * @return The width of the text in PDF points
-     * @throws IOException if font measurement fails
-     */
-    private float calculateTextWidth(String text, PDFont font, float fontSize) throws IOException {
-        try {
-            return font.getStringWidth(text) * fontSize / 1000f;
-        } catch (IllegalArgumentException e) {
-            // Font doesn't support some characters (e.g., box-drawing, symbols)
-            // Estimate width: character count × average character width
-            // For monospace fonts like Courier, use a fixed ratio
-            float avgCharWidth = fontSize * 0.6f; // Approximate for monospace fonts
-            return text.length() * avgCharWidth;
-        }
-    }
-
-    /**
-     * Filters out characters that are not supported by standard PDF fonts.
-     * Removes box-drawing characters and other special Unicode symbols.
-     *
-     * @param text The text to filter
-     * @return Text with unsupported characters removed
-     */
-    private String filterUnsupportedCharacters(String text) {
-        // Remove box-drawing characters (U+2500-U+257F)
-        // and other common unsupported symbols
-        StringBuilder filtered = new StringBuilder();
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            // Keep ASCII characters, filter out box-drawing and special symbols
-            if (c < 128 || (c > 127 && c < 256)) {
-                filtered.append(c);
-            }
-            // Alternatively, replace with ASCII equivalents:
-            // ├ -> |-
-            // ─ -> -
-            // │ -> |
-            // But for now, just filter them out
+        // Collect the clickable link area; areas are attached when the page is finished
+        String url = ir.url(link.link);
+        float linkWidth = linkEndX - link.startX;
+        if (linkWidth > 0 && !url.isEmpty()) {
+            // Link rectangle: (x, y-fontSize, width, fontSize*1.2)
+            // Note: Y position is text baseline, so rectangle goes from baseline-fontSize to baseline
+            links.add(url, link.startX, yPosition - fontSize, linkWidth, fontSize * 1.2f);
         }
-        return filtered.toString();
     }
 
     /**
-     * Safely shows text in PDF, filtering out unsupported Unicode characters.
+     * Processes a Markdown bullet or ordered list node, including the lists nested in its
+     * items, and adds it to the PDF document.
      *
-     * @param text The text to show
-     * @param content The content stream
-     */
-    private void showTextSafely(String text, PDPageContentStream content) throws IOException {
-        try {
-            content.showText(text);
-        } catch (IllegalArgumentException e) {
-            // Font doesn't support some characters (e.g., box-drawing, symbols)
-            String filteredText = filterUnsupportedCharacters(text);
-            if (!filteredText.isEmpty()) {
-                content.showText(filteredText);
-            }
-        }
-    }
-
-    /**
-     * Processes a Markdown bullet list node and adds it to the PDF document.
+     * <p>Each item draws its bullet or number indented by its nesting level, followed by its
+     * paragraphs; nested lists are drawn where they appear in the item. Nesting is walked with
+     * an explicit stack of {@link ListLevel}s instead of recursion, so arbitrarily deep lists
+     * cannot overflow the call stack.</p>
      *
-     * @param bulletList The flexmark BulletList node to process
+     * @param ir The document
+     * @param list The bullet or ordered list node to process
      * @param document The PDF document
-     * @param page The PDF page for adding annotations
+     * @param links Collects the link areas of the current page
+     * @param imageCache Per-document cache of embedded images
      * @param content The content stream for writing
      * @param yPosition Current Y position on page
-     * @param indentLevel Current nesting level (0 for top-level lists)
+     * @param fonts The document's fonts
      * @return New Y position after processing list
      * @throws IOException if writing fails
      */
-    private float processBulletList(BulletList bulletList, PDDocument document, PDPage page,
-                                    PDPageContentStream content, float yPosition, int indentLevel) throws IOException {
-        // Load regular font for list items
-        PDFont regularFont = new PDType1Font(Standard14Fonts.FontName.TIMES_ROMAN);
-        PDFont boldFont = new PDType1Font(Standard14Fonts.FontName.TIMES_BOLD);
-        PDFont italicFont = new PDType1Font(Standard14Fonts.FontName.TIMES_ITALIC);
-        PDFont boldItalicFont = new PDType1Font(Standard14Fonts.FontName.TIMES_BOLD_ITALIC);
-
-        // Iterate through list items
-        for (Node itemNode : bulletList.getChildren()) {
-            if (itemNode instanceof BulletListItem) {
-                BulletListItem listItem = (BulletListItem) itemNode;
-
-                // Calculate X position based on indentation level
-                float xPos = MARGIN + (indentLevel * LIST_INDENT);
-
-                // Draw bullet symbol
-                content.setFont(regularFont, DEFAULT_FONT_SIZE);
-                content.newLineAtOffset(xPos - MARGIN, 0);  // Move to indented position
-                content.showText("\u2022 ");  // Unicode bullet character
-
-                // Calculate bullet width for text positioning
-                float bulletWidth = calculateTextWidth("\u2022 ", regularFont, DEFAULT_FONT_SIZE);
-
+    private float processList(DocumentIr ir, int list, PDDocument document, PdfLinkAnnotations links, PdfImageCache imageCache,
+                              PdfContentWriter content, float yPosition, PdfFontSet fonts) throws IOException {
+        Deque<ListLevel> levels = new ArrayDeque<>();
+        levels.push(new ListLevel(ir, list, 0));
+        while (!levels.isEmpty()) {
+            ListLevel level = levels.peek();
+            int child = level.nextChild;
+            if (child >= 0) {
                 // Process list item content (paragraphs and nested lists)
-                for (Node child : listItem.getChildren()) {
-                    if (child instanceof Paragraph) {
-                        Paragraph para = (Paragraph) child;
-                        // Move cursor past the bullet
-                        content.newLineAtOffset(bulletWidth, 0);
-                        // Process paragraph content
-                        yPosition = processInlineContent(para, document, page, content, xPos + bulletWidth, yPosition, DEFAULT_FONT_SIZE,
-                                                         regularFont, boldFont, italicFont, boldItalicFont, false, false);
-                        // Reset to left margin for next item
-                        content.newLineAtOffset(MARGIN - xPos - bulletWidth, 0);
-                    } else if (child instanceof BulletList) {
-                        // Nested bullet list - recurse with increased indent
-                        yPosition = processBulletList((BulletList) child, document, page, content, yPosition, indentLevel + 1);
-                    } else if (child instanceof OrderedList) {
-                        // Nested ordered list - recurse with increased indent
-                        yPosition = processOrderedList((OrderedList) child, document, page, content, yPosition, indentLevel + 1);
-                    }
+                level.nextChild = ir.nextSibling(child);
+                DocumentIr.Kind kind = ir.kind(child);
+                if (kind == DocumentIr.Kind.PARAGRAPH) {
+                    // Move cursor past the marker
+                    content.newLineAtOffset(level.markerWidth, 0);
+                    // Process paragraph content
+                    yPosition = processInlineContent(ir, child, document, links, imageCache, content, level.xPosition + level.markerWidth, yPosition, DEFAULT_FONT_SIZE,
+                                                     fonts, false, false);
+                    // Reset to left margin for next item
+                    content.newLineAtOffset(MARGIN - level.xPosition - level.markerWidth, 0);
+                } else if (kind == DocumentIr.Kind.BULLET_LIST || kind == DocumentIr.Kind.ORDERED_LIST) {
+                    // Nested list with increased indent; this item continues after it
+                    levels.push(new ListLevel(ir, child, level.indentLevel + 1));
                 }
+                continue;
+            }
 
+            if (level.inItem) {
                 // Add spacing between list items
                 yPosition -= 2;
+                level.inItem = false;
+            }
+            int item = level.nextItem(ir);
+            if (item < 0) {
+                levels.pop();
+                continue;
             }
-        }
-
-        return yPosition;
-    }
-
-    /**
-     * Processes a Markdown ordered list node and adds it to the PDF document.
-     *
-     * @param orderedList The flexmark OrderedList node to process
-     * @param document The PDF document
-     * @param page The PDF page for adding annotations
-     * @param content The content stream for writing
-     * @param yPosition Current Y position on page
-     * @param indentLevel Current nesting level (0 for top-level lists)
-     * @return New Y position after processing list
-     * @throws IOException if writing fails
-     */
-    private float processOrderedList(OrderedList orderedList, PDDocument document, PDPage page,
-                                     PDPageContentStream content, float yPosition, int indentLevel) throws IOException {
-        // Load regular font for list items
-        PDFont regularFont = new PDType1Font(Standard14Fonts.FontName.TIMES_ROMAN);
-        PDFont boldFont = new PDType1Font(Standard14Fonts.FontName.TIMES_BOLD);
-        PDFont italicFont = new PDType1Font(Standard14Fonts.FontName.TIMES_ITALIC);
-        PDFont boldItalicFont = new PDType1Font(Standard14Fonts.FontName.TIMES_BOLD_ITALIC);
-
-        // Track item number
-        int itemNumber = 1;
-
-        // Iterate through list items
-        for (Node itemNode : orderedList.getChildren()) {
-            if (itemNode instanceof OrderedListItem) {
-                OrderedListItem listItem = (OrderedListItem) itemNode;
-
-                // Calculate X position based on indentation level
-                float xPos = MARGIN + (indentLevel * LIST_INDENT);
-
-                // Draw number with period
-                content.setFont(regularFont, DEFAULT_FONT_SIZE);
-                content.newLineAtOffset(xPos - MARGIN, 0);  // Move to indented position
-                String numberText = itemNumber + ". ";
-                content.showText(numberText);
-
-                // Calculate number width for text positioning
-                float numberWidth = calculateTextWidth(numberText, regularFont, DEFAULT_FONT_SIZE);
-
-                // Process list item content (paragraphs and nested lists)
-                for (Node child : listItem.getChildren()) {
-                    if (child instanceof Paragraph) {
-                        Paragraph para = (Paragraph) child;
-                        // Move cursor past the number
-                        content.newLineAtOffset(numberWidth, 0);
-                        // Process paragraph content
-                        yPosition = processInlineContent(para, document, page, content, xPos + numberWidth, yPosition, DEFAULT_FONT_SIZE,
-                                                         regularFont, boldFont, italicFont, boldItalicFont, false, false);
-                        // Reset to left margin for next item
-                        content.newLineAtOffset(MARGIN - xPos - numberWidth, 0);
-                    } else if (child instanceof BulletList) {
-                        // Nested bullet list - recurse with increased indent
-                        yPosition = processBulletList((BulletList) child, document, page, content, yPosition, indentLevel + 1);
-                    } else if (child instanceof OrderedList) {
-                        // Nested ordered list - recurse with increased indent
-                        yPosition = processOrderedList((OrderedList) child, document, page, content, yPosition, indentLevel + 1);
-                    }
-                }
 
-                // Increment item number
-                itemNumber++;
+            // Draw the bullet, or the number with period, at the indented position
+            String marker = level.ordered ? level.itemNumber++ + ". " : "• ";
+            content.setFont(fonts.regular(), DEFAULT_FONT_SIZE);
+            content.newLineAtOffset(level.xPosition - MARGIN, 0);
+            fonts.showText(marker, fonts.regular(), DEFAULT_FONT_SIZE, content);
 
-                // Add spacing between list items
-                yPosition -= 2;
-            }
+            // Calculate marker width for text positioning
+            level.markerWidth = fonts.textWidth(marker, fonts.regular(), DEFAULT_FONT_SIZE);
+            level.nextChild = ir.firstChild(item);
+            level.inItem = true;
         }
 
         return yPosition;
@@ -713,90 +872,50 @@ public class PDFGenerator {
     /**
      * Processes a Markdown code block node and adds it to the PDF document.
      *
-     * @param codeBlock The flexmark FencedCodeBlock node to process
-     * @param document The PDF document
-     * @param content The content stream for writing
+     * <p>The code is drawn by a {@link PdfCodeBlockRenderer}, which continues long blocks on
+     * new pages. Afterwards a text object is reopened at the left margin below the block.</p>
+     *
+     * @param ir The document
+     * @param codeBlock The code block node to process
+     * @param pages The page manager, which may start new pages for the code block
      * @param yPosition Current Y position on page
-     * @return New Y position after processing code block
+     * @param fonts The document's fonts
+     * @return New Y position after processing code block, on the page the block ended on
      * @throws IOException if writing fails
      */
-    private float processCodeBlock(FencedCodeBlock codeBlock, PDDocument document,
-                                    PDPageContentStream content, float yPosition) throws IOException {
-        // Extract code content from FencedCodeBlock
-        StringBuilder codeBuilder = new StringBuilder();
-        for (Node child : codeBlock.getChildren()) {
-            if (child instanceof Text) {
-                codeBuilder.append(((Text) child).getChars());
+    private float processCodeBlock(DocumentIr ir, int codeBlock, PdfPageManager pages, float yPosition,
+                                   PdfFontSet fonts) throws IOException {
+        // The code is usually a single text node, whose characters are used without copying
+        CharSequence code;
+        int first = ir.firstChild(codeBlock);
+        if (first >= 0 && ir.kind(first) == DocumentIr.Kind.TEXT && ir.nextSibling(first) < 0) {
+            code = ir.chars(first);
+        } else {
+            StringBuilder codeBuilder = new StringBuilder();
+            for (int child = first; child >= 0; child = ir.nextSibling(child)) {
+                if (ir.kind(child) == DocumentIr.Kind.TEXT) {
+                    codeBuilder.append(ir.chars(child));
+                }
             }
+            code = codeBuilder;
         }
-        String code = codeBuilder.toString();
 
-        // Handle empty code blocks
-        if (code.trim().isEmpty()) {
+        PdfCodeBlockRenderer renderer = new PdfCodeBlockRenderer(pages, fonts, MARGIN,
+                PDRectangle.A4.getWidth() - (2 * MARGIN), CODE_FONT_SIZE, wrapCodeLines);
+        float bottom = renderer.render(code, yPosition);
+        if (bottom == yPosition) {
+            // Empty code blocks draw nothing
             return yPosition;
         }
 
-        // Load Courier font for monospace text
-        PDFont courierFont = new PDType1Font(Standard14Fonts.FontName.COURIER);
+        // Leave room for the ascent of the following text
+        yPosition = bottom - CODE_BLOCK_SPACING - DEFAULT_FONT_SIZE;
 
-        // Split code into lines to calculate dimensions
-        String[] lines = code.split("\n");
-        int lineCount = lines.length;
-
-        // Calculate maximum line width for rectangle width
-        float maxLineWidth = 0;
-        for (String line : lines) {
-            float lineWidth = calculateTextWidth(line, courierFont, CODE_FONT_SIZE);
-            if (lineWidth > maxLineWidth) {
-                maxLineWidth = lineWidth;
-            }
-        }
-
-        // Calculate code block height and position
-        float codeBlockHeight = (lineCount * CODE_FONT_SIZE) + ((lineCount - 1) * 1) + (2 * CODE_BLOCK_PADDING);
-        float codeBlockWidth = maxLineWidth + (2 * CODE_BLOCK_PADDING);
-        float rectX = MARGIN - CODE_BLOCK_PADDING;
-        float rectY = yPosition - codeBlockHeight;
-
-        // Save text state and draw background rectangle
-        content.endText();
-        content.setNonStrokingColor(CODE_BLOCK_BACKGROUND_GRAY, CODE_BLOCK_BACKGROUND_GRAY, CODE_BLOCK_BACKGROUND_GRAY);
-        content.addRect(rectX, rectY, codeBlockWidth, codeBlockHeight);
-        content.fill();
-
-        // Restore text state
+        // Reopen the text object at the left margin below the code block
+        PdfContentWriter content = pages.content();
         content.beginText();
-        content.setFont(courierFont, CODE_FONT_SIZE);
-        content.newLineAtOffset(MARGIN - CODE_BLOCK_PADDING, yPosition - rectY - CODE_FONT_SIZE - CODE_BLOCK_PADDING);
-
-        // Render code content line by line
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i];
-            try {
-                content.showText(line);
-            } catch (IllegalArgumentException e) {
-                // Font doesn't support some characters (e.g., box-drawing, symbols)
-                // Filter out unsupported characters and render what we can
-                String filteredLine = filterUnsupportedCharacters(line);
-                if (!filteredLine.isEmpty()) {
-                    content.showText(filteredLine);
-                }
-            }
-
-            // Move to next line (except for the last line)
-            if (i < lines.length - 1) {
-                content.newLineAtOffset(0, -CODE_FONT_SIZE - 1);
-            }
-        }
-
-        // Update Y position after code block
-        yPosition = rectY;
-
-        // Reset color to black for subsequent text
-        content.setNonStrokingColor(0f, 0f, 0f);
-
-        // Add spacing after code block
-        yPosition -= CODE_BLOCK_PADDING;
+        content.setFont(fonts.regular(), DEFAULT_FONT_SIZE);
+        content.newLineAtOffset(MARGIN, yPosition);
 
         return yPosition;
     }
@@ -804,33 +923,30 @@ public class PDFGenerator {
     /**
      * Processes a Markdown blockquote node and adds it to the PDF document.
      *
-     * @param blockQuote The flexmark BlockQuote node to process
+     * @param ir The document
+     * @param blockQuote The blockquote node to process
      * @param document The PDF document
-     * @param page The PDF page for annotations
+     * @param links Collects the link areas of the current page
+     * @param imageCache Per-document cache of embedded images
      * @param content The content stream for writing
      * @param yPosition Current Y position on page
+     * @param fonts The document's fonts
      * @return New Y position after processing blockquote
      * @throws IOException if writing fails
      */
-    private float processBlockQuote(BlockQuote blockQuote, PDDocument document, PDPage page,
-                                     PDPageContentStream content, float yPosition) throws IOException {
-        // Load fonts for blockquote content
-        PDFont regularFont = new PDType1Font(Standard14Fonts.FontName.TIMES_ROMAN);
-        PDFont boldFont = new PDType1Font(Standard14Fonts.FontName.TIMES_BOLD);
-        PDFont italicFont = new PDType1Font(Standard14Fonts.FontName.TIMES_ITALIC);
-        PDFont boldItalicFont = new PDType1Font(Standard14Fonts.FontName.TIMES_BOLD_ITALIC);
-
+    private float processBlockQuote(DocumentIr ir, int blockQuote, PDDocument document, PdfLinkAnnotations links, PdfImageCache imageCache,
+                                     PdfContentWriter content, float yPosition, PdfFontSet fonts) throws IOException {
         // Calculate blockquote dimensions by iterating through paragraphs first
         float maxLineWidth = 0;
         float totalHeight = 0;
         int paragraphCount = 0;
 
-        for (Node child : blockQuote.getChildren()) {
-            if (child instanceof Paragraph) {
-                Paragraph para = (Paragraph) child;
-                String text = extractText(para);
-                if (!text.trim().isEmpty()) {
-                    float lineWidth = calculateTextWidth(text, regularFont, DEFAULT_FONT_SIZE);
+        StringBuilder text = new StringBuilder();
+        for (int child = ir.firstChild(blockQuote); child >= 0; child = ir.nextSibling(child)) {
+            if (ir.kind(child) == DocumentIr.Kind.PARAGRAPH) {
+                if (hasVisibleText(ir, child)) {
+                    extractText(ir, child, text);
+                    float lineWidth = fonts.textWidth(text, fonts.regular(), DEFAULT_FONT_SIZE);
                     if (lineWidth > maxLineWidth) {
                         maxLineWidth = lineWidth;
                     }
@@ -867,20 +983,18 @@ public class PDFGenerator {
 
         // Restore text state
         content.beginText();
-        content.setFont(italicFont, DEFAULT_FONT_SIZE);
+        content.setFont(fonts.select(false, true), DEFAULT_FONT_SIZE);
 
         // Render blockquote content paragraph by paragraph
         float currentY = yPosition - BLOCKQUOTE_PADDING - DEFAULT_FONT_SIZE;
-        for (Node child : blockQuote.getChildren()) {
-            if (child instanceof Paragraph) {
-                Paragraph para = (Paragraph) child;
-                String text = extractText(para);
-                if (!text.trim().isEmpty()) {
+        for (int child = ir.firstChild(blockQuote); child >= 0; child = ir.nextSibling(child)) {
+            if (ir.kind(child) == DocumentIr.Kind.PARAGRAPH) {
+                if (hasVisibleText(ir, child)) {
                     // Move to indented position
                     content.newLineAtOffset(MARGIN + BLOCKQUOTE_INDENT + BLOCKQUOTE_PADDING - MARGIN, currentY - yPosition);
                     // Process paragraph content with italic formatting
-                    yPosition = processInlineContent(para, document, page, content, MARGIN + BLOCKQUOTE_INDENT + BLOCKQUOTE_PADDING, yPosition, DEFAULT_FONT_SIZE,
-                                                     regularFont, boldFont, italicFont, boldItalicFont, false, true);
+                    yPosition = processInlineContent(ir, child, document, links, imageCache, content, MARGIN + BLOCKQUOTE_INDENT + BLOCKQUOTE_PADDING, yPosition, DEFAULT_FONT_SIZE,
+                                                     fonts, false, true);
                 }
             }
         }
@@ -897,274 +1011,267 @@ public class PDFGenerator {
     /**
      * Processes a Markdown table node and adds it to the PDF document.
      *
-     * @param table The flexmark TableBlock node to process
-     * @param document The PDF document
-     * @param page The PDF page for annotations
-     * @param content The content stream for writing
+     * <p>Rows are streamed to a {@link PdfTableRenderer}, which wraps cell text, starts new
+     * pages as needed and repeats the header rows on each of them. Afterwards a text object is
+     * reopened at the left margin below the table.</p>
+     *
+     * @param ir The document
+     * @param table The table node to process
+     * @param pages The page manager, which may start new pages for the table
      * @param yPosition Current Y position on page
-     * @return New Y position after processing table
+     * @param fonts The document's fonts
+     * @return New Y position after processing table, on the page the table ended on
      * @throws IOException if writing fails
      */
-    private float processTable(TableBlock table, PDDocument document, PDPage page,
-                               PDPageContentStream content, float yPosition) throws IOException {
-        // Load fonts for table content
-        PDFont regularFont = new PDType1Font(Standard14Fonts.FontName.TIMES_ROMAN);
-        PDFont boldFont = new PDType1Font(Standard14Fonts.FontName.TIMES_BOLD);
-        PDFont italicFont = new PDType1Font(Standard14Fonts.FontName.TIMES_ITALIC);
-        PDFont boldItalicFont = new PDType1Font(Standard14Fonts.FontName.TIMES_BOLD_ITALIC);
-
-        // First pass: Collect all TableRow nodes from TableHead and TableBody
-        java.util.List<TableRow> allRows = new java.util.ArrayList<>();
-        for (Node child : table.getChildren()) {
-            if (child instanceof TableRow) {
-                allRows.add((TableRow) child);
-            } else if (child instanceof TableHead || child instanceof TableBody) {
-                for (Node rowNode : child.getChildren()) {
-                    if (rowNode instanceof TableRow) {
-                        allRows.add((TableRow) rowNode);
-                    }
-                }
-            }
-            // Skip TableSeparator
-        }
+    private float processTable(DocumentIr ir, int table, PdfPageManager pages, float yPosition,
+                               PdfFontSet fonts) throws IOException {
+        PdfTableRenderer renderer = new PdfTableRenderer(ir, pages, fonts, MARGIN,
+                PDRectangle.A4.getWidth() - (2 * MARGIN), DEFAULT_FONT_SIZE, draft);
+        yPosition = renderer.render(table, yPosition);
 
-        // Count rows and determine maximum columns
-        int rowCount = allRows.size();
-        int columnCount = 0;
-        for (TableRow row : allRows) {
-            int rowColumns = 0;
-            for (Node cellNode : row.getChildren()) {
-                if (cellNode instanceof TableCell) {
-                    rowColumns++;
-                }
-            }
-            columnCount = Math.max(columnCount, rowColumns);
-        }
-
-        // Handle empty tables
-        if (rowCount == 0 || columnCount == 0) {
-            return yPosition;
-        }
+        // Leave room for the ascent of the following text
+        yPosition -= DEFAULT_FONT_SIZE + TABLE_SPACING;
 
-        // Calculate column widths
-        float[] columnWidths = new float[columnCount];
-        for (int i = 0; i < columnCount; i++) {
-            columnWidths[i] = TABLE_MIN_COLUMN_WIDTH;
-        }
-
-        // For each cell, calculate text width and update column width
-        for (TableRow row : allRows) {
-            int cellIndex = 0;
-            for (Node cellNode : row.getChildren()) {
-                if (cellNode instanceof TableCell) {
-                    TableCell cell = (TableCell) cellNode;
-                    String cellText = extractText(cell);
-                    float textWidth = calculateTextWidth(cellText, regularFont, DEFAULT_FONT_SIZE);
-                    if (textWidth + (2 * TABLE_CELL_PADDING) > columnWidths[cellIndex]) {
-                        columnWidths[cellIndex] = textWidth + (2 * TABLE_CELL_PADDING);
-                    }
-                    cellIndex++;
-                }
-            }
-        }
-
-        // Calculate table dimensions
-        float tableWidth = 0;
-        for (float width : columnWidths) {
-            tableWidth += width;
-        }
-        float tableHeight = rowCount * TABLE_ROW_HEIGHT;
-        float tableX = MARGIN;
-        float tableY = yPosition - tableHeight;
-
-        // Save text state and draw table borders
-        content.endText();
-        content.setStrokingColor(0f, 0f, 0f); // Black borders
-        content.setLineWidth(TABLE_BORDER_WIDTH);
-
-        // Draw outer border
-        content.addRect(tableX, tableY, tableWidth, tableHeight);
-        content.stroke();
-
-        // Draw horizontal lines between rows
-        for (int i = 1; i < rowCount; i++) {
-            float lineY = tableY + (i * TABLE_ROW_HEIGHT);
-            content.moveTo(tableX, lineY);
-            content.lineTo(tableX + tableWidth, lineY);
-            content.stroke();
-        }
-
-        // Draw vertical lines between columns
-        float currentX = tableX;
-        for (int i = 0; i < columnCount - 1; i++) {
-            currentX += columnWidths[i];
-            content.moveTo(currentX, tableY);
-            content.lineTo(currentX, tableY + tableHeight);
-            content.stroke();
-        }
-
-        // Reset line width
-        content.setLineWidth(1.0f);
-
-        // Restore text state and render cell content
+        // Reopen the text object at the left margin below the table
+        PdfContentWriter content = pages.content();
         content.beginText();
-
-        // Process each row
-        int rowIndex = 0;
-        for (TableRow row : allRows) {
-            float cellY = tableY + ((rowCount - rowIndex - 1) * TABLE_ROW_HEIGHT) - TABLE_CELL_PADDING - DEFAULT_FONT_SIZE;
-
-            // Process each cell in the row
-            int cellIndex = 0;
-            float cellX = tableX + TABLE_CELL_PADDING;
-            for (Node cellNode : row.getChildren()) {
-                if (cellNode instanceof TableCell) {
-                    TableCell cell = (TableCell) cellNode;
-
-                    // Set font: bold for header row (first row), regular for others
-                    if (rowIndex == 0) {
-                        content.setFont(boldFont, DEFAULT_FONT_SIZE);
-                    } else {
-                        content.setFont(regularFont, DEFAULT_FONT_SIZE);
-                    }
-
-                    // Move to cell position
-                    content.newLineAtOffset(cellX - MARGIN, cellY - yPosition);
-
-                    // Process cell content (TableCell contains inline nodes directly)
-                    yPosition = processInlineContent(cell, document, page, content, cellX, cellY, DEFAULT_FONT_SIZE,
-                                                     regularFont, boldFont, italicFont, boldItalicFont, rowIndex == 0, false);
-
-                    // Move to next cell
-                    cellX += columnWidths[cellIndex];
-                    cellIndex++;
-                }
-            }
-            rowIndex++;
-        }
-
-        // Update Y position
-        yPosition = tableY;
+        content.setFont(fonts.regular(), DEFAULT_FONT_SIZE);
+        content.newLineAtOffset(MARGIN, yPosition);
 
         return yPosition;
     }
 
     /**
-     * Processes a Markdown horizontal rule node - placeholder for future implementation.
+     * Processes a Markdown horizontal rule node and adds it to the PDF document.
      *
-     * @param thematicBreak The flexmark ThematicBreak node to process
-     * @param document The PDF document
+     * <p>Must be called while a text object is open. Every rule in the document places the
+     * same form XObject, so a rule costs a few bytes of content stream. The text object is
+     * closed around the rule and reopened afterwards, positioned at the left margin below it.</p>
+     *
+     * @param furniture The document's page furniture holding the shared rule form
      * @param content The content stream for writing
      * @param yPosition Current Y position on page
      * @return New Y position after processing horizontal rule
      * @throws IOException if writing fails
      */
-    private float processThematicBreak(ThematicBreak thematicBreak, PDDocument document,
-                                       PDPageContentStream content, float yPosition) throws IOException {
-        // Placeholder: skip horizontal rules for now
-        // Will be implemented in subsequent task
+    private float processThematicBreak(PdfPageFurniture furniture,
+                                       PdfContentWriter content, float yPosition) throws IOException {
+        // Forms cannot be drawn inside a text object
+        content.endText();
+        content.drawForm(furniture.horizontalRule(), MARGIN, yPosition + RULE_RAISE);
+
+        // Update Y position
+        yPosition -= DEFAULT_FONT_SIZE + RULE_SPACING;
+
+        // Reopen the text object at the left margin below the rule
+        content.beginText();
+        content.newLineAtOffset(MARGIN, yPosition);
+
         return yPosition;
     }
 
     /**
      * Processes a Markdown image node and embeds it in the PDF document.
      *
-     * @param image The flexmark Image node to process
-     * @param document The PDF document
+     * <p>Must be called while a text object is open. The text object is closed around the
+     * image drawing and reopened afterwards, positioned at the left margin below the image.
+     * Repeated references to the same file, and data URIs of the same image, reuse the
+     * XObject held by the image cache. Drafts draw a gray box of the image's size instead,
+     * which only needs the image's header.</p>
+     *
+     * @param ir The document
+     * @param image The image node to process
+     * @param imageCache Per-document cache of embedded images
      * @param content The content stream for writing
      * @param yPosition Current Y position on page
+     * @param fonts The document's fonts
      * @return New Y position after processing image
      * @throws IOException if writing fails
      */
-    private float processImage(Image image, PDDocument document,
-                               PDPageContentStream content, float yPosition) throws IOException {
-        // Extract image URL (file path)
-        String imageUrl = image.getUrl().toString();
+    private float processImage(DocumentIr ir, int image, PdfImageCache imageCache,
+                               PdfContentWriter content, float yPosition, PdfFontSet fonts) throws IOException {
+        // Extract image URL (file path unless it is a data URI)
+        DataUri dataUri = DataUri.parse(ir.urlChars(image));
+        String imageUrl = dataUri == null ? ir.url(image) : null;
 
         // Extract alt text for accessibility and fallback
-        String altText = image.getText().toString();
+        String altText = ir.text(image);
         if (altText.isEmpty()) {
-            altText = imageUrl;
+            altText = dataUri == null ? imageUrl : dataUri.mediaType();
         }
 
+        PDImageXObject pdImage = null;
+        float originalWidth;
+        float originalHeight;
         try {
-            // Load image from file using PDFBox
-            PDImageXObject pdImage = PDImageXObject.createFromFile(imageUrl, document);
-
-            // Get original image dimensions
-            float originalWidth = pdImage.getWidth();
-            float originalHeight = pdImage.getHeight();
-
-            // Calculate scaled dimensions to fit page
-            float scaledWidth = originalWidth;
-            float scaledHeight = originalHeight;
-
-            // Scale down if image is too wide
-            if (scaledWidth > IMAGE_MAX_WIDTH) {
-                float scaleRatio = IMAGE_MAX_WIDTH / scaledWidth;
-                scaledWidth = IMAGE_MAX_WIDTH;
-                scaledHeight = scaledHeight * scaleRatio;
+            if (draft) {
+                // Only the size is needed, which the header holds; WebP is rejected as when embedding
+                ImageHeader header = imageHeader(dataUri, imageUrl);
+                if (header == null || header.format() == ImageHeader.Format.WEBP) {
+                    throw new IOException("Not an embeddable image: " + altText);
+                }
+                originalWidth = header.width();
+                originalHeight = header.height();
+            } else {
+                // Embed the image on first use, reuse the same XObject for later references
+                pdImage = dataUri == null ? imageCache.get(imageUrl) : imageCache.get(dataUri);
+                originalWidth = pdImage.getWidth();
+                originalHeight = pdImage.getHeight();
             }
+        } catch (IOException | IllegalArgumentException e) {
+            // If image loading fails or the path or image type is invalid, draw alt text as placeholder
+            PDFont placeholderFont = fonts.select(false, true);
+            content.setFont(placeholderFont, DEFAULT_FONT_SIZE);
+            fonts.showText("[Image: " + altText + "]", placeholderFont, DEFAULT_FONT_SIZE, content);
+            return yPosition;
+        }
 
-            // Scale down if image is too tall
-            if (scaledHeight > IMAGE_MAX_HEIGHT) {
-                float scaleRatio = IMAGE_MAX_HEIGHT / scaledHeight;
-                scaledHeight = IMAGE_MAX_HEIGHT;
-                scaledWidth = scaledWidth * scaleRatio;
-            }
+        // Calculate scaled dimensions to fit page
+        float scaledWidth = originalWidth;
+        float scaledHeight = originalHeight;
 
-            // Add spacing before image
-            yPosition -= IMAGE_SPACING;
+        // Scale down if image is too wide
+        if (scaledWidth > IMAGE_MAX_WIDTH) {
+            float scaleRatio = IMAGE_MAX_WIDTH / scaledWidth;
+            scaledWidth = IMAGE_MAX_WIDTH;
+            scaledHeight = scaledHeight * scaleRatio;
+        }
 
-            // Check if we need a new page (simplified check - doesn't create new page in this implementation)
-            // For full implementation, would need to recreate content stream which is complex
-            if (yPosition - scaledHeight < MARGIN) {
-                // Not enough space - image may overflow, but we'll still render it
-                // A more complete implementation would create a new page here
-            }
+        // Scale down if image is too tall
+        if (scaledHeight > IMAGE_MAX_HEIGHT) {
+            float scaleRatio = IMAGE_MAX_HEIGHT / scaledHeight;
+            scaledHeight = IMAGE_MAX_HEIGHT;
+            scaledWidth = scaledWidth * scaleRatio;
+        }
 
-            // Draw image at current position (left-aligned at margin)
-            // Note: Must be in text mode for drawImage to work properly
-            content.drawImage(pdImage, MARGIN, yPosition - scaledHeight, scaledWidth, scaledHeight);
+        // Add spacing before image
+        yPosition -= IMAGE_SPACING;
 
-            // Update Y position
-            yPosition -= scaledHeight + IMAGE_SPACING;
+        // Images cannot be drawn inside a text object
+        content.endText();
+        if (pdImage != null) {
+            content.drawImage(pdImage, MARGIN, yPosition - scaledHeight, scaledWidth, scaledHeight);
+        } else {
+            // Draft placeholder: a gray box with a border, after which text is black again
+            content.setNonStrokingColor(IMAGE_PLACEHOLDER_GRAY, IMAGE_PLACEHOLDER_GRAY, IMAGE_PLACEHOLDER_GRAY);
+            content.addRect(MARGIN, yPosition - scaledHeight, scaledWidth, scaledHeight);
+            content.fill();
+            content.setStrokingColor(0.5f, 0.5f, 0.5f);
+            content.addRect(MARGIN, yPosition - scaledHeight, scaledWidth, scaledHeight);
+            content.stroke();
+            content.setNonStrokingColor(0f, 0f, 0f);
+        }
 
-        } catch (IOException e) {
-            // If image loading fails, draw alt text as placeholder
-            content.beginText();
-            content.setFont(new PDType1Font(Standard14Fonts.FontName.TIMES_ITALIC), DEFAULT_FONT_SIZE);
-            content.newLineAtOffset(MARGIN, yPosition - DEFAULT_FONT_SIZE);
-            content.showText("[Image: " + altText + "]");
-            content.endText();
+        // Update Y position
+        yPosition -= scaledHeight + IMAGE_SPACING;
 
-            // Update Y position for placeholder text
-            yPosition -= DEFAULT_FONT_SIZE + IMAGE_SPACING;
-        }
+        // Reopen the text object at the left margin below the image
+        content.beginText();
+        content.newLineAtOffset(MARGIN, yPosition);
 
         return yPosition;
     }
 
     /**
-     * Extracts text content from a node and its children recursively.
+     * Reads the header of an image file or a data URI's image.
+     *
+     * @return The header, or null if the data is not a recognized image
+     * @throws IOException if the image cannot be read
+     * @throws IllegalArgumentException if the image path is invalid
+     */
+    private static ImageHeader imageHeader(DataUri dataUri, String imageUrl) throws IOException {
+        if (dataUri == null) {
+            return ImageHeader.probe(Paths.get(imageUrl));
+        }
+        try (InputStream in = dataUri.openStream()) {
+            return ImageHeader.read(in);
+        }
+    }
+
+    /**
+     * Extracts text content from a node and its descendants.
      * Used for basic text extraction without formatting.
      *
+     * @param ir The document
      * @param node The node to extract text from
-     * @return The concatenated text content
+     * @param text Receives the concatenated text content, replacing what it held
      */
-    private String extractText(Node node) {
-        StringBuilder text = new StringBuilder();
+    private void extractText(DocumentIr ir, int node, StringBuilder text) {
+        text.setLength(0);
+        ir.appendText(node, text);
+    }
 
-        // If it's a Text node, append its content
-        if (node instanceof Text) {
-            text.append(((Text) node).getChars());
-        } else {
-            // Otherwise, recursively get text from children
-            for (Node child : node.getChildren()) {
-                text.append(extractText(child));
+    /**
+     * Checks whether a node's text contains anything besides whitespace and control
+     * characters, without copying the text.
+     *
+     * @param ir The document
+     * @param node The node to check
+     * @return true if the text would not be empty after {@link String#trim()}
+     */
+    private boolean hasVisibleText(DocumentIr ir, int node) {
+        for (int i = node, end = ir.subtreeEnd(node); i < end; i++) {
+            if (ir.kind(i) == DocumentIr.Kind.TEXT) {
+                CharSequence chars = ir.chars(i);
+                for (int j = 0; j < chars.length(); j++) {
+                    if (chars.charAt(j) > ' ') {
+                        return true;
+                    }
+                }
             }
         }
+        return false;
+    }
+
+    /**
+     * A link whose text is being drawn by {@link #processInlineContent}, and where its text started.
+     */
+    private static final class OpenLink {
+        private final int link;
+        private final float startX;
+        private final boolean colored;
+
+        private OpenLink(int link, float startX, boolean colored) {
+            this.link = link;
+            this.startX = startX;
+            this.colored = colored;
+        }
+    }
 
-        return text.toString();
+    /**
+     * A list being walked by {@link #processList}: the next item and the next child of the
+     * current item, and where the current item's text starts.
+     */
+    private static final class ListLevel {
+        private final boolean ordered;
+        private final int indentLevel;
+        // X position of the markers, based on the nesting level
+        private final float xPosition;
+        // Node indices; -1 when there are no more
+        private int nextItemCandidate;
+        private int nextChild = -1;
+        private boolean inItem;
+        private int itemNumber = 1;
+        private float markerWidth;
+
+        private ListLevel(DocumentIr ir, int list, int indentLevel) {
+            this.ordered = ir.kind(list) == DocumentIr.Kind.ORDERED_LIST;
+            this.indentLevel = indentLevel;
+            this.xPosition = MARGIN + (indentLevel * LIST_INDENT);
+            this.nextItemCandidate = ir.firstChild(list);
+        }
+
+        /**
+         * @return The next item of the list's own kind, or -1 after the last one
+         */
+        private int nextItem(DocumentIr ir) {
+            DocumentIr.Kind itemKind = ordered ? DocumentIr.Kind.ORDERED_LIST_ITEM : DocumentIr.Kind.BULLET_LIST_ITEM;
+            int item = nextItemCandidate;
+            while (item >= 0 && ir.kind(item) != itemKind) {
+                item = ir.nextSibling(item);
+            }
+            nextItemCandidate = item >= 0 ? ir.nextSibling(item) : -1;
+            return item;
+        }
     }
 }
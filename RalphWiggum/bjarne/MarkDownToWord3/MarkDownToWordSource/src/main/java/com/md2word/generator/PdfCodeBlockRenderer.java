@@ -0,0 +1,219 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+
+/**
+ * PdfCodeBlockRenderer draws fenced code blocks in the monospace font on a light gray
+ * background, flowing across pages.
+ *
+ * <p>The code is read line by line straight from its character sequence, without splitting
+ * it into an array of lines. Text the Standard 14 Courier fonts can encode is measured by
+ * counting characters, since all their glyphs have the same width; other text is measured
+ * glyph by glyph. A first pass counts the lines and finds the widest one, a second pass draws
+ * them. A block that does not fit on the page continues on the next one, and each page gets
+ * its own background segment around the lines drawn on it, all as wide as the widest line.
+ * Long lines run past the right margin, or are wrapped at the character that no longer fits
+ * when wrapping is enabled.</p>
+ *
+ * <p>An instance renders code blocks for a single document and is not thread-safe.</p>
+ */
+class PdfCodeBlockRenderer {
+
+    private static final float PADDING = 5; // Padding between the background edges and the code
+    private static final float LINE_GAP = 1; // Extra space between lines
+    private static final float BACKGROUND_GRAY = 0.95f; // Light gray background
+
+    private final PdfPageManager pages;
+    private final PdfFontSet fonts;
+    private final PDFont font;
+    private final float left;
+    private final float maxWidth;
+    private final float fontSize;
+    private final boolean wrap;
+
+    /**
+     * Creates a code block renderer.
+     *
+     * @param pages The page manager to draw on and request page breaks from
+     * @param fonts The document's fonts; code is drawn in the monospace font
+     * @param left The X position code lines start at; the background extends into the margin
+     * @param maxWidth The width available for code lines
+     * @param fontSize The font size of the code
+     * @param wrap Whether lines wider than maxWidth are wrapped
+     */
+    PdfCodeBlockRenderer(PdfPageManager pages, PdfFontSet fonts, float left, float maxWidth, float fontSize,
+                         boolean wrap) {
+        this.pages = pages;
+        this.fonts = fonts;
+        this.font = fonts.monospace();
+        this.left = left;
+        this.maxWidth = maxWidth;
+        this.fontSize = fontSize;
+        this.wrap = wrap;
+    }
+
+    /**
+     * Draws a code block with the top of its background at the given Y position. Trailing
+     * line breaks are ignored, and a block of only whitespace draws nothing. No text object
+     * is left open; callers begin their next text themselves.
+     *
+     * @param code The code, with lines separated by {@code \n} or {@code \r\n}
+     * @param yPosition The Y position of the top of the background
+     * @return The Y position of the bottom of the background, possibly on a later page
+     * @throws IOException if writing fails
+     */
+    float render(CharSequence code, float yPosition) throws IOException {
+        int length = code.length();
+        while (length > 0 && (code.charAt(length - 1) == '\n' || code.charAt(length - 1) == '\r')) {
+            length--;
+        }
+        if (isBlank(code, length)) {
+            return yPosition;
+        }
+
+        // First pass: count the lines as drawn and find the widest one
+        int lineCount = 0;
+        float widest = 0;
+        for (LineCursor lines = new LineCursor(code, length); lines.next(); lineCount++) {
+            widest = Math.max(widest, lines.width);
+        }
+        float backgroundWidth = widest + 2 * PADDING;
+        float lineHeight = fontSize + LINE_GAP;
+
+        // Second pass: one background segment and its lines per page
+        PdfContentWriter content = pages.content();
+        LineCursor lines = new LineCursor(code, length);
+        float y = yPosition;
+        int remaining = lineCount;
+        while (remaining > 0) {
+            y = pages.ensureSpace(y, fontSize + 2 * PADDING);
+            int fitting = (int) ((y - pages.bottom() - 2 * PADDING + LINE_GAP) / lineHeight);
+            int count = Math.max(1, Math.min(remaining, fitting));
+            float height = count * lineHeight - LINE_GAP + 2 * PADDING;
+
+            content.endText();
+            content.setNonStrokingColor(BACKGROUND_GRAY, BACKGROUND_GRAY, BACKGROUND_GRAY);
+            content.addRect(left - PADDING, y - height, backgroundWidth, height);
+            content.fill();
+            content.setNonStrokingColor(0f, 0f, 0f);
+
+            content.beginText();
+            content.setFont(font, fontSize);
+            content.newLineAtOffset(left, y - PADDING - fontSize);
+            for (int i = 0; i < count; i++) {
+                lines.next();
+                if (lines.end > lines.start) {
+                    fonts.showText(code, lines.start, lines.end, font, fontSize, content);
+                }
+                content.newLineAtOffset(0, -lineHeight);
+            }
+            content.endText();
+
+            remaining -= count;
+            y -= height;
+            if (remaining > 0) {
+                y = pages.newPage();
+            }
+        }
+        return y;
+    }
+
+    private static boolean isBlank(CharSequence code, int length) {
+        for (int i = 0; i < length; i++) {
+            if (!Character.isWhitespace(code.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Steps through the lines of a code block as they are drawn: source lines, or the pieces
+     * of wrapped source lines.
+     */
+    private final class LineCursor {
+        private final CharSequence code;
+        private final int length;
+        // Start of the rest of the current source line, or of the next source line
+        private int position;
+        // End of the current source line without its line break; -1 before a new source line
+        private int lineEnd = -1;
+        private int lineBreak;
+        // Width of every character of the current source line, or 0 if they must be measured
+        private float advance;
+
+        // The line found by the last call to next() and its width
+        private int start;
+        private int end;
+        private float width;
+
+        private LineCursor(CharSequence code, int length) {
+            this.code = code;
+            this.length = length;
+        }
+
+        /**
+         * Moves to the next line.
+         *
+         * @return false if there are no more lines
+         */
+        boolean next() throws IOException {
+            if (lineEnd < 0) {
+                if (position > length) {
+                    return false;
+                }
+                lineBreak = position;
+                while (lineBreak < length && code.charAt(lineBreak) != '\n') {
+                    lineBreak++;
+                }
+                lineEnd = lineBreak > position && code.charAt(lineBreak - 1) == '\r' ? lineBreak - 1 : lineBreak;
+                advance = fonts.monospaceAdvance(code, position, lineEnd, fontSize);
+            }
+            start = position;
+            if (advance > 0) {
+                // Every character is equally wide: count characters up to the wrap width
+                int limit = wrap ? Math.max(1, (int) (maxWidth / advance)) : Integer.MAX_VALUE;
+                int index = start;
+                int count = 0;
+                while (index < lineEnd && count < limit) {
+                    index += Character.charCount(Character.codePointAt(code, index));
+                    count++;
+                }
+                end = index;
+                width = count * advance;
+            } else if (wrap) {
+                measureUpToMaxWidth();
+            } else {
+                end = lineEnd;
+                width = fonts.textWidth(code, start, end, font, fontSize);
+            }
+            if (end == lineEnd) {
+                position = lineBreak + 1;
+                lineEnd = -1;
+            } else {
+                position = end;
+            }
+            return true;
+        }
+
+        /**
+         * Measures glyph by glyph up to the last character that fits in {@link #maxWidth}, but
+         * takes at least one character.
+         */
+        private void measureUpToMaxWidth() throws IOException {
+            end = start;
+            width = 0;
+            while (end < lineEnd) {
+                int next = end + Character.charCount(Character.codePointAt(code, end));
+                float charWidth = fonts.textWidth(code, end, next, font, fontSize);
+                if (width + charWidth > maxWidth && end > start) {
+                    break;
+                }
+                width += charWidth;
+                end = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * PdfContentWriter is a thin wrapper around a page or form content stream that only writes
+ * operators which change the rendered result.
+ *
+ * <p>The wrapper tracks the graphics and text state it has written (font and size, stroking
+ * and non-stroking colour, line width, text object and line position) and drops operators
+ * that would set a value already in effect. Text objects are opened lazily by the first text
+ * operator and closed lazily by the first graphics operator, so an {@code endText()} that is
+ * followed by a {@code beginText()} without any drawing in between costs nothing. Adjacent
+ * {@link #showText} calls with the same state are collected and written as a single
+ * {@code Tj} operator.</p>
+ *
+ * <p>The methods have the same meaning as their {@link PDPageContentStream} counterparts:
+ * {@link #beginText()} still starts a new logical text object at the origin, and
+ * {@link #newLineAtOffset} is relative to the start of the current logical line. The writer
+ * converts these logical positions into the minimal {@code Td} operators needed for the
+ * real text object. {@link #startPage} moves the writer to the content stream of another
+ * page, and {@link #startSegment} to another content stream of the same page. An instance is
+ * not thread-safe.</p>
+ */
+class PdfContentWriter implements Closeable {
+
+    private PDPageContentStream content;
+
+    // State in effect in the written stream; PDF defaults until something is written
+    private PDFont font;
+    private float fontSize;
+    private final float[] nonStrokingColor = {0f, 0f, 0f};
+    private final float[] strokingColor = {0f, 0f, 0f};
+    private float lineWidth = 1f;
+
+    // Real text object and the start of its current line, relative to the page origin
+    private boolean inText;
+    private float textLineX;
+    private float textLineY;
+    // Whether text was shown since the real line started, moving the position past its start
+    private boolean textAdvanced;
+
+    // Start of the current line as the caller sees it, and whether a new line was started
+    private float lineX;
+    private float lineY;
+    private boolean newLine;
+
+    // Font requested by the caller, written before the next text is shown
+    private PDFont requestedFont;
+    private float requestedFontSize;
+
+    // Text waiting to be written with a single Tj
+    private final StringBuilder pendingText = new StringBuilder();
+
+    // Tracked graphics state saved by q, restored by the matching Q
+    private final Deque<SavedState> savedStates = new ArrayDeque<>();
+
+    /**
+     * Creates a writer for a page or form content stream.
+     *
+     * @param content The content stream to write to; closed by {@link #close()}
+     */
+    PdfContentWriter(PDPageContentStream content) {
+        this.content = content;
+    }
+
+    /**
+     * Closes the current content stream and continues on another one, typically the content
+     * stream of a new page. The tracked state is reset to the PDF defaults a new stream starts
+     * with, so the next font and colour changes are written again. The font requested with
+     * {@link #setFont} is kept; callers start a new logical text object with {@link #beginText()}.
+     *
+     * @param next The content stream to write to from now on
+     * @throws IOException if the current stream cannot be closed
+     */
+    void startPage(PDPageContentStream next) throws IOException {
+        close();
+        content = next;
+        font = null;
+        fontSize = 0;
+        savedStates.clear();
+        setColor(nonStrokingColor, 0f, 0f, 0f);
+        setColor(strokingColor, 0f, 0f, 0f);
+        lineWidth = 1f;
+        beginText();
+    }
+
+    /**
+     * @return Whether the writer can move to another stream with {@link #startSegment} without
+     *         changing what is drawn: a new line has been started and no graphics state is saved
+     */
+    boolean atSegmentBoundary() {
+        return newLine && savedStates.isEmpty();
+    }
+
+    /**
+     * Closes the current content stream and continues on another stream of the same page. The
+     * logical text position and the requested font are kept. The graphics state carries over
+     * between the streams of a page, but the tracked state is forgotten, so the next font,
+     * colour and line width changes are written again. The output of a segment therefore does
+     * not depend on what the writer tracked before it, and later segments can be regenerated
+     * on their own.
+     *
+     * @param next The content stream to write to from now on
+     * @throws IOException if the current stream cannot be closed
+     * @throws IllegalStateException if the writer is not {@link #atSegmentBoundary() at a segment boundary}
+     */
+    void startSegment(PDPageContentStream next) throws IOException {
+        if (!atSegmentBoundary()) {
+            throw new IllegalStateException("Content stream segments start on a new line with no saved state");
+        }
+        close();
+        content = next;
+        forgetWrittenState();
+    }
+
+    /**
+     * Forgets the tracked font, colours and line width, for a stream that continues earlier
+     * streams of the same page whose state is not known. The next change of each is written.
+     */
+    void forgetWrittenState() {
+        font = null;
+        fontSize = 0;
+        setColor(nonStrokingColor, Float.NaN, Float.NaN, Float.NaN);
+        setColor(strokingColor, Float.NaN, Float.NaN, Float.NaN);
+        lineWidth = Float.NaN;
+    }
+
+    /**
+     * @return The start of the current logical line and the requested font, to continue from
+     *         later with {@link #continueAt}
+     */
+    TextPosition textPosition() {
+        return new TextPosition(lineX, lineY, requestedFont, requestedFontSize);
+    }
+
+    /**
+     * Starts a new line at a position taken from {@link #textPosition()}, possibly in an
+     * earlier run, and requests its font.
+     *
+     * @param position The position and font to continue with
+     */
+    void continueAt(TextPosition position) {
+        lineX = position.lineX();
+        lineY = position.lineY();
+        newLine = true;
+        requestedFont = position.font();
+        requestedFontSize = position.fontSize();
+    }
+
+    /**
+     * Starts a logical text object. The line position is reset to the page origin, but no
+     * operator is written until text is shown.
+     */
+    void beginText() {
+        lineX = 0;
+        lineY = 0;
+        newLine = true;
+    }
+
+    /**
+     * Ends a logical text object. The real text object stays open until a graphics operator
+     * needs it closed.
+     */
+    void endText() {
+        // Nothing to do: text objects are closed lazily by graphics operators
+    }
+
+    /**
+     * Moves to the start of the next line, offset from the start of the current line.
+     *
+     * @param tx Horizontal offset
+     * @param ty Vertical offset
+     */
+    void newLineAtOffset(float tx, float ty) {
+        lineX += tx;
+        lineY += ty;
+        newLine = true;
+    }
+
+    /**
+     * Selects the font and size for the following text. The operator is written when text is
+     * next shown, and only if the font or size differs from the one in effect.
+     *
+     * @param font The font
+     * @param fontSize The font size
+     */
+    void setFont(PDFont font, float fontSize) {
+        this.requestedFont = font;
+        this.requestedFontSize = fontSize;
+    }
+
+    /**
+     * Shows text in the current font at the current text position. Text shown right after
+     * other text, with nothing changed in between, is appended to the same {@code Tj}.
+     *
+     * @param text The text to show
+     * @throws IOException if writing fails
+     */
+    void showText(CharSequence text) throws IOException {
+        showText(text, 0, text.length());
+    }
+
+    /**
+     * Shows a range of text like {@link #showText(CharSequence)}. The characters are copied
+     * into the pending {@code Tj} operand, so the text can be a view of a larger buffer.
+     *
+     * @param text The text
+     * @param start Index of the first character of the range
+     * @param end Index just past the range
+     * @throws IOException if writing fails
+     */
+    void showText(CharSequence text, int start, int end) throws IOException {
+        if (start == end) {
+            return;
+        }
+        boolean fontChanged = requestedFont != font || requestedFontSize != fontSize;
+        if (fontChanged || newLine) {
+            flushText();
+        }
+        if (fontChanged) {
+            content.setFont(requestedFont, requestedFontSize);
+            font = requestedFont;
+            fontSize = requestedFontSize;
+        }
+        openText();
+        if (newLine) {
+            // A new line returns to its start even when the offset is zero
+            if (textAdvanced || lineX != textLineX || lineY != textLineY) {
+                content.newLineAtOffset(lineX - textLineX, lineY - textLineY);
+                textLineX = lineX;
+                textLineY = lineY;
+                textAdvanced = false;
+            }
+            newLine = false;
+        }
+        pendingText.append(text, start, end);
+        textAdvanced = true;
+    }
+
+    /**
+     * Sets the fill colour, unless it is already in effect.
+     *
+     * @param r Red component (0-1)
+     * @param g Green component (0-1)
+     * @param b Blue component (0-1)
+     * @throws IOException if writing fails
+     */
+    void setNonStrokingColor(float r, float g, float b) throws IOException {
+        if (sameColor(nonStrokingColor, r, g, b)) {
+            return;
+        }
+        flushText();
+        content.setNonStrokingColor(r, g, b);
+        setColor(nonStrokingColor, r, g, b);
+    }
+
+    /**
+     * Sets the stroke colour, unless it is already in effect.
+     *
+     * @param r Red component (0-1)
+     * @param g Green component (0-1)
+     * @param b Blue component (0-1)
+     * @throws IOException if writing fails
+     */
+    void setStrokingColor(float r, float g, float b) throws IOException {
+        if (sameColor(strokingColor, r, g, b)) {
+            return;
+        }
+        flushText();
+        content.setStrokingColor(r, g, b);
+        setColor(strokingColor, r, g, b);
+    }
+
+    /**
+     * Sets the line width, unless it is already in effect.
+     *
+     * @param lineWidth The line width
+     * @throws IOException if writing fails
+     */
+    void setLineWidth(float lineWidth) throws IOException {
+        if (lineWidth == this.lineWidth) {
+            return;
+        }
+        flushText();
+        content.setLineWidth(lineWidth);
+        this.lineWidth = lineWidth;
+    }
+
+    /**
+     * Appends a rectangle to the current path.
+     *
+     * @throws IOException if writing fails
+     */
+    void addRect(float x, float y, float width, float height) throws IOException {
+        closeText();
+        content.addRect(x, y, width, height);
+    }
+
+    /**
+     * Starts a new subpath at the given point.
+     *
+     * @throws IOException if writing fails
+     */
+    void moveTo(float x, float y) throws IOException {
+        closeText();
+        content.moveTo(x, y);
+    }
+
+    /**
+     * Appends a straight line to the current subpath.
+     *
+     * @throws IOException if writing fails
+     */
+    void lineTo(float x, float y) throws IOException {
+        closeText();
+        content.lineTo(x, y);
+    }
+
+    /**
+     * Fills the current path.
+     *
+     * @throws IOException if writing fails
+     */
+    void fill() throws IOException {
+        closeText();
+        content.fill();
+    }
+
+    /**
+     * Strokes the current path.
+     *
+     * @throws IOException if writing fails
+     */
+    void stroke() throws IOException {
+        closeText();
+        content.stroke();
+    }
+
+    /**
+     * Draws an image at the given position and size.
+     *
+     * @throws IOException if writing fails
+     */
+    void drawImage(PDImageXObject image, float x, float y, float width, float height) throws IOException {
+        closeText();
+        content.drawImage(image, x, y, width, height);
+    }
+
+    /**
+     * Draws a form XObject with its origin at the given position.
+     *
+     * @param form The form to draw
+     * @param x Horizontal position of the form's origin
+     * @param y Vertical position of the form's origin
+     * @throws IOException if writing fails
+     */
+    void drawForm(PDFormXObject form, float x, float y) throws IOException {
+        saveGraphicsState();
+        if (x != 0 || y != 0) {
+            content.transform(Matrix.getTranslateInstance(x, y));
+        }
+        content.drawForm(form);
+        restoreGraphicsState();
+    }
+
+    /**
+     * Saves the graphics state, closing an open text object first.
+     *
+     * @throws IOException if writing fails
+     */
+    void saveGraphicsState() throws IOException {
+        closeText();
+        content.saveGraphicsState();
+        savedStates.push(new SavedState(font, fontSize, nonStrokingColor.clone(), strokingColor.clone(), lineWidth));
+    }
+
+    /**
+     * Restores the graphics state saved by the matching {@link #saveGraphicsState()}.
+     *
+     * @throws IOException if writing fails
+     */
+    void restoreGraphicsState() throws IOException {
+        closeText();
+        content.restoreGraphicsState();
+        SavedState saved = savedStates.pop();
+        font = saved.font;
+        fontSize = saved.fontSize;
+        System.arraycopy(saved.nonStrokingColor, 0, nonStrokingColor, 0, 3);
+        System.arraycopy(saved.strokingColor, 0, strokingColor, 0, 3);
+        lineWidth = saved.lineWidth;
+    }
+
+    /**
+     * Writes pending text, closes an open text object and closes the content stream.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        closeText();
+        content.close();
+    }
+
+    private void openText() throws IOException {
+        if (!inText) {
+            content.beginText();
+            inText = true;
+            textLineX = 0;
+            textLineY = 0;
+            textAdvanced = false;
+        }
+    }
+
+    private void closeText() throws IOException {
+        flushText();
+        if (inText) {
+            content.endText();
+            inText = false;
+        }
+    }
+
+    private void flushText() throws IOException {
+        if (pendingText.length() > 0) {
+            content.showText(pendingText.toString());
+            pendingText.setLength(0);
+        }
+    }
+
+    /**
+     * The start of a logical line, relative to the page origin, and the font requested for it.
+     */
+    record TextPosition(float lineX, float lineY, PDFont font, float fontSize) {
+    }
+
+    private record SavedState(PDFont font, float fontSize, float[] nonStrokingColor, float[] strokingColor,
+                              float lineWidth) {
+    }
+
+    private static boolean sameColor(float[] color, float r, float g, float b) {
+        return color[0] == r && color[1] == g && color[2] == b;
+    }
+
+    private static void setColor(float[] color, float r, float g, float b) {
+        color[0] = r;
+        color[1] = g;
+        color[2] = b;
+    }
+}
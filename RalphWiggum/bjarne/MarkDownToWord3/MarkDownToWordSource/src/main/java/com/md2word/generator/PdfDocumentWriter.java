@@ -0,0 +1,292 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * PdfDocumentWriter saves a generated PDF according to a {@link PdfSaveProfile}.
+ *
+ * <p>Page content streams and form XObjects are written uncompressed by the generator and
+ * deflated here at the profile's level, so the level is chosen per document rather than
+ * through PDFBox's JVM-wide setting. Embedded fonts are subset before the streams are compressed, which lets
+ * {@link PdfSaveProfile#SMALLEST} recompress the font subsets as well. With
+ * {@link PdfSaveProfile#STORED} the streams are written as they are.</p>
+ *
+ * <p>A linearized document is saved to a temporary file next to the output first and then
+ * rewritten by {@link PdfLinearizer}. Linearized files use a plain cross-reference table, so
+ * the profile's object stream setting does not apply to them.</p>
+ *
+ * <p>A document loaded from an earlier output and extended can instead be appended to that
+ * file as an incremental update with {@link #saveIncremental}.</p>
+ */
+final class PdfDocumentWriter {
+
+    private PdfDocumentWriter() {
+    }
+
+    /**
+     * Subsets fonts, compresses streams and writes the document.
+     *
+     * @param document The finished document; its content streams must be closed
+     * @param fonts The document's fonts
+     * @param profile The compression profile
+     * @param linearize Whether to write a linearized ("fast web view") file
+     * @param outputPath The file to write
+     * @throws IOException if compression or writing fails
+     */
+    static void save(PDDocument document, PdfFontSet fonts, PdfSaveProfile profile, boolean linearize,
+                     Path outputPath) throws IOException {
+        fonts.subsetEmbeddedFonts();
+
+        if (profile.deflatesStreams()) {
+            Deflater deflater = new Deflater(profile.deflateLevel());
+            try {
+                if (profile.recompressAllStreams()) {
+                    for (COSStream stream : reachableStreams(document)) {
+                        if (isRecompressible(stream)) {
+                            deflate(stream, deflater);
+                        }
+                    }
+                } else {
+                    for (PDPage page : document.getPages()) {
+                        deflatePageStreams(page, deflater);
+                    }
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        if (linearize) {
+            Path saved = Files.createTempFile(outputPath.toAbsolutePath().getParent(), "md2word", ".pdf");
+            try {
+                write(document, CompressParameters.NO_COMPRESSION, saved);
+                PdfLinearizer.linearize(saved, outputPath);
+            } finally {
+                Files.deleteIfExists(saved);
+            }
+        } else {
+            write(document, profile.compressParameters(), outputPath);
+        }
+    }
+
+    /**
+     * Appends the changes made to a document loaded from the output file as an incremental
+     * update. Only the new and changed objects are written: the bytes already in the file are
+     * left in place, and the update is appended with its own cross-reference section. New
+     * content streams and form XObjects are deflated at the profile's level; the profile's
+     * object stream setting does not apply to the update. If writing fails, the file is cut
+     * back to its original length.
+     *
+     * @param document The document loaded from outputPath; its content streams must be closed
+     * @param profile The compression profile
+     * @param firstPage The zero-based index of the first page with new content
+     * @param outputPath The file the document was loaded from
+     * @throws IOException if compression or writing fails
+     */
+    static void saveIncremental(PDDocument document, PdfSaveProfile profile, int firstPage, Path outputPath)
+            throws IOException {
+        // Embedded fonts are subset by PDFBox when the update is written
+        if (profile.deflatesStreams()) {
+            Deflater deflater = new Deflater(profile.deflateLevel());
+            try {
+                int pageIndex = 0;
+                for (PDPage page : document.getPages()) {
+                    if (pageIndex++ >= firstPage) {
+                        deflatePageStreams(page, deflater);
+                    }
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        long originalLength = Files.size(outputPath);
+        try (FileChannel channel = FileChannel.open(outputPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            try {
+                OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel));
+                document.saveIncremental(new IncrementOutputStream(output, originalLength));
+                output.flush();
+            } catch (IOException | RuntimeException e) {
+                channel.truncate(originalLength);
+                throw e;
+            }
+        }
+    }
+
+    private static void write(PDDocument document, CompressParameters compressParameters, Path outputPath)
+            throws IOException {
+        // Object streams can only be referenced from a cross-reference stream
+        document.getDocument().setIsXRefStream(compressParameters != CompressParameters.NO_COMPRESSION);
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(outputPath))) {
+            new COSWriter(output, compressParameters).write(document);
+        }
+    }
+
+    /**
+     * Deflates the page's unfiltered content streams and form XObjects. Shared forms are
+     * deflated on the first page that uses them and skipped afterwards.
+     */
+    private static void deflatePageStreams(PDPage page, Deflater deflater) throws IOException {
+        for (COSStream stream : contentStreams(page)) {
+            if (stream.getFilters() == null) {
+                deflate(stream, deflater);
+            }
+        }
+        for (COSStream form : formXObjects(page)) {
+            if (form.getFilters() == null) {
+                deflate(form, deflater);
+            }
+        }
+    }
+
+    private static Iterable<COSStream> contentStreams(PDPage page) {
+        COSBase contents = page.getCOSObject().getDictionaryObject(COSName.CONTENTS);
+        Deque<COSStream> streams = new ArrayDeque<>();
+        if (contents instanceof COSStream) {
+            streams.add((COSStream) contents);
+        } else if (contents instanceof COSArray) {
+            for (COSBase item : (COSArray) contents) {
+                COSBase resolved = item instanceof COSObject ? ((COSObject) item).getObject() : item;
+                if (resolved instanceof COSStream) {
+                    streams.add((COSStream) resolved);
+                }
+            }
+        }
+        return streams;
+    }
+
+    /**
+     * Collects the form XObjects in the page's resources, such as the shared page furniture.
+     */
+    private static Iterable<COSStream> formXObjects(PDPage page) {
+        Deque<COSStream> forms = new ArrayDeque<>();
+        COSDictionary resources = page.getCOSObject().getCOSDictionary(COSName.RESOURCES);
+        COSDictionary xObjects = resources != null ? resources.getCOSDictionary(COSName.XOBJECT) : null;
+        if (xObjects != null) {
+            for (COSBase value : xObjects.getValues()) {
+                COSBase resolved = value instanceof COSObject ? ((COSObject) value).getObject() : value;
+                if (resolved instanceof COSStream
+                        && COSName.FORM.equals(((COSStream) resolved).getCOSName(COSName.SUBTYPE))) {
+                    forms.add((COSStream) resolved);
+                }
+            }
+        }
+        return forms;
+    }
+
+    /**
+     * Collects every stream reachable from the trailer, visiting each object once.
+     */
+    private static Iterable<COSStream> reachableStreams(PDDocument document) {
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<COSStream> streams = new ArrayDeque<>();
+        Deque<COSBase> pending = new ArrayDeque<>();
+        pending.push(document.getDocument().getTrailer());
+        while (!pending.isEmpty()) {
+            COSBase object = pending.pop();
+            if (object instanceof COSObject) {
+                object = ((COSObject) object).getObject();
+            }
+            if (object == null || !visited.add(object)) {
+                continue;
+            }
+            if (object instanceof COSDictionary) {
+                if (object instanceof COSStream) {
+                    streams.add((COSStream) object);
+                }
+                for (COSBase value : ((COSDictionary) object).getValues()) {
+                    pending.push(value);
+                }
+            } else if (object instanceof COSArray) {
+                for (COSBase item : (COSArray) object) {
+                    pending.push(item);
+                }
+            }
+        }
+        return streams;
+    }
+
+    /**
+     * Only unfiltered streams and plain Flate streams are recompressed; streams with
+     * predictors, other filters such as DCT images, or filter chains are left as written.
+     */
+    private static boolean isRecompressible(COSStream stream) {
+        COSBase filters = stream.getFilters();
+        if (filters == null) {
+            return true;
+        }
+        return COSName.FLATE_DECODE.equals(filters)
+                && stream.getDictionaryObject(COSName.DECODE_PARMS, COSName.DP) == null;
+    }
+
+    /**
+     * Receives an incremental save, which repeats the original file before the update, and
+     * passes on only the update.
+     */
+    private static final class IncrementOutputStream extends FilterOutputStream {
+
+        private long skip;
+
+        IncrementOutputStream(OutputStream out, long skip) {
+            super(out);
+            this.skip = skip;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (skip > 0) {
+                skip--;
+            } else {
+                out.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int skipped = (int) Math.min(skip, len);
+            skip -= skipped;
+            if (skipped < len) {
+                out.write(b, off + skipped, len - skipped);
+            }
+        }
+    }
+
+    private static void deflate(COSStream stream, Deflater deflater) throws IOException {
+        byte[] data;
+        try (InputStream in = stream.createInputStream()) {
+            data = in.readAllBytes();
+        }
+        deflater.reset();
+        try (OutputStream out = new DeflaterOutputStream(stream.createRawOutputStream(), deflater)) {
+            out.write(data);
+        }
+        stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+    }
+}
@@ -0,0 +1,307 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * PdfFontSet holds the fonts of one PDF document and shows text through them.
+ *
+ * <p>Every style is either a Standard 14 font or an embedded TrueType font. TrueType fonts are
+ * parsed once per JVM by {@link TrueTypeFontCache} and wrapped in a {@link PDType0Font} for
+ * this document with subsetting enabled, so only the glyphs that are actually drawn end up in
+ * the saved file. A style that is configured with the same file as another style shares its
+ * font object.</p>
+ *
+ * <p>Characters the selected font cannot encode are drawn with the optional fallback font.
+ * Characters neither font can encode are skipped. Text is accepted as any
+ * {@link CharSequence}, such as a view of the Markdown source, and is measured with
+ * {@link GlyphWidths} without being copied. An instance belongs to a single
+ * {@link PDDocument} and is not thread-safe.</p>
+ */
+class PdfFontSet {
+
+    /**
+     * The font roles a document uses, each configurable with a TrueType file.
+     */
+    enum Style {
+        REGULAR(Standard14Fonts.FontName.TIMES_ROMAN),
+        BOLD(Standard14Fonts.FontName.TIMES_BOLD),
+        ITALIC(Standard14Fonts.FontName.TIMES_ITALIC),
+        BOLD_ITALIC(Standard14Fonts.FontName.TIMES_BOLD_ITALIC),
+        MONOSPACE(Standard14Fonts.FontName.COURIER),
+        /** Used for characters the other fonts cannot encode; has no Standard 14 default. */
+        FALLBACK(null);
+
+        private final Standard14Fonts.FontName standardFont;
+
+        Style(Standard14Fonts.FontName standardFont) {
+            this.standardFont = standardFont;
+        }
+    }
+
+    private final Map<Style, PDFont> fonts = new EnumMap<>(Style.class);
+    private final Map<PDFont, FontCoverage> coverages = new IdentityHashMap<>();
+    private final Map<PDFont, GlyphWidths> widths = new IdentityHashMap<>();
+    private final PDFont fallbackFont;
+    // Width of every glyph of a Standard 14 monospace font in glyph space units; 0 if glyphs must be measured
+    private final float monospaceAdvance;
+
+    /**
+     * Loads the fonts of a document.
+     *
+     * @param document The document TrueType fonts are embedded into
+     * @param fontFiles TrueType files per style; styles without a file use their Standard 14 font
+     * @throws IOException if a configured font file cannot be read or parsed
+     */
+    PdfFontSet(PDDocument document, Map<Style, Path> fontFiles) throws IOException {
+        Map<Path, PDFont> loaded = new HashMap<>();
+        for (Style style : Style.values()) {
+            Path fontFile = fontFiles.get(style);
+            PDFont font;
+            if (fontFile != null) {
+                font = loaded.get(fontFile);
+                if (font == null) {
+                    TrueTypeFontCache.CachedFont cached = TrueTypeFontCache.get(fontFile);
+                    font = PDType0Font.load(document, cached.font(), true);
+                    coverages.put(font, cached.coverage());
+                    loaded.put(fontFile, font);
+                }
+            } else if (style.standardFont != null) {
+                font = new PDType1Font(style.standardFont);
+                coverages.put(font, FontCoverage.of(font));
+            } else {
+                continue;
+            }
+            fonts.put(style, font);
+        }
+        this.fallbackFont = fonts.get(Style.FALLBACK);
+
+        PDFont monospace = fonts.get(Style.MONOSPACE);
+        boolean fixedPitch = monospace instanceof PDType1Font && ((PDType1Font) monospace).isStandard14()
+                && monospace.getFontDescriptor() != null && monospace.getFontDescriptor().isFixedPitch();
+        this.monospaceAdvance = fixedPitch ? monospace.getStringWidth(" ") : 0;
+    }
+
+    /**
+     * Selects the text font for the given bold and italic flags.
+     *
+     * @param isBold Whether text should be bold
+     * @param isItalic Whether text should be italic
+     * @return The appropriate font for the given formatting
+     */
+    PDFont select(boolean isBold, boolean isItalic) {
+        if (isBold && isItalic) {
+            return fonts.get(Style.BOLD_ITALIC);
+        } else if (isBold) {
+            return fonts.get(Style.BOLD);
+        } else if (isItalic) {
+            return fonts.get(Style.ITALIC);
+        } else {
+            return fonts.get(Style.REGULAR);
+        }
+    }
+
+    /**
+     * @return The regular text font
+     */
+    PDFont regular() {
+        return fonts.get(Style.REGULAR);
+    }
+
+    /**
+     * @return The monospace font for code
+     */
+    PDFont monospace() {
+        return fonts.get(Style.MONOSPACE);
+    }
+
+    /**
+     * @param style The font role
+     * @return The font of the given role, or null for a fallback font that is not configured
+     */
+    PDFont font(Style style) {
+        return fonts.get(style);
+    }
+
+    /**
+     * @param font A font of this set
+     * @return The first role the font is used for, or null if it does not belong to this set
+     */
+    Style styleOf(PDFont font) {
+        for (Map.Entry<Style, PDFont> entry : fonts.entrySet()) {
+            if (entry.getValue() == font) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces every embedded TrueType font with a subset of the glyphs drawn so far. Must be
+     * called once, after all text is shown and before the document is written.
+     *
+     * @throws IOException if a font cannot be subset
+     */
+    void subsetEmbeddedFonts() throws IOException {
+        for (PDFont font : coverages.keySet()) {
+            if (font.willBeSubset()) {
+                font.subset();
+            }
+        }
+    }
+
+    /**
+     * Calculates the width of text in PDF points as {@link #showText} draws it.
+     *
+     * @param text The text to measure
+     * @param font The font to use for measurement
+     * @param fontSize The font size
+     * @return The width of the text in PDF points
+     * @throws IOException if font measurement fails
+     */
+    float textWidth(CharSequence text, PDFont font, float fontSize) throws IOException {
+        return textWidth(text, 0, text.length(), font, fontSize);
+    }
+
+    /**
+     * Calculates the width of a range of text in PDF points as {@link #showText} draws it.
+     *
+     * @param text The text
+     * @param start Index of the first character of the range
+     * @param end Index just past the range
+     * @param font The font to use for measurement
+     * @param fontSize The font size
+     * @return The width of the range in PDF points
+     * @throws IOException if font measurement fails
+     */
+    float textWidth(CharSequence text, int start, int end, PDFont font, float fontSize) throws IOException {
+        FontCoverage coverage = coverages.get(font);
+        GlyphWidths fontWidths = widths(font);
+        if (coverage.canEncode(text, start, end)) {
+            return fontWidths.sum(text, start, end) * fontSize / 1000f;
+        }
+
+        CharSequence range = text.subSequence(start, end);
+        float[] width = new float[1];
+        coverage.forEachRun(range, (runStart, runEnd, isEncodable) -> {
+            if (isEncodable) {
+                width[0] += fontWidths.sum(range, runStart, runEnd);
+            } else if (fallbackFont != null) {
+                CharSequence fallbackText = encodableText(range.subSequence(runStart, runEnd), fallbackFont);
+                if (fallbackText.length() > 0) {
+                    width[0] += widths(fallbackFont).sum(fallbackText, 0, fallbackText.length());
+                }
+            }
+        });
+        return width[0] * fontSize / 1000f;
+    }
+
+    /**
+     * Returns the width of a single character of a range of text in the monospace font, when
+     * every character of the range has that width. This holds for text the Standard 14
+     * Courier fonts can encode, whose glyphs are all 600 units wide, so the width of such text
+     * is the character count times the advance, without measuring glyphs.
+     *
+     * @param text The text
+     * @param start Index of the first character of the range
+     * @param end Index just past the range
+     * @param fontSize The font size
+     * @return The width of one code point in PDF points, or 0 if the range must be measured
+     *         with {@link #textWidth}
+     */
+    float monospaceAdvance(CharSequence text, int start, int end, float fontSize) {
+        if (monospaceAdvance == 0 || !coverages.get(monospace()).canEncode(text, start, end)) {
+            return 0;
+        }
+        return monospaceAdvance * fontSize / 1000f;
+    }
+
+    /**
+     * Shows text in the font currently selected in the content stream.
+     *
+     * @param text The text to show
+     * @param font The font currently selected in the content stream
+     * @param fontSize The size the font is selected at
+     * @param content The content stream
+     * @throws IOException if writing fails
+     */
+    void showText(CharSequence text, PDFont font, float fontSize, PdfContentWriter content) throws IOException {
+        showText(text, 0, text.length(), font, fontSize, content);
+    }
+
+    /**
+     * Shows a range of text in the font currently selected in the content stream.
+     *
+     * <p>The text is checked against the font's coverage bitmap before anything is written, so
+     * no encoding exception is thrown and the common all-encodable case is encoded exactly once.
+     * Text that needs a fallback is segmented into runs; fallback runs switch to the fallback
+     * font and back, or are dropped when no fallback font is configured.</p>
+     *
+     * @param text The text
+     * @param start Index of the first character of the range
+     * @param end Index just past the range
+     * @param font The font currently selected in the content stream
+     * @param fontSize The size the font is selected at
+     * @param content The content stream
+     * @throws IOException if writing fails
+     */
+    void showText(CharSequence text, int start, int end, PDFont font, float fontSize, PdfContentWriter content)
+            throws IOException {
+        FontCoverage coverage = coverages.get(font);
+        if (coverage.canEncode(text, start, end)) {
+            content.showText(text, start, end);
+            return;
+        }
+
+        CharSequence range = text.subSequence(start, end);
+        coverage.forEachRun(range, (runStart, runEnd, isEncodable) -> {
+            if (isEncodable) {
+                content.showText(range, runStart, runEnd);
+            } else if (fallbackFont != null) {
+                CharSequence fallbackText = encodableText(range.subSequence(runStart, runEnd), fallbackFont);
+                if (fallbackText.length() > 0) {
+                    content.setFont(fallbackFont, fontSize);
+                    content.showText(fallbackText, 0, fallbackText.length());
+                    content.setFont(font, fontSize);
+                }
+            }
+        });
+    }
+
+    /**
+     * Concatenates the runs of the text the font can encode, dropping the rest.
+     *
+     * @param text The text to segment
+     * @param font The font the text will be shown in
+     * @return The text without the characters the font cannot encode
+     * @throws IOException never thrown by the segmentation itself
+     */
+    private CharSequence encodableText(CharSequence text, PDFont font) throws IOException {
+        FontCoverage coverage = coverages.get(font);
+        if (coverage.canEncode(text)) {
+            return text;
+        }
+
+        StringBuilder encodable = new StringBuilder(text.length());
+        coverage.forEachRun(text, (start, end, isEncodable) -> {
+            if (isEncodable) {
+                encodable.append(text, start, end);
+            }
+        });
+        return encodable;
+    }
+
+    private GlyphWidths widths(PDFont font) {
+        return widths.computeIfAbsent(font, GlyphWidths::new);
+    }
+}
@@ -0,0 +1,119 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * PdfImageCache embeds each distinct image file into a PDF document exactly once.
+ *
+ * <p>Images are keyed by their canonical path, so {@code diagram.png}, {@code ./diagram.png}
+ * and an absolute path to the same file all resolve to a single {@link PDImageXObject}.
+ * Every further occurrence draws the already-embedded XObject by reference instead of
+ * decoding and embedding the file again.</p>
+ *
+ * <p>Images embedded in the Markdown as {@code data:} URIs have no path; they are keyed by the
+ * SHA-256 hash of their decoded bytes instead, so a screenshot pasted several times is
+ * embedded once as well.</p>
+ *
+ * <p>Images in a format PDFBox cannot embed, such as WebP, are recognized from their
+ * {@link ImageHeader} and rejected before the file is read.</p>
+ *
+ * <p>The encoded file contents come from an {@link ImageDataCache}, which survives across
+ * documents. An instance of this class belongs to a single {@link PDDocument} and is not
+ * thread-safe.</p>
+ */
+class PdfImageCache {
+
+    private final PDDocument document;
+    private final ImageDataCache dataCache;
+    private final Map<Path, PDImageXObject> images = new HashMap<>();
+    // Images from data URIs, by the hex SHA-256 hash of their decoded bytes
+    private final Map<String, PDImageXObject> dataImages = new HashMap<>();
+
+    /**
+     * Creates an image cache for one PDF document.
+     *
+     * @param document The document the images are embedded into
+     * @param dataCache The cross-document cache of encoded image bytes
+     */
+    PdfImageCache(PDDocument document, ImageDataCache dataCache) {
+        this.document = document;
+        this.dataCache = dataCache;
+    }
+
+    /**
+     * Returns the image XObject for a file path, embedding the file on first use.
+     *
+     * @param imagePath The image path as written in the Markdown source
+     * @return The embedded image, shared by all references to the same file
+     * @throws IOException if the file does not exist or is not a supported image
+     */
+    PDImageXObject get(String imagePath) throws IOException {
+        Path canonicalPath = Paths.get(imagePath).toRealPath();
+
+        PDImageXObject image = images.get(canonicalPath);
+        if (image == null) {
+            // Only the header is read to turn away formats PDFBox cannot embed
+            ImageHeader header = ImageHeader.probe(canonicalPath);
+            requireEmbeddable(header, imagePath);
+            byte[] data = dataCache.load(canonicalPath);
+            image = PDImageXObject.createFromByteArray(document, data, canonicalPath.toString());
+            images.put(canonicalPath, image);
+        }
+        return image;
+    }
+
+    /**
+     * Returns the image XObject for an image embedded as a data URI, embedding it on first use.
+     *
+     * @param dataUri The data URI
+     * @return The embedded image, shared by all data URIs with the same decoded bytes
+     * @throws IOException if the data cannot be decoded or is not a supported image
+     */
+    PDImageXObject get(DataUri dataUri) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] data;
+        try (InputStream in = new DigestInputStream(dataUri.openStream(), digest)) {
+            data = in.readAllBytes();
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+
+        PDImageXObject image = dataImages.get(hash);
+        if (image == null) {
+            requireEmbeddable(ImageHeader.read(new ByteArrayInputStream(data)), dataUri.fileName());
+            image = PDImageXObject.createFromByteArray(document, data, dataUri.fileName());
+            dataImages.put(hash, image);
+        }
+        return image;
+    }
+
+    private static void requireEmbeddable(ImageHeader header, String name) throws IOException {
+        if (header != null && header.format() == ImageHeader.Format.WEBP) {
+            throw new IOException("Unsupported image format " + header.format() + ": " + name);
+        }
+    }
+
+    /**
+     * @return Number of distinct images embedded in the document so far
+     */
+    int size() {
+        return images.size() + dataImages.size();
+    }
+}
@@ -0,0 +1,664 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * PdfLinearizer rewrites a saved PDF as a linearized PDF, also called "fast web view", as
+ * described in Annex F of the PDF specification.
+ *
+ * <p>A linearized file starts with everything a viewer needs to display the first page: the
+ * linearization dictionary, a cross-reference section for the first page, the catalog, the
+ * hint tables and the objects the first page uses. A viewer that reads the file through HTTP
+ * range requests can show page 1 after fetching that prefix and use the hint tables to fetch
+ * any other page directly. The remaining pages follow in order, each with the objects only it
+ * uses, then the objects shared between later pages and finally everything else.</p>
+ *
+ * <p>The input is read back from a saved file, so every indirect object is known by its
+ * object key. It must use a plain cross-reference table without object streams, and the
+ * output is written the same way: object streams cannot be referenced from the first-page
+ * cross-reference table.</p>
+ */
+final class PdfLinearizer {
+
+    // Width of the numbers that are only known once the whole layout is fixed
+    private static final int PADDED_WIDTH = 10;
+
+    private static final byte[] HEADER_MARKER = {'%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n'};
+
+    private final PDDocument document;
+    private final COSObject catalog;
+    private final List<COSObject> pages = new ArrayList<>();
+    private final Set<COSObjectKey> pageTreeNodes = new HashSet<>();
+
+    // Object numbers in the linearized file
+    private final Map<COSObjectKey, Integer> numbers = new HashMap<>();
+
+    private PdfLinearizer(PDDocument document) {
+        this.document = document;
+        this.catalog = (COSObject) document.getDocument().getTrailer().getItem(COSName.ROOT);
+    }
+
+    /**
+     * Reads a saved PDF and writes it linearized to another file.
+     *
+     * @param input The PDF to rewrite; it must use a cross-reference table without object streams
+     * @param output The file to write
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
+    static void linearize(Path input, Path output) throws IOException {
+        try (PDDocument document = Loader.loadPDF(input.toFile())) {
+            new PdfLinearizer(document).write(output);
+        }
+    }
+
+    private void write(Path output) throws IOException {
+        collectPages();
+
+        // Part 6: the first page and every object it uses, shared with later pages or not
+        // Part 7: each later page followed by the objects only it uses
+        // Part 8: objects shared by later pages; part 9: everything else
+        Map<COSObjectKey, Integer> owners = new HashMap<>();
+        Set<COSObjectKey> shared = new HashSet<>();
+        List<List<COSObject>> pageObjects = new ArrayList<>();
+        for (int page = 0; page < pages.size(); page++) {
+            List<COSObject> reachable = reachableFromPage(pages.get(page));
+            for (COSObject object : reachable) {
+                Integer owner = owners.putIfAbsent(object.getKey(), page);
+                if (owner != null && owner != page) {
+                    shared.add(object.getKey());
+                }
+            }
+            pageObjects.add(reachable);
+        }
+
+        List<COSObject> firstPage = pageObjects.get(0);
+        Set<COSObjectKey> placed = new HashSet<>();
+        placed.add(catalog.getKey());
+        for (COSObject object : firstPage) {
+            placed.add(object.getKey());
+        }
+
+        List<COSObject> main = new ArrayList<>();
+        int[] pageObjectCounts = new int[pages.size()];
+        pageObjectCounts[0] = firstPage.size();
+        for (int page = 1; page < pages.size(); page++) {
+            for (COSObject object : pageObjects.get(page)) {
+                if (!shared.contains(object.getKey()) && placed.add(object.getKey())) {
+                    main.add(object);
+                    pageObjectCounts[page]++;
+                }
+            }
+        }
+        int sharedStart = main.size();
+        for (int page = 1; page < pages.size(); page++) {
+            for (COSObject object : pageObjects.get(page)) {
+                if (placed.add(object.getKey())) {
+                    main.add(object);
+                }
+            }
+        }
+        int sharedEnd = main.size();
+        for (COSObject object : reachableFromTrailer()) {
+            if (placed.add(object.getKey())) {
+                main.add(object);
+            }
+        }
+
+        // Main cross-reference section: objects 1..m-1 in file order
+        // First-page section: linearization dictionary m, catalog m+1, hints m+2, first page m+3..
+        int mainSize = main.size() + 1;
+        for (int i = 0; i < main.size(); i++) {
+            numbers.put(main.get(i).getKey(), i + 1);
+        }
+        numbers.put(catalog.getKey(), mainSize + 1);
+        for (int i = 0; i < firstPage.size(); i++) {
+            numbers.put(firstPage.get(i).getKey(), mainSize + 3 + i);
+        }
+        int size = mainSize + 3 + firstPage.size();
+
+        SerializedObject catalogObject = serialize(catalog);
+        List<SerializedObject> firstPageObjects = new ArrayList<>();
+        for (COSObject object : firstPage) {
+            firstPageObjects.add(serialize(object));
+        }
+        List<SerializedObject> mainObjects = new ArrayList<>();
+        for (COSObject object : main) {
+            mainObjects.add(serialize(object));
+        }
+
+        // Fixed-size prefix: header, linearization dictionary and first-page cross-reference
+        byte[] header = ("%PDF-" + String.format(Locale.ROOT, "%.1f", document.getDocument().getVersion()) + "\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        int linearizationLength = linearizationDictionary(mainSize, 0, 0, 0, 0, 0).length;
+        int firstXrefLength = firstPageXref(mainSize, size, new long[size - mainSize], 0).length;
+        long prefixLength = header.length + HEADER_MARKER.length + linearizationLength;
+
+        // Hint table offsets are given as if the hint stream were absent
+        long offset = prefixLength + firstXrefLength + catalogObject.length();
+        long firstPageOffset = offset;
+        long[] firstPageLengths = new long[firstPageObjects.size()];
+        for (int i = 0; i < firstPageObjects.size(); i++) {
+            firstPageLengths[i] = firstPageObjects.get(i).length();
+            offset += firstPageLengths[i];
+        }
+        long[] mainOffsets = new long[mainObjects.size()];
+        for (int i = 0; i < mainObjects.size(); i++) {
+            mainOffsets[i] = offset;
+            offset += mainObjects.get(i).length();
+        }
+
+        SerializedObject hintStream = hintStream(mainSize + 2, pageObjects, pageObjectCounts, shared,
+                firstPageOffset, firstPageLengths, mainObjects, mainOffsets, sharedStart, sharedEnd);
+        long hintOffset = firstPageOffset;
+        long hintLength = hintStream.length();
+
+        // Actual offsets: everything from the first page on follows the hint stream
+        long[] firstSectionOffsets = new long[size - mainSize];
+        firstSectionOffsets[0] = header.length + HEADER_MARKER.length;
+        firstSectionOffsets[1] = prefixLength + firstXrefLength;
+        firstSectionOffsets[2] = hintOffset;
+        long endOfFirstPage = firstPageOffset + hintLength;
+        for (int i = 0; i < firstPageLengths.length; i++) {
+            firstSectionOffsets[3 + i] = endOfFirstPage;
+            endOfFirstPage += firstPageLengths[i];
+        }
+        long mainXrefOffset = offset + hintLength;
+        byte[] mainXref = mainXref(mainSize, mainOffsets, hintLength, firstSectionOffsets[0] + linearizationLength);
+        long firstEntryOffset = mainXrefOffset + ("xref\n0 " + mainSize).length();
+        long fileLength = mainXrefOffset + mainXref.length;
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            out.write(header);
+            out.write(HEADER_MARKER);
+            out.write(linearizationDictionary(mainSize, fileLength, hintOffset, hintLength, endOfFirstPage,
+                    firstEntryOffset));
+            out.write(firstPageXref(mainSize, size, firstSectionOffsets, mainXrefOffset));
+            catalogObject.writeTo(out);
+            hintStream.writeTo(out);
+            for (SerializedObject object : firstPageObjects) {
+                object.writeTo(out);
+            }
+            for (SerializedObject object : mainObjects) {
+                object.writeTo(out);
+            }
+            out.write(mainXref);
+        }
+    }
+
+    /**
+     * Collects the page objects in page order and the keys of all page tree nodes.
+     */
+    private void collectPages() {
+        COSDictionary root = (COSDictionary) catalog.getObject();
+        Deque<COSBase> pending = new ArrayDeque<>();
+        pending.push(root.getItem(COSName.PAGES));
+        while (!pending.isEmpty()) {
+            COSBase item = pending.pop();
+            if (!(item instanceof COSObject node) || !(node.getObject() instanceof COSDictionary dictionary)
+                    || !pageTreeNodes.add(node.getKey())) {
+                continue;
+            }
+            if (COSName.PAGE.equals(dictionary.getCOSName(COSName.TYPE))) {
+                pages.add(node);
+            } else if (dictionary.getItem(COSName.KIDS) instanceof COSArray kids) {
+                for (int i = kids.size() - 1; i >= 0; i--) {
+                    pending.push(kids.get(i));
+                }
+            }
+        }
+        if (pages.isEmpty()) {
+            throw new IllegalArgumentException("Cannot linearize a PDF without pages");
+        }
+    }
+
+    /**
+     * Collects a page object and the objects it uses, page object first, without following
+     * references to the page tree or to other pages.
+     */
+    private List<COSObject> reachableFromPage(COSObject page) {
+        List<COSObject> reachable = new ArrayList<>();
+        Set<COSObjectKey> visited = new HashSet<>();
+        visited.add(page.getKey());
+        reachable.add(page);
+        for (int i = 0; i < reachable.size(); i++) {
+            for (COSObject reference : references(reachable.get(i).getObject(), true)) {
+                if (!pageTreeNodes.contains(reference.getKey()) && !catalog.getKey().equals(reference.getKey())
+                        && visited.add(reference.getKey())) {
+                    reachable.add(reference);
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Collects every object reachable from the catalog and the document information.
+     */
+    private List<COSObject> reachableFromTrailer() {
+        List<COSObject> reachable = new ArrayList<>();
+        Set<COSObjectKey> visited = new HashSet<>();
+        visited.add(catalog.getKey());
+        reachable.add(catalog);
+        if (document.getDocument().getTrailer().getItem(COSName.INFO) instanceof COSObject info
+                && visited.add(info.getKey())) {
+            reachable.add(info);
+        }
+        for (int i = 0; i < reachable.size(); i++) {
+            for (COSObject reference : references(reachable.get(i).getObject(), false)) {
+                if (visited.add(reference.getKey())) {
+                    reachable.add(reference);
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Collects the indirect references inside an object, looking into its direct dictionaries
+     * and arrays. Stream lengths are written directly, so they are not followed.
+     */
+    private static Set<COSObject> references(COSBase object, boolean skipParent) {
+        Set<COSObject> references = new LinkedHashSet<>();
+        Deque<COSBase> pending = new ArrayDeque<>();
+        pending.push(object);
+        while (!pending.isEmpty()) {
+            COSBase value = pending.pop();
+            if (value instanceof COSObject reference) {
+                if (reference.getKey() != null && reference.getObject() != null) {
+                    references.add(reference);
+                }
+            } else if (value instanceof COSDictionary dictionary) {
+                List<COSBase> values = new ArrayList<>();
+                for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+                    boolean skipped = (skipParent && COSName.PARENT.equals(entry.getKey()))
+                            || (dictionary instanceof COSStream && COSName.LENGTH.equals(entry.getKey()));
+                    if (!skipped && entry.getValue() != null) {
+                        values.add(entry.getValue());
+                    }
+                }
+                for (int i = values.size() - 1; i >= 0; i--) {
+                    pending.push(values.get(i));
+                }
+            } else if (value instanceof COSArray array) {
+                for (int i = array.size() - 1; i >= 0; i--) {
+                    pending.push(array.get(i));
+                }
+            }
+        }
+        return references;
+    }
+
+    private SerializedObject serialize(COSObject object) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        writeAscii(head, numbers.get(object.getKey()) + " 0 obj\n");
+        COSBase value = object.getObject();
+        if (value instanceof COSStream stream) {
+            long length = stream.getLength();
+            writeDictionary(stream, head, length);
+            writeAscii(head, "\nstream\n");
+            return new SerializedObject(head.toByteArray(), stream, length);
+        }
+        writeValue(value, head);
+        writeAscii(head, "\nendobj\n");
+        return new SerializedObject(head.toByteArray(), null, 0);
+    }
+
+    private void writeValue(COSBase value, OutputStream out) throws IOException {
+        if (value instanceof COSObject reference) {
+            Integer number = numbers.get(reference.getKey());
+            writeAscii(out, number != null ? number + " 0 R" : "null");
+        } else if (value instanceof COSStream) {
+            // Streams are always indirect; a direct one cannot be written
+            writeAscii(out, "null");
+        } else if (value instanceof COSDictionary dictionary) {
+            writeDictionary(dictionary, out, -1);
+        } else if (value instanceof COSArray array) {
+            out.write('[');
+            for (int i = 0; i < array.size(); i++) {
+                if (i > 0) {
+                    out.write(' ');
+                }
+                writeValue(array.get(i), out);
+            }
+            out.write(']');
+        } else if (value instanceof COSString string) {
+            COSWriter.writeString(string, out);
+        } else if (value instanceof COSName name) {
+            name.writePDF(out);
+        } else if (value instanceof COSInteger integer) {
+            integer.writePDF(out);
+        } else if (value instanceof COSFloat number) {
+            number.writePDF(out);
+        } else if (value instanceof COSBoolean bool) {
+            bool.writePDF(out);
+        } else {
+            COSNull.NULL.writePDF(out);
+        }
+    }
+
+    /**
+     * Writes a dictionary. A stream dictionary gets its raw length; other dictionaries pass -1.
+     */
+    private void writeDictionary(COSDictionary dictionary, OutputStream out, long streamLength) throws IOException {
+        writeAscii(out, "<<");
+        for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+            if (entry.getValue() == null || (streamLength >= 0 && COSName.LENGTH.equals(entry.getKey()))) {
+                continue;
+            }
+            entry.getKey().writePDF(out);
+            out.write(' ');
+            writeValue(entry.getValue(), out);
+        }
+        if (streamLength >= 0) {
+            writeAscii(out, "/Length " + streamLength);
+        }
+        writeAscii(out, ">>");
+    }
+
+    /**
+     * Builds the primary hint stream: the page offset hint table followed by the shared
+     * object hint table. Shared object identifiers 0..k-1 are the objects of the first page,
+     * the following ones the shared objects of later pages, one object per group.
+     */
+    private SerializedObject hintStream(int number, List<List<COSObject>> pageObjects, int[] pageObjectCounts,
+                                        Set<COSObjectKey> shared, long firstPageOffset, long[] firstPageLengths,
+                                        List<SerializedObject> mainObjects, long[] mainOffsets,
+                                        int sharedStart, int sharedEnd) throws IOException {
+        int pageCount = pages.size();
+        Map<COSObjectKey, Integer> sharedIdentifiers = new HashMap<>();
+        List<COSObject> firstPage = pageObjects.get(0);
+        for (int i = 0; i < firstPage.size(); i++) {
+            sharedIdentifiers.put(firstPage.get(i).getKey(), i);
+        }
+        long[] groupLengths = new long[firstPage.size() + sharedEnd - sharedStart];
+        System.arraycopy(firstPageLengths, 0, groupLengths, 0, firstPage.size());
+        for (int i = sharedStart; i < sharedEnd; i++) {
+            groupLengths[firstPage.size() + i - sharedStart] = mainObjects.get(i).length();
+        }
+        for (int page = 1, index = 0; page < pageCount; page++) {
+            for (COSObject object : pageObjects.get(page)) {
+                if (shared.contains(object.getKey()) && !sharedIdentifiers.containsKey(object.getKey())) {
+                    sharedIdentifiers.put(object.getKey(), firstPage.size() + index++);
+                }
+            }
+        }
+
+        // Page lengths follow from the file order: part 6, then each page of part 7 in turn
+        long[] pageLengths = new long[pageCount];
+        for (long length : firstPageLengths) {
+            pageLengths[0] += length;
+        }
+        int mainIndex = 0;
+        for (int page = 1; page < pageCount; page++) {
+            for (int i = 0; i < pageObjectCounts[page]; i++) {
+                pageLengths[page] += mainObjects.get(mainIndex++).length();
+            }
+        }
+        List<List<Integer>> pageShared = new ArrayList<>();
+        pageShared.add(List.of());
+        int maxShared = 0;
+        int maxIdentifier = 0;
+        for (int page = 1; page < pageCount; page++) {
+            List<Integer> identifiers = new ArrayList<>();
+            for (COSObject object : pageObjects.get(page)) {
+                Integer identifier = sharedIdentifiers.get(object.getKey());
+                if (identifier != null) {
+                    identifiers.add(identifier);
+                    maxIdentifier = Math.max(maxIdentifier, identifier);
+                }
+            }
+            maxShared = Math.max(maxShared, identifiers.size());
+            pageShared.add(identifiers);
+        }
+
+        int minObjects = Integer.MAX_VALUE;
+        int maxObjects = 0;
+        long minLength = Long.MAX_VALUE;
+        long maxLength = 0;
+        for (int page = 0; page < pageCount; page++) {
+            minObjects = Math.min(minObjects, pageObjectCounts[page]);
+            maxObjects = Math.max(maxObjects, pageObjectCounts[page]);
+            minLength = Math.min(minLength, pageLengths[page]);
+            maxLength = Math.max(maxLength, pageLengths[page]);
+        }
+        int objectBits = bitsFor(maxObjects - minObjects);
+        int lengthBits = bitsFor(maxLength - minLength);
+        int sharedCountBits = bitsFor(maxShared);
+        int identifierBits = bitsFor(maxIdentifier);
+
+        // Page offset hint table; content stream offsets and lengths are given per page, as Acrobat does
+        BitWriter hints = new BitWriter();
+        hints.write(minObjects, 32);
+        hints.write(firstPageOffset, 32);
+        hints.write(objectBits, 16);
+        hints.write(minLength, 32);
+        hints.write(lengthBits, 16);
+        hints.write(0, 32);
+        hints.write(0, 16);
+        hints.write(minLength, 32);
+        hints.write(lengthBits, 16);
+        hints.write(sharedCountBits, 16);
+        hints.write(identifierBits, 16);
+        hints.write(0, 16);
+        hints.write(1, 16);
+        for (int page = 0; page < pageCount; page++) {
+            hints.write(pageObjectCounts[page] - minObjects, objectBits);
+        }
+        hints.flush();
+        for (int page = 0; page < pageCount; page++) {
+            hints.write(pageLengths[page] - minLength, lengthBits);
+        }
+        hints.flush();
+        for (int page = 0; page < pageCount; page++) {
+            hints.write(pageShared.get(page).size(), sharedCountBits);
+        }
+        hints.flush();
+        for (int page = 0; page < pageCount; page++) {
+            for (int identifier : pageShared.get(page)) {
+                hints.write(identifier, identifierBits);
+            }
+        }
+        hints.flush();
+        // Numerators and content stream offsets take 0 bits; content stream lengths are page lengths
+        for (int page = 0; page < pageCount; page++) {
+            hints.write(pageLengths[page] - minLength, lengthBits);
+        }
+        hints.flush();
+
+        // Shared object hint table
+        int sharedTableOffset = hints.size();
+        long minGroup = Long.MAX_VALUE;
+        long maxGroup = 0;
+        for (long length : groupLengths) {
+            minGroup = Math.min(minGroup, length);
+            maxGroup = Math.max(maxGroup, length);
+        }
+        int groupBits = bitsFor(maxGroup - minGroup);
+        boolean hasShared = sharedEnd > sharedStart;
+        hints.write(hasShared ? sharedStart + 1 : 0, 32);
+        hints.write(hasShared ? mainOffsets[sharedStart] : 0, 32);
+        hints.write(firstPage.size(), 32);
+        hints.write(groupLengths.length, 32);
+        hints.write(0, 16);
+        hints.write(minGroup, 32);
+        hints.write(groupBits, 16);
+        for (long length : groupLengths) {
+            hints.write(length - minGroup, groupBits);
+        }
+        hints.flush();
+        for (int i = 0; i < groupLengths.length; i++) {
+            hints.write(0, 1);
+        }
+        hints.flush();
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (OutputStream deflater = new DeflaterOutputStream(data)) {
+            hints.writeTo(deflater);
+        }
+        byte[] compressed = data.toByteArray();
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        writeAscii(head, number + " 0 obj\n<</Filter /FlateDecode /S " + sharedTableOffset
+                + " /Length " + compressed.length + ">>\nstream\n");
+        head.write(compressed);
+        writeAscii(head, "\nendstream\nendobj\n");
+        return new SerializedObject(head.toByteArray(), null, 0);
+    }
+
+    /**
+     * Writes the linearization dictionary, object number m. The first page object is m+3.
+     */
+    private byte[] linearizationDictionary(int number, long fileLength, long hintOffset, long hintLength,
+                                           long endOfFirstPage, long firstEntryOffset) {
+        return (number + " 0 obj\n<</Linearized 1 /L " + padded(fileLength)
+                + " /H [" + padded(hintOffset) + " " + padded(hintLength) + "]"
+                + " /O " + (number + 3) + " /E " + padded(endOfFirstPage)
+                + " /N " + pages.size() + " /T " + padded(firstEntryOffset) + ">>\nendobj\n")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private byte[] firstPageXref(int mainSize, int size, long[] offsets, long mainXrefOffset) {
+        StringBuilder xref = new StringBuilder("xref\n").append(mainSize).append(' ').append(size - mainSize).append('\n');
+        for (long offset : offsets) {
+            xref.append(xrefEntry(offset));
+        }
+        xref.append("trailer\n<</Size ").append(size).append(" /Root ").append(mainSize + 1).append(" 0 R");
+        appendTrailerEntries(xref);
+        xref.append(" /Prev ").append(padded(mainXrefOffset)).append(">>\nstartxref\n0\n%%EOF\n");
+        return xref.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] mainXref(int mainSize, long[] offsets, long hintLength, long firstXrefOffset) {
+        StringBuilder xref = new StringBuilder("xref\n0 ").append(mainSize).append("\n0000000000 65535 f\r\n");
+        for (long offset : offsets) {
+            xref.append(xrefEntry(offset + hintLength));
+        }
+        xref.append("trailer\n<</Size ").append(mainSize).append(">>\nstartxref\n")
+                .append(firstXrefOffset).append("\n%%EOF\n");
+        return xref.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void appendTrailerEntries(StringBuilder trailer) {
+        COSDictionary source = document.getDocument().getTrailer();
+        if (source.getItem(COSName.INFO) instanceof COSObject info && numbers.containsKey(info.getKey())) {
+            trailer.append(" /Info ").append(numbers.get(info.getKey())).append(" 0 R");
+        }
+        if (source.getItem(COSName.ID) instanceof COSArray id) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                writeValue(id, out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            trailer.append(" /ID ").append(out.toString(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private static String xrefEntry(long offset) {
+        return String.format(Locale.ROOT, "%010d 00000 n\r\n", offset);
+    }
+
+    private static String padded(long value) {
+        return String.format(Locale.ROOT, "%" + PADDED_WIDTH + "d", value);
+    }
+
+    private static int bitsFor(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    private static void writeAscii(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * An object ready to be written: its serialized head and, for streams, the raw stream
+     * data copied from the input when the object is written.
+     */
+    private record SerializedObject(byte[] head, COSStream stream, long streamLength) {
+
+        private static final byte[] STREAM_END = "\nendstream\nendobj\n".getBytes(StandardCharsets.US_ASCII);
+
+        long length() {
+            return head.length + (stream != null ? streamLength + STREAM_END.length : 0);
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(head);
+            if (stream != null) {
+                try (InputStream data = stream.createRawInputStream()) {
+                    data.transferTo(out);
+                }
+                out.write(STREAM_END);
+            }
+        }
+    }
+
+    /**
+     * Packs unsigned values of arbitrary bit widths, most significant bit first.
+     */
+    private static final class BitWriter {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int buffer;
+        private int bufferBits;
+
+        void write(long value, int bits) {
+            for (int bit = bits - 1; bit >= 0; bit--) {
+                buffer = (buffer << 1) | (int) ((value >>> bit) & 1);
+                if (++bufferBits == 8) {
+                    bytes.write(buffer);
+                    buffer = 0;
+                    bufferBits = 0;
+                }
+            }
+        }
+
+        /** Pads the last byte with zero bits. */
+        void flush() {
+            if (bufferBits > 0) {
+                write(0, 8 - bufferBits);
+            }
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+}
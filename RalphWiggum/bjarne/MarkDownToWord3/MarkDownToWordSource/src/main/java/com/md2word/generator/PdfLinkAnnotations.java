@@ -0,0 +1,135 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PdfLinkAnnotations collects the clickable link areas of a PDF page while it is laid out
+ * and attaches them to the page as link annotations in one batch.
+ *
+ * <p>An area that continues the previous area of the same URL on the same line, as
+ * {@code [a](u)[b](u)} does, extends that area instead of adding a second annotation. All
+ * annotations of the document that open the same URL share one URI action, which is saved
+ * once. Annotations are appended to the page's annotation array directly, without building
+ * the page's annotation list for every link. Draft documents do without links: their areas
+ * are dropped when collection is {@link #setEnabled disabled}.</p>
+ *
+ * <p>An instance belongs to a single {@link org.apache.pdfbox.pdmodel.PDDocument} and is not
+ * thread-safe.</p>
+ */
+final class PdfLinkAnnotations {
+
+    // Areas closer than this are treated as touching
+    private static final float TOLERANCE = 0.01f;
+
+    private final Map<String, PDActionURI> actions = new HashMap<>();
+    private final List<Area> areas = new ArrayList<>();
+    private PDPage page;
+    private boolean enabled = true;
+
+    /**
+     * @param page The page areas are collected for until {@link #attachAndMoveTo} is called
+     */
+    PdfLinkAnnotations(PDPage page) {
+        this.page = page;
+    }
+
+    /**
+     * Sets whether areas are collected. While disabled, added areas are dropped.
+     *
+     * @param enabled Whether to collect areas
+     */
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Adds a clickable area to the current page, unless collection is disabled.
+     *
+     * @param url The URL the area opens
+     * @param x The left edge of the area
+     * @param y The bottom edge of the area
+     * @param width The width of the area
+     * @param height The height of the area
+     */
+    void add(String url, float x, float y, float width, float height) {
+        if (!enabled) {
+            return;
+        }
+        if (!areas.isEmpty()) {
+            Area last = areas.get(areas.size() - 1);
+            if (last.url.equals(url) && last.y == y && last.height == height
+                    && Math.abs(last.x + last.width - x) <= TOLERANCE) {
+                last.width = x + width - last.x;
+                return;
+            }
+        }
+        areas.add(new Area(url, x, y, width, height));
+    }
+
+    /**
+     * Attaches the pending areas to the current page as link annotations, after the
+     * annotations it already has. Later areas are not merged with the attached ones.
+     */
+    void attach() {
+        if (areas.isEmpty()) {
+            return;
+        }
+        COSArray annotations = page.getCOSObject().getCOSArray(COSName.ANNOTS);
+        if (annotations == null) {
+            annotations = new COSArray();
+            page.getCOSObject().setItem(COSName.ANNOTS, annotations);
+        }
+        for (Area area : areas) {
+            PDAnnotationLink annotation = new PDAnnotationLink();
+            annotation.setRectangle(new PDRectangle(area.x, area.y, area.width, area.height));
+            annotation.setAction(actions.computeIfAbsent(area.url, PdfLinkAnnotations::action));
+            annotations.add(annotation);
+        }
+        areas.clear();
+    }
+
+    /**
+     * Attaches the pending areas to the current page and collects areas for another page from now on.
+     *
+     * @param next The page to collect areas for
+     */
+    void attachAndMoveTo(PDPage next) {
+        attach();
+        page = next;
+    }
+
+    private static PDActionURI action(String url) {
+        PDActionURI action = new PDActionURI();
+        action.setURI(url);
+        return action;
+    }
+
+    /**
+     * A link area that is not attached yet.
+     */
+    private static final class Area {
+        private final String url;
+        private final float x;
+        private final float y;
+        private float width;
+        private final float height;
+
+        private Area(String url, float x, float y, float width, float height) {
+            this.url = url;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+}
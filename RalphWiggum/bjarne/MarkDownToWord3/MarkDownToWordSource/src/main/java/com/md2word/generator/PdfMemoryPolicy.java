@@ -0,0 +1,117 @@
+package com.md2word.generator;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * PdfMemoryPolicy decides where {@link PDFGenerator} keeps the streams of a PDF while it is
+ * generated: page contents, images and fonts.
+ *
+ * <p>By default everything stays on the heap. With a heap budget, stream data is kept on the
+ * heap until the budget is used up and continues in a scratch file, so large image-heavy
+ * documents need a bounded amount of heap. The scratch file is created in a directory of its
+ * own per document and deleted when the document is closed. Instances are immutable.</p>
+ */
+public final class PdfMemoryPolicy {
+
+    private static final PdfMemoryPolicy HEAP_ONLY = new PdfMemoryPolicy(-1, null);
+
+    // Heap bytes for stream data before the scratch file is used; -1 for no limit
+    private final long heapBudget;
+    private final Path scratchDirectory;
+
+    private PdfMemoryPolicy(long heapBudget, Path scratchDirectory) {
+        this.heapBudget = heapBudget;
+        this.scratchDirectory = scratchDirectory;
+    }
+
+    /**
+     * @return A policy that keeps all stream data on the heap
+     */
+    public static PdfMemoryPolicy heapOnly() {
+        return HEAP_ONLY;
+    }
+
+    /**
+     * Creates a policy that keeps up to the given number of bytes of stream data on the heap
+     * and the rest in a scratch file.
+     *
+     * @param bytes The heap budget in bytes; 0 writes all stream data to the scratch file
+     * @return The policy
+     * @throws IllegalArgumentException if bytes is negative
+     */
+    public static PdfMemoryPolicy heapBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Heap budget cannot be negative: " + bytes);
+        }
+        return new PdfMemoryPolicy(bytes, null);
+    }
+
+    /**
+     * Returns a copy of this policy that creates scratch files below the given directory
+     * instead of {@code java.io.tmpdir}.
+     *
+     * @param directory The directory for scratch files, or null for {@code java.io.tmpdir}
+     * @return The policy
+     */
+    public PdfMemoryPolicy withScratchDirectory(Path directory) {
+        return new PdfMemoryPolicy(heapBudget, directory);
+    }
+
+    /**
+     * @return Whether stream data may be written to a scratch file
+     */
+    public boolean usesScratchFile() {
+        return heapBudget >= 0;
+    }
+
+    /**
+     * @return The heap budget in bytes, or -1 if stream data always stays on the heap
+     */
+    public long getHeapBudget() {
+        return heapBudget;
+    }
+
+    /**
+     * @return The directory below which scratch files are created, or null for {@code java.io.tmpdir}
+     */
+    public Path getScratchDirectory() {
+        return scratchDirectory;
+    }
+
+    /**
+     * Parses a byte size such as {@code 67108864}, {@code 512k}, {@code 64m} or {@code 1g}.
+     *
+     * @param size The size with an optional binary unit suffix
+     * @return The size in bytes
+     * @throws IllegalArgumentException if the size is not a non-negative number with a known suffix
+     */
+    static long parseSize(String size) {
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        int shift = 0;
+        if (value.endsWith("k")) {
+            shift = 10;
+        } else if (value.endsWith("m")) {
+            shift = 20;
+        } else if (value.endsWith("g")) {
+            shift = 30;
+        }
+        if (shift > 0) {
+            value = value.substring(0, value.length() - 1).trim();
+        }
+        try {
+            long number = Long.parseLong(value);
+            if (number < 0 || number > (Long.MAX_VALUE >> shift)) {
+                throw new IllegalArgumentException("Invalid size: " + size);
+            }
+            return number << shift;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size: " + size, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return usesScratchFile() ? "heapBudget(" + heapBudget + ")" : "heapOnly";
+    }
+}
@@ -0,0 +1,17 @@
+package com.md2word.generator;
+
+/**
+ * Memory used while {@link PDFGenerator} generated one PDF document.
+ *
+ * <p>The peak heap is read from the JVM's heap memory pools. Their peaks are shared by the
+ * whole JVM and are reset when a document starts while no other reported document is in
+ * progress; with concurrent conversions the measurement therefore starts with the earliest of
+ * them and may cover heap used before this document started. It is the sum of the per-pool
+ * peaks and includes everything else the JVM did in that time, so it is an upper bound. The
+ * scratch file size is exact and belongs to this document alone.</p>
+ *
+ * @param peakHeapBytes Peak heap usage in bytes while the document was generated and saved
+ * @param scratchFileBytes Size of the document's scratch file in bytes, 0 if none was needed
+ */
+public record PdfMemoryReport(long peakHeapBytes, long scratchFileBytes) {
+}
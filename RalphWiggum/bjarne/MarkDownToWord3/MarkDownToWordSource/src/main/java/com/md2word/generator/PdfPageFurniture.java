@@ -0,0 +1,203 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+
+import java.io.IOException;
+
+/**
+ * PdfPageFurniture draws the elements that repeat across the pages of one PDF document:
+ * horizontal rules, the page header, the page footer and page numbers.
+ *
+ * <p>Repeated graphics are drawn once into a {@link PDFormXObject} and placed by reference, so
+ * each use costs a few bytes of content stream no matter how much the element draws. Headers
+ * and footers are added to every page by {@link #finish()}, once the page count is known. Each
+ * page gets a small overlay content stream that places the shared forms and writes the page
+ * number, the only part that differs between pages. The overlay is placed before the page's
+ * own content and wrapped in {@code q}/{@code Q}, so it starts from and leaves behind the
+ * default graphics state. An instance belongs to a single {@link PDDocument} and is not
+ * thread-safe.</p>
+ */
+class PdfPageFurniture {
+
+    private static final float FURNITURE_FONT_SIZE = 9; // Font size of header, footer and page numbers
+    private static final float FURNITURE_GRAY = 0.4f; // Text colour of header, footer and page numbers
+    private static final float RULE_GRAY = 0.6f; // Colour of horizontal rules and header/footer rules
+    private static final float RULE_WIDTH = 0.5f; // Line width of horizontal rules
+    private static final float HEADER_OFFSET = 20; // Header baseline above the top margin
+    private static final float FOOTER_OFFSET = 28; // Footer baseline below the bottom margin
+    private static final float FURNITURE_RULE_GAP = 6; // Distance between header/footer text and its rule
+
+    private final PDDocument document;
+    private final PdfFontSet fonts;
+    private final PDRectangle pageSize;
+    private final float margin;
+    private final String header;
+    private final String footer;
+    private final boolean pageNumbers;
+
+    private PDFormXObject horizontalRule;
+
+    /**
+     * Creates the page furniture of a document.
+     *
+     * @param document The document
+     * @param fonts The document's fonts
+     * @param pageSize The size of every page
+     * @param margin The page margin; headers and footers are drawn inside it
+     * @param header Text at the top of every page, or null for no header
+     * @param footer Text at the bottom left of every page, or null for no footer
+     * @param pageNumbers Whether to number the pages at the bottom right
+     */
+    PdfPageFurniture(PDDocument document, PdfFontSet fonts, PDRectangle pageSize, float margin,
+                     String header, String footer, boolean pageNumbers) {
+        this.document = document;
+        this.fonts = fonts;
+        this.pageSize = pageSize;
+        this.margin = margin;
+        this.header = header;
+        this.footer = footer;
+        this.pageNumbers = pageNumbers;
+    }
+
+    /**
+     * Returns the shared form of a horizontal rule across the text width. Its origin is the
+     * left end of the line.
+     *
+     * @return The horizontal rule form, created on first use
+     * @throws IOException if the form cannot be written
+     */
+    PDFormXObject horizontalRule() throws IOException {
+        if (horizontalRule == null) {
+            float width = pageSize.getWidth() - 2 * margin;
+            horizontalRule = newForm(new PDRectangle(0, -RULE_WIDTH, width, 2 * RULE_WIDTH));
+            try (PdfContentWriter content = formContent(horizontalRule)) {
+                drawRule(content, 0, 0, width);
+            }
+        }
+        return horizontalRule;
+    }
+
+    /**
+     * @return Whether {@link #finish} adds an overlay content stream in front of each page's content
+     */
+    boolean hasOverlay() {
+        return header != null || footer != null || pageNumbers;
+    }
+
+    /**
+     * Adds the header, footer and page numbers to every page. Must be called once, after the
+     * last page is complete and before the document is saved.
+     *
+     * @throws IOException if an overlay cannot be written
+     */
+    void finish() throws IOException {
+        finish(0);
+    }
+
+    /**
+     * Adds the header, footer and page numbers to the pages from the given one on, for a
+     * document whose earlier pages already have them. Must be called once, after the last
+     * page is complete and before the document is saved.
+     *
+     * @param firstPage The zero-based index of the first page to add them to
+     * @throws IOException if an overlay cannot be written
+     */
+    void finish(int firstPage) throws IOException {
+        if (!hasOverlay() || firstPage >= document.getNumberOfPages()) {
+            return;
+        }
+        PDFormXObject headerForm = header != null ? createHeaderForm() : null;
+        PDFormXObject footerForm = footer != null || pageNumbers ? createFooterForm() : null;
+
+        int pageCount = document.getNumberOfPages();
+        int pageNumber = 0;
+        PDFont font = fonts.regular();
+        for (PDPage page : document.getPages()) {
+            pageNumber++;
+            if (pageNumber <= firstPage) {
+                continue;
+            }
+            try (PdfContentWriter overlay = new PdfContentWriter(new PDPageContentStream(
+                    document, page, PDPageContentStream.AppendMode.PREPEND, false))) {
+                overlay.saveGraphicsState();
+                if (headerForm != null) {
+                    overlay.drawForm(headerForm, 0, 0);
+                }
+                if (footerForm != null) {
+                    overlay.drawForm(footerForm, 0, 0);
+                }
+                if (pageNumbers) {
+                    String text = "Page " + pageNumber + " of " + pageCount;
+                    float x = pageSize.getWidth() - margin - fonts.textWidth(text, font, FURNITURE_FONT_SIZE);
+                    overlay.setNonStrokingColor(FURNITURE_GRAY, FURNITURE_GRAY, FURNITURE_GRAY);
+                    drawText(overlay, text, font, x, margin - FOOTER_OFFSET);
+                }
+                overlay.restoreGraphicsState();
+            }
+        }
+    }
+
+    private PDFormXObject createHeaderForm() throws IOException {
+        PDFormXObject form = newForm(pageSize);
+        float baseline = pageSize.getHeight() - margin + HEADER_OFFSET;
+        try (PdfContentWriter content = formContent(form)) {
+            content.setNonStrokingColor(FURNITURE_GRAY, FURNITURE_GRAY, FURNITURE_GRAY);
+            drawText(content, header, fonts.select(false, true), margin, baseline);
+            drawRule(content, margin, baseline - FURNITURE_RULE_GAP, pageSize.getWidth() - 2 * margin);
+        }
+        return form;
+    }
+
+    private PDFormXObject createFooterForm() throws IOException {
+        PDFormXObject form = newForm(pageSize);
+        float baseline = margin - FOOTER_OFFSET;
+        try (PdfContentWriter content = formContent(form)) {
+            drawRule(content, margin, baseline + FURNITURE_FONT_SIZE + FURNITURE_RULE_GAP,
+                    pageSize.getWidth() - 2 * margin);
+            if (footer != null) {
+                content.setNonStrokingColor(FURNITURE_GRAY, FURNITURE_GRAY, FURNITURE_GRAY);
+                drawText(content, footer, fonts.regular(), margin, baseline);
+            }
+        }
+        return form;
+    }
+
+    private PDFormXObject newForm(PDRectangle boundingBox) {
+        PDFormXObject form = new PDFormXObject(document);
+        form.setBBox(boundingBox);
+        form.setResources(new PDResources());
+        return form;
+    }
+
+    /**
+     * Opens a writer for a form's content stream. PDFBox only writes forms through its
+     * appearance stream view, which wraps the same stream dictionary.
+     */
+    private PdfContentWriter formContent(PDFormXObject form) throws IOException {
+        return new PdfContentWriter(new PDPageContentStream(document, new PDAppearanceStream(form.getCOSObject())));
+    }
+
+    private void drawText(PdfContentWriter content, String text, PDFont font, float x, float baseline)
+            throws IOException {
+        content.beginText();
+        content.setFont(font, FURNITURE_FONT_SIZE);
+        content.newLineAtOffset(x, baseline);
+        fonts.showText(text, font, FURNITURE_FONT_SIZE, content);
+        content.endText();
+    }
+
+    private static void drawRule(PdfContentWriter content, float x, float y, float width) throws IOException {
+        content.setStrokingColor(RULE_GRAY, RULE_GRAY, RULE_GRAY);
+        content.setLineWidth(RULE_WIDTH);
+        content.moveTo(x, y);
+        content.lineTo(x + width, y);
+        content.stroke();
+    }
+}
@@ -0,0 +1,198 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * PdfPageManager owns the pages of a PDF document while it is generated.
+ *
+ * <p>There is always exactly one open page. All drawing goes through a single
+ * {@link PdfContentWriter} that is moved to the new page's content stream when a page break
+ * starts a page, so callers can keep the writer they were given. Content streams are created
+ * uncompressed; {@link PdfDocumentWriter} compresses them on save. Link areas are collected
+ * by a {@link PdfLinkAnnotations} that follows the open page and attaches them to each page
+ * when it is finished.</p>
+ *
+ * <p>A page's content can be split into several content streams ("segments") with
+ * {@link #startSegment()}, so that everything from a segment on can later be dropped and
+ * regenerated on a page of the saved document. An instance belongs to a single
+ * {@link PDDocument} and is not thread-safe.</p>
+ */
+class PdfPageManager implements Closeable {
+
+    private final PDDocument document;
+    private final PDRectangle pageSize;
+    private final float margin;
+    private final PdfContentWriter content;
+    private final PdfLinkAnnotations links;
+    private PDPage page;
+    private int pageIndex;
+    // Index of the open content stream among the page's segments
+    private int segment;
+
+    /**
+     * Adds the first page to the document and opens its content stream.
+     *
+     * @param document The document to add pages to
+     * @param pageSize The size of every page
+     * @param margin The margin on all four sides of a page
+     * @throws IOException if the content stream cannot be created
+     */
+    PdfPageManager(PDDocument document, PDRectangle pageSize, float margin) throws IOException {
+        this.document = document;
+        this.pageSize = pageSize;
+        this.margin = margin;
+        this.page = addPage();
+        this.pageIndex = document.getNumberOfPages() - 1;
+        this.content = new PdfContentWriter(openContentStream(page));
+        this.links = new PdfLinkAnnotations(page);
+    }
+
+    /**
+     * Continues on an existing page of the document, the last one. A new content stream is
+     * appended to the page; the graphics state its earlier streams leave behind carries over.
+     *
+     * @param document The document to add pages to
+     * @param pageSize The size of every page
+     * @param margin The margin on all four sides of a page
+     * @param segment The number of content stream segments already on the last page
+     * @throws IOException if the content stream cannot be created
+     */
+    PdfPageManager(PDDocument document, PDRectangle pageSize, float margin, int segment) throws IOException {
+        this.document = document;
+        this.pageSize = pageSize;
+        this.margin = margin;
+        this.pageIndex = document.getNumberOfPages() - 1;
+        this.page = document.getPage(pageIndex);
+        this.segment = segment;
+        this.content = new PdfContentWriter(openContentStream(page));
+        this.content.forgetWrittenState();
+        this.links = new PdfLinkAnnotations(page);
+    }
+
+    /**
+     * @return The page currently drawn on, for example to add annotations
+     */
+    PDPage currentPage() {
+        return page;
+    }
+
+    /**
+     * @return The zero-based index of the current page in the document
+     */
+    int pageIndex() {
+        return pageIndex;
+    }
+
+    /**
+     * @return The index of the open content stream among the current page's segments, which
+     *         is also the number of segments before it
+     */
+    int segment() {
+        return segment;
+    }
+
+    /**
+     * @return The writer for the current page; the same instance for every page
+     */
+    PdfContentWriter content() {
+        return content;
+    }
+
+    /**
+     * @return The link areas of the current page; the same instance for every page
+     */
+    PdfLinkAnnotations links() {
+        return links;
+    }
+
+    /**
+     * @return The highest baseline on a page, below the top margin
+     */
+    float top() {
+        return pageSize.getHeight() - margin;
+    }
+
+    /**
+     * @return The lowest Y position content may reach, above the bottom margin
+     */
+    float bottom() {
+        return margin;
+    }
+
+    /**
+     * Closes the current page and starts a new one. The current page's link areas are attached
+     * to it, and the content writer is moved to the new page with the PDF default graphics
+     * state and no text object open.
+     *
+     * @return The Y position at the top of the new page
+     * @throws IOException if the content stream cannot be closed or created
+     */
+    float newPage() throws IOException {
+        page = addPage();
+        links.attachAndMoveTo(page);
+        pageIndex++;
+        segment = 0;
+        content.startPage(openContentStream(page));
+        return top();
+    }
+
+    /**
+     * Continues the current page in a new content stream, if the content writer is at a point
+     * where that does not change what is drawn.
+     *
+     * @return Whether a new segment was started
+     * @throws IOException if the content stream cannot be closed or created
+     * @see PdfContentWriter#startSegment
+     */
+    boolean startSegment() throws IOException {
+        if (!content.atSegmentBoundary()) {
+            return false;
+        }
+        content.startSegment(openContentStream(page));
+        segment++;
+        return true;
+    }
+
+    /**
+     * Starts a new page unless the given height fits between the Y position and the bottom
+     * margin. Content that does not even fit on an empty page stays where it is.
+     *
+     * @param yPosition The Y position the content would start at
+     * @param height The height of the content
+     * @return The Y position to draw the content at
+     * @throws IOException if a new page cannot be started
+     */
+    float ensureSpace(float yPosition, float height) throws IOException {
+        if (yPosition - height < bottom() && yPosition < top()) {
+            return newPage();
+        }
+        return yPosition;
+    }
+
+    /**
+     * Writes pending content, closes the current page's content stream and attaches its link areas.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        links.attach();
+        content.close();
+    }
+
+    private PDPage addPage() {
+        PDPage newPage = new PDPage(pageSize);
+        document.addPage(newPage);
+        return newPage;
+    }
+
+    private PDPageContentStream openContentStream(PDPage target) throws IOException {
+        return new PDPageContentStream(document, target, PDPageContentStream.AppendMode.APPEND, false);
+    }
+}
@@ -0,0 +1,255 @@
+package com.md2word.generator;
+
+import com.md2word.ir.DocumentIr;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PdfRevision remembers how the last PDF written by an incremental {@link PDFGenerator} was
+ * laid out, so that the next run can keep the pages before the first changed block and only
+ * append the rest as an incremental update.
+ *
+ * <p>For every top-level block of the Markdown document the revision keeps a fingerprint of
+ * its source, and for the boundary before every block a {@link Checkpoint}: the page and
+ * content stream segment the block starts in, the page's annotation count and the text
+ * position. Nothing drawn before a checkpoint depends on the blocks after it, so a document
+ * that starts with the same blocks can drop the pages and segments after the checkpoint and
+ * render its remaining blocks from there. Boundaries the generator cannot split the content
+ * at have no checkpoint. The size and modification time of the written file are kept too; the
+ * revision only applies while the file is unchanged.</p>
+ */
+final class PdfRevision {
+
+    /**
+     * The state of the generator at a block boundary.
+     *
+     * @param page The zero-based index of the page the next block starts on
+     * @param segment The number of the page's content stream segments before the next block,
+     *                not counting a page furniture overlay
+     * @param annotations The number of annotations on the page before the next block
+     * @param yPosition The Y position the next block starts at
+     * @param lineX The start of the current text line, relative to the page origin
+     * @param lineY The start of the current text line, relative to the page origin
+     * @param font The requested font
+     * @param fontSize The requested font size
+     */
+    record Checkpoint(int page, int segment, int annotations, float yPosition, float lineX, float lineY,
+                      PdfFontSet.Style font, float fontSize) {
+    }
+
+    private final Path outputPath;
+    private final List<Object> settings;
+    private final List<String> fingerprints;
+    // Entry i is the boundary before block i, the last one the end of the document; null if not resumable
+    private final List<Checkpoint> checkpoints;
+
+    private long fileSize = -1;
+    private FileTime lastModified;
+
+    /**
+     * Starts a revision for a document that is generated from its first block.
+     *
+     * @param outputPath The file the document is written to
+     * @param settings The generator settings the layout depends on
+     * @param fingerprints The fingerprints of the document's top-level blocks
+     */
+    PdfRevision(Path outputPath, List<Object> settings, List<String> fingerprints) {
+        this(outputPath, settings, fingerprints, new ArrayList<>());
+        // The first block starts the document; resuming there is a full generation
+        checkpoints.add(null);
+    }
+
+    private PdfRevision(Path outputPath, List<Object> settings, List<String> fingerprints,
+                        List<Checkpoint> checkpoints) {
+        this.outputPath = outputPath.toAbsolutePath().normalize();
+        this.settings = settings;
+        this.fingerprints = fingerprints;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * Computes a fingerprint for each top-level block of a document. A fingerprint covers the
+     * block's type and source text, and the modification time of every image it shows.
+     *
+     * @param ir The document
+     * @return The fingerprints in document order; empty for a null document
+     */
+    static List<String> fingerprints(DocumentIr ir) {
+        List<String> fingerprints = new ArrayList<>();
+        if (ir == null) {
+            return fingerprints;
+        }
+        for (int block = ir.firstChild(0); block >= 0; block = ir.nextSibling(block)) {
+            StringBuilder fingerprint = new StringBuilder(ir.kind(block).name())
+                    .append('\n').append(ir.chars(block));
+            for (int node = block + 1, end = ir.subtreeEnd(block); node < end; node++) {
+                // An image in a data URI is part of the block's source text already
+                if (ir.kind(node) == DocumentIr.Kind.IMAGE && !DataUri.isDataUri(ir.urlChars(node))) {
+                    fingerprint.append('\n').append(imageModified(ir.url(node)));
+                }
+            }
+            fingerprints.add(fingerprint.toString());
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Checks whether this revision describes the given file as it is now, written with the
+     * given settings.
+     *
+     * @param outputPath The file about to be generated
+     * @param settings The generator settings
+     * @return Whether a new run may resume from this revision
+     */
+    boolean appliesTo(Path outputPath, List<Object> settings) {
+        if (lastModified == null || !this.outputPath.equals(outputPath.toAbsolutePath().normalize())
+                || !this.settings.equals(settings)) {
+            return false;
+        }
+        try {
+            return Files.size(outputPath) == fileSize && Files.getLastModifiedTime(outputPath).equals(lastModified);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param fingerprints The fingerprints of a new document
+     * @return Whether the new document has exactly the blocks of this revision
+     */
+    boolean sameBlocks(List<String> fingerprints) {
+        return this.fingerprints.equals(fingerprints);
+    }
+
+    /**
+     * Finds the last block boundary a new document can resume from: a boundary with a
+     * checkpoint, before which all blocks are unchanged.
+     *
+     * @param fingerprints The fingerprints of the new document
+     * @return The index of the first block to render, or 0 if the document must be generated in full
+     */
+    int resumePoint(List<String> fingerprints) {
+        int unchanged = 0;
+        int limit = Math.min(this.fingerprints.size(), fingerprints.size());
+        while (unchanged < limit && this.fingerprints.get(unchanged).equals(fingerprints.get(unchanged))) {
+            unchanged++;
+        }
+        for (int block = Math.min(unchanged, checkpoints.size() - 1); block > 0; block--) {
+            if (checkpoints.get(block) != null) {
+                return block;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param block The index of a block, or the block count for the end of the document
+     * @return The checkpoint before the block, or null if there is none
+     */
+    Checkpoint checkpoint(int block) {
+        return checkpoints.get(block);
+    }
+
+    /**
+     * Starts a revision for a new document that keeps this revision's blocks before the given one.
+     *
+     * @param block The first block of the new document that is rendered
+     * @param fingerprints The fingerprints of the new document
+     * @return The new revision; checkpoints after the given block are added as it is rendered
+     */
+    PdfRevision resume(int block, List<String> fingerprints) {
+        return new PdfRevision(outputPath, settings, fingerprints, new ArrayList<>(checkpoints.subList(0, block + 1)));
+    }
+
+    /**
+     * Records the boundary before the next block, or the end of the document after the last block.
+     *
+     * @param checkpoint The state at the boundary, or null if rendering cannot resume there
+     */
+    void addCheckpoint(Checkpoint checkpoint) {
+        checkpoints.add(checkpoint);
+    }
+
+    /**
+     * Records the size and modification time of the written file.
+     *
+     * @throws IOException if the file attributes cannot be read
+     */
+    void recordFile() throws IOException {
+        fileSize = Files.size(outputPath);
+        lastModified = Files.getLastModifiedTime(outputPath);
+    }
+
+    /**
+     * Removes everything a document loaded from the revision's file shows after a
+     * checkpoint: later pages, and the content stream segments and annotations that follow
+     * the checkpoint on its page.
+     *
+     * @param document The document loaded from the file
+     * @param checkpoint The checkpoint to roll back to
+     * @param overlaySegments The number of page furniture overlay streams in front of each page's content
+     * @throws IOException if the document does not have the layout the checkpoint describes
+     */
+    static void rollBack(PDDocument document, Checkpoint checkpoint, int overlaySegments) throws IOException {
+        if (document.getNumberOfPages() <= checkpoint.page()) {
+            throw new IOException("The PDF has fewer pages than its last revision");
+        }
+        while (document.getNumberOfPages() > checkpoint.page() + 1) {
+            document.removePage(document.getNumberOfPages() - 1);
+        }
+
+        COSDictionary page = document.getPage(checkpoint.page()).getCOSObject();
+        int keep = overlaySegments + checkpoint.segment();
+        COSBase contents = page.getDictionaryObject(COSName.CONTENTS);
+        if (contents instanceof COSArray && ((COSArray) contents).size() >= keep) {
+            COSArray segments = (COSArray) contents;
+            COSArray kept = new COSArray();
+            for (int i = 0; i < keep; i++) {
+                kept.add(segments.get(i));
+            }
+            page.setItem(COSName.CONTENTS, kept);
+        } else if (!(contents instanceof COSStream && keep == 1)) {
+            throw new IOException("The PDF page content does not match its last revision");
+        }
+
+        COSArray annotations = page.getCOSArray(COSName.ANNOTS);
+        int annotationCount = annotations != null ? annotations.size() : 0;
+        if (annotationCount < checkpoint.annotations()) {
+            throw new IOException("The PDF page annotations do not match its last revision");
+        }
+        for (int i = annotationCount - 1; i >= checkpoint.annotations(); i--) {
+            annotations.remove(i);
+        }
+    }
+
+    /**
+     * @param page A page
+     * @return The number of annotations on the page
+     */
+    static int annotationCount(PDPage page) {
+        COSArray annotations = page.getCOSObject().getCOSArray(COSName.ANNOTS);
+        return annotations != null ? annotations.size() : 0;
+    }
+
+    private static String imageModified(String imagePath) {
+        try {
+            return Files.getLastModifiedTime(Paths.get(imagePath)).toString();
+        } catch (IOException | InvalidPathException e) {
+            return "missing";
+        }
+    }
+}
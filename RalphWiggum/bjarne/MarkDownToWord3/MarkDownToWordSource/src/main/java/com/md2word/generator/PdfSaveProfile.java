@@ -0,0 +1,69 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+
+import java.util.zip.Deflater;
+
+/**
+ * PdfSaveProfile selects how much effort {@link PDFGenerator} spends on compressing a PDF
+ * when it is saved.
+ *
+ * <p>Object streams pack the document's dictionaries into compressed streams and require a
+ * cross-reference stream instead of a plain xref table. The deflate level applies to the
+ * streams the generator owns: page contents and, for {@link #SMALLEST}, every other Flate
+ * or unfiltered stream such as embedded font subsets. Object and xref streams are compressed
+ * by PDFBox at its JVM-wide level ({@code org.apache.pdfbox.filter.deflatelevel}).
+ * {@link #STORED} leaves the generator's streams unfiltered.</p>
+ */
+public enum PdfSaveProfile {
+
+    /** No compression: content streams are stored unfiltered, plain xref table. */
+    STORED(Deflater.NO_COMPRESSION, CompressParameters.NO_COMPRESSION, false),
+
+    /** Fastest save: content streams at the lowest deflate level, plain xref table. */
+    FAST(Deflater.BEST_SPEED, CompressParameters.NO_COMPRESSION, false),
+
+    /** PDFBox defaults: default deflate level and object streams of 200 objects. */
+    BALANCED(Deflater.DEFAULT_COMPRESSION, CompressParameters.DEFAULT_COMPRESSION, false),
+
+    /** Smallest file: maximum deflate level for all streams and large object streams. */
+    SMALLEST(Deflater.BEST_COMPRESSION, new CompressParameters(1000), true);
+
+    private final int deflateLevel;
+    private final CompressParameters compressParameters;
+    private final boolean recompressAllStreams;
+
+    PdfSaveProfile(int deflateLevel, CompressParameters compressParameters, boolean recompressAllStreams) {
+        this.deflateLevel = deflateLevel;
+        this.compressParameters = compressParameters;
+        this.recompressAllStreams = recompressAllStreams;
+    }
+
+    /**
+     * @return The {@link Deflater} level for streams written by the generator
+     */
+    int deflateLevel() {
+        return deflateLevel;
+    }
+
+    /**
+     * @return Whether the streams written by the generator are deflated at all
+     */
+    boolean deflatesStreams() {
+        return deflateLevel != Deflater.NO_COMPRESSION;
+    }
+
+    /**
+     * @return Object stream settings passed to the PDF writer
+     */
+    CompressParameters compressParameters() {
+        return compressParameters;
+    }
+
+    /**
+     * @return Whether every Flate or unfiltered stream is deflated again, not only page contents
+     */
+    boolean recompressAllStreams() {
+        return recompressAllStreams;
+    }
+}
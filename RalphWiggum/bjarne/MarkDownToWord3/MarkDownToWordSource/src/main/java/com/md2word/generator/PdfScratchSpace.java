@@ -0,0 +1,142 @@
+package com.md2word.generator;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * PdfScratchSpace provides the stream cache of one PDF document according to a
+ * {@link PdfMemoryPolicy} and measures the memory the document uses.
+ *
+ * <p>When the policy allows a scratch file, PDFBox is given a directory created for this
+ * document alone, so the size of the scratch file can be read from the directory. PDFBox
+ * deletes the scratch file when the document is closed; {@link #close()} removes the
+ * directory afterwards and must therefore be called after the document is closed.</p>
+ *
+ * <p>The heap pool peaks are shared by the whole JVM. They are reset only when no other
+ * document tracking the heap is in progress, so a reset never shortens the measurement of a
+ * document that is still running.</p>
+ */
+final class PdfScratchSpace implements Closeable {
+
+    /** Documents between {@link #open} and {@link #close()} that track the heap. */
+    private static final AtomicInteger TRACKING = new AtomicInteger();
+
+    private final PdfMemoryPolicy policy;
+    private final Path directory;
+    private final boolean trackHeap;
+
+    private PdfScratchSpace(PdfMemoryPolicy policy, Path directory, boolean trackHeap) {
+        this.policy = policy;
+        this.directory = directory;
+        this.trackHeap = trackHeap;
+    }
+
+    /**
+     * Prepares the scratch space of a new document.
+     *
+     * @param policy The memory policy
+     * @param trackHeap Whether to measure the heap pool peaks for {@link #report()}
+     * @return The scratch space
+     * @throws IOException if the scratch directory cannot be created
+     */
+    static PdfScratchSpace open(PdfMemoryPolicy policy, boolean trackHeap) throws IOException {
+        Path directory = null;
+        if (policy.usesScratchFile()) {
+            directory = policy.getScratchDirectory() != null
+                    ? Files.createTempDirectory(Files.createDirectories(policy.getScratchDirectory()), "md2word-pdf")
+                    : Files.createTempDirectory("md2word-pdf");
+        }
+        if (trackHeap && TRACKING.getAndIncrement() == 0) {
+            // Only the first of concurrent documents resets; the others keep its earlier start
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+        }
+        return new PdfScratchSpace(policy, directory, trackHeap);
+    }
+
+    /**
+     * @return The function the document creates its stream cache with
+     */
+    RandomAccessStreamCache.StreamCacheCreateFunction streamCache() {
+        if (directory == null) {
+            return IOUtils.createMemoryOnlyStreamCache();
+        }
+        return MemoryUsageSetting.setupMixed(policy.getHeapBudget())
+                .setTempDir(directory.toFile())
+                .streamCache;
+    }
+
+    /**
+     * Measures the memory used so far. Must be called before the document is closed, while
+     * its scratch file still exists.
+     *
+     * @return The peak heap and current scratch file size
+     * @throws IOException if the scratch directory cannot be read
+     */
+    PdfMemoryReport report() throws IOException {
+        long peakHeap = 0;
+        if (trackHeap) {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                    peakHeap += pool.getPeakUsage().getUsed();
+                }
+            }
+        }
+        return new PdfMemoryReport(peakHeap, directorySize());
+    }
+
+    /**
+     * Deletes the scratch directory and anything PDFBox left in it.
+     *
+     * @throws IOException if the directory cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (trackHeap) {
+            TRACKING.decrementAndGet();
+        }
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private long directorySize() throws IOException {
+        if (directory == null) {
+            return 0;
+        }
+        long size = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                size += Files.size(file);
+            }
+        }
+        return size;
+    }
+}
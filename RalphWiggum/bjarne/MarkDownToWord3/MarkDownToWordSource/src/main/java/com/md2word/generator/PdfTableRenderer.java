@@ -0,0 +1,582 @@
+package com.md2word.generator;
+
+import com.md2word.ir.DocumentIr;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * PdfTableRenderer draws Markdown tables in a single pass over their rows.
+ *
+ * <p>Column widths are estimated from the first {@value #WIDTH_SAMPLE_ROWS} rows and scaled
+ * down to the available width when the table is too wide, or for draft documents, shared
+ * equally between the columns without measuring any text. Later rows never change the
+ * widths; their text wraps inside the cells instead, and every row is as tall as its longest
+ * cell. Rows are laid out and drawn one at a time, and a row that does not fit above the
+ * bottom margin starts a new page with the header rows repeated. A row taller than a whole
+ * page is split between lines instead: the lines of each cell that fit are drawn, and the
+ * rest continue below the repeated header on the next page. Only the header rows and the row
+ * being drawn are held in memory, so very large tables need no more memory than small ones.</p>
+ *
+ * <p>Cells beyond the number of columns in the sampled rows are ignored, as in GitHub Flavored
+ * Markdown. An instance renders tables for a single document and is not thread-safe.</p>
+ */
+class PdfTableRenderer {
+
+    /** Number of leading rows measured to estimate column widths. */
+    static final int WIDTH_SAMPLE_ROWS = 50;
+
+    private static final float CELL_PADDING = 5; // Padding within table cells
+    private static final float BORDER_WIDTH = 1; // Border line width for tables
+    private static final float MIN_ROW_HEIGHT = 20; // Height of a row with a single line of text
+    private static final float MIN_COLUMN_WIDTH = 50; // Minimum column width
+    private static final float LINE_SPACING = 2; // Extra space between wrapped lines in a cell
+    private static final float LINK_BLUE = 1f; // Blue component of link text
+
+    private final DocumentIr ir;
+    private final PdfPageManager pages;
+    private final PdfFontSet fonts;
+    private final float left;
+    private final float maxWidth;
+    private final float fontSize;
+    private final boolean fixedColumnWidths;
+
+    /**
+     * Creates a table renderer.
+     *
+     * @param ir The document the tables belong to
+     * @param pages The page manager to draw on and request page breaks from
+     * @param fonts The document's fonts
+     * @param left The X position of the table's left border
+     * @param maxWidth The width available for the table
+     * @param fontSize The font size of cell text
+     * @param fixedColumnWidths Whether all columns are equally wide instead of measured
+     */
+    PdfTableRenderer(DocumentIr ir, PdfPageManager pages, PdfFontSet fonts, float left, float maxWidth,
+                     float fontSize, boolean fixedColumnWidths) {
+        this.ir = ir;
+        this.pages = pages;
+        this.fonts = fonts;
+        this.left = left;
+        this.maxWidth = maxWidth;
+        this.fontSize = fontSize;
+        this.fixedColumnWidths = fixedColumnWidths;
+    }
+
+    /**
+     * Draws a table starting at the given Y position. The text object of the content writer is
+     * left closed or at an unspecified position; callers position their next text themselves.
+     *
+     * @param table The table node to draw
+     * @param yPosition The Y position of the table's top border
+     * @return The Y position of the table's bottom border, possibly on a later page
+     * @throws IOException if writing fails
+     */
+    float render(int table, float yPosition) throws IOException {
+        float[] columnWidths = fixedColumnWidths ? equalColumnWidths(table) : estimateColumnWidths(table);
+        if (columnWidths.length == 0) {
+            return yPosition;
+        }
+
+        // Header rows come first and are kept to repeat them on every page
+        List<RowLayout> header = new ArrayList<>();
+        float headerHeight = 0;
+        int row = firstRow(table);
+        while (row >= 0 && isHeader(row)) {
+            RowLayout layout = layoutRow(row, columnWidths);
+            header.add(layout);
+            headerHeight += layout.height;
+            row = nextRow(table, row);
+        }
+
+        // The header is repeated on new pages only if it leaves room for a line of a body row
+        float pageHeight = pages.top() - pages.bottom();
+        List<RowLayout> repeated = pageHeight - headerHeight >= rowHeight(1) ? header : List.of();
+        float rowSpace = repeated.isEmpty() ? pageHeight : pageHeight - headerHeight;
+
+        // Keep the header together with the first body row, or with its first line if that row
+        // is split anyway
+        RowLayout first = row >= 0 ? layoutRow(row, columnWidths) : null;
+        float y = yPosition;
+        if (!header.isEmpty()) {
+            float firstHeight = first == null ? MIN_ROW_HEIGHT
+                    : first.height <= pageHeight - headerHeight ? first.height : rowHeight(1);
+            y = pages.ensureSpace(y, headerHeight + firstHeight);
+            for (RowLayout layout : header) {
+                y = drawRow(layout, columnWidths, y);
+            }
+        }
+
+        for (; row >= 0; row = nextRow(table, row)) {
+            RowLayout layout = first != null ? first : layoutRow(row, columnWidths);
+            first = null;
+            y = placeRow(layout, repeated, columnWidths, rowSpace, y);
+        }
+        return y;
+    }
+
+    /**
+     * Draws a body row at the given Y position, or on the next page if it does not fit there.
+     * A row taller than the space below the header on a new page is split: the lines that fit
+     * are drawn and the rest continue on the next page, as often as needed.
+     *
+     * @param header The header rows to repeat on new pages
+     * @param rowSpace The height available to body rows on a new page, below the header
+     * @return The Y position of the row's bottom border
+     */
+    private float placeRow(RowLayout layout, List<RowLayout> header, float[] columnWidths, float rowSpace,
+                           float yPosition) throws IOException {
+        RowLayout rest = layout;
+        float y = yPosition;
+        while (rest.height > y - pages.bottom()) {
+            if (rest.height > rowSpace) {
+                int lines = linesFitting(y - pages.bottom());
+                if (lines > 0) {
+                    drawRow(rest.head(lines), columnWidths, y);
+                    rest = rest.tail(lines);
+                }
+            }
+            y = pages.newPage();
+            for (RowLayout headerLayout : header) {
+                y = drawRow(headerLayout, columnWidths, y);
+            }
+        }
+        return drawRow(rest, columnWidths, y);
+    }
+
+    /**
+     * Measures the natural width of the cells in the sampled rows and fits the columns into
+     * the available width.
+     */
+    private float[] estimateColumnWidths(int table) throws IOException {
+        float[] natural = new float[0];
+        List<Run> runs = new ArrayList<>();
+        int sampled = 0;
+        for (int row = firstRow(table); row >= 0 && sampled < WIDTH_SAMPLE_ROWS; row = nextRow(table, row)) {
+            int column = 0;
+            for (int cell = ir.firstChild(row); cell >= 0; cell = ir.nextSibling(cell)) {
+                if (ir.kind(cell) != DocumentIr.Kind.TABLE_CELL) {
+                    continue;
+                }
+                if (column == natural.length) {
+                    natural = Arrays.copyOf(natural, column + 1);
+                    natural[column] = MIN_COLUMN_WIDTH;
+                }
+                runs.clear();
+                collectRuns(cell, isHeader(row), runs);
+                float width = 2 * CELL_PADDING;
+                for (Run run : runs) {
+                    width += fonts.textWidth(run.text, run.font, fontSize);
+                }
+                natural[column] = Math.max(natural[column], width);
+                column++;
+            }
+            sampled++;
+        }
+
+        float total = 0;
+        for (float width : natural) {
+            total += width;
+        }
+        return total > maxWidth ? shrinkToFit(natural) : natural;
+    }
+
+    /**
+     * Shares the available width equally between the columns of the sampled rows, or gives
+     * each column the minimum width if there are too many of them.
+     */
+    private float[] equalColumnWidths(int table) {
+        int columns = 0;
+        int sampled = 0;
+        for (int row = firstRow(table); row >= 0 && sampled < WIDTH_SAMPLE_ROWS; row = nextRow(table, row)) {
+            int column = 0;
+            for (int cell = ir.firstChild(row); cell >= 0; cell = ir.nextSibling(cell)) {
+                if (ir.kind(cell) == DocumentIr.Kind.TABLE_CELL) {
+                    column++;
+                }
+            }
+            columns = Math.max(columns, column);
+            sampled++;
+        }
+        float[] widths = new float[columns];
+        Arrays.fill(widths, columns > 0 ? Math.max(MIN_COLUMN_WIDTH, maxWidth / columns) : 0);
+        return widths;
+    }
+
+    /**
+     * Scales the columns down to the available width. Columns that would fall below the
+     * minimum width are fixed at the minimum and the others share the remaining width in
+     * proportion to their natural widths.
+     */
+    private float[] shrinkToFit(float[] natural) {
+        float[] widths = new float[natural.length];
+        boolean[] fixed = new boolean[natural.length];
+        boolean changed = true;
+        float scale = 0;
+        while (changed) {
+            changed = false;
+            float available = maxWidth;
+            float flexible = 0;
+            for (int i = 0; i < natural.length; i++) {
+                if (fixed[i]) {
+                    available -= MIN_COLUMN_WIDTH;
+                } else {
+                    flexible += natural[i];
+                }
+            }
+            scale = flexible > 0 ? Math.max(0, available) / flexible : 0;
+            for (int i = 0; i < natural.length; i++) {
+                if (!fixed[i] && natural[i] * scale < MIN_COLUMN_WIDTH) {
+                    fixed[i] = true;
+                    changed = true;
+                }
+            }
+        }
+        for (int i = 0; i < natural.length; i++) {
+            widths[i] = fixed[i] ? MIN_COLUMN_WIDTH : natural[i] * scale;
+        }
+        return widths;
+    }
+
+    /**
+     * Wraps the text of every cell of a row into its column.
+     */
+    private RowLayout layoutRow(int row, float[] columnWidths) throws IOException {
+        List<List<List<Fragment>>> cells = new ArrayList<>(columnWidths.length);
+        List<Run> runs = new ArrayList<>();
+        int maxLines = 1;
+        for (int cell = ir.firstChild(row); cell >= 0 && cells.size() < columnWidths.length;
+             cell = ir.nextSibling(cell)) {
+            if (ir.kind(cell) == DocumentIr.Kind.TABLE_CELL) {
+                runs.clear();
+                collectRuns(cell, isHeader(row), runs);
+                List<List<Fragment>> lines = wrap(runs, columnWidths[cells.size()] - 2 * CELL_PADDING);
+                maxLines = Math.max(maxLines, lines.size());
+                cells.add(lines);
+            }
+        }
+        return new RowLayout(cells, rowHeight(maxLines));
+    }
+
+    /**
+     * @return The height of a row whose tallest cell has the given number of lines
+     */
+    private float rowHeight(int lines) {
+        float lineHeight = fontSize + LINE_SPACING;
+        return Math.max(MIN_ROW_HEIGHT, lines * lineHeight + 2 * CELL_PADDING - LINE_SPACING);
+    }
+
+    /**
+     * @return The number of lines a row split to the given height can have, 0 if not even one fits
+     */
+    private int linesFitting(float height) {
+        int lines = (int) ((height - 2 * CELL_PADDING + LINE_SPACING) / (fontSize + LINE_SPACING));
+        return lines > 0 && rowHeight(lines) <= height ? lines : 0;
+    }
+
+    /**
+     * Draws the borders and text of a laid out row below the given Y position.
+     *
+     * @return The Y position of the row's bottom border
+     */
+    private float drawRow(RowLayout row, float[] columnWidths, float rowTop) throws IOException {
+        PdfContentWriter content = pages.content();
+        float tableWidth = 0;
+        for (float width : columnWidths) {
+            tableWidth += width;
+        }
+        float rowBottom = rowTop - row.height;
+
+        // One path for the row's outline and column separators
+        content.setStrokingColor(0f, 0f, 0f);
+        content.setLineWidth(BORDER_WIDTH);
+        content.addRect(left, rowBottom, tableWidth, row.height);
+        float separatorX = left;
+        for (int i = 0; i < columnWidths.length - 1; i++) {
+            separatorX += columnWidths[i];
+            content.moveTo(separatorX, rowBottom);
+            content.lineTo(separatorX, rowTop);
+        }
+        content.stroke();
+
+        float lineHeight = fontSize + LINE_SPACING;
+        float cellX = left;
+        for (int column = 0; column < row.cells.size(); column++) {
+            float textX = cellX + CELL_PADDING;
+            float baseline = rowTop - CELL_PADDING - fontSize;
+            for (List<Fragment> line : row.cells.get(column)) {
+                content.beginText();
+                content.newLineAtOffset(textX, baseline);
+                for (Fragment fragment : line) {
+                    content.setNonStrokingColor(0f, 0f, fragment.url != null ? LINK_BLUE : 0f);
+                    content.setFont(fragment.font, fontSize);
+                    fonts.showText(fragment.text, fragment.font, fontSize, content);
+                    if (fragment.url != null) {
+                        addLink(fragment, textX, baseline);
+                    }
+                }
+                content.endText();
+                baseline -= lineHeight;
+            }
+            cellX += columnWidths[column];
+        }
+        content.setNonStrokingColor(0f, 0f, 0f);
+        return rowBottom;
+    }
+
+    private void addLink(Fragment fragment, float textX, float baseline) {
+        pages.links().add(fragment.url, textX + fragment.x, baseline - fontSize * 0.25f, fragment.width, fontSize * 1.2f);
+    }
+
+    /**
+     * Breaks styled runs into lines no wider than the given width. Words are kept whole unless
+     * a single word is wider than a line, in which case it is broken between characters.
+     */
+    private List<List<Fragment>> wrap(List<Run> runs, float width) throws IOException {
+        LineBuilder lines = new LineBuilder(width);
+        boolean pendingSpace = false;
+        for (Run run : runs) {
+            CharSequence text = run.text;
+            int i = 0;
+            while (i < text.length()) {
+                while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+                    pendingSpace = true;
+                    i++;
+                }
+                if (i == text.length()) {
+                    break;
+                }
+                int end = i;
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+                    end++;
+                }
+                lines.addWord(text, i, end, run, pendingSpace);
+                pendingSpace = false;
+                i = end;
+            }
+        }
+        return lines.finish();
+    }
+
+    /**
+     * Flattens the inline content of a cell into runs of text with a single font and link.
+     * The cell's descendants are visited in document order with a loop over their indices, so
+     * deeply nested formatting needs no recursion.
+     */
+    private void collectRuns(int cell, boolean bold, List<Run> runs) {
+        // Links containing the current node, innermost first
+        Deque<Integer> openLinks = new ArrayDeque<>();
+        int end = ir.subtreeEnd(cell);
+        int node = cell + 1;
+        while (node < end) {
+            while (!openLinks.isEmpty() && node >= ir.subtreeEnd(openLinks.peek())) {
+                openLinks.pop();
+            }
+            String url = openLinks.isEmpty() ? null : ir.url(openLinks.peek());
+            DocumentIr.Kind kind = ir.kind(node);
+            if (kind == DocumentIr.Kind.TEXT) {
+                int style = ir.style(node);
+                runs.add(new Run(ir.chars(node), fonts.select(bold || (style & DocumentIr.BOLD) != 0,
+                        (style & DocumentIr.ITALIC) != 0), url));
+                node++;
+            } else if (kind == DocumentIr.Kind.CODE) {
+                // The code between the backticks is the code's text node
+                StringBuilder code = new StringBuilder();
+                ir.appendText(node, code);
+                runs.add(new Run(code, fonts.monospace(), url));
+                node = ir.subtreeEnd(node);
+            } else {
+                if (kind == DocumentIr.Kind.LINK) {
+                    openLinks.push(node);
+                }
+                node++;
+            }
+        }
+    }
+
+    private boolean isHeader(int row) {
+        return ir.kind(ir.parent(row)) == DocumentIr.Kind.TABLE_HEAD;
+    }
+
+    private int firstRow(int table) {
+        return findRow(table, table + 1);
+    }
+
+    /**
+     * Finds the row after the given row in document order, crossing from the head into the body.
+     */
+    private int nextRow(int table, int row) {
+        return findRow(table, ir.subtreeEnd(row));
+    }
+
+    /**
+     * Finds the first row of a table at or after a node index: a row in the table itself or
+     * in its head or body.
+     *
+     * @return The row's index, or -1 if there is none
+     */
+    private int findRow(int table, int from) {
+        int end = ir.subtreeEnd(table);
+        int node = from;
+        while (node < end) {
+            DocumentIr.Kind kind = ir.kind(node);
+            int parent = ir.parent(node);
+            if (kind == DocumentIr.Kind.TABLE_ROW && (parent == table || ir.parent(parent) == table)) {
+                return node;
+            }
+            if ((kind == DocumentIr.Kind.TABLE_HEAD || kind == DocumentIr.Kind.TABLE_BODY) && parent == table) {
+                // Rows of the head or body
+                node++;
+            } else {
+                node = ir.subtreeEnd(node);
+            }
+        }
+        return -1;
+    }
+
+    /** Text of a cell in one font, optionally inside a link. */
+    private record Run(CharSequence text, PDFont font, String url) {
+    }
+
+    /** Text drawn in one piece on a line, at an offset from the start of the line. */
+    private static final class Fragment {
+        private final PDFont font;
+        private final String url;
+        private final float x;
+        private final StringBuilder text;
+        private float width;
+
+        private Fragment(CharSequence text, int start, int end, boolean spaceBefore, PDFont font, String url,
+                         float x, float width) {
+            this.text = new StringBuilder(end - start + 1);
+            if (spaceBefore) {
+                this.text.append(' ');
+            }
+            this.text.append(text, start, end);
+            this.font = font;
+            this.url = url;
+            this.x = x;
+            this.width = width;
+        }
+    }
+
+    /** The wrapped lines of each cell of a row and the row's height. */
+    private final class RowLayout {
+        private final List<List<List<Fragment>>> cells;
+        private final float height;
+
+        private RowLayout(List<List<List<Fragment>>> cells, float height) {
+            this.cells = cells;
+            this.height = height;
+        }
+
+        /**
+         * @return The part of the row with the first lines of each cell
+         */
+        RowLayout head(int lines) {
+            List<List<List<Fragment>>> head = new ArrayList<>(cells.size());
+            for (List<List<Fragment>> cell : cells) {
+                head.add(cell.subList(0, Math.min(lines, cell.size())));
+            }
+            return new RowLayout(head, rowHeight(lines));
+        }
+
+        /**
+         * @return The part of the row after the first lines of each cell
+         */
+        RowLayout tail(int lines) {
+            List<List<List<Fragment>>> tail = new ArrayList<>(cells.size());
+            int maxLines = 1;
+            for (List<List<Fragment>> cell : cells) {
+                List<List<Fragment>> rest = cell.subList(Math.min(lines, cell.size()), cell.size());
+                maxLines = Math.max(maxLines, rest.size());
+                tail.add(rest);
+            }
+            return new RowLayout(tail, rowHeight(maxLines));
+        }
+    }
+
+    /**
+     * Collects words into lines, merging adjacent words with the same font and link into one
+     * fragment so each is shown with a single text operator.
+     */
+    private final class LineBuilder {
+        private final float maxWidth;
+        private final List<List<Fragment>> lines = new ArrayList<>();
+        private List<Fragment> line = new ArrayList<>();
+        private float lineWidth;
+
+        private LineBuilder(float maxWidth) {
+            this.maxWidth = maxWidth;
+        }
+
+        void addWord(CharSequence text, int start, int end, Run run, boolean spaceBefore) throws IOException {
+            float wordWidth = fonts.textWidth(text, start, end, run.font, fontSize);
+            float spaceWidth = spaceBefore && !line.isEmpty() ? fonts.textWidth(" ", run.font, fontSize) : 0;
+            if (!line.isEmpty() && lineWidth + spaceWidth + wordWidth > maxWidth) {
+                newLine();
+                spaceWidth = 0;
+            }
+            if (line.isEmpty() && wordWidth > maxWidth) {
+                addBrokenWord(text, start, end, run);
+                return;
+            }
+            append(text, start, end, spaceWidth > 0, run, spaceWidth + wordWidth);
+        }
+
+        List<List<Fragment>> finish() {
+            if (!line.isEmpty() || lines.isEmpty()) {
+                lines.add(line);
+            }
+            return lines;
+        }
+
+        private void addBrokenWord(CharSequence text, int wordStart, int wordEnd, Run run) throws IOException {
+            int start = wordStart;
+            float width = 0;
+            for (int i = wordStart; i < wordEnd; ) {
+                int end = i + Character.charCount(Character.codePointAt(text, i));
+                float charWidth = fonts.textWidth(text, i, end, run.font, fontSize);
+                if (width + charWidth > maxWidth && i > start) {
+                    append(text, start, i, false, run, width);
+                    newLine();
+                    start = i;
+                    width = 0;
+                }
+                width += charWidth;
+                i = end;
+            }
+            append(text, start, wordEnd, false, run, width);
+        }
+
+        /**
+         * Adds a range of a run's text to the current line, after a space if requested. The
+         * characters are copied into the line's fragment, which is the only copy made of them.
+         */
+        private void append(CharSequence text, int start, int end, boolean spaceBefore, Run run, float width) {
+            Fragment last = line.isEmpty() ? null : line.get(line.size() - 1);
+            if (last != null && last.font == run.font && Objects.equals(last.url, run.url)) {
+                if (spaceBefore) {
+                    last.text.append(' ');
+                }
+                last.text.append(text, start, end);
+                last.width += width;
+            } else {
+                line.add(new Fragment(text, start, end, spaceBefore, run.font, run.url, lineWidth, width));
+            }
+            lineWidth += width;
+        }
+
+        private void newLine() {
+            lines.add(line);
+            line = new ArrayList<>();
+            lineWidth = 0;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.md2word.generator;
+
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.fontbox.ttf.model.Language;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TrueTypeFontCache keeps parsed TrueType fonts for the lifetime of the JVM.
+ *
+ * <p>Parsing a TTF file costs far more than converting a typical document, so every font file
+ * is parsed once and the resulting {@link TrueTypeFont} is shared by all conversions. Each
+ * document wraps the shared font in its own {@code PDType0Font}, which subsets it on save, so
+ * the per-document cost is limited to the glyphs the document actually uses.</p>
+ *
+ * <p>All font tables are read eagerly before a font is published to other threads. After that
+ * the font is only read: glyph and table access in fontbox is synchronized, and the original
+ * font data is held in memory, so concurrent conversions can safely share an instance.</p>
+ */
+final class TrueTypeFontCache {
+
+    private static final Map<Key, CachedFont> FONTS = new ConcurrentHashMap<>();
+
+    private TrueTypeFontCache() {
+    }
+
+    /**
+     * Returns the parsed font for a TTF file, parsing it on first use.
+     * A font file that changed on disk since it was cached is parsed again.
+     *
+     * @param fontPath Path of the .ttf file
+     * @return The shared parsed font together with its coverage
+     * @throws IOException if the file cannot be read or is not a TrueType font
+     */
+    static CachedFont get(Path fontPath) throws IOException {
+        Path canonicalPath = fontPath.toRealPath();
+        Key key = new Key(canonicalPath, Files.getLastModifiedTime(canonicalPath).toMillis());
+        CachedFont cached;
+        try {
+            cached = FONTS.computeIfAbsent(key, TrueTypeFontCache::parse);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // Entries for older versions of the same file are no longer reachable
+        FONTS.keySet().removeIf(other -> other.path().equals(canonicalPath) && !other.equals(key));
+        return cached;
+    }
+
+    private static CachedFont parse(Key key) {
+        try {
+            TrueTypeFont font = new TTFParser().parse(new RandomAccessReadBufferedFile(key.path().toFile()));
+
+            // Read every lazily loaded table now, while no other thread can see the font
+            font.getHeader();
+            font.getHorizontalHeader();
+            font.getMaximumProfile();
+            font.getHorizontalMetrics();
+            font.getIndexToLocation();
+            font.getGlyph();
+            font.getPostScript();
+            font.getOS2Windows();
+            font.getNaming();
+            font.getCmap();
+            font.getKerning();
+            font.getVerticalHeader();
+            font.getVerticalMetrics();
+            font.getGsub();
+            if (!needsShaping(font.getGsubData().getLanguage())) {
+                font.setEnableGsub(false);
+            }
+            CmapLookup cmap = font.getUnicodeCmapLookup();
+
+            return new CachedFont(font, FontCoverage.of(cmap, font.getNumberOfGlyphs()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decides whether glyph substitution is kept for a font's primary script.
+     *
+     * <p>PDFBox applies GSUB rules word by word and compiles a regular expression for every
+     * word, which makes Latin text several times slower to draw than with a Standard 14 font.
+     * For Latin the substitutions are optional ligatures that the layout code does not measure
+     * anyway, so GSUB is disabled; the Indic scripts PDFBox supports cannot be shown correctly
+     * without it. Fonts of other scripts would get PDFBox's no-op worker, which only logs.</p>
+     */
+    private static boolean needsShaping(Language language) {
+        return language == Language.BENGALI || language == Language.DEVANAGARI || language == Language.GUJARATI;
+    }
+
+    /**
+     * A parsed font and the set of code points it can encode.
+     *
+     * @param font The shared parsed font; must not be closed or modified
+     * @param coverage The code points mapped by the font's Unicode cmap
+     */
+    record CachedFont(TrueTypeFont font, FontCoverage coverage) {
+    }
+
+    private record Key(Path path, long lastModified) {
+    }
+}
@@ -0,0 +1,149 @@
+package com.md2word.generator;
+
+import org.apache.poi.ooxml.POIXMLTypeLoader;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * WordFragmentCache is a JVM-wide LRU cache of rendered Word blocks.
+ *
+ * <p>Documents of a collection often repeat the same large blocks: license text, support
+ * tables, standard warnings. {@link WordGenerator} keeps the OOXML elements of such a
+ * top-level block under a hash of everything its rendering depends on, and copies them into
+ * later documents instead of rendering the block again. The elements are kept as parsed
+ * XML, since parsing text again costs as much as rendering. Hyperlinks are kept by URL and
+ * get the relationship of the document they are spliced into. Cached elements are only ever
+ * read, which XmlBeans synchronizes, so documents can be generated in parallel.</p>
+ *
+ * <p>The cache is bounded by the total serialized size of the cached XML rather than by
+ * entry count, since a long table outweighs many short notices. Hit and miss counts show how much of the
+ * rendering the cache saves.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public final class WordFragmentCache {
+
+    /** Default upper bound for cached fragment bytes (16 MB). */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private static final WordFragmentCache SHARED = new WordFragmentCache(
+            Long.getLong("md2word.word.fragmentCache.maxBytes", DEFAULT_MAX_BYTES));
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache holding at most {@code maxBytes} bytes of fragments.
+     *
+     * @param maxBytes The byte budget; 0 disables caching
+     * @throws IllegalArgumentException if maxBytes is negative
+     */
+    public WordFragmentCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache shared by all Word generators in this JVM.
+     * Its size can be set with the {@code md2word.word.fragmentCache.maxBytes} system property.
+     *
+     * @return The shared fragment cache
+     */
+    public static WordFragmentCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param key The hash of a block
+     * @return The elements the block was rendered to, which must not be modified, or null if
+     *         the block is not cached
+     */
+    synchronized CTBody get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+            return entry.fragment();
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Caches the elements a block was rendered to, evicting the least recently used fragments
+     * beyond the byte budget.
+     *
+     * @param key The hash of the block
+     * @param fragment The elements, which are not modified afterwards
+     */
+    void put(String key, CTBody fragment) {
+        // Serialized outside the lock; strings of XML are mostly Latin-1, one byte per character
+        long bytes = key.length() + fragment.xmlText(POIXMLTypeLoader.DEFAULT_XML_OPTIONS).length();
+        if (bytes > maxBytes) {
+            return; // Larger than the whole budget - never worth caching
+        }
+
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(fragment, bytes));
+            if (previous != null) {
+                currentBytes -= previous.bytes();
+            }
+            currentBytes += bytes;
+
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (currentBytes > maxBytes && iterator.hasNext()) {
+                currentBytes -= iterator.next().bytes();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached fragments and resets the statistics.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * @return Number of blocks spliced in from the cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return Number of cacheable blocks that had to be rendered
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return The share of cacheable blocks spliced in from the cache, between 0 and 1; 0
+     *         before the first lookup
+     */
+    public synchronized double getHitRate() {
+        return hits + misses > 0 ? (double) hits / (hits + misses) : 0;
+    }
+
+    /**
+     * @return Total size of the cached fragments in bytes
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /** A cached fragment and its serialized size. */
+    private record Entry(CTBody fragment, long bytes) {
+    }
+}
@@ -1,52 +1,63 @@
 package com.md2word.generator;
 
-import com.vladsch.flexmark.ast.Emphasis;
-import com.vladsch.flexmark.ast.Heading;
-import com.vladsch.flexmark.ast.Link;
-import com.vladsch.flexmark.ast.OrderedList;
-import com.vladsch.flexmark.ast.OrderedListItem;
-import com.vladsch.flexmark.ast.Paragraph;
-import com.vladsch.flexmark.ast.StrongEmphasis;
-import com.vladsch.flexmark.ast.Text;
-import com.vladsch.flexmark.ast.BulletList;
-import com.vladsch.flexmark.ast.BulletListItem;
-import com.vladsch.flexmark.ast.FencedCodeBlock;
-import com.vladsch.flexmark.ast.Code;
-import com.vladsch.flexmark.ast.BlockQuote;
-import com.vladsch.flexmark.ast.Image;
-import com.vladsch.flexmark.ast.ThematicBreak;
-import com.vladsch.flexmark.ext.tables.TableBlock;
-import com.vladsch.flexmark.ext.tables.TableRow;
-import com.vladsch.flexmark.ext.tables.TableCell;
-import com.vladsch.flexmark.ext.tables.TableHead;
-import com.vladsch.flexmark.ext.tables.TableBody;
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
 import com.vladsch.flexmark.util.ast.Document;
-import com.vladsch.flexmark.util.ast.Node;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.util.Units;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.apache.poi.xwpf.usermodel.XWPFRun;
-import org.apache.poi.xwpf.usermodel.XWPFTable;
-import org.apache.poi.xwpf.usermodel.XWPFTableRow;
-import org.apache.poi.xwpf.usermodel.XWPFTableCell;
 import org.apache.poi.xwpf.usermodel.Borders;
-
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.openxmlformats.schemas.officeDocument.x2006.sharedTypes.STOnOff1;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTHyperlink;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRow;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblGrid;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblLook;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblWidth;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STTblLayoutType;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STTblWidth;
+
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * WordGenerator uses Apache POI to generate Word documents (.docx) from a Markdown AST.
  *
- * <p>This class traverses a flexmark Document AST and creates a Word document with
- * equivalent formatting and structure using Apache POI's XWPF (XML Word Processor Format).</p>
+ * <p>This class renders a Markdown document, lowered to a {@link DocumentIr}, and creates a
+ * Word document with equivalent formatting and structure using Apache POI's XWPF (XML Word
+ * Processor Format).</p>
  *
  * <p>Currently supported elements:</p>
  * <ul>
  *   <li>Headings (levels 1-6) with proper Word styles</li>
  *   <li>Paragraphs with text formatting (bold, italic, bold-italic)</li>
- *   <li>Clickable hyperlinks</li>
+ *   <li>Clickable hyperlinks, with one relationship per distinct URL</li>
  *   <li>Bulleted lists (unordered lists) with nested list support</li>
  *   <li>Numbered lists (ordered lists) with nested list support</li>
  *   <li>Code blocks (fenced ``` and inline `) with monospace font</li>
@@ -54,6 +65,7 @@ import java.nio.file.Path;
  *   <li>Images (![alt](url)) embedded in document</li>
  *   <li>Tables (GFM format) with proper borders and cell formatting</li>
  *   <li>Horizontal rules (---, ***, ___) as horizontal lines</li>
+ *   <li>Optional draft mode for fast previews</li>
  * </ul>
  *
  * <p>Future implementations will add:</p>
@@ -63,6 +75,96 @@ import java.nio.file.Path;
  */
 public class WordGenerator {
 
+    // The legacy form of a table look that only formats the first row specially
+    private static final byte[] FIRST_ROW_LOOK = {0x00, 0x20};
+
+    // Text width in points of a new document's Letter page with 1 inch margins
+    private static final float IMAGE_MAX_WIDTH = 468;
+    private static final float IMAGE_MAX_HEIGHT = 400; // Maximum image height in points, as in PDF output
+    private static final float DEFAULT_IMAGE_SIZE = 200; // Size in points of images whose header is unknown
+
+    // Width of draft tables in twips, the text width of 468 points
+    private static final int DRAFT_TABLE_WIDTH = 9360;
+
+    // A light gray 1x1 PNG that draft images are drawn as, stretched to the image's size
+    private static final byte[] IMAGE_PLACEHOLDER = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAAAAAA6fptVAAAACklEQVR42mO4CQAA2wDayV3H9QAAAABJRU5ErkJggg==");
+
+    /** System property with the number of threads that render sections of a document. */
+    private static final String PARALLELISM_PROPERTY = "md2word.word.parallelism";
+
+    /** System property that generates draft documents when {@code true}. */
+    private static final String DRAFT_PROPERTY = "md2word.word.draft";
+
+    // Sections per rendering thread, so that threads finishing early can take on more
+    private static final int SECTIONS_PER_THREAD = 4;
+
+    // Fewer IR nodes than this are rendered faster than a section document is set up
+    private static final int MIN_SECTION_NODES = 2_000;
+
+    // Top-level blocks with less Markdown source than this render faster than a cache lookup
+    private static final int MIN_CACHED_CHARS = 256;
+
+    private static final String HYPERLINKS_PATH =
+            "declare namespace w='http://schemas.openxmlformats.org/wordprocessingml/2006/main' .//w:hyperlink";
+
+    private int parallelism;
+    private WordFragmentCache fragmentCache = WordFragmentCache.shared();
+    private boolean draft;
+
+    /**
+     * Creates a Word generator that renders on the calling thread, unless a number of threads
+     * is configured through the system property {@code md2word.word.parallelism}.
+     * {@code md2word.word.draft=true} generates draft documents.
+     *
+     * @throws IllegalArgumentException if {@code md2word.word.parallelism} is less than 1
+     */
+    public WordGenerator() {
+        setParallelism(Integer.getInteger(PARALLELISM_PROPERTY, 1));
+        setDraft(Boolean.getBoolean(DRAFT_PROPERTY));
+    }
+
+    /**
+     * Sets the number of threads that render a document. With more than one, the top-level
+     * blocks of large documents are split into sections that are rendered at the same time on
+     * a {@link ForkJoinPool} of that many threads and then joined in order. The generated
+     * file is the same as when rendering on the calling thread.
+     *
+     * @param parallelism The number of threads; 1 renders on the calling thread
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the cache that large top-level blocks are rendered from when an identical block
+     * has been rendered before, in this document or an earlier one. Documents are the same
+     * with and without a cache.
+     *
+     * @param fragmentCache The cache, {@link WordFragmentCache#shared()} by default, or null
+     *                      to render every block
+     */
+    public void setFragmentCache(WordFragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+
+    /**
+     * Sets whether documents are generated as drafts, for previews that have to be quick
+     * rather than print quality. Images are shown as gray boxes of their size, which is read
+     * from the image's header instead of embedding the image. Tables have a fixed layout with
+     * equally wide columns, which Word does not have to fit to their content, links are
+     * styled text without a relationship, and the file's parts are stored uncompressed.
+     *
+     * @param draft Whether to generate drafts
+     */
+    public void setDraft(boolean draft) {
+        this.draft = draft;
+    }
+
     /**
      * Generates a Word document from a Markdown AST.
      *
@@ -72,53 +174,256 @@ public class WordGenerator {
      * @throws IllegalArgumentException if outputPath is null
      */
     public void generate(Document ast, Path outputPath) throws IOException {
+        generate(new DocumentIrBuilder().build(ast), outputPath);
+    }
+
+    /**
+     * Generates a Word document from a Markdown document lowered to its IR. A document that is
+     * converted to several formats can be lowered once and rendered by each generator.
+     *
+     * @param ir The document's IR
+     * @param outputPath The path where the .docx file will be created
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if outputPath is null
+     */
+    public void generate(DocumentIr ir, Path outputPath) throws IOException {
         if (outputPath == null) {
             throw new IllegalArgumentException("Output path cannot be null");
         }
 
-        // Create a new Word document
+        // Create a new Word document with the character styles its runs refer to
         XWPFDocument document = new XWPFDocument();
-
-        // Traverse the AST and convert each node
-        if (ast != null) {
-            for (Node node : ast.getChildren()) {
-                if (node instanceof Heading) {
-                    processHeading((Heading) node, document);
-                } else if (node instanceof Paragraph) {
-                    processParagraph((Paragraph) node, document);
-                } else if (node instanceof BulletList) {
-                    processBulletList((BulletList) node, document, 1);
-                } else if (node instanceof OrderedList) {
-                    processOrderedList((OrderedList) node, document, 1);
-                } else if (node instanceof FencedCodeBlock) {
-                    processCodeBlock((FencedCodeBlock) node, document);
-                } else if (node instanceof BlockQuote) {
-                    processBlockQuote((BlockQuote) node, document);
-                } else if (node instanceof TableBlock) {
-                    processTable((TableBlock) node, document);
-                } else if (node instanceof ThematicBreak) {
-                    processThematicBreak((ThematicBreak) node, document);
-                }
-                // Other node types (images, etc.) will be added in future tasks
+        WordStyles.addTo(document);
+        WordHyperlinks links = new WordHyperlinks(document);
+
+        // Render the document's blocks in order
+        if (ir != null) {
+            int[] sections = parallelism > 1
+                    ? WordSections.partition(ir, parallelism * SECTIONS_PER_THREAD, MIN_SECTION_NODES)
+                    : new int[0];
+            if (sections.length > 1) {
+                renderSections(ir, sections, document, links);
+            } else {
+                renderBlocks(ir, ir.firstChild(0), ir.size(), document, links);
             }
         }
 
-        // Write the document to the output file
-        try (FileOutputStream out = new FileOutputStream(outputPath.toFile())) {
+        // Write the document to the output file; draft parts are stored instead of deflated,
+        // which needs a seekable file to fill in each entry's size after its data
+        try (OutputStream out = draft ? storedZip(outputPath) : new FileOutputStream(outputPath.toFile())) {
             document.write(out);
         } finally {
             document.close();
         }
     }
 
+    private static ZipArchiveOutputStream storedZip(Path outputPath) throws IOException {
+        ZipArchiveOutputStream zip = new ZipArchiveOutputStream(outputPath);
+        zip.setMethod(ZipArchiveOutputStream.STORED);
+        return zip;
+    }
+
+    /**
+     * Renders sections of top-level blocks into documents of their own on a pool of
+     * {@link #setParallelism} threads, and appends each to the output in document order as
+     * soon as it and the sections before it are done.
+     *
+     * @param ir The document
+     * @param sections The first top-level node of each section
+     * @param document The Word document to add the blocks to
+     * @param links The document's hyperlinks
+     * @throws IOException if a rendered section cannot be added to the document
+     */
+    private void renderSections(DocumentIr ir, int[] sections, XWPFDocument document, WordHyperlinks links)
+            throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<XWPFDocument>> rendered = new ArrayList<>(sections.length);
+            for (int i = 0; i < sections.length; i++) {
+                int first = sections[i];
+                int end = i + 1 < sections.length ? sections[i + 1] : ir.size();
+                rendered.add(pool.submit(() -> {
+                    XWPFDocument fragment = new XWPFDocument();
+                    renderBlocks(ir, first, end, fragment, new WordHyperlinks(fragment));
+                    return fragment;
+                }));
+            }
+
+            WordSections merged = new WordSections(document, links);
+            for (ForkJoinTask<XWPFDocument> section : rendered) {
+                XWPFDocument fragment = section.join();
+                try {
+                    merged.append(fragment);
+                } finally {
+                    // The fragment is never written; revert instead of saving it on close
+                    fragment.getPackage().revert();
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Renders consecutive top-level blocks into a Word document.
+     *
+     * <p>Large blocks are looked up in the {@link #setFragmentCache fragment cache} first.
+     * A cached block is spliced in as a copy of the XML it was rendered to before; any other
+     * large block is cached once it is rendered.</p>
+     *
+     * @param ir The document
+     * @param first The first top-level node to render
+     * @param end The node after the last one to render
+     * @param document The Word document to add the blocks to
+     * @param links The document's hyperlinks
+     */
+    private void renderBlocks(DocumentIr ir, int first, int end, XWPFDocument document, WordHyperlinks links) {
+        CTBody body = document.getDocument().getBody();
+        for (int node = first; node >= 0 && node < end; node = ir.nextSibling(node)) {
+            String key = fragmentCache != null ? fragmentKey(ir, node, draft) : null;
+            if (key == null) {
+                renderBlock(ir, node, document, links);
+                continue;
+            }
+
+            CTBody fragment = fragmentCache.get(key);
+            if (fragment != null) {
+                spliceFragment(fragment, body, links);
+            } else {
+                try (XmlCursor blocks = body.newCursor()) {
+                    // Stays on the last block before this one, from where the new blocks follow
+                    boolean after = blocks.toLastChild();
+                    renderBlock(ir, node, document, links);
+                    if (after ? blocks.toNextSibling() : blocks.toFirstChild()) {
+                        fragmentCache.put(key, captureFragment(blocks, document));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders one top-level block into a Word document.
+     *
+     * @param ir The document
+     * @param node The top-level node
+     * @param document The Word document to add the block to
+     * @param links The document's hyperlinks
+     */
+    private void renderBlock(DocumentIr ir, int node, XWPFDocument document, WordHyperlinks links) {
+        DocumentIr.Kind kind = ir.kind(node);
+        if (kind == DocumentIr.Kind.HEADING) {
+            processHeading(ir, node, document, links);
+        } else if (kind == DocumentIr.Kind.PARAGRAPH) {
+            processParagraph(ir, node, document, links);
+        } else if (kind == DocumentIr.Kind.BULLET_LIST || kind == DocumentIr.Kind.ORDERED_LIST) {
+            processList(ir, node, document, links);
+        } else if (kind == DocumentIr.Kind.CODE_BLOCK) {
+            processCodeBlock(ir, node, document);
+        } else if (kind == DocumentIr.Kind.BLOCK_QUOTE) {
+            processBlockQuote(ir, node, document, links);
+        } else if (kind == DocumentIr.Kind.TABLE) {
+            processTable(ir, node, document, links);
+        } else if (kind == DocumentIr.Kind.THEMATIC_BREAK) {
+            processThematicBreak(document);
+        }
+        // Other node types (images, etc.) will be added in future tasks
+    }
+
+    /**
+     * Computes the fragment cache key of a top-level block: a SHA-256 hash of its kind, its
+     * Markdown source and whether it is rendered as a draft, which is all its rendering
+     * depends on.
+     *
+     * @param ir The document
+     * @param block The top-level node
+     * @param draft Whether the block is rendered as a draft
+     * @return The key, or null if the block is too small to be worth caching or shows images,
+     *         whose files may change and whose pictures are parts of the document
+     */
+    private static String fragmentKey(DocumentIr ir, int block, boolean draft) {
+        if (ir.textLength(block) < MIN_CACHED_CHARS) {
+            return null;
+        }
+        for (int node = block + 1, end = ir.subtreeEnd(block); node < end; node++) {
+            if (ir.kind(node) == DocumentIr.Kind.IMAGE) {
+                return null;
+            }
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        String source = (draft ? "draft " : "") + ir.kind(block).name() + '\n' + ir.chars(block);
+        return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Copies the blocks a top-level block was rendered to, with each hyperlink's relationship
+     * id replaced by its URL.
+     *
+     * @param blocks A cursor on the first block, moved past the last one
+     * @param document The Word document the blocks were rendered into
+     * @return The fragment
+     */
+    private static CTBody captureFragment(XmlCursor blocks, XWPFDocument document) {
+        CTBody fragment = CTBody.Factory.newInstance();
+        do {
+            XmlObject block = blocks.getObject();
+            if (block instanceof CTP) {
+                fragment.addNewP().set(block);
+            } else if (block instanceof CTTbl) {
+                fragment.addNewTbl().set(block);
+            }
+        } while (blocks.toNextSibling());
+        for (XmlObject hyperlink : fragment.selectPath(HYPERLINKS_PATH)) {
+            CTHyperlink link = (CTHyperlink) hyperlink;
+            link.setId(document.getPackagePart().getRelationship(link.getId()).getTargetURI().toString());
+        }
+        return fragment;
+    }
+
+    /**
+     * Appends copies of the blocks of a cached fragment to a document body, with hyperlinks
+     * to the document's relationships for their URLs.
+     *
+     * @param fragment The fragment, which is left as it is
+     * @param body The document body
+     * @param links The document's hyperlinks
+     */
+    private static void spliceFragment(CTBody fragment, CTBody body, WordHyperlinks links) {
+        try (XmlCursor cursor = fragment.newCursor()) {
+            for (boolean more = cursor.toFirstChild(); more; more = cursor.toNextSibling()) {
+                XmlObject block = cursor.getObject();
+                XmlObject copy;
+                if (block instanceof CTP) {
+                    copy = body.addNewP();
+                } else if (block instanceof CTTbl) {
+                    copy = body.addNewTbl();
+                } else {
+                    continue;
+                }
+                copy.set(block);
+                for (XmlObject hyperlink : copy.selectPath(HYPERLINKS_PATH)) {
+                    CTHyperlink link = (CTHyperlink) hyperlink;
+                    link.setId(links.relationshipId(link.getId()));
+                }
+            }
+        }
+    }
+
     /**
      * Processes a Markdown heading node and adds it to the Word document.
      *
-     * @param heading The flexmark Heading node to process
+     * @param ir The document
+     * @param heading The heading node to process
      * @param document The Word document to add the heading to
+     * @param links The document's hyperlinks
      */
-    private void processHeading(Heading heading, XWPFDocument document) {
-        int level = heading.getLevel();
+    private void processHeading(DocumentIr ir, int heading, XWPFDocument document, WordHyperlinks links) {
+        int level = ir.headingLevel(heading);
 
         // Validate heading level (flexmark should guarantee 1-6)
         if (level < 1 || level > 6) {
@@ -130,21 +435,23 @@ public class WordGenerator {
         paragraph.setStyle("Heading" + level);
 
         // Process inline content (text, emphasis, strong) within the heading
-        processInlineContent(heading, paragraph, false, false);
+        processInlineContent(ir, heading, paragraph, links, false, false);
     }
 
     /**
      * Processes a Markdown paragraph node and adds it to the Word document.
      *
-     * @param paragraph The flexmark Paragraph node to process
+     * @param ir The document
+     * @param paragraph The paragraph node to process
      * @param document The Word document to add the paragraph to
+     * @param links The document's hyperlinks
      */
-    private void processParagraph(Paragraph paragraph, XWPFDocument document) {
+    private void processParagraph(DocumentIr ir, int paragraph, XWPFDocument document, WordHyperlinks links) {
         // Create paragraph with default Word style (no special styling)
         XWPFParagraph wordParagraph = document.createParagraph();
 
         // Process inline content (text, emphasis, strong) within the paragraph
-        processInlineContent(paragraph, wordParagraph, false, false);
+        processInlineContent(ir, paragraph, wordParagraph, links, false, false);
 
         // Check if paragraph is empty by counting runs
         // Note: We can't easily remove the paragraph after creation, so we just check for empty runs
@@ -155,197 +462,183 @@ public class WordGenerator {
      * Processes inline content within a block node (heading or paragraph).
      * Handles mixed content including plain text, emphasis (italic), strong (bold) formatting, and links.
      *
-     * @param parent The parent node containing inline content
+     * <p>The block's descendants are visited in document order with a loop over their indices,
+     * so arbitrarily deep nesting needs no recursion. Their emphasis comes from the IR's style
+     * bits.</p>
+     *
+     * <p>flexmark splits text at every delimiter, so a paragraph often has several adjacent
+     * text nodes with the same formatting. Text and inline code are collected in a
+     * {@link PendingRun} and become one run per span of identical formatting, and a run only
+     * records the formatting that is on, so document.xml carries no redundant runs. The look of
+     * inline code, links and blockquotes comes from the {@link WordStyles} character styles.</p>
+     *
+     * @param ir The document
+     * @param parent The node containing inline content
      * @param wordParagraph The Word paragraph to add runs to
+     * @param links The document's hyperlinks
      * @param inheritedBold Whether bold formatting is inherited from parent context
-     * @param inheritedItalic Whether italic formatting is inherited from parent context
+     * @param quoted Whether the content is part of a blockquote, whose text has the italic
+     *               {@link WordStyles#QUOTE} style
      */
-    private void processInlineContent(Node parent, XWPFParagraph wordParagraph,
-                                     boolean inheritedBold, boolean inheritedItalic) {
-        for (Node child : parent.getChildren()) {
-            if (child instanceof Text) {
-                // Plain text node
-                Text textNode = (Text) child;
-                String text = textNode.getChars().toString();
-
-                if (!text.isEmpty()) {
-                    XWPFRun run = wordParagraph.createRun();
-                    run.setText(text);
-                    run.setBold(inheritedBold);
-                    run.setItalic(inheritedItalic);
+    private void processInlineContent(DocumentIr ir, int parent, XWPFParagraph wordParagraph, WordHyperlinks links,
+                                     boolean inheritedBold, boolean quoted) {
+        PendingRun pending = new PendingRun(wordParagraph);
+        int end = ir.subtreeEnd(parent);
+        int node = parent + 1;
+        while (node < end) {
+            DocumentIr.Kind kind = ir.kind(node);
+            int style = ir.style(node);
+            boolean bold = inheritedBold || (style & DocumentIr.BOLD) != 0;
+            boolean italic = (style & DocumentIr.ITALIC) != 0;
+
+            if (kind == DocumentIr.Kind.TEXT) {
+                // Plain text node; quoted text is italic through its style
+                if (ir.textLength(node) > 0) {
+                    pending.append(ir.chars(node), quoted ? WordStyles.QUOTE : null, bold, italic && !quoted);
                 }
-            } else if (child instanceof Emphasis) {
-                // Italic text (*text* or _text_)
-                Emphasis emphasis = (Emphasis) child;
-
-                // Check if this Emphasis is within a StrongEmphasis (bold-italic case)
-                boolean parentIsStrong = (child.getParent() instanceof StrongEmphasis);
-
-                if (parentIsStrong) {
-                    // Bold-italic: both inheritedBold and italic should be true
-                    processInlineContent(emphasis, wordParagraph, true, true);
-                } else {
-                    // Just italic
-                    processInlineContent(emphasis, wordParagraph, inheritedBold, true);
-                }
-            } else if (child instanceof StrongEmphasis) {
-                // Bold text (**text** or __text__)
-                StrongEmphasis strong = (StrongEmphasis) child;
-                processInlineContent(strong, wordParagraph, true, inheritedItalic);
-            } else if (child instanceof Link) {
+            } else if (kind == DocumentIr.Kind.EMPHASIS || kind == DocumentIr.Kind.STRONG_EMPHASIS) {
+                // Italic (*text*) or bold (**text**) text; its content follows with the style bits set
+                node++;
+                continue;
+            } else if (kind == DocumentIr.Kind.LINK) {
                 // Hyperlink [text](url)
-                Link link = (Link) child;
-                String url = link.getUrl().toString();
+                String url = ir.url(node);
 
                 // Extract link text from children
-                StringBuilder linkText = new StringBuilder();
-                for (Node linkChild : link.getChildren()) {
-                    if (linkChild instanceof Text) {
-                        linkText.append(((Text) linkChild).getChars());
-                    }
-                    // For simplicity, ignore formatting within link text for now
-                }
-
-                String text = linkText.toString();
+                // For simplicity, ignore formatting within link text for now
+                String text = directText(ir, node);
                 if (!text.isEmpty() && !url.isEmpty()) {
-                    // Create hyperlink run
-                    XWPFRun run = wordParagraph.createRun();
-                    run.setText(text);
-                    run.setBold(inheritedBold);
-                    run.setItalic(inheritedItalic);
-
-                    // Add hyperlink styling (blue color and underline)
-                    run.setColor("0000FF"); // Blue color for links
-                    run.setUnderline(org.apache.poi.xwpf.usermodel.UnderlinePatterns.SINGLE);
+                    // Create hyperlink run; each link keeps a run of its own
+                    pending.flush();
+                    // The Hyperlink style makes the text blue and underlined
+                    XWPFRun run = draft ? null : links.createRun(wordParagraph, url);
+                    if (run == null) {
+                        // Draft, or not linkable, so only styled as a link
+                        run = wordParagraph.createRun();
+                    }
+                    formatRun(run, text, WordStyles.HYPERLINK, bold, italic || quoted);
                 }
-            } else if (child instanceof Code) {
+            } else if (kind == DocumentIr.Kind.CODE) {
                 // Inline code `code`
-                Code codeNode = (Code) child;
-                String codeText = codeNode.getChars().toString();
-
-                if (!codeText.isEmpty()) {
-                    XWPFRun run = wordParagraph.createRun();
-                    run.setFontFamily("Courier New");
-                    run.setText(codeText);
+                if (ir.textLength(node) > 0) {
                     // Inline code should not inherit bold/italic formatting
+                    pending.append(ir.chars(node), WordStyles.INLINE_CODE, false, false);
                 }
-            } else if (child instanceof Image) {
+            } else if (kind == DocumentIr.Kind.IMAGE) {
                 // Image ![alt](url)
-                Image imageNode = (Image) child;
-                processImage(imageNode, wordParagraph);
+                pending.flush();
+                processImage(ir, node, wordParagraph);
             }
+            // Other nodes are skipped with their content
+            node = ir.subtreeEnd(node);
         }
+        pending.flush();
     }
 
     /**
-     * Processes a Markdown bullet list node and adds it to the Word document.
+     * Sets the text and formatting of a new run. Bold and italic are only recorded when they
+     * are on, since a run without them is regular text.
      *
-     * @param bulletList The flexmark BulletList node to process
-     * @param document The Word document to add the list to
-     * @param level The nesting level (1 for top-level, 2+ for nested)
+     * @param run The run, which has no properties yet
+     * @param text The run's text
+     * @param style The id of the run's {@link WordStyles} character style, or null
+     * @param bold Whether the text is bold
+     * @param italic Whether the text is italic
      */
-    private void processBulletList(BulletList bulletList, XWPFDocument document, int level) {
-        // Iterate through list items
-        for (Node node : bulletList.getChildren()) {
-            if (node instanceof BulletListItem) {
-                BulletListItem listItem = (BulletListItem) node;
-
-                // Create paragraph with bullet style based on level
-                XWPFParagraph paragraph = document.createParagraph();
-                String style = (level == 1) ? "List Bullet" : "List Bullet " + level;
-                paragraph.setStyle(style);
-
-                // Process the list item's content (Paragraph nodes or nested lists)
-                for (Node itemChild : listItem.getChildren()) {
-                    if (itemChild instanceof Paragraph) {
-                        Paragraph itemParagraph = (Paragraph) itemChild;
-                        // Process inline content within the list item's paragraph
-                        processInlineContent(itemParagraph, paragraph, false, false);
-                    } else if (itemChild instanceof BulletList) {
-                        // Nested bullet list
-                        processBulletList((BulletList) itemChild, document, level + 1);
-                    } else if (itemChild instanceof OrderedList) {
-                        // Nested numbered list within bullet list
-                        processOrderedList((OrderedList) itemChild, document, level + 1);
-                    }
-                }
-            }
+    private static void formatRun(XWPFRun run, String text, String style, boolean bold, boolean italic) {
+        if (style != null) {
+            // POI appends run properties in call order; the style reference comes first
+            run.setStyle(style);
+        }
+        run.setText(text);
+        if (bold) {
+            run.setBold(true);
+        }
+        if (italic) {
+            run.setItalic(true);
         }
     }
 
     /**
-     * Processes a Markdown ordered list node and adds it to the Word document.
+     * Processes a Markdown bullet or ordered list node, including the lists nested in its
+     * items, and adds it to the Word document.
+     *
+     * <p>Every item becomes a paragraph with the list style of its kind and nesting level;
+     * nested lists follow the paragraph of the item they belong to. Nesting is walked with an
+     * explicit stack of {@link ListLevel}s instead of recursion, so arbitrarily deep lists
+     * cannot overflow the call stack.</p>
      *
-     * @param orderedList The flexmark OrderedList node to process
+     * @param ir The document
+     * @param list The bullet or ordered list node to process
      * @param document The Word document to add the list to
-     * @param level The nesting level (1 for top-level, 2+ for nested)
+     * @param links The document's hyperlinks
      */
-    private void processOrderedList(OrderedList orderedList, XWPFDocument document, int level) {
-        // Iterate through list items
-        for (Node node : orderedList.getChildren()) {
-            if (node instanceof OrderedListItem) {
-                OrderedListItem listItem = (OrderedListItem) node;
-
-                // Create paragraph with numbered list style based on level
-                XWPFParagraph paragraph = document.createParagraph();
-                String style = (level == 1) ? "List Number" : "List Number " + level;
-                paragraph.setStyle(style);
-
+    private void processList(DocumentIr ir, int list, XWPFDocument document, WordHyperlinks links) {
+        Deque<ListLevel> levels = new ArrayDeque<>();
+        levels.push(new ListLevel(ir, list, 1));
+        while (!levels.isEmpty()) {
+            ListLevel level = levels.peek();
+            int child = level.nextChild;
+            if (child >= 0) {
                 // Process the list item's content (Paragraph nodes or nested lists)
-                for (Node itemChild : listItem.getChildren()) {
-                    if (itemChild instanceof Paragraph) {
-                        Paragraph itemParagraph = (Paragraph) itemChild;
-                        // Process inline content within the list item's paragraph
-                        processInlineContent(itemParagraph, paragraph, false, false);
-                    } else if (itemChild instanceof BulletList) {
-                        // Nested bullet list within numbered list
-                        processBulletList((BulletList) itemChild, document, level + 1);
-                    } else if (itemChild instanceof OrderedList) {
-                        // Nested numbered list
-                        processOrderedList((OrderedList) itemChild, document, level + 1);
-                    }
+                level.nextChild = ir.nextSibling(child);
+                DocumentIr.Kind kind = ir.kind(child);
+                if (kind == DocumentIr.Kind.PARAGRAPH) {
+                    // Process inline content within the list item's paragraph
+                    processInlineContent(ir, child, level.paragraph, links, false, false);
+                } else if (kind == DocumentIr.Kind.BULLET_LIST || kind == DocumentIr.Kind.ORDERED_LIST) {
+                    // Nested list; this item continues after it
+                    levels.push(new ListLevel(ir, child, level.level + 1));
                 }
+                continue;
             }
+
+            int item = level.nextItem(ir);
+            if (item < 0) {
+                levels.pop();
+                continue;
+            }
+
+            // Create paragraph with bullet or numbered list style based on level
+            level.paragraph = document.createParagraph();
+            String style = level.ordered ? "List Number" : "List Bullet";
+            level.paragraph.setStyle(level.level == 1 ? style : style + " " + level.level);
+            level.nextChild = ir.firstChild(item);
         }
     }
 
     /**
      * Processes a Markdown fenced code block node and adds it to the Word document.
      *
-     * @param codeBlock The flexmark FencedCodeBlock node to process
+     * @param ir The document
+     * @param codeBlock The code block node to process
      * @param document The Word document to add the code block to
      */
-    private void processCodeBlock(FencedCodeBlock codeBlock, XWPFDocument document) {
+    private void processCodeBlock(DocumentIr ir, int codeBlock, XWPFDocument document) {
         // Create paragraph for code block
         XWPFParagraph paragraph = document.createParagraph();
 
         // Extract code content from the code block's text content
-        StringBuilder codeBuilder = new StringBuilder();
-        for (Node child : codeBlock.getChildren()) {
-            if (child instanceof Text) {
-                codeBuilder.append(((Text) child).getChars());
-            }
-        }
-        String code = codeBuilder.toString();
+        String code = directText(ir, codeBlock);
 
         // Create run with monospace font
         XWPFRun run = paragraph.createRun();
-        run.setFontFamily("Courier New");
+        run.setStyle(WordStyles.CODE_BLOCK);
         run.setText(code);
     }
 
     /**
      * Processes a Markdown blockquote node and adds it to the Word document.
      *
-     * @param blockQuote The flexmark BlockQuote node to process
+     * @param ir The document
+     * @param blockQuote The blockquote node to process
      * @param document The Word document to add the blockquote to
+     * @param links The document's hyperlinks
      */
-    private void processBlockQuote(BlockQuote blockQuote, XWPFDocument document) {
+    private void processBlockQuote(DocumentIr ir, int blockQuote, XWPFDocument document, WordHyperlinks links) {
         // Process each child paragraph within the blockquote
-        for (Node child : blockQuote.getChildren()) {
-            if (child instanceof Paragraph) {
-                Paragraph paragraphNode = (Paragraph) child;
-
+        for (int child = ir.firstChild(blockQuote); child >= 0; child = ir.nextSibling(child)) {
+            if (ir.kind(child) == DocumentIr.Kind.PARAGRAPH) {
                 // Create paragraph for blockquote content
                 XWPFParagraph paragraph = document.createParagraph();
 
@@ -353,7 +646,7 @@ public class WordGenerator {
                 paragraph.setIndentationLeft(720);
 
                 // Process inline content within the blockquote paragraph with italic formatting
-                processInlineContent(paragraphNode, paragraph, false, true); // italic=true
+                processInlineContent(ir, child, paragraph, links, false, true); // quoted=true
             }
         }
     }
@@ -361,29 +654,59 @@ public class WordGenerator {
     /**
      * Processes a Markdown image node and embeds it in the Word document.
      *
-     * @param image The flexmark Image node to process
+     * <p>The image is read from a file, or decoded from the URL for images embedded as
+     * {@code data:} URIs. Identical images share one picture part, which POI finds by the
+     * checksum of the picture data. The picture type and size come from the image's header,
+     * so misnamed files are embedded with their true type and images keep their aspect
+     * ratio, shown at one point per pixel like in PDF output and scaled down to fit the
+     * page. Drafts show a gray placeholder picture of that size instead, shared by all
+     * images, so only the image's header is read.</p>
+     *
+     * @param ir The document
+     * @param image The image node to process
      * @param wordParagraph The Word paragraph to add the image to
      */
-    private void processImage(Image image, XWPFParagraph wordParagraph) {
-        // Extract image URL (treated as file path)
-        String imageUrl = image.getUrl().toString();
+    private void processImage(DocumentIr ir, int image, XWPFParagraph wordParagraph) {
+        // Extract image URL (treated as file path unless it is a data URI)
+        DataUri dataUri = DataUri.parse(ir.urlChars(image));
+        String imageUrl = dataUri == null ? ir.url(image) : null;
 
         // Extract alt text (for accessibility)
-        String altText = image.getText().toString();
+        String altText = ir.text(image);
         if (altText.isEmpty()) {
-            altText = imageUrl; // Fallback to URL if no alt text
+            altText = dataUri == null ? imageUrl : dataUri.mediaType(); // Fallback to URL if no alt text
         }
 
         // Create run for image
         XWPFRun run = wordParagraph.createRun();
 
-        // Load and embed image from file
-        try (InputStream is = new FileInputStream(imageUrl)) {
-            // Detect file type from extension
-            int pictureType = detectPictureType(imageUrl);
-
-            // Add picture to document (let Word auto-size, use default dimensions)
-            run.addPicture(is, pictureType, imageUrl, 200, 200);
+        try {
+            // Read format and pixel size from the first bytes; files are probed once while unchanged
+            ImageHeader header;
+            if (dataUri == null) {
+                header = ImageHeader.probe(Paths.get(imageUrl));
+            } else {
+                try (InputStream is = dataUri.openStream()) {
+                    header = ImageHeader.read(is);
+                }
+            }
+            String fileName = dataUri == null ? imageUrl : dataUri.fileName();
+            int pictureType = detectPictureType(header, fileName);
+
+            // Scale down to fit the page, keeping the aspect ratio
+            float width = header != null ? header.width() : DEFAULT_IMAGE_SIZE;
+            float height = header != null ? header.height() : DEFAULT_IMAGE_SIZE;
+            float scale = Math.min(1, Math.min(IMAGE_MAX_WIDTH / width, IMAGE_MAX_HEIGHT / height));
+
+            // Load and embed image from file or data URI, or the placeholder for drafts
+            if (draft) {
+                run.addPicture(new ByteArrayInputStream(IMAGE_PLACEHOLDER), XWPFDocument.PICTURE_TYPE_PNG,
+                        "placeholder.png", Units.toEMU(width * scale), Units.toEMU(height * scale));
+            } else {
+                try (InputStream is = dataUri == null ? new FileInputStream(imageUrl) : dataUri.openStream()) {
+                    run.addPicture(is, pictureType, fileName, Units.toEMU(width * scale), Units.toEMU(height * scale));
+                }
+            }
         } catch (Exception e) {
             // If image loading fails, add alt text as placeholder
             run.setText("[Image: " + altText + "]");
@@ -391,12 +714,29 @@ public class WordGenerator {
     }
 
     /**
-     * Detects the picture type based on file extension.
+     * Detects the picture type from an image's header, or from its file extension if the
+     * header was not recognized.
      *
+     * @param header The image's header, or null if it was not recognized
      * @param filename The image file path or URL
      * @return The XWPFDocument picture type constant
+     * @throws IOException if the image is in a format Word documents cannot embed
      */
-    private int detectPictureType(String filename) {
+    private int detectPictureType(ImageHeader header, String filename) throws IOException {
+        if (header != null) {
+            if (header.format() == ImageHeader.Format.PNG) {
+                return XWPFDocument.PICTURE_TYPE_PNG;
+            } else if (header.format() == ImageHeader.Format.JPEG) {
+                return XWPFDocument.PICTURE_TYPE_JPEG;
+            } else if (header.format() == ImageHeader.Format.GIF) {
+                return XWPFDocument.PICTURE_TYPE_GIF;
+            } else if (header.format() == ImageHeader.Format.BMP) {
+                return XWPFDocument.PICTURE_TYPE_BMP;
+            } else {
+                // POI has no picture type for WebP
+                throw new IOException("Unsupported image format " + header.format() + ": " + filename);
+            }
+        }
         String lower = filename.toLowerCase();
         if (lower.endsWith(".png")) {
             return XWPFDocument.PICTURE_TYPE_PNG;
@@ -415,114 +755,103 @@ public class WordGenerator {
     /**
      * Processes a Markdown table node and adds it to the Word document.
      *
-     * @param table The flexmark TableBlock node to process
+     * <p>The table is built directly on its XML: each row and cell is added once, with the
+     * single paragraph its content goes into. {@link XWPFDocument#createTable} would instead
+     * create every cell with an empty paragraph that has to be removed again, and keep POI
+     * objects for every row and cell, which made tables of many thousand rows take minutes.
+     * Borders and the bold header row come from the {@link WordStyles#TABLE} style, so neither
+     * is repeated per table or per run. Draft tables have a fixed layout with equally wide
+     * columns, so Word does not measure their content to fit the columns to it.</p>
+     *
+     * @param ir The document
+     * @param table The table node to process
      * @param document The Word document to add the table to
+     * @param links The document's hyperlinks
      */
-    private void processTable(TableBlock table, XWPFDocument document) {
-        // Get table structure (rows and columns)
-        int rowCount = 0;
-        int columnCount = 0;
-
+    private void processTable(DocumentIr ir, int table, XWPFDocument document, WordHyperlinks links) {
         // Collect all TableRow nodes from TableHead, TableBody (skip TableSeparator)
-        java.util.List<TableRow> allRows = new java.util.ArrayList<>();
-        for (Node child : table.getChildren()) {
-            if (child instanceof TableRow) {
+        java.util.List<Integer> allRows = new java.util.ArrayList<>();
+        for (int child = ir.firstChild(table); child >= 0; child = ir.nextSibling(child)) {
+            DocumentIr.Kind kind = ir.kind(child);
+            if (kind == DocumentIr.Kind.TABLE_ROW) {
                 // Direct TableRow (shouldn't happen with GFM but handle it)
-                allRows.add((TableRow) child);
-            } else if (child instanceof TableHead || child instanceof TableBody) {
+                allRows.add(child);
+            } else if (kind == DocumentIr.Kind.TABLE_HEAD || kind == DocumentIr.Kind.TABLE_BODY) {
                 // TableHead and TableBody contain TableRow children
-                for (Node rowNode : child.getChildren()) {
-                    if (rowNode instanceof TableRow) {
-                        allRows.add((TableRow) rowNode);
+                for (int rowNode = ir.firstChild(child); rowNode >= 0; rowNode = ir.nextSibling(rowNode)) {
+                    if (ir.kind(rowNode) == DocumentIr.Kind.TABLE_ROW) {
+                        allRows.add(rowNode);
                     }
                 }
             }
             // Skip TableSeparator
         }
 
-        // First pass: count rows and determine maximum columns
-        for (TableRow row : allRows) {
-            rowCount++;
+        // First pass: determine maximum columns
+        int columnCount = 0;
+        for (int row : allRows) {
             int rowColumns = 0;
-            for (Node cellNode : row.getChildren()) {
-                if (cellNode instanceof TableCell) {
+            for (int cellNode = ir.firstChild(row); cellNode >= 0; cellNode = ir.nextSibling(cellNode)) {
+                if (ir.kind(cellNode) == DocumentIr.Kind.TABLE_CELL) {
                     rowColumns++;
                 }
             }
             columnCount = Math.max(columnCount, rowColumns);
         }
 
-        if (rowCount == 0 || columnCount == 0) {
+        if (allRows.isEmpty() || columnCount == 0) {
             return; // Empty table, skip
         }
 
-        // Create table in Word document
-        XWPFTable wordTable = document.createTable(rowCount, columnCount);
+        // Create the table with its style; the look marks the first row as a header
+        CTTbl wordTable = document.getDocument().getBody().addNewTbl();
+        CTTblPr tableProperties = wordTable.addNewTblPr();
+        tableProperties.addNewTblStyle().setVal(WordStyles.TABLE);
+        if (draft) {
+            CTTblWidth tableWidth = tableProperties.addNewTblW();
+            tableWidth.setType(STTblWidth.DXA);
+            tableWidth.setW(BigInteger.valueOf(DRAFT_TABLE_WIDTH));
+            tableProperties.addNewTblLayout().setType(STTblLayoutType.FIXED);
+        }
+        CTTblLook look = tableProperties.addNewTblLook();
+        look.setVal(FIRST_ROW_LOOK);
+        look.setFirstRow(STOnOff1.ON);
+        if (draft) {
+            CTTblGrid grid = wordTable.addNewTblGrid();
+            BigInteger columnWidth = BigInteger.valueOf(DRAFT_TABLE_WIDTH / columnCount);
+            for (int column = 0; column < columnCount; column++) {
+                grid.addNewGridCol().setW(columnWidth);
+            }
+        }
 
         // Process each row
-        int rowIndex = 0;
-        for (TableRow row : allRows) {
-            XWPFTableRow wordRow = wordTable.getRow(rowIndex);
+        for (int row : allRows) {
+            CTRow wordRow = wordTable.addNewTr();
 
-            // Process each cell in the row
+            // Process each cell in the row; cell content goes into the cell's only paragraph
             int cellIndex = 0;
-            for (Node cellNode : row.getChildren()) {
-                if (cellNode instanceof TableCell) {
-                    TableCell cell = (TableCell) cellNode;
-                    XWPFTableCell wordCell = wordRow.getCell(cellIndex);
-
-                    // Remove all existing paragraphs (cells come with one empty paragraph)
-                    // Remove from the end to avoid index issues
-                    while (wordCell.getParagraphs().size() > 0) {
-                        wordCell.removeParagraph(0);
-                    }
-
-                    // Process cell content
-                    // Table cells can contain inline nodes directly (StrongEmphasis, Emphasis, Text, etc.)
-                    // Use processInlineContent to handle formatting properly
-                    XWPFParagraph cellParagraph = wordCell.addParagraph();
-                    // First row (header) gets bold formatting as base style
-                    processInlineContent(cell, cellParagraph, rowIndex == 0, false);
-
+            for (int cell = ir.firstChild(row); cell >= 0; cell = ir.nextSibling(cell)) {
+                if (ir.kind(cell) == DocumentIr.Kind.TABLE_CELL) {
+                    XWPFParagraph cellParagraph = new XWPFParagraph(wordRow.addNewTc().addNewP(), document);
+                    processInlineContent(ir, cell, cellParagraph, links, false, false);
                     cellIndex++;
                 }
             }
 
-            // Fill remaining cells with empty content if row has fewer cells
+            // Fill remaining cells with an empty paragraph if row has fewer cells
             while (cellIndex < columnCount) {
-                XWPFTableCell emptyCell = wordRow.getCell(cellIndex);
-                // Remove all existing paragraphs
-                while (emptyCell.getParagraphs().size() > 0) {
-                    emptyCell.removeParagraph(0);
-                }
-                emptyCell.addParagraph();
+                wordRow.addNewTc().addNewP();
                 cellIndex++;
             }
-
-            rowIndex++;
-        }
-
-        // Apply bold formatting to header row (first row)
-        if (rowIndex > 0) {
-            XWPFTableRow headerRow = wordTable.getRow(0);
-            for (int i = 0; i < columnCount; i++) {
-                XWPFTableCell headerCell = headerRow.getCell(i);
-                for (XWPFParagraph paragraph : headerCell.getParagraphs()) {
-                    for (XWPFRun run : paragraph.getRuns()) {
-                        run.setBold(true);
-                    }
-                }
-            }
         }
     }
 
     /**
      * Processes a Markdown horizontal rule (thematic break) node and adds it to the Word document.
      *
-     * @param thematicBreak The flexmark ThematicBreak node to process
      * @param document The Word document to add the horizontal line to
      */
-    private void processThematicBreak(ThematicBreak thematicBreak, XWPFDocument document) {
+    private void processThematicBreak(XWPFDocument document) {
         // Create a paragraph with a bottom border to simulate a horizontal line
         XWPFParagraph paragraph = document.createParagraph();
 
@@ -532,25 +861,112 @@ public class WordGenerator {
     }
 
     /**
-     * Extracts text content from a node and its children recursively.
-     * Used for table cells that may not have explicit Paragraph nodes.
+     * Concatenates the text nodes among a node's children. POI needs each run's text as a
+     * String; when there is a single text node, as for most code blocks and links, that
+     * String is created straight from the Markdown source instead of through a builder.
      *
-     * @param node The node to extract text from
-     * @return The concatenated text content
+     * @param ir The document
+     * @param node The node whose children are read
+     * @return The text of the node's text children
      */
-    private String extractTextFromNode(Node node) {
+    private static String directText(DocumentIr ir, int node) {
+        int first = ir.firstChild(node);
+        while (first >= 0 && ir.kind(first) != DocumentIr.Kind.TEXT) {
+            first = ir.nextSibling(first);
+        }
+        if (first < 0) {
+            return "";
+        }
+        int next = ir.nextSibling(first);
+        while (next >= 0 && ir.kind(next) != DocumentIr.Kind.TEXT) {
+            next = ir.nextSibling(next);
+        }
+        if (next < 0) {
+            return ir.text(first);
+        }
+
         StringBuilder text = new StringBuilder();
+        for (int child = first; child >= 0; child = ir.nextSibling(child)) {
+            if (ir.kind(child) == DocumentIr.Kind.TEXT) {
+                text.append(ir.chars(child));
+            }
+        }
+        return text.toString();
+    }
 
-        // If it's a Text node, append its content
-        if (node instanceof Text) {
-            text.append(((Text) node).getChars());
-        } else {
-            // Otherwise, recursively get text from children
-            for (Node child : node.getChildren()) {
-                text.append(extractTextFromNode(child));
+    /**
+     * Text collected for the next run of a paragraph. Text with the same formatting as the
+     * text before it is added to the same run; other text first writes out what was collected.
+     */
+    private static final class PendingRun {
+        private final XWPFParagraph paragraph;
+        private final StringBuilder text = new StringBuilder();
+        private String style;
+        private boolean bold;
+        private boolean italic;
+
+        private PendingRun(XWPFParagraph paragraph) {
+            this.paragraph = paragraph;
+        }
+
+        /**
+         * @param chars The text to add
+         * @param style The id of the text's {@link WordStyles} character style, or null
+         * @param bold Whether the text is bold
+         * @param italic Whether the text is italic
+         */
+        void append(CharSequence chars, String style, boolean bold, boolean italic) {
+            if (text.length() > 0 && (!Objects.equals(style, this.style) || bold != this.bold || italic != this.italic)) {
+                flush();
             }
+            this.style = style;
+            this.bold = bold;
+            this.italic = italic;
+            text.append(chars);
         }
 
-        return text.toString();
+        /**
+         * Adds the collected text to the paragraph as a single run.
+         */
+        void flush() {
+            if (text.length() == 0) {
+                return;
+            }
+            formatRun(paragraph.createRun(), text.toString(), style, bold, italic);
+            text.setLength(0);
+        }
+    }
+
+    /**
+     * A list being walked by {@link #processList}: the next item, and the paragraph and next
+     * child of the current item.
+     */
+    private static final class ListLevel {
+        private final boolean ordered;
+        // The nesting level (1 for top-level, 2+ for nested)
+        private final int level;
+        // Node indices; -1 when there are no more
+        private int nextItemCandidate;
+        private int nextChild = -1;
+        private XWPFParagraph paragraph;
+
+        private ListLevel(DocumentIr ir, int list, int level) {
+            this.ordered = ir.kind(list) == DocumentIr.Kind.ORDERED_LIST;
+            this.level = level;
+            this.nextItemCandidate = ir.firstChild(list);
+        }
+
+        /**
+         * @return The next item of the list's own kind, or -1 after the last one
+         */
+        private int nextItem(DocumentIr ir) {
+            DocumentIr.Kind itemKind = ordered ? DocumentIr.Kind.ORDERED_LIST_ITEM : DocumentIr.Kind.BULLET_LIST_ITEM;
+            int item = nextItemCandidate;
+            while (item >= 0 && ir.kind(item) != itemKind) {
+                item = ir.nextSibling(item);
+            }
+            nextItemCandidate = item >= 0 ? ir.nextSibling(item) : -1;
+            return item;
+        }
     }
 }
@@ -0,0 +1,77 @@
+package com.md2word.generator;
+
+import org.apache.poi.openxml4j.exceptions.InvalidOperationException;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFHyperlinkRun;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRelation;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTHyperlink;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WordHyperlinks turns link text of a Word document into clickable hyperlinks.
+ *
+ * <p>A hyperlink refers to its URL through a relationship of the document part.
+ * {@link XWPFParagraph#createHyperlinkRun} adds a new relationship for every link, so a
+ * document that repeats the same URLs many times would list each of them over and over in
+ * its relationships part. Here every distinct URL gets one relationship, the first time it
+ * is linked, and all hyperlinks to it share its id.</p>
+ *
+ * <p>An instance belongs to a single {@link XWPFDocument} and is not thread-safe.</p>
+ */
+final class WordHyperlinks {
+
+    private final XWPFDocument document;
+    // Relationship id by URL; null for URLs that cannot be a relationship target
+    private final Map<String, String> relationshipIds = new HashMap<>();
+
+    /**
+     * @param document The document whose links are created
+     */
+    WordHyperlinks(XWPFDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Adds a hyperlink with a single, still empty run to the end of a paragraph.
+     *
+     * @param paragraph The paragraph to add the hyperlink to
+     * @param url The URL the hyperlink opens
+     * @return The hyperlink's run, or null if the URL cannot be linked, as for in-document
+     *         anchors or URLs that are not valid URIs
+     */
+    XWPFHyperlinkRun createRun(XWPFParagraph paragraph, String url) {
+        String id = relationshipId(url);
+        if (id == null) {
+            return null;
+        }
+        CTHyperlink hyperlink = paragraph.getCTP().addNewHyperlink();
+        hyperlink.setId(id);
+        return new XWPFHyperlinkRun(hyperlink, hyperlink.addNewR(), paragraph);
+    }
+
+    /**
+     * @param url The URL
+     * @return The id of the relationship to a URL, added on first use, or null if the URL
+     *         cannot be a relationship target
+     */
+    String relationshipId(String url) {
+        if (relationshipIds.containsKey(url)) {
+            return relationshipIds.get(url);
+        }
+        String id = null;
+        if (!url.startsWith("#")) {
+            try {
+                id = document.getPackagePart()
+                        .addExternalRelationship(url, XWPFRelation.HYPERLINK.getRelation())
+                        .getId();
+            } catch (InvalidOperationException e) {
+                // Not a valid URI; the link stays styled text
+            }
+        }
+        relationshipIds.put(url, id);
+        return id;
+    }
+}
@@ -0,0 +1,151 @@
+package com.md2word.generator;
+
+import com.md2word.ir.DocumentIr;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFPictureData;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WordSections splits a document into sections of top-level blocks that can be rendered
+ * independently, and appends the rendered sections to the output document in order.
+ *
+ * <p>Each section is rendered into a document of its own, whose body is a fragment of the
+ * output's body. The fragment's hyperlinks and pictures refer to relationships of the
+ * fragment, and its drawings are numbered from zero. Appending a fragment copies its blocks
+ * and reconciles those references in document order: hyperlinks get the output's
+ * relationship for their URL, pictures are added to the output, where identical pictures
+ * share one part, and drawings are numbered on. The output is therefore the same document,
+ * byte for byte, as rendering all blocks into it one after the other, no matter how many
+ * sections there are or in which order they finish.</p>
+ *
+ * <p>An instance belongs to a single output {@link XWPFDocument} and is not thread-safe;
+ * fragments are appended from one thread.</p>
+ */
+final class WordSections {
+
+    private static final String WORDPROCESSING = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final QName HYPERLINK = new QName(WORDPROCESSING, "hyperlink");
+    private static final QName DRAWING_PROPERTIES =
+            new QName("http://schemas.openxmlformats.org/drawingml/2006/wordprocessingDrawing", "docPr");
+    private static final QName PICTURE_PROPERTIES =
+            new QName("http://schemas.openxmlformats.org/drawingml/2006/picture", "cNvPr");
+    private static final QName BLIP = new QName("http://schemas.openxmlformats.org/drawingml/2006/main", "blip");
+    private static final QName RELATIONSHIP_ID = new QName(RELATIONSHIPS, "id");
+    private static final QName EMBED = new QName(RELATIONSHIPS, "embed");
+    private static final QName ID = new QName("id");
+    private static final QName NAME = new QName("name");
+
+    private final XWPFDocument document;
+    private final WordHyperlinks links;
+    // Id of the next drawing, numbered like POI numbers the drawings of a document
+    private long nextDrawingId;
+
+    /**
+     * @param document The output document, which has no drawings yet
+     * @param links The output document's hyperlinks
+     */
+    WordSections(XWPFDocument document, WordHyperlinks links) {
+        this.document = document;
+        this.links = links;
+    }
+
+    /**
+     * Splits the top-level blocks of a document into consecutive sections of about the same
+     * number of IR nodes.
+     *
+     * @param ir The document
+     * @param sections The number of sections to aim for
+     * @param minNodes The least number of nodes worth a section of its own
+     * @return The first top-level node of each section, in document order
+     */
+    static int[] partition(DocumentIr ir, int sections, int minNodes) {
+        int sectionNodes = Math.max(minNodes, (ir.subtreeEnd(0) - 1) / sections + 1);
+        List<Integer> starts = new ArrayList<>();
+        int sectionStart = -1;
+        for (int node = ir.firstChild(0); node >= 0; node = ir.nextSibling(node)) {
+            if (sectionStart < 0 || node - sectionStart >= sectionNodes) {
+                starts.add(node);
+                sectionStart = node;
+            }
+        }
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Appends the blocks of a rendered section to the end of the output document.
+     *
+     * @param fragment The document the section was rendered into
+     * @throws IOException if a picture of the section cannot be added to the output
+     */
+    void append(XWPFDocument fragment) throws IOException {
+        CTBody body = document.getDocument().getBody();
+        try (XmlCursor blocks = fragment.getDocument().getBody().newCursor()) {
+            for (boolean more = blocks.toFirstChild(); more; more = blocks.toNextSibling()) {
+                XmlObject block = blocks.getObject();
+                XmlObject copy;
+                if (block instanceof CTP) {
+                    copy = body.addNewP();
+                } else if (block instanceof CTTbl) {
+                    copy = body.addNewTbl();
+                } else {
+                    continue;
+                }
+                copy.set(block);
+                reconcile(copy, fragment);
+            }
+        }
+    }
+
+    /**
+     * Points the references of a copied block at the output document's relationships, and
+     * numbers its drawings.
+     */
+    private void reconcile(XmlObject block, XWPFDocument fragment) throws IOException {
+        try (XmlCursor cursor = block.newCursor()) {
+            long drawingId = -1;
+            int depth = 0;
+            while (depth >= 0) {
+                XmlCursor.TokenType token = cursor.toNextToken();
+                if (token.isEnd() || token.isEnddoc()) {
+                    depth--;
+                } else if (token.isStart()) {
+                    depth++;
+                    QName name = cursor.getName();
+                    if (HYPERLINK.equals(name)) {
+                        String id = cursor.getAttributeText(RELATIONSHIP_ID);
+                        if (id != null) {
+                            String url = fragment.getPackagePart().getRelationship(id).getTargetURI().toString();
+                            cursor.setAttributeText(RELATIONSHIP_ID, links.relationshipId(url));
+                        }
+                    } else if (DRAWING_PROPERTIES.equals(name)) {
+                        drawingId = nextDrawingId++;
+                        cursor.setAttributeText(ID, Long.toString(drawingId));
+                        cursor.setAttributeText(NAME, "Drawing " + drawingId);
+                    } else if (PICTURE_PROPERTIES.equals(name) && drawingId >= 0) {
+                        cursor.setAttributeText(NAME, "Picture " + drawingId);
+                    } else if (BLIP.equals(name)) {
+                        XWPFPictureData picture = (XWPFPictureData) fragment.getRelationById(cursor.getAttributeText(EMBED));
+                        try {
+                            cursor.setAttributeText(EMBED,
+                                    document.addPictureData(picture.getData(), picture.getPictureTypeEnum()));
+                        } catch (InvalidFormatException e) {
+                            throw new IOException("Cannot add picture " + picture.getFileName(), e);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
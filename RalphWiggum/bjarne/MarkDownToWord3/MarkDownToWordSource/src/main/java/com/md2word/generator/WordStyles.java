@@ -0,0 +1,122 @@
+package com.md2word.generator;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFStyle;
+import org.apache.poi.xwpf.usermodel.XWPFStyles;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTFonts;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTStyle;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STStyleType;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STUnderline;
+
+/**
+ * WordStyles defines the character styles that {@link WordGenerator} formats runs with, and
+ * the style of its tables.
+ *
+ * <p>Inline code, links, code blocks and blockquote text each have a fixed look. Instead of
+ * repeating that look as direct formatting in the properties of every run, it is defined
+ * once per document in the styles part, and runs only reference the style by id. Direct
+ * formatting on a run is reserved for the bold and italic of Markdown emphasis.</p>
+ *
+ * <p>Likewise, tables reference the {@link #TABLE} style for their borders and bold header
+ * row instead of carrying borders themselves and bold on every run of the header.</p>
+ */
+final class WordStyles {
+
+    /** Monospace text of inline code spans. */
+    static final String INLINE_CODE = "InlineCode";
+
+    /** Blue, underlined link text. */
+    static final String HYPERLINK = "Hyperlink";
+
+    /** Monospace text of fenced code blocks. */
+    static final String CODE_BLOCK = "CodeBlock";
+
+    /** Italic text of blockquotes. */
+    static final String QUOTE = "Quote";
+
+    /** Tables with single borders around every cell and a bold first row. */
+    static final String TABLE = "MarkdownTable";
+
+    private static final String MONOSPACE_FONT = "Courier New";
+    private static final String LINK_COLOR = "0000FF";
+
+    /*
+     * poi-ooxml-lite only ships the XML types POI itself uses, which leaves out the table
+     * properties of styles and the conditional formatting of table parts. The table style is
+     * therefore parsed from its XML, which the styles part writes back unchanged.
+     */
+    private static final String TABLE_STYLE_XML =
+            "<w:style xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\""
+                    + " w:type=\"table\" w:styleId=\"" + TABLE + "\">"
+                    + "<w:name w:val=\"Markdown Table\"/>"
+                    + "<w:tblPr><w:tblBorders>"
+                    + "<w:top w:val=\"single\"/><w:left w:val=\"single\"/><w:bottom w:val=\"single\"/>"
+                    + "<w:right w:val=\"single\"/><w:insideH w:val=\"single\"/><w:insideV w:val=\"single\"/>"
+                    + "</w:tblBorders></w:tblPr>"
+                    + "<w:tblStylePr w:type=\"firstRow\"><w:rPr><w:b/></w:rPr></w:tblStylePr>"
+                    + "</w:style>";
+
+    private WordStyles() {
+    }
+
+    /**
+     * Adds the character styles to a new document.
+     *
+     * @param document The document being generated
+     */
+    static void addTo(XWPFDocument document) {
+        XWPFStyles styles = document.createStyles();
+
+        CTStyle inlineCode = characterStyle(INLINE_CODE, "Inline Code");
+        setMonospace(inlineCode.getRPr());
+        styles.addStyle(new XWPFStyle(inlineCode, styles));
+
+        CTStyle hyperlink = characterStyle(HYPERLINK, "Hyperlink");
+        hyperlink.getRPr().addNewColor().setVal(LINK_COLOR);
+        hyperlink.getRPr().addNewU().setVal(STUnderline.SINGLE);
+        styles.addStyle(new XWPFStyle(hyperlink, styles));
+
+        CTStyle codeBlock = characterStyle(CODE_BLOCK, "Code Block");
+        setMonospace(codeBlock.getRPr());
+        styles.addStyle(new XWPFStyle(codeBlock, styles));
+
+        CTStyle quote = characterStyle(QUOTE, "Quote");
+        quote.getRPr().addNewI();
+        styles.addStyle(new XWPFStyle(quote, styles));
+
+        styles.addStyle(new XWPFStyle(tableStyle(), styles));
+    }
+
+    private static CTStyle tableStyle() {
+        try {
+            return CTStyle.Factory.parse(TABLE_STYLE_XML, new XmlOptions().setLoadReplaceDocumentElement(null));
+        } catch (XmlException e) {
+            // The XML is a constant
+            throw new IllegalStateException("Invalid table style", e);
+        }
+    }
+
+    /**
+     * Creates a character style with empty run properties. The style is copied when it is
+     * added to the styles part, so its properties must be set before.
+     */
+    private static CTStyle characterStyle(String id, String name) {
+        CTStyle style = CTStyle.Factory.newInstance();
+        style.setType(STStyleType.CHARACTER);
+        style.setStyleId(id);
+        style.addNewName().setVal(name);
+        style.addNewRPr();
+        return style;
+    }
+
+    private static void setMonospace(CTRPr properties) {
+        CTFonts fonts = properties.addNewRFonts();
+        fonts.setAscii(MONOSPACE_FONT);
+        fonts.setHAnsi(MONOSPACE_FONT);
+        fonts.setCs(MONOSPACE_FONT);
+        fonts.setEastAsia(MONOSPACE_FONT);
+    }
+}
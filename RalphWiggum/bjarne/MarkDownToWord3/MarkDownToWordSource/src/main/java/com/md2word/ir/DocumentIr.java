@@ -0,0 +1,237 @@
+package com.md2word.ir;
+
+import java.nio.CharBuffer;
+
+/**
+ * DocumentIr is a flat, array-based form of a parsed Markdown document that the generators
+ * render from.
+ *
+ * <p>Nodes are numbered in document order, parents before their children, with the document
+ * itself as node 0. The descendants of a node are therefore the nodes after it up to
+ * {@link #subtreeEnd}, and a renderer can walk any part of the document with a loop over
+ * indices instead of following object references. For every node the IR keeps, in parallel
+ * arrays, its {@link Kind}, its parent, the end of its subtree, the range of its text in the
+ * Markdown source, the range of its URL for links and images, its heading level, and style
+ * bits with the emphasis it is nested in.</p>
+ *
+ * <p>Text is kept as ranges of the Markdown source, so building an IR copies no text. Text
+ * that is not a contiguous range of the source, such as a code block in an indented list
+ * item, is copied once into a separate buffer. Renderers read ranges as
+ * {@link CharSequence} views, and create Strings only where the output library needs one.</p>
+ *
+ * <p>Instances are created by {@link DocumentIrBuilder} and are immutable, so one IR can be
+ * rendered by several generators, also concurrently.</p>
+ */
+public final class DocumentIr {
+
+    /**
+     * The kinds of nodes. Flexmark nodes of other types become {@link #OTHER} nodes, which
+     * keep their children.
+     */
+    public enum Kind {
+        DOCUMENT,
+        HEADING,
+        PARAGRAPH,
+        BULLET_LIST,
+        ORDERED_LIST,
+        BULLET_LIST_ITEM,
+        ORDERED_LIST_ITEM,
+        CODE_BLOCK,
+        BLOCK_QUOTE,
+        TABLE,
+        TABLE_HEAD,
+        TABLE_BODY,
+        TABLE_ROW,
+        TABLE_CELL,
+        THEMATIC_BREAK,
+        TEXT,
+        EMPHASIS,
+        STRONG_EMPHASIS,
+        CODE,
+        LINK,
+        IMAGE,
+        OTHER
+    }
+
+    /** Style bit of nodes inside strong emphasis. */
+    public static final int BOLD = 1;
+
+    /** Style bit of nodes inside emphasis. */
+    public static final int ITALIC = 2;
+
+    private static final Kind[] KINDS = Kind.values();
+
+    // The Markdown source; text ranges at or after its length are in the copied text
+    private final String source;
+    private final String copiedText;
+    private final int size;
+    private final byte[] kinds;
+    private final int[] parents;
+    private final int[] subtreeEnds;
+    private final int[] textStarts;
+    private final int[] textEnds;
+    // Only links and images have URLs; other nodes have empty ranges
+    private final int[] urlStarts;
+    private final int[] urlEnds;
+    private final byte[] styles;
+    private final byte[] headingLevels;
+
+    DocumentIr(String source, String copiedText, int size, byte[] kinds, int[] parents, int[] subtreeEnds,
+               int[] textStarts, int[] textEnds, int[] urlStarts, int[] urlEnds, byte[] styles,
+               byte[] headingLevels) {
+        this.source = source;
+        this.copiedText = copiedText;
+        this.size = size;
+        this.kinds = kinds;
+        this.parents = parents;
+        this.subtreeEnds = subtreeEnds;
+        this.textStarts = textStarts;
+        this.textEnds = textEnds;
+        this.urlStarts = urlStarts;
+        this.urlEnds = urlEnds;
+        this.styles = styles;
+        this.headingLevels = headingLevels;
+    }
+
+    /**
+     * @return The number of nodes, including the document node
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param node A node index
+     * @return The node's kind
+     */
+    public Kind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    /**
+     * @param node A node index
+     * @return The index of the node's parent, or -1 for the document node
+     */
+    public int parent(int node) {
+        return parents[node];
+    }
+
+    /**
+     * @param node A node index
+     * @return The index after the node's last descendant; the node's descendants are the
+     *         nodes between the node and this index
+     */
+    public int subtreeEnd(int node) {
+        return subtreeEnds[node];
+    }
+
+    /**
+     * @param node A node index
+     * @return The index of the node's first child, or -1 if it has none
+     */
+    public int firstChild(int node) {
+        return subtreeEnds[node] > node + 1 ? node + 1 : -1;
+    }
+
+    /**
+     * @param node A node index
+     * @return The index of the node's next sibling, or -1 if it is the last child
+     */
+    public int nextSibling(int node) {
+        int parent = parents[node];
+        return parent >= 0 && subtreeEnds[node] < subtreeEnds[parent] ? subtreeEnds[node] : -1;
+    }
+
+    /**
+     * @param node A node index
+     * @return The {@link #BOLD} and {@link #ITALIC} bits of the emphasis the node is nested in,
+     *         including its own
+     */
+    public int style(int node) {
+        return styles[node];
+    }
+
+    /**
+     * @param node A node index
+     * @return The level of a heading, 1 to 6; 0 for other nodes
+     */
+    public int headingLevel(int node) {
+        return headingLevels[node];
+    }
+
+    /**
+     * Returns the length of a node's text. The text of a text node is its characters, of an
+     * image its alt text, and of any other node its Markdown source, for inline code
+     * including the backticks.
+     *
+     * @param node A node index
+     * @return The length of the node's text
+     */
+    public int textLength(int node) {
+        return textEnds[node] - textStarts[node];
+    }
+
+    /**
+     * @param node A node index
+     * @return The node's text, as described for {@link #textLength}, as a view without copying
+     */
+    public CharSequence chars(int node) {
+        return slice(textStarts[node], textEnds[node]);
+    }
+
+    /**
+     * @param node A node index
+     * @return The node's text, as described for {@link #textLength}
+     */
+    public String text(int node) {
+        return substring(textStarts[node], textEnds[node]);
+    }
+
+    /**
+     * Appends the text of all text nodes in a node's subtree, in document order.
+     *
+     * @param node A node index
+     * @param target The builder to append to
+     */
+    public void appendText(int node, StringBuilder target) {
+        for (int i = node, end = subtreeEnds[node]; i < end; i++) {
+            if (kinds[i] == Kind.TEXT.ordinal()) {
+                int start = textStarts[i];
+                if (start < source.length()) {
+                    target.append(source, start, textEnds[i]);
+                } else {
+                    target.append(copiedText, start - source.length(), textEnds[i] - source.length());
+                }
+            }
+        }
+    }
+
+    /**
+     * @param node A node index
+     * @return The URL of a link or image; empty for other nodes
+     */
+    public String url(int node) {
+        return substring(urlStarts[node], urlEnds[node]);
+    }
+
+    /**
+     * @param node A node index
+     * @return The URL of a link or image as a view without copying, for URLs that may be
+     *         large, such as images embedded as data URIs; empty for other nodes
+     */
+    public CharSequence urlChars(int node) {
+        return slice(urlStarts[node], urlEnds[node]);
+    }
+
+    private CharSequence slice(int start, int end) {
+        return start < source.length()
+                ? CharBuffer.wrap(source, start, end)
+                : CharBuffer.wrap(copiedText, start - source.length(), end - source.length());
+    }
+
+    private String substring(int start, int end) {
+        return start < source.length()
+                ? source.substring(start, end)
+                : copiedText.substring(start - source.length(), end - source.length());
+    }
+}
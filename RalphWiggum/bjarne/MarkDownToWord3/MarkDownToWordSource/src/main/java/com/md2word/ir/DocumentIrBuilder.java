@@ -0,0 +1,250 @@
+package com.md2word.ir;
+
+import com.vladsch.flexmark.ast.BlockQuote;
+import com.vladsch.flexmark.ast.BulletList;
+import com.vladsch.flexmark.ast.BulletListItem;
+import com.vladsch.flexmark.ast.Code;
+import com.vladsch.flexmark.ast.Emphasis;
+import com.vladsch.flexmark.ast.FencedCodeBlock;
+import com.vladsch.flexmark.ast.Heading;
+import com.vladsch.flexmark.ast.Image;
+import com.vladsch.flexmark.ast.Link;
+import com.vladsch.flexmark.ast.OrderedList;
+import com.vladsch.flexmark.ast.OrderedListItem;
+import com.vladsch.flexmark.ast.Paragraph;
+import com.vladsch.flexmark.ast.StrongEmphasis;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.ast.ThematicBreak;
+import com.vladsch.flexmark.ext.tables.TableBlock;
+import com.vladsch.flexmark.ext.tables.TableBody;
+import com.vladsch.flexmark.ext.tables.TableCell;
+import com.vladsch.flexmark.ext.tables.TableHead;
+import com.vladsch.flexmark.ext.tables.TableRow;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.sequence.BasedSequence;
+import com.vladsch.flexmark.util.sequence.SegmentedSequence;
+
+import java.util.Arrays;
+
+/**
+ * DocumentIrBuilder lowers a flexmark Document AST into a {@link DocumentIr}.
+ *
+ * <p>The tree is walked once, in document order, without recursion, so documents of any
+ * nesting depth can be lowered. Each node's type is resolved to a {@link DocumentIr.Kind}
+ * once here, instead of by every generator, and the emphasis a node is nested in is
+ * resolved to style bits. Text is recorded as ranges of the Markdown source where possible.</p>
+ *
+ * <p>An instance can build any number of IRs one after another and is not thread-safe.</p>
+ */
+public class DocumentIrBuilder {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String source;
+    private StringBuilder copiedText;
+    private int size;
+    private byte[] kinds;
+    private int[] parents;
+    private int[] subtreeEnds;
+    private int[] textStarts;
+    private int[] textEnds;
+    private int[] urlStarts;
+    private int[] urlEnds;
+    private byte[] styles;
+    private byte[] headingLevels;
+
+    /**
+     * Lowers a document into its IR.
+     *
+     * @param ast The flexmark Document AST, or null for an empty document
+     * @return The document's IR
+     */
+    public DocumentIr build(Document ast) {
+        BasedSequence sourceChars = ast != null ? ast.getChars().getBaseSequence() : null;
+        Object base = sourceChars != null ? sourceChars.getBase() : "";
+        source = base instanceof String ? (String) base : sourceChars.toString();
+        copiedText = new StringBuilder();
+        size = 0;
+        kinds = new byte[INITIAL_CAPACITY];
+        parents = new int[INITIAL_CAPACITY];
+        subtreeEnds = new int[INITIAL_CAPACITY];
+        textStarts = new int[INITIAL_CAPACITY];
+        textEnds = new int[INITIAL_CAPACITY];
+        urlStarts = new int[INITIAL_CAPACITY];
+        urlEnds = new int[INITIAL_CAPACITY];
+        styles = new byte[INITIAL_CAPACITY];
+        headingLevels = new byte[INITIAL_CAPACITY];
+
+        if (ast == null) {
+            add(DocumentIr.Kind.DOCUMENT, -1);
+            subtreeEnds[0] = 1;
+        } else {
+            lower(ast, sourceChars);
+        }
+
+        DocumentIr ir = new DocumentIr(source, copiedText.toString(), size, kinds, parents, subtreeEnds,
+                textStarts, textEnds, urlStarts, urlEnds, styles, headingLevels);
+        source = null;
+        copiedText = null;
+        kinds = null;
+        parents = null;
+        subtreeEnds = null;
+        textStarts = null;
+        textEnds = null;
+        urlStarts = null;
+        urlEnds = null;
+        styles = null;
+        headingLevels = null;
+        return ir;
+    }
+
+    /**
+     * Adds the document and its descendants in document order. The indices of the nodes whose
+     * subtrees are still open are kept on an explicit stack.
+     */
+    private void lower(Document ast, BasedSequence sourceChars) {
+        int[] open = new int[64];
+        int depth = 0;
+        Node node = ast;
+        while (true) {
+            int index = add(kindOf(node), depth > 0 ? open[depth - 1] : -1);
+            if (node instanceof Image) {
+                setText(index, ((Image) node).getText(), sourceChars);
+            } else {
+                setText(index, node.getChars(), sourceChars);
+            }
+            if (node instanceof Link) {
+                setUrl(index, ((Link) node).getUrl(), sourceChars);
+            } else if (node instanceof Image) {
+                setUrl(index, ((Image) node).getUrl(), sourceChars);
+            } else if (node instanceof Heading) {
+                headingLevels[index] = (byte) ((Heading) node).getLevel();
+            }
+
+            Node child = node.getFirstChild();
+            if (child != null) {
+                if (depth == open.length) {
+                    open = Arrays.copyOf(open, depth * 2);
+                }
+                open[depth++] = index;
+                node = child;
+                continue;
+            }
+            subtreeEnds[index] = size;
+
+            // Close the subtrees that end here and continue with the next sibling
+            while (node != ast && node.getNext() == null) {
+                node = node.getParent();
+                subtreeEnds[open[--depth]] = size;
+            }
+            if (node == ast) {
+                return;
+            }
+            node = node.getNext();
+        }
+    }
+
+    private int add(DocumentIr.Kind kind, int parent) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            subtreeEnds = Arrays.copyOf(subtreeEnds, capacity);
+            textStarts = Arrays.copyOf(textStarts, capacity);
+            textEnds = Arrays.copyOf(textEnds, capacity);
+            urlStarts = Arrays.copyOf(urlStarts, capacity);
+            urlEnds = Arrays.copyOf(urlEnds, capacity);
+            styles = Arrays.copyOf(styles, capacity);
+            headingLevels = Arrays.copyOf(headingLevels, capacity);
+        }
+        int index = size++;
+        kinds[index] = (byte) kind.ordinal();
+        parents[index] = parent;
+
+        // Emphasis applies to everything nested in it
+        int style = parent >= 0 ? styles[parent] : 0;
+        if (kind == DocumentIr.Kind.EMPHASIS) {
+            style |= DocumentIr.ITALIC;
+        } else if (kind == DocumentIr.Kind.STRONG_EMPHASIS) {
+            style |= DocumentIr.BOLD;
+        }
+        styles[index] = (byte) style;
+        return index;
+    }
+
+    private void setText(int index, BasedSequence chars, BasedSequence sourceChars) {
+        int start = rangeStart(chars, sourceChars);
+        textStarts[index] = start;
+        textEnds[index] = start + chars.length();
+    }
+
+    private void setUrl(int index, BasedSequence chars, BasedSequence sourceChars) {
+        int start = rangeStart(chars, sourceChars);
+        urlStarts[index] = start;
+        urlEnds[index] = start + chars.length();
+    }
+
+    /**
+     * Finds where characters start in the source, or copies them when they are not a
+     * contiguous range of it, as for text assembled from several lines or created in code.
+     *
+     * @return The start of the characters' range
+     */
+    private int rangeStart(BasedSequence chars, BasedSequence sourceChars) {
+        if (chars.getBaseSequence() == sourceChars && !(chars instanceof SegmentedSequence)
+                && chars.getEndOffset() - chars.getStartOffset() == chars.length()) {
+            return chars.getStartOffset();
+        }
+        int start = source.length() + copiedText.length();
+        copiedText.append(chars);
+        return start;
+    }
+
+    private static DocumentIr.Kind kindOf(Node node) {
+        if (node instanceof Text) {
+            return DocumentIr.Kind.TEXT;
+        } else if (node instanceof Emphasis) {
+            return DocumentIr.Kind.EMPHASIS;
+        } else if (node instanceof StrongEmphasis) {
+            return DocumentIr.Kind.STRONG_EMPHASIS;
+        } else if (node instanceof Code) {
+            return DocumentIr.Kind.CODE;
+        } else if (node instanceof Link) {
+            return DocumentIr.Kind.LINK;
+        } else if (node instanceof Image) {
+            return DocumentIr.Kind.IMAGE;
+        } else if (node instanceof Paragraph) {
+            return DocumentIr.Kind.PARAGRAPH;
+        } else if (node instanceof Heading) {
+            return DocumentIr.Kind.HEADING;
+        } else if (node instanceof BulletList) {
+            return DocumentIr.Kind.BULLET_LIST;
+        } else if (node instanceof OrderedList) {
+            return DocumentIr.Kind.ORDERED_LIST;
+        } else if (node instanceof BulletListItem) {
+            return DocumentIr.Kind.BULLET_LIST_ITEM;
+        } else if (node instanceof OrderedListItem) {
+            return DocumentIr.Kind.ORDERED_LIST_ITEM;
+        } else if (node instanceof FencedCodeBlock) {
+            return DocumentIr.Kind.CODE_BLOCK;
+        } else if (node instanceof BlockQuote) {
+            return DocumentIr.Kind.BLOCK_QUOTE;
+        } else if (node instanceof TableBlock) {
+            return DocumentIr.Kind.TABLE;
+        } else if (node instanceof TableHead) {
+            return DocumentIr.Kind.TABLE_HEAD;
+        } else if (node instanceof TableBody) {
+            return DocumentIr.Kind.TABLE_BODY;
+        } else if (node instanceof TableRow) {
+            return DocumentIr.Kind.TABLE_ROW;
+        } else if (node instanceof TableCell) {
+            return DocumentIr.Kind.TABLE_CELL;
+        } else if (node instanceof ThematicBreak) {
+            return DocumentIr.Kind.THEMATIC_BREAK;
+        } else if (node instanceof Document) {
+            return DocumentIr.Kind.DOCUMENT;
+        }
+        return DocumentIr.Kind.OTHER;
+    }
+}
@@ -0,0 +1,132 @@
+package com.md2word;
+
+import com.md2word.converter.BatchConverter;
+import com.md2word.converter.BatchReport;
+import com.md2word.generator.WordGenerator;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for converting many Markdown files through the batch pipeline.
+ *
+ * <p>Tests verify that every readable input is converted to its own output file, that failing
+ * inputs are reported without stopping the batch, even when they throw an {@link Error}, and that a memory budget smaller than a
+ * single document still lets the batch finish.</p>
+ */
+@DisplayName("Batch Conversion Tests")
+public class BatchConversionTest {
+
+    @Test
+    @DisplayName("Batch should convert each input and report the ones that fail")
+    void testBatchConvertsAndReportsFailures(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Path input = tempDir.resolve("doc" + i + ".md");
+            Files.writeString(input, "# Document " + i + "\n\nSome **bold** text.\n");
+            inputs.add(input);
+        }
+        Path missing = tempDir.resolve("missing.md");
+        inputs.add(missing);
+        BatchConverter converter = new BatchConverter((ir, output) -> new WordGenerator().generate(ir, output), "docx");
+        converter.setRendererThreads(3);
+        Path outputDirectory = tempDir.resolve("out");
+
+        // Act
+        BatchReport report = converter.convert(inputs, outputDirectory);
+
+        // Assert
+        assertEquals(12, report.converted(), "All readable inputs should be converted");
+        assertEquals(List.of(missing), new ArrayList<>(report.failures().keySet()), "Missing input should fail");
+        for (int i = 0; i < 12; i++) {
+            try (InputStream in = Files.newInputStream(outputDirectory.resolve("doc" + i + ".docx"));
+                 XWPFDocument document = new XWPFDocument(in)) {
+                assertEquals("Document " + i, document.getParagraphs().get(0).getText(),
+                        "Output should be rendered from its own input");
+            }
+        }
+        assertEquals(List.of("read", "parse", "render"),
+                report.stages().stream().map(BatchReport.Stage::name).toList(), "Stages should be reported in order");
+        assertTrue(report.inputBytes() > 0, "Bytes read should be counted");
+    }
+
+    @Test
+    @DisplayName("Batch should report documents whose rendering throws an Error and convert the others")
+    void testBatchSurvivesErrors(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Path input = tempDir.resolve("doc" + i + ".md");
+            Files.writeString(input, "# Document " + i + "\n");
+            inputs.add(input);
+        }
+        Path bad = tempDir.resolve("bad.md");
+        Files.writeString(bad, "# Bad\n");
+        inputs.add(0, bad);
+        BatchConverter converter = new BatchConverter((ir, output) -> {
+            if (output.getFileName().toString().startsWith("bad")) {
+                throw new StackOverflowError("too deep");
+            }
+            new WordGenerator().generate(ir, output);
+        }, "docx");
+        converter.setParserThreads(1);
+        converter.setRendererThreads(1);
+
+        // Act
+        BatchReport report = assertTimeoutPreemptively(Duration.ofSeconds(60),
+                () -> converter.convert(inputs, tempDir.resolve("out")), "Batch should not hang");
+
+        // Assert
+        assertEquals(8, report.converted(), "Documents after the failing one should be converted");
+        assertEquals(List.of(bad), new ArrayList<>(report.failures().keySet()), "Failing document should be reported");
+        assertInstanceOf(StackOverflowError.class, report.failures().get(bad).getCause(),
+                "The Error should be reported as the cause");
+    }
+
+    @Test
+    @DisplayName("Batch should finish when a document exceeds the memory budget")
+    void testBatchFinishesWithTinyMemoryBudget(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Path input = tempDir.resolve("doc" + i + ".md");
+            Files.writeString(input, "Paragraph\n\n".repeat(500));
+            inputs.add(input);
+        }
+        BatchConverter converter = new BatchConverter((ir, output) -> new WordGenerator().generate(ir, output), "docx");
+        converter.setMemoryBudget(1);
+        converter.setReaderThreads(3);
+
+        // Act
+        BatchReport report = converter.convert(inputs, tempDir.resolve("out"));
+
+        // Assert
+        assertEquals(5, report.converted(), "Documents should be converted one at a time");
+        assertTrue(report.failures().isEmpty(), "No document should fail");
+    }
+
+    @Test
+    @DisplayName("Batch should reject inputs that would overwrite each other")
+    void testBatchRejectsCollidingOutputs(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Files.createDirectories(tempDir.resolve("a"));
+        Files.createDirectories(tempDir.resolve("b"));
+        List<Path> inputs = List.of(tempDir.resolve("a/readme.md"), tempDir.resolve("b/readme.md"));
+        BatchConverter converter = new BatchConverter((ir, output) -> new WordGenerator().generate(ir, output), "docx");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> converter.convert(inputs, tempDir.resolve("out")),
+                "Inputs with the same name should be rejected");
+    }
+}
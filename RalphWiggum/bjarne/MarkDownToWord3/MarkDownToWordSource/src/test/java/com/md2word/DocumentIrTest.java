@@ -0,0 +1,229 @@
+package com.md2word;
+
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.ast.BulletListItem;
+import com.vladsch.flexmark.ast.Emphasis;
+import com.vladsch.flexmark.ast.FencedCodeBlock;
+import com.vladsch.flexmark.ast.Paragraph;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.sequence.BasedSequence;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for lowering a Markdown AST into the flat document IR.
+ *
+ * <p>Tests verify that the IR keeps the document's structure, node kinds, emphasis and
+ * text, including text that is not a contiguous range of the Markdown source.</p>
+ */
+@DisplayName("Document IR Tests")
+public class DocumentIrTest {
+
+    private MarkdownParser parser;
+    private DocumentIrBuilder builder;
+
+    @BeforeEach
+    void setUp() {
+        parser = new MarkdownParser();
+        builder = new DocumentIrBuilder();
+    }
+
+    @Test
+    @DisplayName("Blocks should be lowered in document order with their structure")
+    void testStructure() {
+        // Arrange
+        String markdown = """
+            # Title
+
+            - one
+            - two
+
+            Closing text
+            """;
+
+        // Act
+        DocumentIr ir = builder.build(parser.parse(markdown));
+
+        // Assert
+        assertEquals(DocumentIr.Kind.DOCUMENT, ir.kind(0), "Node 0 should be the document");
+        assertEquals(-1, ir.parent(0), "Document should have no parent");
+        assertEquals(ir.size(), ir.subtreeEnd(0), "Document subtree should span all nodes");
+
+        int heading = ir.firstChild(0);
+        assertEquals(DocumentIr.Kind.HEADING, ir.kind(heading));
+        assertEquals(1, ir.headingLevel(heading), "Heading level should be kept");
+
+        int list = ir.nextSibling(heading);
+        assertEquals(DocumentIr.Kind.BULLET_LIST, ir.kind(list));
+        int first = ir.firstChild(list);
+        int second = ir.nextSibling(first);
+        assertEquals(DocumentIr.Kind.BULLET_LIST_ITEM, ir.kind(first));
+        assertEquals(DocumentIr.Kind.BULLET_LIST_ITEM, ir.kind(second));
+        assertEquals(-1, ir.nextSibling(second), "Second item should be the last");
+        assertEquals(list, ir.parent(second), "Items should belong to their list");
+
+        int paragraph = ir.nextSibling(list);
+        assertEquals(DocumentIr.Kind.PARAGRAPH, ir.kind(paragraph));
+        assertEquals(-1, ir.nextSibling(paragraph), "Paragraph should be the last block");
+        StringBuilder text = new StringBuilder();
+        ir.appendText(paragraph, text);
+        assertEquals("Closing text", text.toString());
+    }
+
+    @Test
+    @DisplayName("Nested emphasis should set style bits on the nodes inside it")
+    void testStyleBits() {
+        // Arrange
+        String markdown = "plain *italic **both***";
+
+        // Act
+        DocumentIr ir = builder.build(parser.parse(markdown));
+
+        // Assert
+        int paragraph = ir.firstChild(0);
+        for (int node = paragraph + 1; node < ir.subtreeEnd(paragraph); node++) {
+            if (ir.kind(node) != DocumentIr.Kind.TEXT) {
+                continue;
+            }
+            String text = ir.text(node);
+            if (text.equals("plain ")) {
+                assertEquals(0, ir.style(node), "Plain text should have no style");
+            } else if (text.equals("italic ")) {
+                assertEquals(DocumentIr.ITALIC, ir.style(node), "Emphasized text should be italic");
+            } else if (text.equals("both")) {
+                assertEquals(DocumentIr.ITALIC | DocumentIr.BOLD, ir.style(node),
+                        "Strong text inside emphasis should be bold and italic");
+            } else {
+                fail("Unexpected text node: " + text);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Inline code, links and images should keep their text and URLs")
+    void testInlineText() {
+        // Arrange
+        String markdown = "Use `code`, [the site](https://example.com) and ![a *logo*](logo.png)";
+
+        // Act
+        DocumentIr ir = builder.build(parser.parse(markdown));
+
+        // Assert
+        int code = find(ir, DocumentIr.Kind.CODE);
+        assertEquals("`code`", ir.text(code), "Inline code text should be its source");
+
+        int link = find(ir, DocumentIr.Kind.LINK);
+        assertEquals("https://example.com", ir.url(link));
+        StringBuilder linkText = new StringBuilder();
+        ir.appendText(link, linkText);
+        assertEquals("the site", linkText.toString());
+
+        int image = find(ir, DocumentIr.Kind.IMAGE);
+        assertEquals("logo.png", ir.url(image));
+        assertEquals("a *logo*", ir.text(image), "Image text should be the raw alt text");
+        assertEquals("", ir.url(ir.firstChild(0)), "Nodes other than links and images should have no URL");
+    }
+
+    @Test
+    @DisplayName("Code block in a list item should keep text assembled from several lines")
+    void testCodeBlockInListItem() {
+        // Arrange
+        String markdown = """
+            - item
+
+              ```
+              first line
+              second line
+              ```
+            """;
+        Document document = parser.parse(markdown);
+        FencedCodeBlock codeBlock = (FencedCodeBlock) document.getFirstChild().getFirstChild().getLastChild();
+
+        // Act
+        DocumentIr ir = builder.build(document);
+
+        // Assert
+        int block = find(ir, DocumentIr.Kind.CODE_BLOCK);
+        assertEquals(DocumentIr.Kind.BULLET_LIST_ITEM, ir.kind(ir.parent(block)));
+        StringBuilder code = new StringBuilder();
+        ir.appendText(block, code);
+        assertEquals(codeBlock.getContentChars().toString(), code.toString(),
+                "Code text should match the parsed code block");
+        assertEquals("first line\nsecond line\n", code.toString());
+    }
+
+    @Test
+    @DisplayName("Nodes created in code should keep their text")
+    void testSyntheticNodes() {
+        // Arrange
+        Document document = parser.parse("");
+        Paragraph paragraph = new Paragraph();
+        document.appendChild(paragraph);
+        Emphasis emphasis = new Emphasis();
+        paragraph.appendChild(emphasis);
+        emphasis.appendChild(new Text(BasedSequence.of("added")));
+
+        // Act
+        DocumentIr ir = builder.build(document);
+
+        // Assert
+        int text = find(ir, DocumentIr.Kind.TEXT);
+        assertEquals("added", ir.text(text));
+        assertEquals("added", ir.chars(text).toString());
+        assertEquals(5, ir.textLength(text));
+        assertEquals(DocumentIr.ITALIC, ir.style(text));
+    }
+
+    @Test
+    @DisplayName("Deeply nested document should be lowered without recursion")
+    void testDeeplyNestedDocument() {
+        // Arrange
+        Document document = parser.parse("");
+        Node parent = document;
+        int depth = 100_000;
+        for (int level = 0; level < depth; level++) {
+            BulletListItem item = new BulletListItem();
+            parent.appendChild(item);
+            parent = item;
+        }
+        parent.appendChild(new Text(BasedSequence.of("leaf")));
+
+        // Act
+        DocumentIr ir = builder.build(document);
+
+        // Assert
+        assertEquals(depth + 2, ir.size(), "Every node should be lowered");
+        assertEquals("leaf", ir.text(depth + 1));
+        assertEquals(depth, ir.parent(depth + 1));
+        assertEquals(ir.size(), ir.subtreeEnd(1), "Outermost item should contain all nested nodes");
+    }
+
+    @Test
+    @DisplayName("Null document should lower to an empty IR")
+    void testNullDocument() {
+        // Act
+        DocumentIr ir = builder.build(null);
+
+        // Assert
+        assertEquals(1, ir.size(), "Only the document node should exist");
+        assertEquals(DocumentIr.Kind.DOCUMENT, ir.kind(0));
+        assertEquals(-1, ir.firstChild(0), "Empty document should have no children");
+    }
+
+    private static int find(DocumentIr ir, DocumentIr.Kind kind) {
+        for (int node = 0; node < ir.size(); node++) {
+            if (ir.kind(node) == kind) {
+                return node;
+            }
+        }
+        fail("No " + kind + " node");
+        return -1;
+    }
+}
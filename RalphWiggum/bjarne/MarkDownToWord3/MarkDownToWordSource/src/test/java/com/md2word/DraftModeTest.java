@@ -0,0 +1,175 @@
+package com.md2word;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.generator.WordGenerator;
+import com.md2word.parser.MarkdownParser;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFPicture;
+import org.apache.poi.xwpf.usermodel.XWPFRelation;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTblGridCol;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STTblLayoutType;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for draft documents, the quick previews both generators can produce.
+ *
+ * <p>Tests verify that draft images are placeholders of the image's size, that draft tables
+ * have equally wide columns, that links are styled text without a target, and that the
+ * output is not compressed.</p>
+ */
+@DisplayName("Draft Mode Tests")
+public class DraftModeTest {
+
+    private final MarkdownParser parser = new MarkdownParser();
+
+    @Test
+    @DisplayName("Draft Word documents should show placeholders, fixed tables and plain links, stored")
+    void testDraftWordDocument(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path image = writeNoiseImage(tempDir.resolve("photo.png"));
+        String markdown = "Read the [docs](https://example.com/docs).\n\n"
+                + "![Photo](" + image + ")\n\n"
+                + "| Name | Description | Status |\n|---|---|---|\n"
+                + "| parser | Reads Markdown into an AST | done |\n";
+        WordGenerator generator = new WordGenerator();
+        generator.setDraft(true);
+        Path outputFile = tempDir.resolve("draft.docx");
+
+        // Act
+        generator.generate(parser.parse(markdown), outputFile);
+
+        // Assert
+        try (ZipFile zip = new ZipFile(outputFile.toFile())) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                assertEquals(ZipEntry.STORED, entry.getMethod(), entry.getName() + " should be stored");
+            }
+        }
+        try (InputStream in = Files.newInputStream(outputFile); XWPFDocument document = new XWPFDocument(in)) {
+            assertTrue(document.getPackagePart().getRelationshipsByType(XWPFRelation.HYPERLINK.getRelation()).isEmpty(),
+                    "Links should have no relationships");
+            assertTrue(document.getParagraphs().get(0).getText().contains("docs"), "Link text should be kept");
+
+            List<XWPFPicture> pictures = new ArrayList<>();
+            for (XWPFParagraph paragraph : document.getParagraphs()) {
+                paragraph.getRuns().forEach(run -> pictures.addAll(run.getEmbeddedPictures()));
+            }
+            assertEquals(1, pictures.size(), "Image should be shown as a picture");
+            assertEquals(300, pictures.get(0).getWidth(), 0.01, "Placeholder should have the image's width");
+            assertEquals(150, pictures.get(0).getDepth(), 0.01, "Placeholder should have the image's height");
+            assertTrue(pictures.get(0).getPictureData().getData().length < Files.size(image) / 100,
+                    "Placeholder should not embed the image data");
+
+            XWPFTable table = document.getTables().get(0);
+            assertEquals(STTblLayoutType.FIXED, table.getCTTbl().getTblPr().getTblLayout().getType(),
+                    "Table layout should be fixed");
+            CTTblGridCol[] columns = table.getCTTbl().getTblGrid().getGridColArray();
+            assertEquals(3, columns.length, "Grid should have a column per table column");
+            for (CTTblGridCol column : columns) {
+                assertEquals(columns[0].getW(), column.getW(), "Columns should be equally wide");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Draft PDFs should show placeholders and plain links, with uncompressed content")
+    void testDraftPdf(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path image = writeNoiseImage(tempDir.resolve("photo.png"));
+        String markdown = "Read the [docs](https://example.com/docs).\n\n"
+                + "![Photo](" + image + ")\n\n"
+                + "| Name | Description | Status |\n|---|---|---|\n"
+                + "| parser | Reads Markdown into an AST | done |\n";
+        PDFGenerator generator = new PDFGenerator();
+        generator.setDraft(true);
+        Path outputFile = tempDir.resolve("draft.pdf");
+
+        // Act
+        generator.generate(parser.parse(markdown), outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            PDPage page = pdf.getPage(0);
+            assertTrue(page.getAnnotations().isEmpty(), "Links should not be clickable");
+            PDResources resources = page.getResources();
+            for (COSName name : resources.getXObjectNames()) {
+                assertFalse(resources.isImageXObject(name), "Image should not be embedded");
+            }
+            COSStream contents = page.getCOSObject().getCOSStream(COSName.CONTENTS);
+            assertNotNull(contents, "Page should have one content stream");
+            assertNull(contents.getFilters(), "Content stream should not be compressed");
+
+            String text = new PDFTextStripper().getText(pdf);
+            assertTrue(text.contains("docs"), "Link text should be drawn");
+            assertTrue(text.contains("Reads Markdown into an AST"), "Table should be drawn");
+        }
+    }
+
+    @Test
+    @DisplayName("Draft documents should be generated for images that cannot be read")
+    void testDraftMissingImageFallsBackToAltText(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String markdown = "![Missing diagram](" + tempDir.resolve("missing.png") + ")\n";
+        PDFGenerator pdfGenerator = new PDFGenerator();
+        pdfGenerator.setDraft(true);
+        WordGenerator wordGenerator = new WordGenerator();
+        wordGenerator.setDraft(true);
+        Path pdfFile = tempDir.resolve("draft.pdf");
+        Path docxFile = tempDir.resolve("draft.docx");
+
+        // Act
+        pdfGenerator.generate(parser.parse(markdown), pdfFile);
+        wordGenerator.generate(parser.parse(markdown), docxFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(pdfFile.toFile())) {
+            assertTrue(new PDFTextStripper().getText(pdf).contains("[Image: Missing diagram]"),
+                    "PDF should show the alt text");
+        }
+        try (InputStream in = Files.newInputStream(docxFile); XWPFDocument document = new XWPFDocument(in)) {
+            assertEquals("[Image: Missing diagram]", document.getParagraphs().get(0).getText(),
+                    "Word document should show the alt text");
+            assertTrue(document.getAllPictures().isEmpty(), "No placeholder should be embedded");
+        }
+    }
+
+    /**
+     * Writes a 300x150 PNG of random pixels, which compresses too badly for POI's zip bomb
+     * check to object to it.
+     */
+    private static Path writeNoiseImage(Path file) throws Exception {
+        BufferedImage noise = new BufferedImage(300, 150, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(50);
+        for (int y = 0; y < noise.getHeight(); y++) {
+            for (int x = 0; x < noise.getWidth(); x++) {
+                noise.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ImageIO.write(noise, "png", file.toFile());
+        return file;
+    }
+}
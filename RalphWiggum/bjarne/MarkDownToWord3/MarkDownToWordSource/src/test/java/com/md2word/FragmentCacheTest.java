@@ -0,0 +1,115 @@
+package com.md2word;
+
+import com.md2word.generator.WordFragmentCache;
+import com.md2word.generator.WordGenerator;
+import com.md2word.parser.MarkdownParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the cross-document cache of rendered Word blocks.
+ *
+ * <p>Tests verify that repeated large blocks are spliced in from the cache without changing
+ * the document, that blocks showing images are rendered every time, and that the cache
+ * stays within its byte budget.</p>
+ */
+@DisplayName("Fragment Cache Tests")
+public class FragmentCacheTest {
+
+    private static final String BOILERPLATE = """
+            Licensed under the Apache License, Version 2.0; you may not use this file except in
+            compliance with the License. You may obtain a copy of the License at the
+            [Apache site](https://www.apache.org/licenses/LICENSE-2.0). Unless required by applicable
+            law or agreed to in writing, software distributed under the License is distributed on an
+            **AS IS** basis, without warranties or conditions of any kind.
+
+            | Channel | Contact |
+            |---------|---------|
+            | Mail | [support](mailto:support@example.com) |
+            | Phone | *+1 555 0100*, weekdays from nine to five, with a callback within one business day |
+            | Chat | [portal](https://example.com/chat), with the ticket number from the confirmation mail |
+            """;
+
+    @Test
+    @DisplayName("Repeated blocks should be spliced from the cache into identical documents")
+    void testRepeatedBlocksSplicedFromCache(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String markdown = "# Release notes\n\n" + BOILERPLATE;
+        WordFragmentCache cache = new WordFragmentCache(1024 * 1024);
+        WordGenerator cached = new WordGenerator();
+        cached.setFragmentCache(cache);
+        WordGenerator uncached = new WordGenerator();
+        uncached.setFragmentCache(null);
+        Path first = tempDir.resolve("first.docx");
+        Path second = tempDir.resolve("second.docx");
+        Path reference = tempDir.resolve("reference.docx");
+
+        // Act
+        cached.generate(new MarkdownParser().parse(markdown), first);
+        cached.generate(new MarkdownParser().parse(markdown), second);
+        uncached.generate(new MarkdownParser().parse(markdown), reference);
+
+        // Assert
+        assertEquals(2, cache.getMissCount(), "Paragraph and table should be rendered once");
+        assertEquals(2, cache.getHitCount(), "Second document should be spliced from the cache");
+        assertEquals(0.5, cache.getHitRate(), 1e-9, "Half of the lookups should be hits");
+        for (String entry : List.of("word/document.xml", "word/_rels/document.xml.rels")) {
+            assertArrayEquals(entry(reference, entry), entry(second, entry), entry + " should not change");
+        }
+    }
+
+    @Test
+    @DisplayName("Blocks showing images should not be cached")
+    void testBlocksWithImagesNotCached(@TempDir Path tempDir) throws Exception {
+        // Arrange: a long paragraph around an image file that may change between conversions
+        String markdown = "See the diagram ![Diagram](test-sample.png) " + "and the text around it. ".repeat(20);
+        WordFragmentCache cache = new WordFragmentCache(1024 * 1024);
+        WordGenerator generator = new WordGenerator();
+        generator.setFragmentCache(cache);
+
+        // Act
+        generator.generate(new MarkdownParser().parse(markdown), tempDir.resolve("first.docx"));
+        generator.generate(new MarkdownParser().parse(markdown), tempDir.resolve("second.docx"));
+
+        // Assert
+        assertEquals(0, cache.getHitCount() + cache.getMissCount(), "Paragraph with an image should not be looked up");
+        assertEquals(0, cache.getCurrentBytes(), "Nothing should be cached");
+    }
+
+    @Test
+    @DisplayName("Cache should evict least recently used fragments beyond its budget")
+    void testCacheEvictsBeyondBudget(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        WordFragmentCache cache = new WordFragmentCache(4096);
+        WordGenerator generator = new WordGenerator();
+        generator.setFragmentCache(cache);
+        StringBuilder markdown = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            markdown.append("Paragraph ").append(i).append(' ').append("with enough words to be cached. ".repeat(10))
+                    .append("\n\n");
+        }
+
+        // Act
+        generator.generate(new MarkdownParser().parse(markdown.toString()), tempDir.resolve("output.docx"));
+
+        // Assert
+        assertEquals(20, cache.getMissCount(), "Every paragraph should be looked up");
+        assertTrue(cache.getCurrentBytes() > 0, "Recent fragments should be cached");
+        assertTrue(cache.getCurrentBytes() <= 4096, "Cache should stay within its byte budget");
+    }
+
+    private static byte[] entry(Path docx, String name) throws Exception {
+        try (ZipFile zip = new ZipFile(docx.toFile()); InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+}
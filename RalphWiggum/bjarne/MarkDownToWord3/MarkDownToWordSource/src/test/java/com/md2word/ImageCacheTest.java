@@ -0,0 +1,80 @@
+package com.md2word;
+
+import com.md2word.generator.ImageDataCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the cross-document image data cache.
+ *
+ * <p>Tests verify that image files are read once while unchanged, re-read after they are
+ * modified, and that the cache stays within its byte budget.</p>
+ */
+@DisplayName("Image Cache Tests")
+public class ImageCacheTest {
+
+    @Test
+    @DisplayName("Unchanged image should be served from cache")
+    void testUnchangedImageIsCached(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path imageFile = tempDir.resolve("image.png");
+        Files.write(imageFile, new byte[]{1, 2, 3, 4});
+        ImageDataCache cache = new ImageDataCache(1024);
+
+        // Act
+        byte[] first = cache.load(imageFile.toRealPath());
+        byte[] second = cache.load(imageFile.toRealPath());
+
+        // Assert
+        assertSame(first, second, "Second load should return the cached bytes");
+        assertEquals(1, cache.getMissCount(), "Only the first load should read the file");
+        assertEquals(1, cache.getHitCount(), "Second load should be a cache hit");
+    }
+
+    @Test
+    @DisplayName("Modified image should be re-read")
+    void testModifiedImageIsReloaded(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path imageFile = tempDir.resolve("image.png");
+        Files.write(imageFile, new byte[]{1, 2, 3, 4});
+        ImageDataCache cache = new ImageDataCache(1024);
+        cache.load(imageFile.toRealPath());
+
+        // Act
+        Files.write(imageFile, new byte[]{5, 6, 7, 8, 9});
+        Files.setLastModifiedTime(imageFile, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        byte[] reloaded = cache.load(imageFile.toRealPath());
+
+        // Assert
+        assertArrayEquals(new byte[]{5, 6, 7, 8, 9}, reloaded, "New file contents should be returned");
+        assertEquals(2, cache.getMissCount(), "Changed file should be read again");
+        assertEquals(5, cache.getCurrentBytes(), "Stale version should be evicted");
+    }
+
+    @Test
+    @DisplayName("Cache should evict least recently used images beyond its budget")
+    void testCacheEvictsBeyondBudget(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        ImageDataCache cache = new ImageDataCache(10);
+        Path first = tempDir.resolve("first.png");
+        Path second = tempDir.resolve("second.png");
+        Files.write(first, new byte[6]);
+        Files.write(second, new byte[6]);
+
+        // Act
+        cache.load(first.toRealPath());
+        cache.load(second.toRealPath());
+        cache.load(first.toRealPath());
+
+        // Assert
+        assertTrue(cache.getCurrentBytes() <= 10, "Cache should stay within its byte budget");
+        assertEquals(3, cache.getMissCount(), "Evicted image should be read again");
+    }
+}
@@ -3,17 +3,32 @@ package com.md2word;
 import com.md2word.generator.WordGenerator;
 import com.md2word.parser.MarkdownParser;
 import com.vladsch.flexmark.util.ast.Document;
+import org.apache.poi.util.Units;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFPicture;
 import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFStyle;
 import org.apache.poi.xwpf.usermodel.XWPFTable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STUnderline;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipFile;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -145,12 +160,15 @@ public class IntegrationTest {
                     .anyMatch(XWPFRun::isItalic);
             assertTrue(hasItalic, "Document should contain italic text");
 
-            // Check for hyperlinks (blue underlined text)
+            // Check for hyperlinks (blue underlined text, through the Hyperlink character style)
             boolean hasLinks = doc.getParagraphs().stream()
                     .flatMap(p -> p.getRuns().stream())
-                    .anyMatch(run -> run.getUnderline() != null &&
-                                 run.getColor() != null &&
-                                 run.getColor().equals("0000FF"));
+                    .map(run -> characterStyleProperties(doc, run))
+                    .anyMatch(props -> props != null &&
+                                 props.sizeOfUArray() > 0 &&
+                                 props.getUArray(0).getVal() == STUnderline.SINGLE &&
+                                 props.sizeOfColorArray() > 0 &&
+                                 "0000FF".equals(props.getColorArray(0).xgetVal().getStringValue()));
             assertTrue(hasLinks, "Document should contain hyperlinks");
 
             // Check for list items
@@ -184,11 +202,13 @@ public class IntegrationTest {
             assertTrue(fullText.contains("Bob"), "Table content should be preserved");
             assertTrue(fullText.contains("Charlie"), "Table content should be preserved");
 
-            // Check for code blocks (monospace font)
+            // Check for code blocks (monospace font, through a code character style)
             boolean hasMonospace = doc.getParagraphs().stream()
                     .flatMap(p -> p.getRuns().stream())
-                    .anyMatch(run -> run.getFontFamily() != null &&
-                                 run.getFontFamily().contains("Courier"));
+                    .map(run -> characterStyleProperties(doc, run))
+                    .anyMatch(props -> props != null &&
+                                 props.sizeOfRFontsArray() > 0 &&
+                                 props.getRFontsArray(0).getAscii().contains("Courier"));
             assertTrue(hasMonospace, "Document should contain monospace code text");
 
             // Check for inline code
@@ -251,6 +271,163 @@ public class IntegrationTest {
         }
     }
 
+    @Test
+    @DisplayName("Data URI images should be embedded, sharing one part per distinct image")
+    void testDataUriImagesEmbedded(@TempDir Path tempDir) throws Exception {
+        // Arrange: a PNG inlined twice and a JPEG inlined once
+        BufferedImage image = new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", jpeg);
+        String pngUri = "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+        String markdown = "![First](" + pngUri + ")\n\n![Second](" + pngUri + ")\n\n"
+                + "![Photo](data:image/jpeg;base64," + Base64.getEncoder().encodeToString(jpeg.toByteArray()) + ")\n";
+        Path outputFile = tempDir.resolve("data-uri.docx");
+
+        // Act
+        generator.generate(parser.parse(markdown), outputFile);
+
+        // Assert
+        try (XWPFDocument doc = new XWPFDocument(new FileInputStream(outputFile.toFile()))) {
+            long pictures = doc.getParagraphs().stream()
+                    .flatMap(paragraph -> paragraph.getRuns().stream())
+                    .mapToLong(run -> run.getEmbeddedPictures().size())
+                    .sum();
+            assertEquals(3, pictures, "Every data URI image should be shown");
+            assertEquals(2, doc.getAllPackagePictures().size(), "Identical images should share one part");
+            assertTrue(doc.getAllPackagePictures().stream()
+                            .anyMatch(picture -> Arrays.equals(png.toByteArray(), picture.getData())),
+                    "Image should be decoded intact");
+        }
+    }
+
+    @Test
+    @DisplayName("Images should be embedded with the type and size read from their headers")
+    void testImageTypeAndSizeFromHeader(@TempDir Path tempDir) throws Exception {
+        // Arrange: each format saved under a misleading .png name, and one image wider than the page
+        String[] formats = {"png", "jpeg", "gif", "bmp"};
+        int[] pictureTypes = {XWPFDocument.PICTURE_TYPE_PNG, XWPFDocument.PICTURE_TYPE_JPEG,
+                XWPFDocument.PICTURE_TYPE_GIF, XWPFDocument.PICTURE_TYPE_BMP};
+        // Noise, since a blank bitmap compresses so well that POI would refuse to read the file
+        BufferedImage noise = new BufferedImage(300, 150, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(48);
+        for (int y = 0; y < noise.getHeight(); y++) {
+            for (int x = 0; x < noise.getWidth(); x++) {
+                noise.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        StringBuilder markdown = new StringBuilder();
+        for (String format : formats) {
+            Path imageFile = tempDir.resolve(format + "-image.png");
+            ImageIO.write(noise, format, imageFile.toFile());
+            markdown.append("![").append(format).append("](").append(imageFile).append(")\n\n");
+        }
+        Path wideFile = tempDir.resolve("wide.png");
+        ImageIO.write(new BufferedImage(936, 100, BufferedImage.TYPE_INT_RGB), "png", wideFile.toFile());
+        markdown.append("![wide](").append(wideFile).append(")\n");
+        Path outputFile = tempDir.resolve("headers.docx");
+
+        // Act
+        generator.generate(parser.parse(markdown.toString()), outputFile);
+
+        // Assert
+        try (XWPFDocument doc = new XWPFDocument(new FileInputStream(outputFile.toFile()))) {
+            List<XWPFPicture> pictures = doc.getParagraphs().stream()
+                    .flatMap(paragraph -> paragraph.getRuns().stream())
+                    .flatMap(run -> run.getEmbeddedPictures().stream())
+                    .toList();
+            assertEquals(5, pictures.size(), "Every image should be embedded");
+            for (int i = 0; i < formats.length; i++) {
+                assertEquals(pictureTypes[i], pictures.get(i).getPictureData().getPictureType(),
+                        formats[i] + " should be embedded with its true type");
+                assertEquals(Units.toEMU(300), pictures.get(i).getCTPicture().getSpPr().getXfrm().getExt().getCx(),
+                        formats[i] + " should be one point per pixel wide");
+                assertEquals(Units.toEMU(150), pictures.get(i).getCTPicture().getSpPr().getXfrm().getExt().getCy(),
+                        formats[i] + " should keep its aspect ratio");
+            }
+            assertEquals(Units.toEMU(468), pictures.get(4).getCTPicture().getSpPr().getXfrm().getExt().getCx(),
+                    "Wide image should be scaled to the text width");
+            assertEquals(Units.toEMU(50), pictures.get(4).getCTPicture().getSpPr().getXfrm().getExt().getCy(),
+                    "Wide image should keep its aspect ratio");
+        }
+    }
+
+    @Test
+    @DisplayName("WebP image should fall back to its alt text in Word")
+    void testWebpImageFallsBackToAltText(@TempDir Path tempDir) throws Exception {
+        // Arrange: a lossless WebP header of a 640x480 image
+        byte[] webp = new byte[40];
+        System.arraycopy("RIFF".getBytes(StandardCharsets.US_ASCII), 0, webp, 0, 4);
+        System.arraycopy("WEBPVP8L".getBytes(StandardCharsets.US_ASCII), 0, webp, 8, 8);
+        int bits = (640 - 1) | (480 - 1) << 14;
+        webp[20] = 0x2F;
+        webp[21] = (byte) bits;
+        webp[22] = (byte) (bits >> 8);
+        webp[23] = (byte) (bits >> 16);
+        webp[24] = (byte) (bits >> 24);
+        Path imageFile = tempDir.resolve("photo.png");
+        Files.write(imageFile, webp);
+        Path outputFile = tempDir.resolve("webp.docx");
+
+        // Act
+        generator.generate(parser.parse("![Photo](" + imageFile + ")\n"), outputFile);
+
+        // Assert
+        try (XWPFDocument doc = new XWPFDocument(new FileInputStream(outputFile.toFile()))) {
+            assertTrue(doc.getAllPackagePictures().isEmpty(), "WebP should not be embedded as another type");
+            assertEquals("[Image: Photo]", doc.getParagraphs().get(0).getText(), "Alt text should be shown");
+        }
+    }
+
+    @Test
+    @DisplayName("Rendering sections in parallel should produce the same document as rendering sequentially")
+    void testParallelRenderingMatchesSequential(@TempDir Path tempDir) throws Exception {
+        // Arrange: enough blocks for several sections, with links and pictures in most of them
+        Path image = tempDir.resolve("dot.png");
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", image.toFile());
+        StringBuilder markdown = new StringBuilder("# Parallel Document\n\n");
+        for (int i = 0; i < 1_500; i++) {
+            markdown.append("Paragraph ").append(i).append(" with **bold**, `code` and [a link](https://example.com/")
+                    .append(i % 7).append(").\n\n");
+            if (i % 100 == 0) {
+                markdown.append("![dot](").append(image).append(")\n\n")
+                        .append("| Key | Value |\n|-----|-------|\n| [k](https://example.com/k) | ").append(i).append(" |\n\n");
+            }
+        }
+        Document document = parser.parse(markdown.toString());
+        Path sequentialFile = tempDir.resolve("sequential.docx");
+        Path parallelFile = tempDir.resolve("parallel.docx");
+
+        // Act
+        generator.generate(document, sequentialFile);
+        WordGenerator parallelGenerator = new WordGenerator();
+        parallelGenerator.setParallelism(3);
+        parallelGenerator.generate(document, parallelFile);
+
+        // Assert: the body, relationships and pictures are byte for byte the same
+        try (ZipFile sequential = new ZipFile(sequentialFile.toFile());
+             ZipFile parallel = new ZipFile(parallelFile.toFile())) {
+            for (String part : new String[] {"word/document.xml", "word/_rels/document.xml.rels", "word/media/image1.png"}) {
+                assertArrayEquals(sequential.getInputStream(sequential.getEntry(part)).readAllBytes(),
+                        parallel.getInputStream(parallel.getEntry(part)).readAllBytes(), part + " should be identical");
+            }
+            assertNull(parallel.getEntry("word/media/image2.png"), "The repeated picture should be stored once");
+        }
+    }
+
+    /**
+     * Helper method to get the run properties of a run's character style, or null if it has none.
+     */
+    private CTRPr characterStyleProperties(XWPFDocument doc, XWPFRun run) {
+        String styleId = run.getStyle();
+        if (styleId == null || styleId.isEmpty()) {
+            return null;
+        }
+        XWPFStyle style = doc.getStyles().getStyle(styleId);
+        return style != null ? style.getCTStyle().getRPr() : null;
+    }
+
     /**
      * Helper method to check if document has a paragraph with specific heading style.
      */
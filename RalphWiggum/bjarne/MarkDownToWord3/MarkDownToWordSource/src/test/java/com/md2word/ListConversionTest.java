@@ -2,6 +2,17 @@ package com.md2word;
 
 import com.md2word.generator.WordGenerator;
 import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.ast.BulletList;
+import com.vladsch.flexmark.ast.BulletListItem;
+import com.vladsch.flexmark.ast.ListBlock;
+import com.vladsch.flexmark.ast.ListItem;
+import com.vladsch.flexmark.ast.OrderedList;
+import com.vladsch.flexmark.ast.OrderedListItem;
+import com.vladsch.flexmark.ast.Paragraph;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.sequence.BasedSequence;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFNumbering;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
@@ -293,4 +304,49 @@ public class ListConversionTest {
             assertTrue(hasItalic, "Should have italic formatting");
         }
     }
+
+    @Test
+    @DisplayName("Lists nested 100,000 levels deep should convert without overflowing the stack")
+    void testDeeplyNestedList(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        int depth = 100_000;
+        Document document = deeplyNestedList(depth);
+        Path outputFile = tempDir.resolve("output.docx");
+
+        // Act
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (XWPFDocument doc = new XWPFDocument(new FileInputStream(outputFile.toFile()))) {
+            List<XWPFParagraph> paragraphs = doc.getParagraphs();
+            assertEquals(depth, paragraphs.size(), "Every level should have its item paragraph");
+            assertEquals("level 0", paragraphs.get(0).getText(), "Outermost item should come first");
+            assertEquals("List Bullet", paragraphs.get(0).getStyle(), "Outermost item should be a bullet");
+            XWPFParagraph innermost = paragraphs.get(depth - 1);
+            assertEquals("level " + (depth - 1), innermost.getText(), "Innermost item should come last");
+            assertEquals("List Number " + depth, innermost.getStyle(), "Innermost item should have its level's style");
+        }
+    }
+
+    /**
+     * Builds a list nested {@code depth} levels deep, alternating bullet and ordered lists,
+     * whose item at each level reads "level N". The AST is built directly, since Markdown
+     * text this deep is beyond what the parser handles.
+     */
+    private Document deeplyNestedList(int depth) {
+        Document document = parser.parse("");
+        Node parent = document;
+        for (int level = 0; level < depth; level++) {
+            boolean bullet = level % 2 == 0;
+            ListBlock list = bullet ? new BulletList() : new OrderedList();
+            ListItem item = bullet ? new BulletListItem() : new OrderedListItem();
+            Paragraph paragraph = new Paragraph();
+            paragraph.appendChild(new Text(BasedSequence.of("level " + level)));
+            item.appendChild(paragraph);
+            list.appendChild(item);
+            parent.appendChild(list);
+            parent = item;
+        }
+        return document;
+    }
 }
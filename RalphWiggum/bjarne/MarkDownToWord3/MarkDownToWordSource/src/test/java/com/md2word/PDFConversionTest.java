@@ -1,13 +1,57 @@
 package com.md2word;
 
 import com.md2word.generator.PDFGenerator;
+import com.md2word.generator.PdfMemoryPolicy;
+import com.md2word.generator.PdfMemoryReport;
+import com.md2word.generator.PdfSaveProfile;
 import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.ast.BulletList;
+import com.vladsch.flexmark.ast.BulletListItem;
+import com.vladsch.flexmark.ast.Emphasis;
+import com.vladsch.flexmark.ast.ListBlock;
+import com.vladsch.flexmark.ast.ListItem;
+import com.vladsch.flexmark.ast.OrderedList;
+import com.vladsch.flexmark.ast.OrderedListItem;
+import com.vladsch.flexmark.ast.Paragraph;
+import com.vladsch.flexmark.ast.StrongEmphasis;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.sequence.BasedSequence;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -253,6 +297,59 @@ public class PDFConversionTest {
         assertTrue(outputFile.toFile().length() > 0, "PDF file should not be empty");
     }
 
+    @Test
+    @DisplayName("Adjacent links to the same URL should become one annotation")
+    void testAdjacentLinksMerged(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String markdown = "[Read](https://example.com)[ more](https://example.com) or [skip](https://other.com)";
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert: the touching areas are merged, the separate link keeps its own annotation
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            List<PDAnnotation> annotations = pdf.getPage(0).getAnnotations();
+            assertEquals(2, annotations.size(), "Touching areas of one URL should be merged");
+            assertEquals("https://example.com", uri(annotations.get(0)));
+            assertEquals("https://other.com", uri(annotations.get(1)));
+            assertTrue(annotations.get(0).getRectangle().getUpperRightX() < annotations.get(1).getRectangle().getLowerLeftX(),
+                    "Merged area should end before the next link");
+        }
+    }
+
+    @Test
+    @DisplayName("Links to the same URL should share one action")
+    void testRepeatedLinksShareAction(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        StringBuilder markdown = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            markdown.append("See [the API](https://example.com/api) or [item ").append(i)
+                    .append("](https://example.com/items/").append(i).append(").\n\n");
+        }
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown.toString());
+        generator.generate(document, outputFile);
+
+        // Assert: one annotation per link, one action per distinct URL
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            List<PDAnnotation> annotations = pdf.getPage(0).getAnnotations();
+            assertEquals(40, annotations.size(), "Every link should have an annotation");
+            Set<COSBase> actions = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (PDAnnotation annotation : annotations) {
+                actions.add(((PDAnnotationLink) annotation).getAction().getCOSObject());
+            }
+            assertEquals(21, actions.size(), "Links to the same URL should share their action");
+        }
+    }
+
+    private static String uri(PDAnnotation annotation) {
+        return ((PDActionURI) ((PDAnnotationLink) annotation).getAction()).getURI();
+    }
+
     // ========== List Tests ==========
 
     @Test
@@ -337,6 +434,81 @@ public class PDFConversionTest {
         assertTrue(outputFile.toFile().length() > 0, "PDF file should not be empty");
     }
 
+    @Test
+    @DisplayName("Lists nested 100,000 levels deep should generate PDF without overflowing the stack")
+    void testDeeplyNestedListGeneratesPDF(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        int depth = 100_000;
+        Document document = deeplyNestedList(depth);
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(pdf.getNumberOfPages());
+            assertTrue(stripper.getText(pdf).contains("level " + (depth - 1)), "Innermost item should be drawn last");
+        }
+    }
+
+    @Test
+    @DisplayName("Emphasis nested 100,000 levels deep should generate PDF without overflowing the stack")
+    void testDeeplyNestedEmphasisGeneratesPDF(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Document document = deeplyNestedEmphasis(100_000);
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            assertEquals("leaf", new PDFTextStripper().getText(pdf).trim(), "Innermost text should be drawn");
+        }
+    }
+
+    /**
+     * Builds a list nested {@code depth} levels deep, alternating bullet and ordered lists,
+     * whose item at each level reads "level N". The AST is built directly, since Markdown
+     * text this deep is beyond what the parser handles.
+     */
+    private Document deeplyNestedList(int depth) {
+        Document document = parser.parse("");
+        Node parent = document;
+        for (int level = 0; level < depth; level++) {
+            boolean bullet = level % 2 == 0;
+            ListBlock list = bullet ? new BulletList() : new OrderedList();
+            ListItem item = bullet ? new BulletListItem() : new OrderedListItem();
+            Paragraph paragraph = new Paragraph();
+            paragraph.appendChild(new Text(BasedSequence.of("level " + level)));
+            item.appendChild(paragraph);
+            list.appendChild(item);
+            parent.appendChild(list);
+            parent = item;
+        }
+        return document;
+    }
+
+    /**
+     * Builds a paragraph whose text "leaf" is nested {@code depth} levels deep in alternating
+     * emphasis and strong emphasis. The AST is built directly, since Markdown text this deep
+     * is beyond what the parser handles.
+     */
+    private Document deeplyNestedEmphasis(int depth) {
+        Document document = parser.parse("");
+        Node parent = new Paragraph();
+        document.appendChild(parent);
+        for (int level = 0; level < depth; level++) {
+            Node emphasis = level % 2 == 0 ? new Emphasis() : new StrongEmphasis();
+            parent.appendChild(emphasis);
+            parent = emphasis;
+        }
+        parent.appendChild(new Text(BasedSequence.of("leaf")));
+        return document;
+    }
+
     // ========== Code Block Tests ==========
 
     @Test
@@ -379,6 +551,146 @@ public class PDFConversionTest {
         assertTrue(outputFile.toFile().length() > 0, "PDF file should not be empty");
     }
 
+    @Test
+    @DisplayName("Characters outside the font encoding should be skipped, not fail")
+    void testUnencodableCharactersGeneratePDF(@TempDir Path tempDir) throws Exception {
+        // Arrange: box-drawing and CJK characters in text, inline code and a code block
+        String markdown = """
+            Tree `├── src` and 中文 text here.
+
+            ```
+            └── Main.java
+            ```
+            """;
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            String text = new PDFTextStripper().getText(pdf);
+            assertTrue(text.contains("src"), "Encodable part of inline code should be kept");
+            assertTrue(text.contains("text here."), "Encodable part of paragraph should be kept");
+            assertTrue(text.contains("Main.java"), "Encodable part of code block should be kept");
+        }
+    }
+
+    @Test
+    @DisplayName("Long code block should continue on new pages with a background on each")
+    void testLongCodeBlockSplitsAcrossPages(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        StringBuilder markdown = new StringBuilder("```\n");
+        for (int i = 0; i < 300; i++) {
+            markdown.append(String.format("line%03d();%n", i));
+        }
+        markdown.append("```\n\nAfter the code.\n");
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown.toString());
+        generator.generate(document, outputFile);
+
+        // Assert: no line lost, all text between the margins, one background rectangle per page
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            assertTrue(pdf.getNumberOfPages() > 1, "Code block should span several pages");
+            float[] minY = {Float.MAX_VALUE};
+            float[] maxY = new float[1];
+            PDFTextStripper stripper = new PDFTextStripper() {
+                @Override
+                protected void writeString(String text, List<TextPosition> positions) throws IOException {
+                    for (TextPosition position : positions) {
+                        float y = position.getPageHeight() - position.getYDirAdj();
+                        minY[0] = Math.min(minY[0], y);
+                        maxY[0] = Math.max(maxY[0], y);
+                    }
+                    super.writeString(text, positions);
+                }
+            };
+            String text = stripper.getText(pdf);
+            for (int i = 0; i < 300; i++) {
+                assertTrue(text.contains(String.format("line%03d();", i)), "Line " + i + " should be drawn");
+            }
+            assertTrue(text.contains("After the code."), "Text after the code block should be drawn");
+            float pageHeight = pdf.getPage(0).getMediaBox().getHeight();
+            assertTrue(minY[0] >= 50 && maxY[0] <= pageHeight - 50, "Text should stay between the margins: "
+                    + minY[0] + ".." + maxY[0]);
+
+            for (int page = 0; page < pdf.getNumberOfPages(); page++) {
+                int rectangles = 0;
+                PDFStreamParser streamParser = new PDFStreamParser(pdf.getPage(page));
+                for (Object token = streamParser.parseNextToken(); token != null; token = streamParser.parseNextToken()) {
+                    if (token instanceof Operator && ((Operator) token).getName().equals("re")) {
+                        rectangles++;
+                    }
+                }
+                assertEquals(1, rectangles, "Page " + (page + 1) + " should have one code background");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Long code lines should wrap inside the page when enabled")
+    void testLongCodeLinesWrap(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String longLine = "x = call(" + "argument, ".repeat(40) + "last);";
+        String markdown = "```\n" + longLine + "\nshort();\n```\n";
+        Path outputFile = tempDir.resolve("output.pdf");
+        generator.setWrapCodeLines(true);
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert: every character drawn, none beyond the right margin
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            float[] maxX = new float[1];
+            PDFTextStripper stripper = new PDFTextStripper() {
+                @Override
+                protected void writeString(String text, List<TextPosition> positions) throws IOException {
+                    for (TextPosition position : positions) {
+                        maxX[0] = Math.max(maxX[0], position.getXDirAdj() + position.getWidthDirAdj());
+                    }
+                    super.writeString(text, positions);
+                }
+            };
+            String[] lines = stripper.getText(pdf).split("\\R");
+            assertTrue(lines.length > 2, "Long line should wrap");
+            String joined = String.join("", Arrays.copyOf(lines, lines.length - 1));
+            assertEquals(longLine, joined, "Wrapped line should keep every character");
+            assertEquals("short();", lines[lines.length - 1], "Next line should start on its own line");
+            float rightMargin = pdf.getPage(0).getMediaBox().getWidth() - 50;
+            assertTrue(maxX[0] <= rightMargin, "Code should wrap before the right margin: " + maxX[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Code block of only whitespace should draw nothing")
+    void testBlankCodeBlockDrawsNothing(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String markdown = "Before.\n\n```\n   \n\n```\n\nAfter.\n";
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert: no background rectangle, surrounding text kept
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            List<String> operators = new ArrayList<>();
+            PDFStreamParser streamParser = new PDFStreamParser(pdf.getPage(0));
+            for (Object token = streamParser.parseNextToken(); token != null; token = streamParser.parseNextToken()) {
+                if (token instanceof Operator) {
+                    operators.add(((Operator) token).getName());
+                }
+            }
+            assertFalse(operators.contains("re"), "Blank code block should not draw a background: " + operators);
+            String text = new PDFTextStripper().getText(pdf);
+            assertTrue(text.contains("Before.") && text.contains("After."), "Surrounding text should be drawn");
+        }
+    }
+
     // ========== Blockquote Tests ==========
 
     @Test
@@ -461,6 +773,112 @@ public class PDFConversionTest {
         assertTrue(outputFile.toFile().length() > 0, "PDF file should not be empty");
     }
 
+    @Test
+    @DisplayName("Large table should continue on new pages with the header repeated")
+    void testLargeTableSplitsAcrossPages(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        StringBuilder markdown = new StringBuilder("| Key | Value |\n|-----|-------|\n");
+        for (int i = 0; i < 200; i++) {
+            markdown.append(String.format("| key%03d | value%03d |%n", i, i));
+        }
+        markdown.append("\nAfter the table.\n");
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown.toString());
+        generator.generate(document, outputFile);
+
+        // Assert: every page starts with the header, and no row is lost
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            assertTrue(pdf.getNumberOfPages() > 1, "Table should span several pages");
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int page = 1; page <= pdf.getNumberOfPages(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                assertTrue(stripper.getText(pdf).startsWith("Key"), "Page " + page + " should start with the header");
+            }
+            stripper.setStartPage(1);
+            stripper.setEndPage(pdf.getNumberOfPages());
+            String text = stripper.getText(pdf);
+            assertTrue(text.contains("key000") && text.contains("value199"), "All rows should be drawn");
+            assertTrue(text.contains("After the table."), "Text after the table should be drawn");
+        }
+    }
+
+    @Test
+    @DisplayName("Long cell text should wrap inside the page")
+    void testLongCellTextWraps(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String longText = "word ".repeat(150).trim();
+        String markdown = "| Short | Long |\n|-------|------|\n| a | " + longText + " |\n";
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert: all words drawn, none beyond the right margin
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            float[] maxX = new float[1];
+            PDFTextStripper stripper = new PDFTextStripper() {
+                @Override
+                protected void writeString(String text, List<TextPosition> positions) throws IOException {
+                    for (TextPosition position : positions) {
+                        maxX[0] = Math.max(maxX[0], position.getXDirAdj() + position.getWidthDirAdj());
+                    }
+                    super.writeString(text, positions);
+                }
+            };
+            String text = stripper.getText(pdf);
+            assertEquals(150, text.split("word", -1).length - 1, "Every word should be drawn");
+            float rightMargin = pdf.getPage(0).getMediaBox().getWidth() - 50;
+            assertTrue(maxX[0] <= rightMargin, "Text should wrap before the right margin: " + maxX[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Cell taller than a page should continue on the next pages")
+    void testCellTallerThanPageSplits(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String longText = "word ".repeat(3000).trim();
+        String markdown = "| Short | Long |\n|-------|------|\n| a | " + longText + " |\n| b | last |\n";
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert: all words drawn, every glyph inside the page, the header on every page
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            assertTrue(pdf.getNumberOfPages() > 2, "Cell should span several pages");
+            PDRectangle mediaBox = pdf.getPage(0).getMediaBox();
+            List<String> outside = new ArrayList<>();
+            PDFTextStripper stripper = new PDFTextStripper() {
+                @Override
+                protected void writeString(String text, List<TextPosition> positions) throws IOException {
+                    for (TextPosition position : positions) {
+                        float x = position.getXDirAdj();
+                        float y = position.getYDirAdj();
+                        if (x < 0 || x + position.getWidthDirAdj() > mediaBox.getWidth()
+                                || y - position.getHeightDir() < 0 || y > mediaBox.getHeight()) {
+                            outside.add(position.getUnicode() + " at " + x + "," + y);
+                        }
+                    }
+                    super.writeString(text, positions);
+                }
+            };
+            String text = stripper.getText(pdf);
+            assertEquals(3000, text.split("word", -1).length - 1, "Every word should be drawn");
+            assertTrue(outside.isEmpty(), "Glyphs should be inside the page: " + outside.size());
+            assertTrue(text.contains("last"), "Row after the tall row should be drawn");
+            for (int page = 1; page <= pdf.getNumberOfPages(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                assertTrue(stripper.getText(pdf).startsWith("Short"), "Page " + page + " should start with the header");
+            }
+        }
+    }
+
     // ========== Image Tests ==========
 
     @Test
@@ -517,6 +935,505 @@ public class PDFConversionTest {
         assertTrue(outputFile.toFile().length() > 0, "PDF file should not be empty");
     }
 
+    @Test
+    @DisplayName("Repeated image should be embedded only once")
+    void testRepeatedImageEmbeddedOnce(@TempDir Path tempDir) throws Exception {
+        // Arrange: same file referenced through three different path spellings
+        Path imageFile = tempDir.resolve("diagram.png");
+        Files.copy(Path.of("test-sample.png"), imageFile);
+        String markdown = "![One](" + imageFile + ")\n\n"
+                + "![Two](" + tempDir.resolve(".").resolve("diagram.png") + ")\n\n"
+                + "![Three](" + imageFile + ")\n";
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            PDResources resources = pdf.getPage(0).getResources();
+            int imageCount = 0;
+            for (COSName name : resources.getXObjectNames()) {
+                if (resources.isImageXObject(name)) {
+                    imageCount++;
+                }
+            }
+            assertEquals(1, imageCount, "All references should share a single image XObject");
+        }
+    }
+
+    @Test
+    @DisplayName("Data URI images should be decoded and embedded once per distinct image")
+    void testDataUriImagesEmbeddedOnce(@TempDir Path tempDir) throws Exception {
+        // Arrange: the same image inlined twice, with differently cased headers
+        byte[] png = Files.readAllBytes(Path.of("test-sample.png"));
+        String encoded = Base64.getEncoder().encodeToString(png);
+        String markdown = "![One](data:image/png;base64," + encoded + ")\n\n"
+                + "![Two](DATA:image/PNG;Base64," + encoded + ")\n\n"
+                + "![Broken](data:image/png;base64,AAAA)\n";
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            PDResources resources = pdf.getPage(0).getResources();
+            int imageCount = 0;
+            for (COSName name : resources.getXObjectNames()) {
+                if (resources.isImageXObject(name)) {
+                    imageCount++;
+                    assertEquals(ImageIO.read(Path.of("test-sample.png").toFile()).getWidth(),
+                            ((PDImageXObject) resources.getXObject(name)).getWidth(), "Image should be decoded intact");
+                }
+            }
+            assertEquals(1, imageCount, "Both data URIs should share a single image XObject");
+            assertTrue(new PDFTextStripper().getText(pdf).contains("[Image: Broken]"),
+                    "Undecodable image should fall back to its alt text");
+        }
+    }
+
+    // ========== Content Stream Tests ==========
+
+    @Test
+    @DisplayName("Unchanged font and colour should not be written again")
+    void testRedundantOperatorsElided(@TempDir Path tempDir) throws Exception {
+        // Arrange: three list items and a table all drawn in the regular font and black
+        String markdown = """
+            - First item
+            - Second item
+            - Third item
+
+            | Name | Value |
+            |------|-------|
+            | a    | 1     |
+            """;
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert: one Tf per font switch (regular, bold header, regular body), no default state written
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            List<String> operators = new ArrayList<>();
+            PDFStreamParser streamParser = new PDFStreamParser(pdf.getPage(0));
+            for (Object token = streamParser.parseNextToken(); token != null; token = streamParser.parseNextToken()) {
+                if (token instanceof Operator) {
+                    operators.add(((Operator) token).getName());
+                }
+            }
+            assertEquals(3, Collections.frequency(operators, "Tf"), "Font should only be set when it changes: " + operators);
+            assertEquals(0, Collections.frequency(operators, "RG"), "Default black border colour should not be written: " + operators);
+            assertEquals(0, Collections.frequency(operators, "w"), "Default line width should not be written: " + operators);
+            assertEquals(Collections.frequency(operators, "BT"), Collections.frequency(operators, "ET"),
+                    "Text objects should be balanced");
+        }
+    }
+
+    // ========== Save Profile Tests ==========
+
+    @Test
+    @DisplayName("Every save profile produces a readable PDF")
+    void testSaveProfilesProduceReadablePdf(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        var document = parser.parse("# Title\n\nSome **bold** text.\n\n```\ncode\n```");
+
+        for (PdfSaveProfile profile : PdfSaveProfile.values()) {
+            Path outputFile = tempDir.resolve(profile + ".pdf");
+            generator.setSaveProfile(profile);
+
+            // Act
+            generator.generate(document, outputFile);
+
+            // Assert: text survives, and only STORED and FAST keep a plain xref table without object streams
+            try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+                String text = new PDFTextStripper().getText(pdf);
+                assertTrue(text.contains("Some bold text."), profile + " should keep the text: " + text);
+            }
+            String raw = new String(Files.readAllBytes(outputFile), StandardCharsets.ISO_8859_1);
+            boolean plain = profile == PdfSaveProfile.STORED || profile == PdfSaveProfile.FAST;
+            assertEquals(!plain, raw.contains("/ObjStm"), profile + " object streams");
+            assertEquals(plain, raw.contains("\nxref"), profile + " classic xref table");
+            assertEquals(profile != PdfSaveProfile.STORED, raw.contains("/FlateDecode"),
+                    profile + " compressed content");
+        }
+    }
+
+    @Test
+    @DisplayName("Smaller save profiles produce smaller files")
+    void testSaveProfileFileSizes(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        StringBuilder markdown = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            markdown.append("Paragraph ").append(i).append(" with **bold** and *italic* text.\n\n");
+        }
+        var document = parser.parse(markdown.toString());
+
+        // Act
+        long[] sizes = new long[PdfSaveProfile.values().length];
+        for (PdfSaveProfile profile : PdfSaveProfile.values()) {
+            Path outputFile = tempDir.resolve(profile + ".pdf");
+            generator.setSaveProfile(profile);
+            generator.generate(document, outputFile);
+            sizes[profile.ordinal()] = Files.size(outputFile);
+        }
+
+        // Assert
+        assertTrue(sizes[PdfSaveProfile.BALANCED.ordinal()] < sizes[PdfSaveProfile.FAST.ordinal()],
+                "BALANCED should be smaller than FAST");
+        assertTrue(sizes[PdfSaveProfile.SMALLEST.ordinal()] <= sizes[PdfSaveProfile.BALANCED.ordinal()],
+                "SMALLEST should not be larger than BALANCED");
+    }
+
+    @Test
+    @DisplayName("Null save profile throws IllegalArgumentException")
+    void testNullSaveProfileThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> generator.setSaveProfile(null));
+    }
+
+    // ========== Memory Policy Tests ==========
+
+    @Test
+    @DisplayName("Heap budget should spill stream data to a scratch file that is removed afterwards")
+    void testHeapBudgetUsesScratchFile(@TempDir Path tempDir) throws Exception {
+        // Arrange: a table large enough for several pages of content streams
+        StringBuilder markdown = new StringBuilder("| Key | Value |\n|-----|-------|\n");
+        for (int i = 0; i < 500; i++) {
+            markdown.append(String.format("| key%03d | value%03d |%n", i, i));
+        }
+        Path scratchDir = tempDir.resolve("scratch");
+        Path outputFile = tempDir.resolve("output.pdf");
+        List<PdfMemoryReport> reports = new ArrayList<>();
+        generator.setMemoryPolicy(PdfMemoryPolicy.heapBudget(0).withScratchDirectory(scratchDir));
+        generator.setMemoryReportListener(reports::add);
+
+        // Act
+        var document = parser.parse(markdown.toString());
+        generator.generate(document, outputFile);
+
+        // Assert
+        assertEquals(1, reports.size(), "One report per document");
+        assertTrue(reports.get(0).scratchFileBytes() > 0, "Stream data should be in the scratch file");
+        assertTrue(reports.get(0).peakHeapBytes() > 0, "Peak heap should be measured");
+        try (var scratchFiles = Files.list(scratchDir)) {
+            assertEquals(0, scratchFiles.count(), "Scratch files should be deleted");
+        }
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            assertTrue(new PDFTextStripper().getText(pdf).contains("value499"), "Content should be complete");
+        }
+    }
+
+    @Test
+    @DisplayName("Default memory policy should not use a scratch file")
+    void testHeapOnlyReportsNoScratchFile(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path outputFile = tempDir.resolve("output.pdf");
+        List<PdfMemoryReport> reports = new ArrayList<>();
+        generator.setMemoryReportListener(reports::add);
+
+        // Act
+        generator.generate(parser.parse("# Title\n\nText."), outputFile);
+
+        // Assert
+        assertEquals(0, reports.get(0).scratchFileBytes(), "Heap-only documents have no scratch file");
+    }
+
+    @Test
+    @DisplayName("Invalid memory policies throw IllegalArgumentException")
+    void testInvalidMemoryPolicyThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> generator.setMemoryPolicy(null));
+        assertThrows(IllegalArgumentException.class, () -> PdfMemoryPolicy.heapBudget(-1));
+    }
+
+    // ========== Page Furniture Tests ==========
+
+    @Test
+    @DisplayName("Header, footer and page numbers should appear on every page")
+    void testHeaderFooterAndPageNumbersOnEveryPage(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        StringBuilder markdown = new StringBuilder("| Key | Value |\n|-----|-------|\n");
+        for (int i = 0; i < 200; i++) {
+            markdown.append(String.format("| key%03d | value%03d |%n", i, i));
+        }
+        Path outputFile = tempDir.resolve("output.pdf");
+        generator.setPageHeader("Quarterly Report");
+        generator.setPageFooter("Confidential");
+        generator.setPageNumbers(true);
+
+        // Act
+        generator.generate(parser.parse(markdown.toString()), outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            int pageCount = pdf.getNumberOfPages();
+            assertTrue(pageCount > 1, "Table should span several pages");
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int page = 1; page <= pageCount; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                String text = stripper.getText(pdf);
+                assertTrue(text.contains("Quarterly Report"), "Page " + page + " should have the header");
+                assertTrue(text.contains("Confidential"), "Page " + page + " should have the footer");
+                assertTrue(text.contains("Page " + page + " of " + pageCount), "Page " + page + " should be numbered");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Every page should reference the same header and footer forms")
+    void testPageFurnitureFormsShared(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        StringBuilder markdown = new StringBuilder("| Key | Value |\n|-----|-------|\n");
+        for (int i = 0; i < 200; i++) {
+            markdown.append(String.format("| key%03d | value%03d |%n", i, i));
+        }
+        Path outputFile = tempDir.resolve("output.pdf");
+        generator.setPageHeader("Quarterly Report");
+        generator.setPageFooter("Confidential");
+
+        // Act
+        generator.generate(parser.parse(markdown.toString()), outputFile);
+
+        // Assert: two form objects in the file, each referenced from every page
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            Set<COSBase> forms = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (PDPage page : pdf.getPages()) {
+                PDResources resources = page.getResources();
+                int pageForms = 0;
+                for (COSName name : resources.getXObjectNames()) {
+                    if (resources.getXObject(name) instanceof PDFormXObject form) {
+                        forms.add(form.getCOSObject());
+                        pageForms++;
+                    }
+                }
+                assertEquals(2, pageForms, "Every page should place the header and footer forms");
+            }
+            assertEquals(2, forms.size(), "All pages should share the same two forms");
+        }
+    }
+
+    @Test
+    @DisplayName("Horizontal rules should place one shared form")
+    void testThematicBreaksShareForm(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String markdown = "Above\n\n---\n\nBetween\n\n***\n\nBelow\n";
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        generator.generate(parser.parse(markdown), outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            PDResources resources = pdf.getPage(0).getResources();
+            int formCount = 0;
+            for (COSName name : resources.getXObjectNames()) {
+                if (resources.getXObject(name) instanceof PDFormXObject) {
+                    formCount++;
+                }
+            }
+            assertEquals(1, formCount, "Both rules should share a single form XObject");
+
+            List<String> operators = new ArrayList<>();
+            PDFStreamParser streamParser = new PDFStreamParser(pdf.getPage(0));
+            for (Object token = streamParser.parseNextToken(); token != null; token = streamParser.parseNextToken()) {
+                if (token instanceof Operator) {
+                    operators.add(((Operator) token).getName());
+                }
+            }
+            assertEquals(2, Collections.frequency(operators, "Do"), "Each rule should place the form: " + operators);
+            assertTrue(new PDFTextStripper().getText(pdf).contains("Below"), "Text after the rules should be drawn");
+        }
+    }
+
+    // ========== Linearization Tests ==========
+
+    @Test
+    @DisplayName("Linearized PDF should have the same pages and text")
+    void testLinearizedPdfMatchesRegularPdf(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        StringBuilder markdown = new StringBuilder("# Title\n\nIntro *text*.\n\n| Key | Value |\n|-----|-------|\n");
+        for (int i = 0; i < 200; i++) {
+            markdown.append(String.format("| key%03d | [value%03d](https://example.com/%d) |%n", i, i, i));
+        }
+        var document = parser.parse(markdown.toString());
+        Path regularFile = tempDir.resolve("regular.pdf");
+        Path linearizedFile = tempDir.resolve("linearized.pdf");
+        generator.setPageNumbers(true);
+
+        // Act
+        generator.generate(document, regularFile);
+        generator.setLinearized(true);
+        generator.generate(document, linearizedFile);
+
+        // Assert
+        try (PDDocument regular = Loader.loadPDF(regularFile.toFile());
+             PDDocument linearized = Loader.loadPDF(linearizedFile.toFile())) {
+            assertTrue(linearized.getNumberOfPages() > 1, "Table should span several pages");
+            assertEquals(regular.getNumberOfPages(), linearized.getNumberOfPages(), "Page count should match");
+            assertEquals(new PDFTextStripper().getText(regular), new PDFTextStripper().getText(linearized),
+                    "Text should match");
+            for (int page = 0; page < linearized.getNumberOfPages(); page++) {
+                assertEquals(regular.getPage(page).getAnnotations().size(),
+                        linearized.getPage(page).getAnnotations().size(), "Links on page " + (page + 1) + " should match");
+            }
+        }
+        try (var files = Files.list(tempDir)) {
+            assertEquals(2, files.count(), "The intermediate file should be deleted");
+        }
+    }
+
+    @Test
+    @DisplayName("Linearized PDF should start with the linearization dictionary and page 1")
+    void testLinearizationDictionary(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        StringBuilder markdown = new StringBuilder("| Key | Value |\n|-----|-------|\n");
+        for (int i = 0; i < 200; i++) {
+            markdown.append(String.format("| key%03d | value%03d |%n", i, i));
+        }
+        Path outputFile = tempDir.resolve("output.pdf");
+        generator.setLinearized(true);
+
+        // Act
+        generator.generate(parser.parse(markdown.toString()), outputFile);
+
+        // Assert: /L is the file length, /N the page count, and page 1 (/O) lies before /E
+        byte[] bytes = Files.readAllBytes(outputFile);
+        String file = new String(bytes, StandardCharsets.ISO_8859_1);
+        String head = file.substring(0, 1024);
+        assertTrue(head.contains("/Linearized 1"), "File should start with a linearization dictionary");
+        long length = Long.parseLong(head.replaceAll("(?s).*/L\\s+(\\d+).*", "$1"));
+        long endOfFirstPage = Long.parseLong(head.replaceAll("(?s).*/E\\s+(\\d+).*", "$1"));
+        int firstPageObject = Integer.parseInt(head.replaceAll("(?s).*/O\\s+(\\d+).*", "$1"));
+        int pageCount = Integer.parseInt(head.replaceAll("(?s).*/N\\s+(\\d+).*", "$1"));
+        assertEquals(bytes.length, length, "/L should be the file length");
+        assertTrue(endOfFirstPage < length, "The first page section should end before the rest of the file");
+        int firstPageOffset = file.indexOf("\n" + firstPageObject + " 0 obj");
+        assertTrue(firstPageOffset > 0 && firstPageOffset < endOfFirstPage, "Page 1 should lie in the first page section");
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            assertEquals(pdf.getNumberOfPages(), pageCount, "/N should be the page count");
+        }
+    }
+
+    // ========== Incremental Update Tests ==========
+
+    @Test
+    @DisplayName("Appending blocks should append an incremental update with the same pages as a full run")
+    void testIncrementalUpdateAppendsPages(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String original = incrementalMarkdown(0) + incrementalMarkdown(1);
+        String appended = original + incrementalMarkdown(2);
+        Path outputFile = tempDir.resolve("output.pdf");
+        Path referenceFile = tempDir.resolve("reference.pdf");
+        generator.setIncrementalUpdates(true);
+        generator.generate(parser.parse(original), outputFile);
+        byte[] before = Files.readAllBytes(outputFile);
+
+        // Act
+        generator.generate(parser.parse(appended), outputFile);
+        new PDFGenerator().generate(parser.parse(appended), referenceFile);
+
+        // Assert
+        byte[] after = Files.readAllBytes(outputFile);
+        assertTrue(after.length > before.length
+                        && Arrays.equals(before, 0, before.length, after, 0, before.length),
+                "The previous file should be kept and the update appended");
+        assertEquals(2, revisionCount(after), "The file should have one incremental update");
+        assertSamePages(referenceFile, outputFile);
+    }
+
+    @Test
+    @DisplayName("Changing a block should replace it and everything after it")
+    void testIncrementalUpdateReplacesChangedBlocks(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String original = incrementalMarkdown(0) + incrementalMarkdown(1) + incrementalMarkdown(2);
+        String changed = incrementalMarkdown(0) + "Inserted paragraph.\n\n" + incrementalMarkdown(1) + incrementalMarkdown(3);
+        Path outputFile = tempDir.resolve("output.pdf");
+        Path referenceFile = tempDir.resolve("reference.pdf");
+        generator.setIncrementalUpdates(true);
+        generator.generate(parser.parse(original), outputFile);
+
+        // Act
+        generator.generate(parser.parse(changed), outputFile);
+        new PDFGenerator().generate(parser.parse(changed), referenceFile);
+
+        // Assert
+        assertEquals(2, revisionCount(Files.readAllBytes(outputFile)), "The file should have one incremental update");
+        assertSamePages(referenceFile, outputFile);
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            String text = new PDFTextStripper().getText(pdf);
+            assertTrue(text.contains("Inserted paragraph."), "The new block should be shown");
+            assertFalse(text.contains("Section 2"), "The removed blocks should not be shown");
+        }
+    }
+
+    @Test
+    @DisplayName("Incremental updates should fall back to full generation when they cannot apply")
+    void testIncrementalUpdateFallsBack(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String original = incrementalMarkdown(0);
+        String appended = original + incrementalMarkdown(1);
+        Path changedFile = tempDir.resolve("changed.pdf");
+        Path numberedFile = tempDir.resolve("numbered.pdf");
+        generator.setIncrementalUpdates(true);
+        PDFGenerator numbered = new PDFGenerator();
+        numbered.setIncrementalUpdates(true);
+        numbered.setPageNumbers(true);
+
+        // Act: the file is touched by someone else between the runs
+        generator.generate(parser.parse(original), changedFile);
+        Files.setLastModifiedTime(changedFile, FileTime.fromMillis(0));
+        generator.generate(parser.parse(appended), changedFile);
+        // Page numbers change on every page
+        numbered.generate(parser.parse(original), numberedFile);
+        numbered.generate(parser.parse(appended), numberedFile);
+
+        // Assert
+        assertEquals(1, revisionCount(Files.readAllBytes(changedFile)), "A changed file should be regenerated");
+        assertEquals(1, revisionCount(Files.readAllBytes(numberedFile)), "Numbered pages should be regenerated");
+        try (PDDocument pdf = Loader.loadPDF(numberedFile.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setEndPage(1);
+            assertTrue(stripper.getText(pdf).contains("Page 1 of " + pdf.getNumberOfPages()),
+                    "Page 1 should show the new page count");
+        }
+    }
+
+    private static String incrementalMarkdown(int section) {
+        StringBuilder markdown = new StringBuilder("## Section " + section + "\n\n")
+                .append("See [section ").append(section).append("](https://example.com/").append(section)
+                .append(") for **details**.\n\n| Key | Value |\n|-----|-------|\n");
+        for (int i = 0; i < 60; i++) {
+            markdown.append(String.format("| key%d%03d | value%03d |%n", section, i, i));
+        }
+        return markdown.append("\n---\n\n").toString();
+    }
+
+    private static int revisionCount(byte[] pdf) {
+        String file = new String(pdf, StandardCharsets.ISO_8859_1);
+        int count = 0;
+        for (int index = file.indexOf("%%EOF"); index >= 0; index = file.indexOf("%%EOF", index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void assertSamePages(Path expectedFile, Path actualFile) throws IOException {
+        try (PDDocument expected = Loader.loadPDF(expectedFile.toFile());
+             PDDocument actual = Loader.loadPDF(actualFile.toFile())) {
+            assertTrue(expected.getNumberOfPages() > 1, "The document should span several pages");
+            assertEquals(expected.getNumberOfPages(), actual.getNumberOfPages(), "Page count should match");
+            assertEquals(new PDFTextStripper().getText(expected), new PDFTextStripper().getText(actual),
+                    "Text should match");
+            for (int page = 0; page < expected.getNumberOfPages(); page++) {
+                assertEquals(expected.getPage(page).getAnnotations().size(),
+                        actual.getPage(page).getAnnotations().size(), "Links on page " + (page + 1) + " should match");
+            }
+        }
+    }
+
     // ========== Combined Elements Test ==========
 
     @Test
@@ -0,0 +1,181 @@
+package com.md2word;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.parser.MarkdownParser;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TTFSubsetter;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for embedded TrueType fonts in PDF output.
+ *
+ * <p>Tests use the Liberation Sans font bundled with PDFBox, copied to a temporary file,
+ * and verify that it is embedded as a subset, used as a fallback for characters the
+ * Standard 14 fonts cannot encode, and safely shared by concurrent conversions.</p>
+ */
+@DisplayName("PDF Font Tests")
+public class PdfFontTest {
+
+    private static final String BUNDLED_FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    private MarkdownParser parser;
+    private PDFGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        parser = new MarkdownParser();
+        generator = new PDFGenerator();
+    }
+
+    @Test
+    @DisplayName("Configured TrueType text font should be embedded as a subset")
+    void testTextFontEmbeddedAsSubset(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path fontFile = copyBundledFont(tempDir);
+        generator.setTextFonts(fontFile, fontFile, fontFile, fontFile);
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        generator.generate(parser.parse("# Title\n\nSome **bold** and *italic* text."), outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            List<String> fontNames = fontNames(pdf);
+            assertTrue(fontNames.stream().anyMatch(name -> name.matches("[A-Z]{6}\\+LiberationSans")),
+                    "Text font should be embedded as a subset, found " + fontNames);
+            assertTrue(new PDFTextStripper().getText(pdf).contains("Some bold and italic text."),
+                    "Text drawn with the embedded font should be extractable");
+        }
+        assertTrue(Files.size(outputFile) < Files.size(fontFile) / 4,
+                "Subset should be much smaller than the full font file");
+    }
+
+    @Test
+    @DisplayName("Fallback font should draw characters the text font cannot encode")
+    void testFallbackFontDrawsUnencodableCharacters(@TempDir Path tempDir) throws Exception {
+        // Arrange: Greek is not in the Times WinAnsi encoding but is covered by Liberation Sans
+        generator.setFallbackFont(copyBundledFont(tempDir));
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        generator.generate(parser.parse("Alpha is α and omega is `ω()`."), outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            String text = new PDFTextStripper().getText(pdf);
+            assertTrue(text.contains("Alpha is α and"), "Fallback run in text should be drawn");
+            assertTrue(text.contains("ω()"), "Fallback run in inline code should be drawn");
+            assertTrue(fontNames(pdf).contains("Times-Roman"), "Latin text should stay in the text font");
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent conversions should share one parsed TrueType font safely")
+    void testConcurrentConversionsShareFont(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path fontFile = copyBundledFont(tempDir);
+        int conversions = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Act: each conversion uses a different word so every document gets its own subset
+        List<Future<Path>> results = new ArrayList<>();
+        for (int i = 0; i < conversions; i++) {
+            int index = i;
+            results.add(executor.submit(() -> {
+                PDFGenerator pdfGenerator = new PDFGenerator();
+                pdfGenerator.setTextFonts(fontFile, fontFile, fontFile, fontFile);
+                pdfGenerator.setFallbackFont(fontFile);
+                Path outputFile = tempDir.resolve("output-" + index + ".pdf");
+                pdfGenerator.generate(parser.parse("Document " + index + " says ωmega"), outputFile);
+                return outputFile;
+            }));
+        }
+        executor.shutdown();
+
+        // Assert
+        for (int i = 0; i < conversions; i++) {
+            try (PDDocument pdf = Loader.loadPDF(results.get(i).get().toFile())) {
+                assertEquals("Document " + i + " says ωmega", new PDFTextStripper().getText(pdf).trim());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Bullets should be dropped, not fail, when the text font has no bullet glyph")
+    void testBulletWithoutGlyph(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path fontFile = writeAsciiSubset(copyBundledFont(tempDir), tempDir.resolve("ascii.ttf"));
+        generator.setTextFonts(fontFile, fontFile, fontFile, fontFile);
+        Path outputFile = tempDir.resolve("output.pdf");
+
+        // Act
+        generator.generate(parser.parse("- first\n- second\n\n1. numbered\n"), outputFile);
+
+        // Assert
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            String text = new PDFTextStripper().getText(pdf);
+            assertTrue(text.contains("first"), "First item should be drawn");
+            assertTrue(text.contains("second"), "Second item should be drawn");
+            assertTrue(text.contains("1. numbered"), "Numbered item should be drawn with its number");
+            assertFalse(text.contains("\u2022"), "Bullet should be dropped");
+        }
+    }
+
+    private Path copyBundledFont(Path tempDir) throws Exception {
+        Path fontFile = tempDir.resolve("LiberationSans-Regular.ttf");
+        try (InputStream in = PDFGenerator.class.getResourceAsStream(BUNDLED_FONT)) {
+            assertNotNull(in, "PDFBox should bundle Liberation Sans");
+            Files.copy(in, fontFile);
+        }
+        return fontFile;
+    }
+
+    /**
+     * Writes a subset of a font with the printable ASCII characters only, so it cannot encode
+     * the bullet character.
+     */
+    private Path writeAsciiSubset(Path fontFile, Path subsetFile) throws Exception {
+        try (TrueTypeFont font = new TTFParser().parse(new RandomAccessReadBufferedFile(fontFile.toFile()));
+             OutputStream out = Files.newOutputStream(subsetFile)) {
+            TTFSubsetter subsetter = new TTFSubsetter(font);
+            for (int c = 0x20; c < 0x7f; c++) {
+                subsetter.add(c);
+            }
+            subsetter.writeToStream(out);
+        }
+        return subsetFile;
+    }
+
+    private List<String> fontNames(PDDocument pdf) throws Exception {
+        List<String> names = new ArrayList<>();
+        PDResources resources = pdf.getPage(0).getResources();
+        for (COSName name : resources.getFontNames()) {
+            PDFont font = resources.getFont(name);
+            names.add(font.getName());
+        }
+        return names;
+    }
+}
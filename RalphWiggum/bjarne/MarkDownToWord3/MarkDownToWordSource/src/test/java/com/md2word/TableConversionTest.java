@@ -175,6 +175,37 @@ public class TableConversionTest {
         }
     }
 
+    @Test
+    @DisplayName("Every table cell, including padding for short rows, should hold one paragraph")
+    void testTableCellsHaveOneParagraph(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String markdown = """
+            | A | B | C |
+            |---|---|---|
+            | 1 | **2** | 3 |
+            | 4 |
+            """;
+        Path outputFile = tempDir.resolve("output.docx");
+
+        // Act
+        Document document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (XWPFDocument doc = new XWPFDocument(new FileInputStream(outputFile.toFile()))) {
+            XWPFTable table = doc.getTables().get(0);
+            assertEquals(3, table.getRows().size(), "Table should have 3 rows");
+            for (XWPFTableRow row : table.getRows()) {
+                assertEquals(3, row.getTableCells().size(), "Short rows should be padded to the column count");
+                for (XWPFTableCell cell : row.getTableCells()) {
+                    assertEquals(1, cell.getParagraphs().size(), "Each cell should hold one paragraph");
+                }
+            }
+            assertEquals("4", table.getRow(2).getCell(0).getText());
+            assertTrue(table.getRow(2).getCell(2).getText().isEmpty(), "Padding cells should be empty");
+        }
+    }
+
     @Test
     @DisplayName("Table header row should have bold formatting")
     void testTableHeaderStyling(@TempDir Path tempDir) throws Exception {
@@ -196,11 +227,18 @@ public class TableConversionTest {
             XWPFTable table = tables.get(0);
             XWPFTableRow headerRow = table.getRow(0);
 
-            // Verify header cells have bold formatting
+            // Verify the header row is bold through the table style's first row formatting
+            String styleId = table.getStyleID();
+            assertEquals("MarkdownTable", styleId, "Table should use the MarkdownTable style");
+            assertTrue(table.getCTTbl().getTblPr().getTblLook().xmlText().contains("firstRow=\"on\""),
+                    "Table should format its first row as a header");
+            String styleXml = doc.getStyles().getStyle(styleId).getCTStyle().xmlText();
+            assertTrue(styleXml.matches("(?s).*<w:tblStylePr w:type=\"firstRow\"><w:rPr><w:b/>.*"),
+                    "Header row should have bold formatting");
             for (XWPFTableCell cell : headerRow.getTableCells()) {
                 for (XWPFParagraph para : cell.getParagraphs()) {
                     for (XWPFRun run : para.getRuns()) {
-                        assertTrue(run.isBold(), "Header row should have bold formatting");
+                        assertFalse(run.isBold(), "Header runs should take bold from the table style");
                     }
                 }
             }
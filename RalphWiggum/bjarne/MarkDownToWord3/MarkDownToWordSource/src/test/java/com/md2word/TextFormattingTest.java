@@ -2,8 +2,17 @@ package com.md2word;
 
 import com.md2word.generator.WordGenerator;
 import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.ast.Emphasis;
+import com.vladsch.flexmark.ast.Paragraph;
+import com.vladsch.flexmark.ast.StrongEmphasis;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.sequence.BasedSequence;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFHyperlinkRun;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRelation;
 import org.apache.poi.xwpf.usermodel.XWPFRun;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -297,4 +306,134 @@ public class TextFormattingTest {
             assertTrue(hasItalic, "Should have italic formatting");
         }
     }
+
+    @Test
+    @DisplayName("Adjacent text with identical formatting should share one run")
+    void testAdjacentRunsAreCoalesced(@TempDir Path tempDir) throws Exception {
+        // Arrange: blockquote text is italic, so the emphasis inside adds no formatting of its own
+        String markdown = "> Quoted *emphasized* words and **strong** text.";
+        Path outputFile = tempDir.resolve("output.docx");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (XWPFDocument doc = new XWPFDocument(new FileInputStream(outputFile.toFile()))) {
+            List<XWPFRun> runs = doc.getParagraphs().get(0).getRuns();
+            assertEquals(3, runs.size(), "Only the change to bold should start new runs");
+            assertEquals("Quoted emphasized words and ", runs.get(0).getText(0));
+            assertEquals("Quote", runs.get(0).getStyle(), "Merged text should keep the quote style");
+            assertFalse(runs.get(0).isBold(), "Merged text should not be bold");
+            assertEquals("strong", runs.get(1).getText(0));
+            assertTrue(runs.get(1).isBold(), "Strong text should be bold");
+            assertEquals(" text.", runs.get(2).getText(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Inline code and links should reference character styles instead of direct formatting")
+    void testCodeAndLinksUseCharacterStyles(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String markdown = "Call `render()` as described in the [guide](https://example.com/guide).";
+        Path outputFile = tempDir.resolve("output.docx");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (XWPFDocument doc = new XWPFDocument(new FileInputStream(outputFile.toFile()))) {
+            List<XWPFRun> runs = doc.getParagraphs().get(0).getRuns();
+            XWPFRun codeRun = runs.stream()
+                    .filter(run -> run.getText(0) != null && run.getText(0).contains("render()"))
+                    .findFirst()
+                    .orElseThrow();
+            XWPFRun linkRun = runs.stream()
+                    .filter(run -> "guide".equals(run.getText(0)))
+                    .findFirst()
+                    .orElseThrow();
+
+            assertEquals("InlineCode", codeRun.getStyle(), "Inline code should use the InlineCode style");
+            assertNull(codeRun.getFontFamily(), "Inline code should carry no direct font");
+            assertEquals("Hyperlink", linkRun.getStyle(), "Link text should use the Hyperlink style");
+            assertNull(linkRun.getColor(), "Link text should carry no direct color");
+            assertTrue(doc.getStyles().styleExist("InlineCode"), "InlineCode style should be defined");
+            assertTrue(doc.getStyles().styleExist("Hyperlink"), "Hyperlink style should be defined");
+        }
+    }
+
+    @Test
+    @DisplayName("Links should be clickable hyperlinks sharing one relationship per URL")
+    void testHyperlinksShareRelationships(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        String markdown = "See [docs](https://example.com/docs), [the docs](https://example.com/docs), "
+                + "[home](https://example.com) and [top](#top).";
+        Path outputFile = tempDir.resolve("output.docx");
+
+        // Act
+        var document = parser.parse(markdown);
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (XWPFDocument doc = new XWPFDocument(new FileInputStream(outputFile.toFile()))) {
+            List<XWPFHyperlinkRun> links = doc.getParagraphs().get(0).getRuns().stream()
+                    .filter(run -> run instanceof XWPFHyperlinkRun)
+                    .map(run -> (XWPFHyperlinkRun) run)
+                    .toList();
+            assertEquals(3, links.size(), "Each external link should be a hyperlink");
+            assertEquals("https://example.com/docs", links.get(0).getHyperlink(doc).getURL());
+            assertEquals(links.get(0).getHyperlinkId(), links.get(1).getHyperlinkId(),
+                    "Links to the same URL should share a relationship");
+            assertNotEquals(links.get(0).getHyperlinkId(), links.get(2).getHyperlinkId());
+            assertEquals(2, doc.getPackagePart().getRelationshipsByType(XWPFRelation.HYPERLINK.getRelation()).size(),
+                    "Each distinct URL should have one relationship");
+
+            // The in-document anchor has no bookmark to open, so it stays styled text
+            XWPFRun anchorRun = doc.getParagraphs().get(0).getRuns().stream()
+                    .filter(run -> "top".equals(run.getText(0)))
+                    .findFirst()
+                    .orElseThrow();
+            assertFalse(anchorRun instanceof XWPFHyperlinkRun, "Anchor links should not be hyperlinks");
+            assertEquals("Hyperlink", anchorRun.getStyle(), "Anchor links should still look like links");
+        }
+    }
+
+    @Test
+    @DisplayName("Emphasis nested 100,000 levels deep should convert without overflowing the stack")
+    void testDeeplyNestedEmphasis(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Document document = deeplyNestedEmphasis(100_000);
+        Path outputFile = tempDir.resolve("output.docx");
+
+        // Act
+        generator.generate(document, outputFile);
+
+        // Assert
+        try (XWPFDocument doc = new XWPFDocument(new FileInputStream(outputFile.toFile()))) {
+            List<XWPFRun> runs = doc.getParagraphs().get(0).getRuns();
+            assertEquals(1, runs.size(), "The innermost text should be the only run");
+            assertEquals("leaf", runs.get(0).getText(0), "Innermost text should be preserved");
+            assertTrue(runs.get(0).isBold(), "Innermost text should be bold");
+            assertTrue(runs.get(0).isItalic(), "Innermost text should be italic");
+        }
+    }
+
+    /**
+     * Builds a paragraph whose text "leaf" is nested {@code depth} levels deep in alternating
+     * emphasis and strong emphasis. The AST is built directly, since Markdown text this deep
+     * is beyond what the parser handles.
+     */
+    private Document deeplyNestedEmphasis(int depth) {
+        Document document = parser.parse("");
+        Node parent = new Paragraph();
+        document.appendChild(parent);
+        for (int level = 0; level < depth; level++) {
+            Node emphasis = level % 2 == 0 ? new Emphasis() : new StrongEmphasis();
+            parent.appendChild(emphasis);
+            parent = emphasis;
+        }
+        parent.appendChild(new Text(BasedSequence.of("leaf")));
+        return document;
+    }
 }
@@ -0,0 +1,107 @@
+package com.md2word.benchmark;
+
+import com.md2word.converter.BatchConverter;
+import com.md2word.converter.BatchReport;
+import com.md2word.generator.WordGenerator;
+import com.md2word.ir.DocumentIrBuilder;
+import com.md2word.parser.MarkdownParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting a batch of 50 Markdown files, ten copies of each sample document in
+ * {@code ../test-resources/samples}, to Word documents: one file after the other as
+ * {@code Main} converts a single file, and through a {@link BatchConverter}. The stage
+ * utilization of the last batch and the available processors are printed once per trial.
+ *
+ * <p>Run from the MarkDownToWordSource directory with:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=BatchPipelineBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class BatchPipelineBenchmark {
+
+    private static final Path SAMPLES = Path.of("..", "test-resources", "samples");
+    private static final int COPIES = 10;
+
+    private Path inputDirectory;
+    private Path outputDirectory;
+    private List<Path> inputs;
+    private BatchReport lastReport;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        inputDirectory = Files.createTempDirectory("batch-benchmark-in");
+        outputDirectory = Files.createTempDirectory("batch-benchmark-out");
+        inputs = new ArrayList<>();
+        try (DirectoryStream<Path> samples = Files.newDirectoryStream(SAMPLES, "*-test.md")) {
+            for (Path sample : samples) {
+                for (int i = 0; i < COPIES; i++) {
+                    Path input = inputDirectory.resolve(i + "-" + sample.getFileName());
+                    Files.copy(sample, input);
+                    inputs.add(input);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println(inputs.size() + " files on " + Runtime.getRuntime().availableProcessors()
+                + " available processors");
+        if (lastReport != null) {
+            for (BatchReport.Stage stage : lastReport.stages()) {
+                System.out.printf(Locale.ROOT, "%s: %d threads, %.1f%% busy%n",
+                        stage.name(), stage.threads(), lastReport.utilization(stage) * 100);
+            }
+        }
+        for (Path directory : List.of(inputDirectory, outputDirectory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Benchmark
+    public void sequential() throws IOException {
+        for (Path input : inputs) {
+            String markdown = Files.readString(input);
+            Path output = outputDirectory.resolve(input.getFileName().toString().replace(".md", ".docx"));
+            new WordGenerator().generate(new DocumentIrBuilder().build(new MarkdownParser().parse(markdown)), output);
+        }
+    }
+
+    @Benchmark
+    public BatchReport pipelined() throws IOException, InterruptedException {
+        lastReport = new BatchConverter((ir, output) -> new WordGenerator().generate(ir, output), "docx")
+                .convert(inputs, outputDirectory);
+        return lastReport;
+    }
+}
@@ -0,0 +1,186 @@
+package com.md2word.benchmark;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Helpers shared by the benchmarks for reporting output characteristics.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Sums the decoded size of all page content streams of a PDF.
+     *
+     * @param pdfFile The PDF to inspect
+     * @return Total uncompressed content stream bytes over all pages
+     * @throws IOException if the file cannot be read
+     */
+    static long contentStreamBytes(Path pdfFile) throws IOException {
+        long total = 0;
+        try (PDDocument pdf = Loader.loadPDF(pdfFile.toFile())) {
+            for (PDPage page : pdf.getPages()) {
+                try (InputStream contents = page.getContents()) {
+                    total += contents.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Estimates what a viewer reading a PDF through HTTP range requests must fetch before it
+     * can display page 1.
+     *
+     * <p>For a linearized file that is the prefix up to the end of the first page section,
+     * {@code /E} in the linearization dictionary, fetched after probing the first kilobyte.
+     * For any other file the viewer probes the end of the file for {@code startxref}, reads
+     * the cross-reference data, and then follows references from the catalog through the page
+     * tree to page 1 and everything it uses. Each level of references is one more round trip,
+     * since an object's references are only known once it has arrived. An object inside an
+     * object stream costs the whole object stream. Ranges are assumed to be fetched exactly,
+     * so real viewers fetch more bytes.</p>
+     *
+     * @param pdfFile The PDF to inspect
+     * @return Bytes and sequential round trips needed to display page 1
+     * @throws IOException if the file cannot be read
+     */
+    static FirstPageCost firstPageCost(Path pdfFile) throws IOException {
+        byte[] file = Files.readAllBytes(pdfFile);
+        String head = new String(file, 0, Math.min(file.length, 1024), StandardCharsets.ISO_8859_1);
+        Matcher endOfFirstPage = Pattern.compile("/Linearized.*?/E\\s+(\\d+)", Pattern.DOTALL).matcher(head);
+        Matcher length = Pattern.compile("/Linearized.*?/L\\s+(\\d+)", Pattern.DOTALL).matcher(head);
+        if (endOfFirstPage.find() && length.find() && Long.parseLong(length.group(1)) == file.length) {
+            return new FirstPageCost(Long.parseLong(endOfFirstPage.group(1)), 2);
+        }
+
+        String tail = new String(file, Math.max(0, file.length - 1024), Math.min(file.length, 1024),
+                StandardCharsets.ISO_8859_1);
+        Matcher startxref = Pattern.compile("startxref\\s+(\\d+)").matcher(tail);
+        long crossReference = 0;
+        while (startxref.find()) {
+            crossReference = Long.parseLong(startxref.group(1));
+        }
+
+        try (PDDocument pdf = Loader.loadPDF(pdfFile.toFile())) {
+            Map<COSObjectKey, Long> xref = pdf.getDocument().getXrefTable();
+            TreeMap<Long, Long> objectEnds = new TreeMap<>();
+            long[] offsets = xref.values().stream().filter(offset -> offset > 0).mapToLong(Long::longValue)
+                    .sorted().toArray();
+            for (int i = 0; i < offsets.length; i++) {
+                objectEnds.put(offsets[i], i + 1 < offsets.length ? offsets[i + 1] : crossReference);
+            }
+
+            // The catalog and the page tree path down to page 1, one round trip per node
+            Set<COSObjectKey> needed = new HashSet<>();
+            int roundTrips = 2;
+            List<COSObject> level = new ArrayList<>();
+            COSBase node = pdf.getDocument().getTrailer().getItem(COSName.ROOT);
+            while (node instanceof COSObject treeNode && needed.add(treeNode.getKey())) {
+                roundTrips++;
+                COSDictionary dictionary = (COSDictionary) treeNode.getObject();
+                if (COSName.PAGE.equals(dictionary.getCOSName(COSName.TYPE))) {
+                    level.add(treeNode);
+                    break;
+                }
+                node = dictionary.containsKey(COSName.KIDS)
+                        ? ((COSArray) dictionary.getItem(COSName.KIDS)).get(0)
+                        : dictionary.getItem(COSName.PAGES);
+            }
+
+            // Everything page 1 references, one round trip per level, without other pages
+            while (!level.isEmpty()) {
+                List<COSObject> nextLevel = new ArrayList<>();
+                for (COSObject object : level) {
+                    Deque<COSBase> values = new ArrayDeque<>();
+                    values.push(object.getObject());
+                    while (!values.isEmpty()) {
+                        COSBase value = values.pop();
+                        if (value instanceof COSObject reference) {
+                            COSBase referenced = reference.getObject();
+                            boolean isPage = referenced instanceof COSDictionary dictionary
+                                    && (COSName.PAGE.equals(dictionary.getCOSName(COSName.TYPE))
+                                    || COSName.PAGES.equals(dictionary.getCOSName(COSName.TYPE)));
+                            if (referenced != null && !isPage && needed.add(reference.getKey())) {
+                                nextLevel.add(reference);
+                            }
+                        } else if (value instanceof COSDictionary dictionary) {
+                            for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+                                if (!COSName.PARENT.equals(entry.getKey()) && entry.getValue() != null) {
+                                    values.push(entry.getValue());
+                                }
+                            }
+                        } else if (value instanceof COSArray array) {
+                            for (COSBase item : array) {
+                                values.push(item);
+                            }
+                        }
+                    }
+                }
+                if (!nextLevel.isEmpty()) {
+                    roundTrips++;
+                }
+                level = nextLevel;
+            }
+
+            // Byte ranges of the needed objects, or of the object streams holding them
+            List<long[]> ranges = new ArrayList<>();
+            ranges.add(new long[] {crossReference, file.length});
+            for (COSObjectKey key : needed) {
+                Long offset = xref.get(key);
+                if (offset != null && offset < 0) {
+                    offset = xref.get(new COSObjectKey(-offset, 0));
+                }
+                if (offset != null && objectEnds.containsKey(offset)) {
+                    ranges.add(new long[] {offset, objectEnds.get(offset)});
+                }
+            }
+            ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+            long bytes = 0;
+            long covered = 0;
+            for (long[] range : ranges) {
+                long start = Math.max(range[0], covered);
+                if (range[1] > start) {
+                    bytes += range[1] - start;
+                    covered = range[1];
+                }
+            }
+            return new FirstPageCost(bytes, roundTrips);
+        }
+    }
+
+    /**
+     * What a viewer must fetch to display page 1 of a PDF.
+     *
+     * @param bytes Bytes fetched
+     * @param roundTrips Requests that have to wait for the previous response
+     */
+    record FirstPageCost(long bytes, int roundTrips) {
+    }
+}
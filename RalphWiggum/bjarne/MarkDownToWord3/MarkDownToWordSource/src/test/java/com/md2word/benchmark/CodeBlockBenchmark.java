@@ -0,0 +1,82 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PDF generation for a single code block of 20,000 lines, such as a pasted log or
+ * generated source file, with and without wrapping long lines. Every tenth line is wider
+ * than the page. The page count and file size are printed once per trial.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CodeBlockBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class CodeBlockBenchmark {
+
+    private static final int LINES = 20_000;
+
+    /** Whether code lines wider than the page are wrapped. */
+    @Param({"false", "true"})
+    public boolean wrap;
+
+    private Document ast;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# Listing\n\n```java\n");
+        for (int line = 0; line < LINES; line++) {
+            markdown.append("    int value").append(line).append(" = compute(").append(line).append(");");
+            if (line % 10 == 0) {
+                markdown.append(" // ").append("a long trailing comment ".repeat(5));
+            }
+            markdown.append('\n');
+        }
+        markdown.append("```\n\nEnd of listing.\n");
+        ast = new MarkdownParser().parse(markdown.toString());
+        outputFile = Files.createTempFile("code-block-benchmark", ".pdf");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            System.out.println();
+            System.out.println("wrap=" + wrap + ": " + pdf.getNumberOfPages() + " pages, file "
+                    + Files.size(outputFile) + " bytes");
+        }
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generatePdf() throws IOException {
+        PDFGenerator generator = new PDFGenerator();
+        generator.setWrapCodeLines(wrap);
+        generator.generate(ast, outputFile);
+    }
+}
@@ -0,0 +1,102 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.generator.WordGenerator;
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
+import com.md2word.parser.MarkdownParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating a document with 20 screenshots inlined as base64 {@code data:} URIs,
+ * five distinct PNGs of about 1 MB pasted four times each. The size of the encoded images
+ * in the source and of the generated file are printed once per trial; run with
+ * {@code -Djmh.args="-prof gc"} to compare the bytes allocated per document with them.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=DataUriImageBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class DataUriImageBenchmark {
+
+    private static final int DISTINCT_IMAGES = 5;
+    private static final int COPIES = 4;
+
+    /** Output format. */
+    @Param({"docx", "pdf"})
+    public String format;
+
+    private DocumentIr ir;
+    private long encodedChars;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(47);
+        String[] uris = new String[DISTINCT_IMAGES];
+        for (int i = 0; i < DISTINCT_IMAGES; i++) {
+            // Noise compresses poorly, like the photos and gradients in real screenshots
+            BufferedImage image = new BufferedImage(600, 500, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, random.nextInt(0x1000000));
+                }
+            }
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", png);
+            uris[i] = "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+        }
+        StringBuilder markdown = new StringBuilder("# Screenshots\n\n");
+        for (int copy = 0; copy < COPIES; copy++) {
+            for (int i = 0; i < DISTINCT_IMAGES; i++) {
+                markdown.append("Step ").append(copy * DISTINCT_IMAGES + i).append(":\n\n")
+                        .append("![Screenshot ").append(i).append("](").append(uris[i]).append(")\n\n");
+                encodedChars += uris[i].length();
+            }
+        }
+        ir = new DocumentIrBuilder().build(new MarkdownParser().parse(markdown.toString()));
+        outputFile = Files.createTempFile("data-uri-benchmark", "." + format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println(format + ": " + encodedChars + " encoded image chars, file " + Files.size(outputFile) + " bytes");
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generate() throws IOException {
+        if ("pdf".equals(format)) {
+            new PDFGenerator().generate(ir, outputFile);
+        } else {
+            new WordGenerator().generate(ir, outputFile);
+        }
+    }
+}
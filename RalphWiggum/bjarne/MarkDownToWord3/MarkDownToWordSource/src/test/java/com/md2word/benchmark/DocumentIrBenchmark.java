@@ -0,0 +1,132 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.generator.WordGenerator;
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.ast.Code;
+import com.vladsch.flexmark.ast.Emphasis;
+import com.vladsch.flexmark.ast.Link;
+import com.vladsch.flexmark.ast.StrongEmphasis;
+import com.vladsch.flexmark.ast.Text;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares walking the flexmark AST, as the generators did before they rendered from the
+ * document IR, with lowering the AST into the IR and walking that, for a document of 2,000
+ * sections of headings, formatted paragraphs, lists and code. The walks visit every node,
+ * resolve its type and read its text; the tree walk reads text as Strings, as the generators
+ * did, and the IR walk as views of the source.
+ *
+ * <p>The end-to-end benchmarks render the document to both PDF and Word, once lowering it
+ * for each generator and once lowering it a single time for both.</p>
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=DocumentIrBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class DocumentIrBenchmark {
+
+    private static final int SECTIONS = 2_000;
+
+    private Document ast;
+    private DocumentIr ir;
+    private Path pdfFile;
+    private Path docxFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder();
+        for (int section = 0; section < SECTIONS; section++) {
+            markdown.append("## Section ").append(section).append("\n\n")
+                    .append("Text with *emphasis*, **strong *and nested* text**, `inline code` and a ")
+                    .append("[link](https://example.com/").append(section).append(").\n\n")
+                    .append("- First point\n- Second point with **bold**\n   1. Nested step\n\n")
+                    .append("```\nint value = ").append(section).append(";\n```\n\n");
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+        ir = new DocumentIrBuilder().build(ast);
+        pdfFile = Files.createTempFile("ir-benchmark", ".pdf");
+        docxFile = Files.createTempFile("ir-benchmark", ".docx");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(pdfFile);
+        Files.deleteIfExists(docxFile);
+    }
+
+    @Benchmark
+    public long treeWalk() {
+        long total = 0;
+        for (Node node : ast.getDescendants()) {
+            if (node instanceof Text) {
+                total += node.getChars().toString().length();
+            } else if (node instanceof Code) {
+                total += node.getChars().toString().length();
+            } else if (node instanceof Link) {
+                total += ((Link) node).getUrl().toString().length();
+            } else if (node instanceof Emphasis || node instanceof StrongEmphasis) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public DocumentIr lower() {
+        return new DocumentIrBuilder().build(ast);
+    }
+
+    @Benchmark
+    public long irWalk() {
+        long total = 0;
+        for (int node = 0; node < ir.size(); node++) {
+            DocumentIr.Kind kind = ir.kind(node);
+            if (kind == DocumentIr.Kind.TEXT || kind == DocumentIr.Kind.CODE) {
+                total += ir.chars(node).length();
+            } else if (kind == DocumentIr.Kind.LINK) {
+                total += ir.url(node).length();
+            } else if (kind == DocumentIr.Kind.EMPHASIS || kind == DocumentIr.Kind.STRONG_EMPHASIS) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void renderBothLoweringEach() throws IOException {
+        new PDFGenerator().generate(ast, pdfFile);
+        new WordGenerator().generate(ast, docxFile);
+    }
+
+    @Benchmark
+    public void renderBothLoweringOnce() throws IOException {
+        DocumentIr lowered = new DocumentIrBuilder().build(ast);
+        new PDFGenerator().generate(lowered, pdfFile);
+        new WordGenerator().generate(lowered, docxFile);
+    }
+}
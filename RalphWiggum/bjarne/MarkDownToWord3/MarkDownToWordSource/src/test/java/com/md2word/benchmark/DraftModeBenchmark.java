@@ -0,0 +1,82 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.generator.WordGenerator;
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
+import com.md2word.parser.MarkdownParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of converting {@code ../test-resources/samples/complete-test.md}, from
+ * Markdown text to the written file, as a full document and as a draft. The size of the
+ * generated file is printed once per trial.
+ *
+ * <p>Run from the MarkDownToWordSource directory with:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=DraftModeBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DraftModeBenchmark {
+
+    private static final Path SAMPLE = Path.of("..", "test-resources", "samples", "complete-test.md");
+
+    /** Output format. */
+    @Param({"docx", "pdf"})
+    public String format;
+
+    /** Whether a draft is generated. */
+    @Param({"false", "true"})
+    public boolean draft;
+
+    private String markdown;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        markdown = Files.readString(SAMPLE);
+        outputFile = Files.createTempFile("draft-benchmark", "." + format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println(format + (draft ? " draft" : " full") + ": file " + Files.size(outputFile) + " bytes");
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void convert() throws IOException {
+        DocumentIr ir = new DocumentIrBuilder().build(new MarkdownParser().parse(markdown));
+        if ("pdf".equals(format)) {
+            PDFGenerator generator = new PDFGenerator();
+            generator.setDraft(draft);
+            generator.generate(ir, outputFile);
+        } else {
+            WordGenerator generator = new WordGenerator();
+            generator.setDraft(draft);
+            generator.generate(ir, outputFile);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PDF generation throughput with Standard 14 fonts against embedded TrueType fonts.
+ * The embedded variant parses the font file once per JVM, so each iteration only pays for
+ * wrapping the cached font and subsetting the glyphs of one document.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=FontEmbeddingBenchmark}</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FontEmbeddingBenchmark {
+
+    private static final String BUNDLED_FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    /** Which fonts the generator uses. */
+    @Param({"standard14", "embedded", "fallback"})
+    public String fonts;
+
+    private Document ast;
+    private Path fontFile;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# Font Benchmark\n\n");
+        for (int i = 0; i < 300; i++) {
+            markdown.append("Paragraph ").append(i).append(" with **bold**, *italic* and `code` text")
+                    .append(i % 5 == 0 ? " plus Greek αβγ." : ".").append("\n\n");
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+
+        fontFile = Files.createTempFile("font-benchmark", ".ttf");
+        try (InputStream in = PDFGenerator.class.getResourceAsStream(BUNDLED_FONT)) {
+            Files.copy(in, fontFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        outputFile = Files.createTempFile("font-benchmark", ".pdf");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputFile);
+        Files.deleteIfExists(fontFile);
+    }
+
+    @Benchmark
+    public void generatePdf() throws IOException {
+        PDFGenerator generator = new PDFGenerator();
+        if ("embedded".equals(fonts)) {
+            generator.setTextFonts(fontFile, fontFile, fontFile, fontFile);
+        } else if ("fallback".equals(fonts)) {
+            generator.setFallbackFont(fontFile);
+        }
+        generator.generate(ast, outputFile);
+    }
+}
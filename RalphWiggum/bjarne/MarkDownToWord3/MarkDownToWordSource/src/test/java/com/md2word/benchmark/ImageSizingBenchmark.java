@@ -0,0 +1,110 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.WordGenerator;
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
+import com.md2word.parser.MarkdownParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Word generation of a document showing 20 distinct 1600x1200 photos ten times
+ * each, which are sized from their headers, against decoding every image once per reference
+ * just to learn its size, as sizing with {@link ImageIO} would.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ImageSizingBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class ImageSizingBenchmark {
+
+    private static final int DISTINCT_IMAGES = 20;
+    private static final int REFERENCES = 10;
+
+    private Path imageDirectory;
+    private List<Path> references;
+    private DocumentIr ir;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        imageDirectory = Files.createTempDirectory("image-sizing-benchmark");
+        Random random = new Random(48);
+        List<Path> images = new ArrayList<>();
+        for (int i = 0; i < DISTINCT_IMAGES; i++) {
+            BufferedImage image = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < image.getHeight(); y += 8) {
+                int rgb = random.nextInt(0x1000000);
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, rgb ^ x);
+                }
+            }
+            Path imageFile = imageDirectory.resolve("photo" + i + ".jpg");
+            ImageIO.write(image, "jpeg", imageFile.toFile());
+            images.add(imageFile);
+        }
+        references = new ArrayList<>();
+        StringBuilder markdown = new StringBuilder("# Gallery\n\n");
+        for (int r = 0; r < REFERENCES; r++) {
+            for (Path image : images) {
+                markdown.append("![Photo](").append(image).append(")\n\n");
+                references.add(image);
+            }
+        }
+        ir = new DocumentIrBuilder().build(new MarkdownParser().parse(markdown.toString()));
+        outputFile = Files.createTempFile("image-sizing-benchmark", ".docx");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println(references.size() + " images, file " + Files.size(outputFile) + " bytes");
+        Files.deleteIfExists(outputFile);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(imageDirectory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(imageDirectory);
+    }
+
+    @Benchmark
+    public void generateDocx() throws IOException {
+        new WordGenerator().generate(ir, outputFile);
+    }
+
+    @Benchmark
+    public int decodeForSize() throws IOException {
+        int pixels = 0;
+        for (Path image : references) {
+            BufferedImage decoded = ImageIO.read(image.toFile());
+            pixels += decoded.getWidth() * decoded.getHeight();
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,107 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures regenerating an append-only changelog after its newest entry changed, with and
+ * without incremental updates. Every invocation alternates between the changelog with and
+ * without the newest entry, so each run differs from the previous one in its last entry
+ * only. The file is written in full at the start of every iteration; with incremental updates
+ * it then grows by one update per invocation. The page count and the file size at the end
+ * of the trial are printed.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=IncrementalUpdateBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class IncrementalUpdateBenchmark {
+
+    private static final int ENTRIES = 300;
+    private static final int ROWS_PER_ENTRY = 20;
+
+    /** Whether unchanged pages are kept and the changes appended as an incremental update. */
+    @Param({"false", "true"})
+    public boolean incremental;
+
+    private Document changelog;
+    private Document changelogWithEntry;
+    private PDFGenerator generator;
+    private Path outputFile;
+    private boolean withEntry;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# Changelog\n\n");
+        for (int entry = 0; entry < ENTRIES; entry++) {
+            markdown.append(entry(entry));
+        }
+        MarkdownParser parser = new MarkdownParser();
+        changelog = parser.parse(markdown.toString());
+        changelogWithEntry = parser.parse(markdown.append(entry(ENTRIES)).toString());
+        outputFile = Files.createTempFile("incremental-benchmark", ".pdf");
+        generator = new PDFGenerator();
+        generator.setIncrementalUpdates(incremental);
+    }
+
+    @Setup(Level.Iteration)
+    public void writeFile() throws IOException {
+        // Disabling incremental updates forgets the previous run, so the file is written in full
+        generator.setIncrementalUpdates(false);
+        generator.setIncrementalUpdates(incremental);
+        generator.generate(changelog, outputFile);
+        withEntry = false;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            System.out.println();
+            System.out.println("incremental=" + incremental + ": " + pdf.getNumberOfPages() + " pages, file "
+                    + Files.size(outputFile) + " bytes");
+        }
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void regenerateChangedEntry() throws IOException {
+        withEntry = !withEntry;
+        generator.generate(withEntry ? changelogWithEntry : changelog, outputFile);
+    }
+
+    private static String entry(int entry) {
+        StringBuilder markdown = new StringBuilder("## Version 1.").append(entry).append("\n\n")
+                .append("Released with [notes](https://example.com/releases/").append(entry).append(").\n\n")
+                .append("| Change | Issue |\n|--------|-------|\n");
+        for (int row = 0; row < ROWS_PER_ENTRY; row++) {
+            markdown.append("| Fix ").append(entry).append('.').append(row).append(" | #").append(entry * 100 + row)
+                    .append(" |\n");
+        }
+        return markdown.append('\n').toString();
+    }
+}
@@ -0,0 +1,108 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PDF generation time with and without linearization, and how many bytes and round
+ * trips a viewer using HTTP range requests needs before it can display page 1. The document
+ * has a short first page followed by large tables and noise images that do not compress, so
+ * most of the file belongs to later pages. File size and the page-1 cost are printed once
+ * per trial.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=LinearizationBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class LinearizationBenchmark {
+
+    private static final int IMAGES = 20;
+    private static final int ROWS_PER_TABLE = 500;
+
+    /** Whether the PDF is linearized. */
+    @Param({"false", "true"})
+    public boolean linearized;
+
+    private Path imageDirectory;
+    private Document ast;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        imageDirectory = Files.createTempDirectory("linearization-benchmark");
+        Random random = new Random(42);
+        StringBuilder markdown = new StringBuilder("# Report\n\nSummary on the first page.\n\n");
+        for (int i = 0; i < IMAGES; i++) {
+            BufferedImage image = new BufferedImage(600, 600, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, random.nextInt(0x1000000));
+                }
+            }
+            Path imageFile = imageDirectory.resolve("image" + i + ".png");
+            ImageIO.write(image, "png", imageFile.toFile());
+
+            markdown.append("| Id | Name |\n|----|------|\n");
+            for (int row = 0; row < ROWS_PER_TABLE; row++) {
+                markdown.append("| ").append(row).append(" | Item ").append(i).append('.').append(row).append(" |\n");
+            }
+            markdown.append("\n![Image ").append(i).append("](").append(imageFile).append(")\n\n");
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+        outputFile = Files.createTempFile("linearization-benchmark", ".pdf");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        long fileSize = Files.size(outputFile);
+        BenchmarkSupport.FirstPageCost firstPage = BenchmarkSupport.firstPageCost(outputFile);
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            System.out.println();
+            System.out.printf("linearized=%s: %d pages, file %d bytes, page 1 needs %d bytes (%.2f%%) in %d round trips%n",
+                    linearized, pdf.getNumberOfPages(), fileSize, firstPage.bytes(),
+                    100.0 * firstPage.bytes() / fileSize, firstPage.roundTrips());
+        }
+        Files.deleteIfExists(outputFile);
+        try (var images = Files.list(imageDirectory)) {
+            for (Path image : (Iterable<Path>) images::iterator) {
+                Files.delete(image);
+            }
+        }
+        Files.delete(imageDirectory);
+    }
+
+    @Benchmark
+    public void generatePdf() throws IOException {
+        PDFGenerator generator = new PDFGenerator();
+        generator.setLinearized(linearized);
+        generator.generate(ast, outputFile);
+    }
+}
@@ -0,0 +1,80 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PDF generation for an API reference with 20,000 links to 200 distinct URLs, in
+ * the style of "See [Type](url) and [Type#method](url)" cross references. The annotation
+ * count, the number of indirect objects and the file size are printed once per trial.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=LinkAnnotationBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class LinkAnnotationBenchmark {
+
+    private static final int PARAGRAPHS = 10_000;
+    private static final int TYPES = 200;
+
+    private Document ast;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# API Reference\n\n");
+        for (int i = 0; i < PARAGRAPHS; i++) {
+            int type = i % TYPES;
+            int other = (i * 7) % TYPES;
+            markdown.append("See [Type").append(type).append("](https://example.com/api/Type").append(type)
+                    .append(".html) and [Type").append(other).append("](https://example.com/api/Type").append(other)
+                    .append(".html).\n\n");
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+        outputFile = Files.createTempFile("link-benchmark", ".pdf");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            int annotations = 0;
+            for (PDPage page : pdf.getPages()) {
+                annotations += page.getAnnotations().size();
+            }
+            System.out.println();
+            System.out.println(annotations + " annotations, " + pdf.getDocument().getXrefTable().size()
+                    + " objects, file " + Files.size(outputFile) + " bytes");
+        }
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generatePdf() throws IOException {
+        new PDFGenerator().generate(ast, outputFile);
+    }
+}
@@ -0,0 +1,114 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of page headers, footers and page numbers on a document of more than
+ * 1000 pages: tables of 500 rows separated by horizontal rules. Once per trial the page count,
+ * file size, page content stream bytes and the decoded size of the shared form XObjects are
+ * printed; drawing the forms' content on every page instead would cost their size per page.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PageFurnitureBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class PageFurnitureBenchmark {
+
+    private static final int ROWS = 30000;
+    private static final int ROWS_PER_TABLE = 500;
+
+    /** Whether pages get a header, footer and page numbers. */
+    @Param({"false", "true"})
+    public boolean furniture;
+
+    private Document ast;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            if (i % ROWS_PER_TABLE == 0) {
+                markdown.append(i == 0 ? "" : "\n---\n\n").append("| Id | Name |\n|----|------|\n");
+            }
+            markdown.append("| ").append(i).append(" | Item ").append(i).append(" |\n");
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+        outputFile = Files.createTempFile("furniture-benchmark", ".pdf");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        long contentBytes = BenchmarkSupport.contentStreamBytes(outputFile);
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            System.out.println();
+            System.out.println("furniture=" + furniture + ": " + pdf.getNumberOfPages() + " pages, file "
+                    + Files.size(outputFile) + " bytes, page content " + contentBytes + " bytes, shared forms "
+                    + formBytes(pdf) + " bytes");
+        }
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generatePdf() throws IOException {
+        PDFGenerator generator = new PDFGenerator();
+        if (furniture) {
+            generator.setPageHeader("Page Furniture Benchmark");
+            generator.setPageFooter("md2word");
+            generator.setPageNumbers(true);
+        }
+        generator.generate(ast, outputFile);
+    }
+
+    private static long formBytes(PDDocument pdf) throws IOException {
+        Set<COSBase> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        long total = 0;
+        for (PDPage page : pdf.getPages()) {
+            PDResources resources = page.getResources();
+            for (COSName name : resources.getXObjectNames()) {
+                if (resources.getXObject(name) instanceof PDFormXObject form && seen.add(form.getCOSObject())) {
+                    try (InputStream contents = form.getContents()) {
+                        total += contents.transferTo(OutputStream.nullOutputStream());
+                    }
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,67 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PDF generation time for the sample documents in {@code ../test-resources/samples}.
+ * The content stream size of each generated document is printed once per trial.
+ *
+ * <p>Run from the MarkDownToWordSource directory with:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SampleCorpusBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SampleCorpusBenchmark {
+
+    private static final Path SAMPLES = Path.of("..", "test-resources", "samples");
+
+    /** Sample document to convert. */
+    @Param({"basic-test", "code-test", "complete-test", "edge-cases-test", "lists-test"})
+    public String sample;
+
+    private Document ast;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ast = new MarkdownParser().parse(Files.readString(SAMPLES.resolve(sample + ".md")));
+        outputFile = Files.createTempFile("corpus-benchmark", ".pdf");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println(sample + ": content stream " + BenchmarkSupport.contentStreamBytes(outputFile)
+                + " bytes, file " + Files.size(outputFile) + " bytes");
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generatePdf() throws IOException {
+        new PDFGenerator().generate(ast, outputFile);
+    }
+}
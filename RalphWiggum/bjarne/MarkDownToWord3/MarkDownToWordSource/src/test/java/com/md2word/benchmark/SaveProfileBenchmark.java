@@ -0,0 +1,94 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.generator.PdfSaveProfile;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PDF generation time of a large document under each {@link PdfSaveProfile}.
+ * The file size of each profile is printed once per trial, so the report shows the
+ * size against save time trade-off.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SaveProfileBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SaveProfileBenchmark {
+
+    private static final String BUNDLED_FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    /** Compression profile used to save the document. */
+    @Param({"FAST", "BALANCED", "SMALLEST"})
+    public PdfSaveProfile profile;
+
+    /** Which fonts the generator uses; embedded fonts add a font subset stream. */
+    @Param({"standard14", "embedded"})
+    public String fonts;
+
+    private Document ast;
+    private Path fontFile;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# Save Profile Benchmark\n\n");
+        for (int i = 0; i < 500; i++) {
+            markdown.append("## Section ").append(i).append("\n\n")
+                    .append("Paragraph ").append(i).append(" with **bold**, *italic* and `code` text.\n\n")
+                    .append("- First item\n- Second item\n\n")
+                    .append("| Name | Value |\n|------|-------|\n| row ").append(i).append(" | ").append(i * 7)
+                    .append(" |\n\n")
+                    .append("```\nint value = ").append(i).append(";\n```\n\n");
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+
+        fontFile = Files.createTempFile("save-benchmark", ".ttf");
+        try (InputStream in = PDFGenerator.class.getResourceAsStream(BUNDLED_FONT)) {
+            Files.copy(in, fontFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        outputFile = Files.createTempFile("save-benchmark", ".pdf");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println(profile + "/" + fonts + ": file " + Files.size(outputFile) + " bytes");
+        Files.deleteIfExists(outputFile);
+        Files.deleteIfExists(fontFile);
+    }
+
+    @Benchmark
+    public void generatePdf() throws IOException {
+        PDFGenerator generator = new PDFGenerator();
+        if ("embedded".equals(fonts)) {
+            generator.setTextFonts(fontFile, fontFile, fontFile, fontFile);
+        }
+        generator.setSaveProfile(profile);
+        generator.generate(ast, outputFile);
+    }
+}
@@ -0,0 +1,76 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PDF generation time for a single table of increasing size. Cells mix plain, bold
+ * and long wrapping text, so rows have different heights. The page count of the generated
+ * document is printed once per trial.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TableRenderingBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class TableRenderingBenchmark {
+
+    /** Number of body rows in the table. */
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private Document ast;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("| Id | Name | Description |\n|----|------|-------------|\n");
+        for (int i = 0; i < rows; i++) {
+            markdown.append("| ").append(i).append(" | **Item ").append(i).append("** | ")
+                    .append(i % 10 == 0 ? "A longer description that wraps onto a second line of the cell " : "Short")
+                    .append(i % 10 == 0 ? "because it does not fit the sampled column width." : "")
+                    .append(" |\n");
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+        outputFile = Files.createTempFile("table-benchmark", ".pdf");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (PDDocument pdf = Loader.loadPDF(outputFile.toFile())) {
+            System.out.println();
+            System.out.println(rows + " rows: " + pdf.getNumberOfPages() + " pages, file "
+                    + Files.size(outputFile) + " bytes");
+        }
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generatePdf() throws IOException {
+        new PDFGenerator().generate(ast, outputFile);
+    }
+}
@@ -0,0 +1,107 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.generator.WordGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.sun.management.ThreadMXBean;
+import com.vladsch.flexmark.util.ast.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PDF and Word generation for a text-heavy document of 3,000 formatted paragraphs
+ * with code blocks, blockquotes and small tables. Once per trial the bytes allocated per
+ * byte of Markdown input are printed for rendering each format from the parsed document,
+ * as measured for the benchmark thread and taking the least of a few runs, so the cost of
+ * handing text from the parsed document to the output libraries can be compared between
+ * versions.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TextAllocationBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class TextAllocationBenchmark {
+
+    private static final int PARAGRAPHS = 3_000;
+    private static final int ALLOCATION_RUNS = 5;
+
+    private long inputBytes;
+    private Document ast;
+    private Path pdfFile;
+    private Path docxFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# Report\n\n");
+        for (int i = 0; i < PARAGRAPHS; i++) {
+            markdown.append("Paragraph ").append(i).append(" has plain text, *emphasized words*, **strong text** ")
+                    .append("and `inline code`, followed by a longer sentence that carries most of the ")
+                    .append("paragraph's characters, as prose in real documents does.\n\n");
+            if (i % 10 == 0) {
+                markdown.append("```\nfor (int i = 0; i < ").append(i).append("; i++) {\n    total += i;\n}\n```\n\n")
+                        .append("> A quoted remark about paragraph ").append(i).append(".\n\n");
+            }
+            if (i % 50 == 0) {
+                markdown.append("| Name | Value |\n|------|-------|\n| alpha | ").append(i)
+                        .append(" |\n| beta | **").append(i * 2).append("** |\n\n");
+            }
+        }
+        String source = markdown.toString();
+        inputBytes = source.getBytes(StandardCharsets.UTF_8).length;
+        ast = new MarkdownParser().parse(source);
+        pdfFile = Files.createTempFile("allocation-benchmark", ".pdf");
+        docxFile = Files.createTempFile("allocation-benchmark", ".docx");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long pdf = Long.MAX_VALUE;
+        long docx = Long.MAX_VALUE;
+        for (int run = 0; run < ALLOCATION_RUNS; run++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            generatePdf();
+            pdf = Math.min(pdf, threads.getCurrentThreadAllocatedBytes() - before);
+            before = threads.getCurrentThreadAllocatedBytes();
+            generateDocx();
+            docx = Math.min(docx, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+
+        System.out.println();
+        System.out.printf("input %d bytes; allocated per input byte: PDF %.1f, Word %.1f%n",
+                inputBytes, (double) pdf / inputBytes, (double) docx / inputBytes);
+        Files.deleteIfExists(pdfFile);
+        Files.deleteIfExists(docxFile);
+    }
+
+    @Benchmark
+    public void generatePdf() throws IOException {
+        new PDFGenerator().generate(ast, pdfFile);
+    }
+
+    @Benchmark
+    public void generateDocx() throws IOException {
+        new WordGenerator().generate(ast, docxFile);
+    }
+}
@@ -0,0 +1,89 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.PDFGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PDF generation throughput for documents with varying amounts of text
+ * that the Standard 14 fonts cannot encode.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TextEncodingBenchmark}</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TextEncodingBenchmark {
+
+    private static final String LATIN = "The quick brown fox jumps over the lazy dog, again and again.";
+    private static final String GREEK = "Η γρήγορη καφέ αλεπού πηδά πάνω από τον τεμπέλη σκύλο.";
+    private static final String CJK = "敏捷的棕色狐狸跳过了懒狗。快速的棕色狐狸。";
+    private static final String TREE = "├── src/main/java │ └── Main.java ─ entry point";
+
+    /** Share of paragraphs and code lines that contain non-Latin text. */
+    @Param({"latin", "mixed", "nonLatin"})
+    public String script;
+
+    private Document ast;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# Encoding Benchmark\n\n");
+        for (int i = 0; i < 300; i++) {
+            markdown.append(pick(i, LATIN, GREEK + " " + CJK)).append(" **").append(pick(i + 1, LATIN, CJK))
+                    .append("** and `").append(pick(i, "code()", TREE)).append("`\n\n");
+            if (i % 10 == 0) {
+                markdown.append("```\n");
+                for (int line = 0; line < 10; line++) {
+                    markdown.append(pick(i + line, "    int value = compute(index);", TREE)).append('\n');
+                }
+                markdown.append("```\n\n");
+            }
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+        outputFile = Files.createTempFile("encoding-benchmark", ".pdf");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generatePdf() throws IOException {
+        new PDFGenerator().generate(ast, outputFile);
+    }
+
+    private String pick(int index, String latin, String nonLatin) {
+        switch (script) {
+            case "latin":
+                return latin;
+            case "mixed":
+                return index % 2 == 0 ? latin : nonLatin;
+            default:
+                return nonLatin;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.WordFragmentCache;
+import com.md2word.generator.WordGenerator;
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
+import com.md2word.parser.MarkdownParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Word generation of documents that share their boilerplate: license paragraphs,
+ * a support table of 200 rows and a list of standard warnings, followed by a short section
+ * of their own. Each invocation converts the next of 100 such documents, with and without
+ * a fragment cache. The cache's hit rate and size are printed once per trial.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=WordFragmentCacheBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class WordFragmentCacheBenchmark {
+
+    private static final int DOCUMENTS = 100;
+
+    /** Whether the generator renders repeated blocks from a fragment cache. */
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private DocumentIr[] documents;
+    private WordFragmentCache cache;
+    private int next;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder boilerplate = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            boilerplate.append("Licensed under the Apache License, Version 2.0 (the \"License\"); you may not use ")
+                    .append("this file except in compliance with the License. You may obtain a copy of the License ")
+                    .append("at [apache.org](https://www.apache.org/licenses/LICENSE-2.0). Unless required by ")
+                    .append("applicable law or agreed to in writing, software distributed under the License is ")
+                    .append("distributed on an **\"AS IS\" BASIS**, *without warranties or conditions of any kind*, ")
+                    .append("either express or implied. Section ").append(i + 1).append(".\n\n");
+        }
+        boilerplate.append("| Region | Channel | Contact | Hours |\n|---|---|---|---|\n");
+        for (int i = 0; i < 200; i++) {
+            boilerplate.append("| Region ").append(i).append(" | **Phone** | [support").append(i)
+                    .append("](https://example.com/support/").append(i).append(") | *9:00-17:00* |\n");
+        }
+        boilerplate.append("\n- **Warning:** back up your data before upgrading, as the migration cannot be undone\n")
+                .append("  - Check the [upgrade guide](https://example.com/upgrade) for the steps of your version\n")
+                .append("- **Caution:** running `reindex` on a live cluster slows down queries for several hours\n\n");
+        documents = new DocumentIr[DOCUMENTS];
+        for (int d = 0; d < DOCUMENTS; d++) {
+            String markdown = "# Product " + d + "\n\nThe release notes of product " + d + ".\n\n" + boilerplate;
+            documents[d] = new DocumentIrBuilder().build(new MarkdownParser().parse(markdown));
+        }
+        cache = new WordFragmentCache(WordFragmentCache.DEFAULT_MAX_BYTES);
+        outputFile = Files.createTempFile("fragment-cache-benchmark", ".docx");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.printf(Locale.ROOT, "cached=%s: %d hits, %d misses, %.1f%% hit rate, %d bytes cached, file %d bytes%n",
+                cached, cache.getHitCount(), cache.getMissCount(), cache.getHitRate() * 100, cache.getCurrentBytes(),
+                Files.size(outputFile));
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generateDocx() throws IOException {
+        WordGenerator generator = new WordGenerator();
+        generator.setFragmentCache(cached ? cache : null);
+        generator.generate(documents[next], outputFile);
+        next = (next + 1) % DOCUMENTS;
+    }
+}
@@ -0,0 +1,107 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.WordGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipFile;
+
+/**
+ * Measures Word generation for a reference document of 30,000 links to 300 distinct URLs,
+ * in paragraphs, list items and tables. The number of hyperlinks in document.xml, the
+ * number of relationships of the document part and the size of its relationships part are
+ * printed once per trial.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=WordHyperlinkBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class WordHyperlinkBenchmark {
+
+    private static final int LINKS = 30_000;
+    private static final int URLS = 300;
+    private static final Pattern RELATIONSHIP = Pattern.compile("<Relationship ");
+
+    private Document ast;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# Reference\n\n");
+        for (int i = 0; i < LINKS; i += 3) {
+            String a = "https://docs.example.com/api/" + (i % URLS);
+            String b = "https://docs.example.com/api/" + ((i + 1) % URLS);
+            String c = "https://docs.example.com/api/" + ((i + 2) % URLS);
+            if (i % 30 == 0) {
+                markdown.append("| Symbol | See |\n|---|---|\n| [symbol ").append(i).append("](").append(a)
+                        .append(") | [overview](").append(b).append(") and [details](").append(c).append(") |\n\n");
+            } else if (i % 9 == 0) {
+                markdown.append("- [entry ").append(i).append("](").append(a).append("), [related](").append(b)
+                        .append(") and [index](").append(c).append(")\n\n");
+            } else {
+                markdown.append("The [method ").append(i).append("](").append(a).append(") calls [helper](").append(b)
+                        .append(") as described in [the guide](").append(c).append(").\n\n");
+            }
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+        outputFile = Files.createTempFile("hyperlink-benchmark", ".docx");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        // The parts are read directly, since POI refuses a file compressed this well
+        String xml;
+        String relationships;
+        try (ZipFile zip = new ZipFile(outputFile.toFile())) {
+            try (InputStream in = zip.getInputStream(zip.getEntry("word/document.xml"))) {
+                xml = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            try (InputStream in = zip.getInputStream(zip.getEntry("word/_rels/document.xml.rels"))) {
+                relationships = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        int hyperlinks = 0;
+        for (int i = xml.indexOf("<w:hyperlink "); i >= 0; i = xml.indexOf("<w:hyperlink ", i + 1)) {
+            hyperlinks++;
+        }
+        int relationshipCount = 0;
+        Matcher matcher = RELATIONSHIP.matcher(relationships);
+        while (matcher.find()) {
+            relationshipCount++;
+        }
+        System.out.println();
+        System.out.println(hyperlinks + " hyperlinks, " + relationshipCount + " relationships ("
+                + relationships.length() + " bytes), document.xml " + xml.length() + " bytes, file "
+                + Files.size(outputFile) + " bytes");
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generateDocx() throws IOException {
+        new WordGenerator().generate(ast, outputFile);
+    }
+}
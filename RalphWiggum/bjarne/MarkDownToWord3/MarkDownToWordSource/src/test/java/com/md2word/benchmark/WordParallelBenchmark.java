@@ -0,0 +1,84 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.WordGenerator;
+import com.md2word.ir.DocumentIr;
+import com.md2word.ir.DocumentIrBuilder;
+import com.md2word.parser.MarkdownParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Word generation of a large document of 10,000 sections with headings, formatted
+ * paragraphs, links, lists, code blocks and small tables, rendered on an increasing number
+ * of threads. The number of available processors is printed once per trial, since the
+ * speed-up over one thread is bounded by it.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=WordParallelBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class WordParallelBenchmark {
+
+    private static final int SECTIONS = 10_000;
+
+    /** Number of threads rendering the document. */
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private DocumentIr ir;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# Handbook\n\n");
+        for (int i = 0; i < SECTIONS; i++) {
+            markdown.append("## Topic ").append(i).append("\n\n")
+                    .append("Topic ").append(i).append(" covers *emphasized ideas*, **strong claims**, `inline code` ")
+                    .append("and a [reference](https://example.com/topics/").append(i % 50).append(").\n\n");
+            if (i % 5 == 0) {
+                markdown.append("- first point\n- second point with **bold**\n  - nested detail\n\n");
+            }
+            if (i % 10 == 0) {
+                markdown.append("```\nrun(").append(i).append(");\n```\n\n")
+                        .append("| Key | Value |\n|-----|-------|\n| id | ").append(i).append(" |\n\n");
+            }
+        }
+        ir = new DocumentIrBuilder().build(new MarkdownParser().parse(markdown.toString()));
+        outputFile = Files.createTempFile("parallel-benchmark", ".docx");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println(parallelism + " threads on " + Runtime.getRuntime().availableProcessors()
+                + " available processors, " + ir.size() + " IR nodes, file " + Files.size(outputFile) + " bytes");
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generateDocx() throws IOException {
+        WordGenerator generator = new WordGenerator();
+        generator.setParallelism(parallelism);
+        generator.generate(ir, outputFile);
+    }
+}
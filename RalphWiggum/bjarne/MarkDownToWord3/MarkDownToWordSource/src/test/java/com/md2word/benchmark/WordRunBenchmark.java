@@ -0,0 +1,84 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.WordGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+/**
+ * Measures Word generation for 4,000 hard-wrapped paragraphs and blockquotes, the common
+ * shape of prose written in Markdown, where flexmark produces a text node per source line
+ * and around every emphasis. The number of runs and the size of document.xml are printed
+ * once per trial.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=WordRunBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class WordRunBenchmark {
+
+    private static final int PARAGRAPHS = 4_000;
+
+    private Document ast;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# Notes\n\n");
+        for (int i = 0; i < PARAGRAPHS; i++) {
+            String prefix = i % 4 == 3 ? "> " : "";
+            markdown.append(prefix).append("Paragraph ").append(i).append(" is wrapped at a fixed width, the way\n")
+                    .append(prefix).append("most Markdown prose is written, so each source line becomes\n")
+                    .append(prefix).append("its own text node, with *a few emphasized words* and some\n")
+                    .append(prefix).append("**strong text** spread across the lines of the paragraph.\n\n");
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+        outputFile = Files.createTempFile("run-benchmark", ".docx");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        // document.xml is read directly, since POI refuses a file compressed this well
+        String xml;
+        try (ZipFile zip = new ZipFile(outputFile.toFile());
+             InputStream in = zip.getInputStream(zip.getEntry("word/document.xml"))) {
+            xml = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        int runs = 0;
+        for (int i = xml.indexOf("<w:r>"); i >= 0; i = xml.indexOf("<w:r>", i + 1)) {
+            runs++;
+        }
+        System.out.println();
+        System.out.println(runs + " runs, document.xml " + xml.length() + " bytes, file "
+                + Files.size(outputFile) + " bytes");
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generateDocx() throws IOException {
+        new WordGenerator().generate(ast, outputFile);
+    }
+}
@@ -0,0 +1,88 @@
+package com.md2word.benchmark;
+
+import com.md2word.generator.WordGenerator;
+import com.md2word.parser.MarkdownParser;
+import com.vladsch.flexmark.util.ast.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+/**
+ * Measures Word generation for 3,000 paragraphs dense with inline code, links and quotes,
+ * the text whose look comes from a fixed set of run properties. The number of XML elements
+ * in document.xml, which POI holds as one object each, and its size are printed once per
+ * trial.
+ *
+ * <p>Run with: {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=WordStyleBenchmark}</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class WordStyleBenchmark {
+
+    private static final int PARAGRAPHS = 3_000;
+
+    private Document ast;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder markdown = new StringBuilder("# API Notes\n\n");
+        for (int i = 0; i < PARAGRAPHS; i++) {
+            markdown.append("Call `client.fetch(").append(i).append(")` and then `close()`, as the ")
+                    .append("[reference](https://example.com/api/").append(i).append(") and the ")
+                    .append("[changelog](https://example.com/changes) describe.\n\n");
+            if (i % 5 == 0) {
+                markdown.append("> Prefer `retry()` over a loop; see [retries](https://example.com/retry).\n\n");
+            }
+        }
+        ast = new MarkdownParser().parse(markdown.toString());
+        outputFile = Files.createTempFile("style-benchmark", ".docx");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        // document.xml is read directly, since POI refuses a file compressed this well
+        String xml;
+        try (ZipFile zip = new ZipFile(outputFile.toFile());
+             InputStream in = zip.getInputStream(zip.getEntry("word/document.xml"))) {
+            xml = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        int elements = 0;
+        for (int i = xml.indexOf('<'); i >= 0; i = xml.indexOf('<', i + 1)) {
+            char next = xml.charAt(i + 1);
+            if (next != '/' && next != '?') {
+                elements++;
+            }
+        }
+        System.out.println();
+        System.out.println(elements + " elements, document.xml " + xml.length() + " bytes, file "
+                + Files.size(outputFile) + " bytes");
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void generateDocx() throws IOException {
+        new WordGenerator().generate(ast, outputFile);
+    }
+}